@@ -0,0 +1,78 @@
+package bench;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basket.IBasketImpl;
+import history.EpochDays;
+import model.BacktestReport;
+import model.IStockModel;
+import model.IStockModelImpl;
+import model.Strategy;
+
+/**
+ * This class measures a sweep of crossover strategies over a given number of stocks with ten
+ * years of history each: every short window from 5 to 100 days by 5 and every longer long window
+ * from 20 to 300 days by 10.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class BacktestBenchmark {
+
+  @Param({"100", "1000"})
+  int stocks;
+
+  private IStockModel model;
+  private List<Strategy> strategies;
+  private Date first;
+  private Date last;
+
+  /**
+   * Loads the histories and makes the strategies.
+   */
+  @Setup
+  public void setUp() {
+    model = new IStockModelImpl(new IBasketImpl(), Fixtures.source(10));
+    if (!model.addHistories(Fixtures.symbols(stocks)).isEmpty()) {
+      throw new IllegalStateException("Fixtures did not load");
+    }
+    int[] shortWindows = new int[20];
+    for (int i = 0; i < shortWindows.length; i++) {
+      shortWindows[i] = 5 * (i + 1);
+    }
+    int[] longWindows = new int[29];
+    for (int i = 0; i < longWindows.length; i++) {
+      longWindows[i] = 20 + 10 * i;
+    }
+    strategies = Strategy.crossovers(shortWindows, longWindows);
+    first = EpochDays.toDate((int) Fixtures.LAST_DAY.minusYears(8).toEpochDay());
+    last = EpochDays.toDate((int) Fixtures.LAST_DAY.toEpochDay());
+  }
+
+  /**
+   * Measures backtest.
+   *
+   * @return the report.
+   */
+  @Benchmark
+  public BacktestReport sweep() {
+    return model.backtest(strategies, first, last);
+  }
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks with the allocation profiler on, so that every result reports
+ * the bytes allocated per operation next to its time. Arguments are the usual JMH command line
+ * options, such as a benchmark name pattern or -p years=30.
+ */
+public final class BenchmarkMain {
+
+  /**
+   * Empty constructor, this class only has a main method.
+   */
+  private BenchmarkMain() {
+    //empty because this class is never instantiated.
+  }
+
+  /**
+   * Run the benchmarks.
+   *
+   * @param args given JMH command line options.
+   * @throws RunnerException if a benchmark fails.
+   * @throws CommandLineOptionException if the options are not valid.
+   */
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+}
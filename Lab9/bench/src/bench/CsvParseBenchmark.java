@@ -0,0 +1,93 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import history.PriceSeries;
+import stockapp.CsvHistoryParser;
+
+/**
+ * This class measures parsing one full Alpha Vantage daily CSV, with the streaming
+ * CsvHistoryParser and with the Scanner based parsing it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvParseBenchmark {
+
+  @Param({"1", "10", "30"})
+  int years;
+
+  private byte[] csv;
+
+  /**
+   * Loads the CSV fixture.
+   *
+   * @throws IOException if a recorded fixture cannot be read.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    csv = Fixtures.csv("MSFT", years);
+  }
+
+  /**
+   * Parses with the streaming parser.
+   *
+   * @return the parsed series.
+   * @throws IOException if the CSV is malformed.
+   */
+  @Benchmark
+  public PriceSeries streamingParser() throws IOException {
+    return CsvHistoryParser.parse(new ByteArrayInputStream(csv));
+  }
+
+  /**
+   * Parses the way StockApplication.makeHistory used to, as the baseline.
+   *
+   * @return the parsed hashmap.
+   * @throws ParseException if a date is malformed.
+   */
+  @Benchmark
+  public HashMap<Date, Double> scannerBaseline() throws ParseException {
+    Scanner sc = new Scanner(new ByteArrayInputStream(csv));
+    sc.useDelimiter(",|\\n");
+    HashMap<Date, Double> newHistory = new HashMap<>();
+    sc.nextLine();
+    while (sc.hasNext()) {
+      String tempDate = sc.next();
+      DateFormat tempFormat = new SimpleDateFormat("yyyy-MM-dd");
+      Date date = tempFormat.parse(tempDate);
+      int counter = 0;
+      while (counter < 3) {
+        sc.next();
+        counter++;
+      }
+      double priceFinal = Float.parseFloat(sc.next());
+      newHistory.put(date, priceFinal);
+      sc.next();
+    }
+    return newHistory;
+  }
+}
@@ -0,0 +1,137 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import history.EpochDays;
+import history.HistorySource;
+import history.PriceSeries;
+import history.TickerSymbol;
+import stockapp.CsvDirectorySource;
+import stockapp.SyntheticHistorySource;
+
+/**
+ * This class provides the price data used by the benchmarks. Recorded Alpha Vantage CSV files
+ * are read from the directory given by the bench.fixtures system property; without it, data is
+ * generated as a random walk over the weekdays up to 2018-07-09.
+ */
+public final class Fixtures {
+
+  /**
+   * Last trading day of every generated fixture.
+   */
+  public static final LocalDate LAST_DAY = LocalDate.of(2018, 7, 9);
+
+  /**
+   * Empty constructor, this class only has static methods.
+   */
+  private Fixtures() {
+    //empty because this class is never instantiated.
+  }
+
+  /**
+   * Returns the CSV of a symbol, recorded if a file for it exists in the fixtures directory and
+   * generated otherwise.
+   *
+   * @param symbol given ticker symbol.
+   * @param years  given number of years to generate if nothing is recorded.
+   * @return the CSV bytes.
+   * @throws IOException if the recorded file cannot be read.
+   */
+  public static byte[] csv(String symbol, int years) throws IOException {
+    String dir = System.getProperty("bench.fixtures");
+    if (dir != null) {
+      Path recorded = Paths.get(dir, symbol + ".csv");
+      if (Files.exists(recorded)) {
+        return Files.readAllBytes(recorded);
+      }
+    }
+    return generate(years, symbol.hashCode());
+  }
+
+  /**
+   * Returns a HistorySource over the fixtures. Recorded CSV is parsed; symbols without a
+   * recorded file get a SyntheticHistorySource history, which is cheap enough to load thousands
+   * of symbols.
+   *
+   * @param years given number of years to generate if nothing is recorded.
+   * @return the history source.
+   */
+  public static HistorySource source(int years) {
+    HistorySource synthetic = new SyntheticHistorySource((int) LAST_DAY.toEpochDay(), years);
+    String dir = System.getProperty("bench.fixtures");
+    if (dir == null) {
+      return synthetic;
+    }
+    CsvDirectorySource recorded = new CsvDirectorySource(Paths.get(dir));
+    return tickerSymbol -> Files.exists(Paths.get(dir, tickerSymbol + ".csv"))
+            ? recorded.load(tickerSymbol) : synthetic.load(tickerSymbol);
+  }
+
+  /**
+   * Returns the given number of ticker symbols: the four original ones, then made up symbols
+   * named S4, S5 and so on.
+   *
+   * @param count given number of symbols.
+   * @return the symbols.
+   */
+  public static List<TickerSymbol> symbols(int count) {
+    List<TickerSymbol> symbols = new ArrayList<>(count);
+    symbols.addAll(Arrays.asList(TickerSymbol.AAPL, TickerSymbol.W, TickerSymbol.MSFT,
+            TickerSymbol.IBM));
+    for (int i = symbols.size(); i < count; i++) {
+      symbols.add(TickerSymbol.of("S" + i));
+    }
+    return symbols.subList(0, count);
+  }
+
+  /**
+   * Returns the trading days of a series as dates.
+   *
+   * @param series given series.
+   * @return one date per trading day.
+   */
+  public static Date[] dates(PriceSeries series) {
+    Date[] dates = new Date[series.size()];
+    for (int i = 0; i < dates.length; i++) {
+      dates[i] = EpochDays.toDate(series.dayAt(i));
+    }
+    return dates;
+  }
+
+  /**
+   * Generates CSV in the Alpha Vantage daily format, newest day first.
+   *
+   * @param years given number of years of weekdays.
+   * @param seed  given seed of the random walk.
+   * @return the CSV bytes.
+   */
+  public static byte[] generate(int years, long seed) {
+    Random random = new Random(seed);
+    StringBuilder csv = new StringBuilder("timestamp,open,high,low,close,volume\n");
+    double close = 100;
+    for (LocalDate day = LAST_DAY; day.isAfter(LAST_DAY.minusYears(years));
+         day = day.minusDays(1)) {
+      if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+        continue;
+      }
+      double open = close;
+      close = Math.max(1, close * (1 + random.nextGaussian() * 0.01));
+      csv.append(day).append(',')
+              .append(String.format("%.4f,%.4f,%.4f,%.4f,", open, Math.max(open, close) * 1.005,
+                      Math.min(open, close) * 0.995, close))
+              .append(1000000 + random.nextInt(9000000)).append('\n');
+    }
+    return csv.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,236 @@
+package bench;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import history.EpochDays;
+import history.IHistory;
+import history.IHistoryImpl;
+import history.Indicator;
+import history.IndicatorBuffer;
+import history.IndicatorEngine;
+import history.PriceCursor;
+import history.PriceSeries;
+import history.TickerSymbol;
+import javafx.util.Pair;
+
+/**
+ * This class measures the queries of one IHistory. Single-day queries cycle through every
+ * trading day of the history, and range queries cover the last year of it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+
+  @Param({"1", "10", "30"})
+  int years;
+
+  private IHistory history;
+  private Date[] dates;
+  private Date yearStart;
+  private Date last;
+  private int next;
+  private IHistory growing;
+  private int appended;
+  private final IndicatorEngine indicators = new IndicatorEngine(Indicator.sma(50),
+          Indicator.sma(200), Indicator.ema(12), Indicator.ema(26), Indicator.rsi(14),
+          Indicator.bollinger(20, 2), Indicator.macd(12, 26, 9));
+  private final IndicatorEngine[] separateIndicators = {
+      new IndicatorEngine(Indicator.sma(50)), new IndicatorEngine(Indicator.sma(200)),
+      new IndicatorEngine(Indicator.ema(12)), new IndicatorEngine(Indicator.ema(26)),
+      new IndicatorEngine(Indicator.rsi(14)), new IndicatorEngine(Indicator.bollinger(20, 2)),
+      new IndicatorEngine(Indicator.macd(12, 26, 9))};
+  private final IndicatorBuffer buffer = new IndicatorBuffer();
+
+  /**
+   * Loads the history.
+   *
+   * @throws IOException if a recorded fixture cannot be read.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    PriceSeries series = Fixtures.source(years).load(TickerSymbol.MSFT);
+    history = new IHistoryImpl(series);
+    dates = Fixtures.dates(series);
+    last = dates[dates.length - 1];
+    yearStart = dates[Math.max(0, dates.length - 252)];
+    history.buyOpportunity(last);
+    history.maxPrice(yearStart, last);
+    growing = history;
+  }
+
+  /**
+   * Returns the next trading day to query.
+   *
+   * @return a trading day of the history.
+   */
+  private Date nextDate() {
+    next = next + 1 == dates.length ? 0 : next + 1;
+    return dates[next];
+  }
+
+  /**
+   * Measures appending one trading day to a history whose indexes are built, then asking for the
+   * buying opportunity of that day. The history is reset every hundred thousand days.
+   *
+   * @return the buying opportunity.
+   */
+  @Benchmark
+  public boolean appendDay() {
+    if (appended == 100_000) {
+      growing = history;
+      appended = 0;
+    }
+    appended++;
+    Date day = new Date(last.getTime() + appended * 86_400_000L);
+    growing = growing.append(day, 100 + (appended & 15));
+    return growing.buyOpportunity(day);
+  }
+
+  /**
+   * Measures computing seven indicators, eleven columns, over the whole history in one pass
+   * into a reused buffer.
+   *
+   * @return the last value of the first column.
+   */
+  @Benchmark
+  public double indicatorsOnePassAll() {
+    history.indicators(indicators, dates[0], last, buffer);
+    return buffer.get(0, buffer.size() - 1);
+  }
+
+  /**
+   * Measures computing the same seven indicators over the whole history one after the other, one
+   * pass each, into a reused buffer.
+   *
+   * @return the sum of the last values of the first columns.
+   */
+  @Benchmark
+  public double indicatorsSeparatelyAll() {
+    double sum = 0;
+    for (IndicatorEngine engine : separateIndicators) {
+      history.indicators(engine, dates[0], last, buffer);
+      sum += buffer.get(0, buffer.size() - 1);
+    }
+    return sum;
+  }
+
+  /**
+   * Measures priceOnDay.
+   *
+   * @return the price.
+   */
+  @Benchmark
+  public double priceOnDay() {
+    return history.priceOnDay(nextDate());
+  }
+
+  /**
+   * Measures buyOpportunity.
+   *
+   * @return whether there is a buying opportunity.
+   */
+  @Benchmark
+  public boolean buyOpportunity() {
+    return history.buyOpportunity(nextDate());
+  }
+
+  /**
+   * Measures buyOpportunities over the last year.
+   *
+   * @return the buying opportunities.
+   */
+  @Benchmark
+  public BitSet buyOpportunitiesLastYear() {
+    return history.buyOpportunities(yearStart, last);
+  }
+
+  /**
+   * Measures historicalPrices over the last year, reading every pair of the list as a chart feed
+   * does.
+   *
+   * @return the sum of the prices.
+   */
+  @Benchmark
+  public double historicalPricesLastYear() {
+    return sum(history.historicalPrices(yearStart, last));
+  }
+
+  /**
+   * Measures historicalPrices over the whole history, reading every pair of the list.
+   *
+   * @return the sum of the prices.
+   */
+  @Benchmark
+  public double historicalPricesAll() {
+    return sum(history.historicalPrices(dates[0], last));
+  }
+
+  /**
+   * Measures reading the whole history through a cursor over its price range.
+   *
+   * @return the sum of the prices.
+   */
+  @Benchmark
+  public double priceRangeCursorAll() {
+    PriceCursor cursor = history.priceRange(dates[0], last).cursor();
+    double sum = 0;
+    while (cursor.next()) {
+      sum += cursor.close() + cursor.day();
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the sum of the dates and prices of a list, so that every pair is read.
+   *
+   * @param prices given list of dates and prices.
+   * @return the sum.
+   */
+  private static double sum(List<Pair<Date, Double>> prices) {
+    double sum = 0;
+    for (Pair<Date, Double> price : prices) {
+      sum += price.getValue() + EpochDays.fromDate(price.getKey());
+    }
+    return sum;
+  }
+
+  /**
+   * Measures trendUpPerStock over the last year.
+   *
+   * @return whether the stock trends up.
+   */
+  @Benchmark
+  public boolean trendUpPerStock() {
+    return history.trendUpPerStock(yearStart, last);
+  }
+
+  /**
+   * Measures maxPrice over the whole history.
+   *
+   * @return the highest price.
+   */
+  @Benchmark
+  public double maxPriceAll() {
+    return history.maxPrice(dates[0], last);
+  }
+}
@@ -0,0 +1,191 @@
+package bench;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basket.BasketValueSeries;
+import basket.GapPolicy;
+import basket.IBasket;
+import basket.IBasketImpl;
+import controller.Controller;
+import history.EpochDays;
+import history.TickerSymbol;
+import javafx.util.Pair;
+import model.CrossoverEvent;
+import model.IStockModel;
+import model.IStockModelImpl;
+import model.ScreenFilter;
+
+/**
+ * This class measures the queries of IStockModelImpl, the basket valuation and the chart
+ * preparation of the Controller, for a model holding a given number of ticker symbols that are
+ * all in the basket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ModelBenchmark {
+
+  @Param({"1", "10", "30"})
+  int years;
+
+  @Param({"1", "10", "100", "1000", "5000"})
+  int tickers;
+
+  private IStockModel model;
+  private TickerSymbol symbol;
+  private Date last;
+  private Date yearStart;
+  private Date twoWeeksStart;
+  private Date first;
+  private NullView yearView;
+  private NullView allView;
+  private final Controller controller = new Controller();
+
+  /**
+   * Builds the model and its basket.
+   */
+  @Setup
+  public void setUp() {
+    List<TickerSymbol> symbols = Fixtures.symbols(tickers);
+    IBasket basket = new IBasketImpl();
+    for (TickerSymbol tickerSymbol : symbols) {
+      basket.add(tickerSymbol, 10);
+    }
+    model = new IStockModelImpl(basket, Fixtures.source(years));
+    if (!model.addHistories(symbols).isEmpty()) {
+      throw new IllegalStateException("Fixtures did not load");
+    }
+    symbol = symbols.get(0);
+    int lastDay = (int) Fixtures.LAST_DAY.toEpochDay();
+    last = EpochDays.toDate(lastDay);
+    yearStart = EpochDays.toDate(lastDay - 365);
+    twoWeeksStart = EpochDays.toDate(lastDay - 13);
+    first = EpochDays.toDate(lastDay - 365 * years);
+    yearView = new NullView(symbol, yearStart, last);
+    allView = new NullView(symbol, first, last);
+  }
+
+  /**
+   * Measures totalPrice, the basket value on one day.
+   *
+   * @return the basket value.
+   */
+  @Benchmark
+  public double basketValue() {
+    return model.totalPrice(last);
+  }
+
+  /**
+   * Measures totalPriceSeries, the basket value on every day of the last year.
+   *
+   * @return the basket values.
+   */
+  @Benchmark
+  public BasketValueSeries basketValueSeriesLastYear() {
+    return model.totalPriceSeries(yearStart, last, GapPolicy.CARRY_FORWARD);
+  }
+
+  /**
+   * Measures screenBuyOpportunities over every stock for the last two weeks, the nightly job.
+   *
+   * @return the crossovers.
+   */
+  @Benchmark
+  public List<CrossoverEvent> screenLastTwoWeeks() {
+    return model.screenBuyOpportunities(twoWeeksStart, last, ScreenFilter.ANY);
+  }
+
+  /**
+   * Measures screenBuyOpportunities over every stock for the last year.
+   *
+   * @return the crossovers.
+   */
+  @Benchmark
+  public List<CrossoverEvent> screenLastYear() {
+    return model.screenBuyOpportunities(yearStart, last, ScreenFilter.ANY);
+  }
+
+  /**
+   * Measures basketTrendUp over the last year.
+   *
+   * @return whether the basket trends up.
+   */
+  @Benchmark
+  public boolean basketTrendUp() {
+    return model.basketTrendUp(yearStart, last);
+  }
+
+  /**
+   * Measures maxPrice over the whole history.
+   *
+   * @return the highest price.
+   */
+  @Benchmark
+  public double maxPriceAll() {
+    return model.maxPrice(symbol, first, last);
+  }
+
+  /**
+   * Measures minPrice over the last year.
+   *
+   * @return the lowest price.
+   */
+  @Benchmark
+  public double minPriceLastYear() {
+    return model.minPrice(symbol, yearStart, last);
+  }
+
+  /**
+   * Measures stockHistory over the last year, reading every pair of the list as a dashboard
+   * would.
+   *
+   * @return the sum of the closing prices.
+   */
+  @Benchmark
+  public double stockHistoryLastYear() {
+    double sum = 0;
+    for (Pair<Date, Double> price : model.stockHistory(symbol, yearStart, last)) {
+      sum += price.getValue() + price.getKey().getTime();
+    }
+    return sum;
+  }
+
+  /**
+   * Measures preparing the chart of the last year.
+   *
+   * @return the view holding the chart.
+   */
+  @Benchmark
+  public NullView chartLastYear() {
+    controller.prepareChart(model, yearView);
+    return yearView;
+  }
+
+  /**
+   * Measures preparing the chart of the whole history.
+   *
+   * @return the view holding the chart.
+   */
+  @Benchmark
+  public NullView chartAll() {
+    controller.prepareChart(model, allView);
+    return allView;
+  }
+}
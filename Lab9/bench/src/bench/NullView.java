@@ -0,0 +1,114 @@
+package bench;
+
+import java.util.Date;
+import java.util.List;
+
+import history.TickerSymbol;
+import javafx.util.Pair;
+import view.IView;
+
+/**
+ * This class represents a view that keeps what the controller gives it and renders nothing, to
+ * measure chart preparation without Swing.
+ */
+public class NullView implements IView {
+
+  private final TickerSymbol symbol;
+  private final Date startDate;
+  private final Date endDate;
+  List<Pair<Double, Double>> data;
+  List<Pair<Double, Double>> buyOpportunity;
+  double minPrice;
+  double maxPrice;
+
+  /**
+   * Constructs a NullView.
+   *
+   * @param symbol    given symbol.
+   * @param startDate given start date.
+   * @param endDate   given end date.
+   */
+  public NullView(TickerSymbol symbol, Date startDate, Date endDate) {
+    this.symbol = symbol;
+    this.startDate = startDate;
+    this.endDate = endDate;
+  }
+
+  /**
+   * Render nothing.
+   */
+  @Override
+  public void render() {
+    //empty because nothing is drawn.
+  }
+
+  /**
+   * Get ticket symbol.
+   *
+   * @return ticker symbol.
+   */
+  @Override
+  public TickerSymbol getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Set data in view.
+   *
+   * @param data given data.
+   */
+  @Override
+  public void setData(List<Pair<Double, Double>> data) {
+    this.data = data;
+  }
+
+  /**
+   * Get start date in given range.
+   *
+   * @return start date.
+   */
+  @Override
+  public Date getStartDate() {
+    return startDate;
+  }
+
+  /**
+   * Get end date in given range.
+   *
+   * @return end date.
+   */
+  @Override
+  public Date getEndDate() {
+    return endDate;
+  }
+
+  /**
+   * Set the minimum price.
+   *
+   * @param minPrice given minimum price.
+   */
+  @Override
+  public void setMinPrice(double minPrice) {
+    this.minPrice = minPrice;
+  }
+
+  /**
+   * Set maximum price.
+   *
+   * @param maxPrice given maximum price.
+   */
+  @Override
+  public void setMaxPrice(double maxPrice) {
+    this.maxPrice = maxPrice;
+  }
+
+  /**
+   * Set buying opportunity.
+   *
+   * @param data given data.
+   */
+  @Override
+  public void setBuyOpportunity(List<Pair<Double, Double>> data) {
+    this.buyOpportunity = data;
+  }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basket.IBasketImpl;
+import basket.IPortfolioEngine;
+import basket.IPortfolioEngineImpl;
+import history.EpochDays;
+import history.TickerSymbol;
+import model.IStockModel;
+import model.IStockModelImpl;
+
+/**
+ * This class measures valuing every account of an IPortfolioEngineImpl holding a given number of
+ * accounts, each with ten stocks picked from one hundred.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PortfolioBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  int accounts;
+
+  private IPortfolioEngine engine;
+  private Date last;
+
+  /**
+   * Builds the shared histories and the accounts.
+   */
+  @Setup
+  public void setUp() {
+    List<TickerSymbol> symbols = Fixtures.symbols(100);
+    IStockModel model = new IStockModelImpl(new IBasketImpl(), Fixtures.source(1));
+    if (!model.addHistories(symbols).isEmpty()) {
+      throw new IllegalStateException("Fixtures did not load");
+    }
+    engine = new IPortfolioEngineImpl(model::snapshot);
+    Random random = new Random(42);
+    for (int i = 0; i < accounts; i++) {
+      for (int j = 0; j < 10; j++) {
+        engine.add("account" + i, symbols.get(random.nextInt(symbols.size())), 1 + j);
+      }
+    }
+    last = EpochDays.toDate((int) Fixtures.LAST_DAY.toEpochDay());
+  }
+
+  /**
+   * Measures valueAll.
+   *
+   * @return the values.
+   */
+  @Benchmark
+  public Map<String, Double> valueAll() {
+    return engine.valueAll(last);
+  }
+}
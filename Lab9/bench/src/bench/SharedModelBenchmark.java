@@ -0,0 +1,83 @@
+package bench;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basket.IBasket;
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.TickerSymbol;
+import model.IStockModel;
+import model.IStockModelImpl;
+
+/**
+ * This class measures the read throughput of one model shared by all benchmark threads. Run it
+ * with -t 1, -t 2 and so on to see how reads scale with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class SharedModelBenchmark {
+
+  @Param({"100"})
+  int tickers;
+
+  private IStockModel model;
+  private List<TickerSymbol> symbols;
+  private Date last;
+
+  /**
+   * Builds the shared model.
+   */
+  @Setup
+  public void setUp() {
+    symbols = Fixtures.symbols(tickers);
+    IBasket basket = new IBasketImpl();
+    for (TickerSymbol tickerSymbol : symbols) {
+      basket.add(tickerSymbol, 10);
+    }
+    model = new IStockModelImpl(basket, Fixtures.source(10));
+    if (!model.addHistories(symbols).isEmpty()) {
+      throw new IllegalStateException("Fixtures did not load");
+    }
+    last = EpochDays.toDate((int) Fixtures.LAST_DAY.toEpochDay());
+  }
+
+  /**
+   * Measures priceOfDay of one symbol.
+   *
+   * @return the price.
+   */
+  @Benchmark
+  public double priceOfDay() {
+    return model.priceOfDay(symbols.get(0), last);
+  }
+
+  /**
+   * Measures totalPrice of the basket.
+   *
+   * @return the basket value.
+   */
+  @Benchmark
+  public double totalPrice() {
+    return model.totalPrice(last);
+  }
+}
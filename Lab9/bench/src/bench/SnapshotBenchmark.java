@@ -0,0 +1,92 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.TickerSymbol;
+import model.IStockModelImpl;
+import model.ModelSnapshot;
+
+/**
+ * This class measures saving and restoring a model of a given number of stocks with ten years
+ * of history each, whose moving averages and range extremes are built.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SnapshotBenchmark {
+
+  @Param({"100", "2000"})
+  int stocks;
+
+  private IStockModelImpl model;
+  private ModelSnapshot snapshot;
+
+  /**
+   * Loads the histories, builds their indexes and saves them once for restore.
+   *
+   * @throws IOException if the snapshot cannot be written.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    List<TickerSymbol> symbols = Fixtures.symbols(stocks);
+    IBasketImpl basket = new IBasketImpl();
+    model = new IStockModelImpl(basket, Fixtures.source(10));
+    if (!model.addHistories(symbols).isEmpty()) {
+      throw new IllegalStateException("Fixtures did not load");
+    }
+    Date last = EpochDays.toDate((int) Fixtures.LAST_DAY.toEpochDay());
+    Date first = EpochDays.toDate((int) Fixtures.LAST_DAY.minusYears(5).toEpochDay());
+    for (TickerSymbol tickerSymbol : symbols) {
+      model.snapshot().get(tickerSymbol).buyOpportunities(first, last);
+      model.snapshot().get(tickerSymbol).maxPrice(first, last);
+      basket.add(tickerSymbol, 10);
+    }
+    Path file = Files.createTempFile("stock", ".snap");
+    file.toFile().deleteOnExit();
+    snapshot = new ModelSnapshot(file);
+    snapshot.save(model);
+  }
+
+  /**
+   * Measures save.
+   *
+   * @throws IOException if the snapshot cannot be written.
+   */
+  @Benchmark
+  public void save() throws IOException {
+    snapshot.save(model);
+  }
+
+  /**
+   * Measures restore.
+   *
+   * @return the restored model.
+   * @throws IOException if the snapshot cannot be read.
+   */
+  @Benchmark
+  public IStockModelImpl restore() throws IOException {
+    return snapshot.restore(Fixtures.source(10));
+  }
+}
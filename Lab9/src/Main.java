@@ -1,31 +1,90 @@
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import basket.IBasket;
 import basket.IBasketImpl;
+import controller.ChartExporter;
 import controller.Controller;
 import controller.IController;
 import history.TickerSymbol;
+import metrics.MetricsRegistry;
+import metrics.MetricsServer;
 import model.IStockModel;
 import model.IStockModelImpl;
+import model.ModelSnapshot;
+import stockapp.StockApplication;
 import view.IView;
 import view.View;
 
 public class Main {
 
   /**
-   * Create model, view and controller and pass control to controller.
+   * Create model, view and controller and pass control to controller. The metrics are exported
+   * over JMX, and served over HTTP when the stock.metrics.port system property names a port.
+   * When the stock.charts.dir system property names a directory, the charts of the ticker
+   * symbols given as arguments are written there as PNG files instead of shown in a window.
+   * When the stock.snapshot.file system property names a file, the model is restored from it if
+   * it exists, and saved into it when the application exits; a failed save is reported on the
+   * error stream.
    *
-   * @param args given input.
+   * @param args given input, the ticker symbols to chart into stock.charts.dir.
+   * @throws IOException if the metrics server cannot be started or the snapshot cannot be read.
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+
+    MetricsRegistry.global().registerMBean("stock:type=Metrics");
+    String metricsPort = System.getProperty("stock.metrics.port");
+    if (metricsPort != null) {
+      //runs as long as the application, so it is never closed
+      MetricsServer server = new MetricsServer(MetricsRegistry.global(),
+              Integer.parseInt(metricsPort));
+      System.out.println("Metrics at " + server.getUrl());
+    }
 
     Date date1 = parseDate("2018-05-09");
     Date date2 = parseDate("2018-07-03");
-    IBasket basket = new IBasketImpl();
-    IStockModel model = new IStockModelImpl(basket);
+    IStockModel model;
+    String snapshotFile = System.getProperty("stock.snapshot.file");
+    if (snapshotFile != null) {
+      ModelSnapshot snapshot = new ModelSnapshot(Paths.get(snapshotFile));
+      IStockModelImpl restored = snapshot.exists()
+              ? snapshot.restore(StockApplication.defaultSource())
+              : new IStockModelImpl(new IBasketImpl());
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          snapshot.save(restored);
+        } catch (IOException e) {
+          //the application is exiting anyway, so the failure is only reported
+          System.err.println("Could not save the snapshot " + snapshotFile + ": " + e);
+        }
+      }));
+      model = restored;
+    } else {
+      IBasket basket = new IBasketImpl();
+      model = new IStockModelImpl(basket);
+    }
+
+    String chartsDir = System.getProperty("stock.charts.dir");
+    if (chartsDir != null) {
+      List<TickerSymbol> symbols = new ArrayList<>();
+      for (String arg : args) {
+        symbols.add(TickerSymbol.of(arg));
+      }
+      ChartExporter exporter = new ChartExporter(model, Runtime.getRuntime().availableProcessors());
+      Map<TickerSymbol, Exception> failures = exporter.export(symbols, date1, date2,
+              new File(chartsDir));
+      failures.forEach((symbol, e) -> System.out.println(symbol + ": " + e));
+      System.out.println((symbols.size() - failures.size()) + " charts in " + chartsDir);
+      return;
+    }
 
     IView view = new View(TickerSymbol.MSFT, date1, date2);
     IController controller = new Controller();
@@ -0,0 +1,85 @@
+package basket;
+
+import java.util.Date;
+
+import history.EpochDays;
+
+/**
+ * This class represents the value of a basket over a range of days, as two columns of the same
+ * length: the valued days as epoch days, in increasing order, and the value of the basket on each.
+ */
+public final class BasketValueSeries {
+
+  private final int[] days;
+  private final double[] values;
+  private final int size;
+
+  /**
+   * Constructs a BasketValueSeries over the first size entries of the given columns.
+   *
+   * @param days   given valued days as epoch days.
+   * @param values given value of the basket on each day.
+   * @param size   given number of valued days.
+   */
+  BasketValueSeries(int[] days, double[] values, int size) {
+    this.days = days;
+    this.values = values;
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of valued days.
+   *
+   * @return number of days.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the valued day at the given position.
+   *
+   * @param index given position.
+   * @return the epoch day.
+   * @throws IndexOutOfBoundsException if the position is not below size().
+   */
+  public int dayAt(int index) throws IndexOutOfBoundsException {
+    checkIndex(index);
+    return days[index];
+  }
+
+  /**
+   * Returns the valued day at the given position as a date.
+   *
+   * @param index given position.
+   * @return the date.
+   * @throws IndexOutOfBoundsException if the position is not below size().
+   */
+  public Date dateAt(int index) throws IndexOutOfBoundsException {
+    return EpochDays.toDate(dayAt(index));
+  }
+
+  /**
+   * Returns the value of the basket at the given position.
+   *
+   * @param index given position.
+   * @return the value.
+   * @throws IndexOutOfBoundsException if the position is not below size().
+   */
+  public double valueAt(int index) throws IndexOutOfBoundsException {
+    checkIndex(index);
+    return values[index];
+  }
+
+  /**
+   * Effectuate throwing of exception if the position is outside the series.
+   *
+   * @param index given position.
+   * @throws IndexOutOfBoundsException if the position is not below size().
+   */
+  private void checkIndex(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("No value at position " + index);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package basket;
+
+/**
+ * How a basket value series treats a day on which some stocks of the basket have no price.
+ */
+public enum GapPolicy {
+  /**
+   * Leave out the day, so only days on which every stock has a price are valued.
+   */
+  SKIP,
+  /**
+   * Value the day with the last known price of each stock that has no price on it. Days before
+   * every stock has a known price are still left out.
+   */
+  CARRY_FORWARD
+}
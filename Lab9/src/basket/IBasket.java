@@ -1,9 +1,9 @@
 package basket;
 
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Map;
 
-import history.IHistory;
+import history.HistoryTable;
 import history.TickerSymbol;
 
 /**
@@ -20,6 +20,13 @@ public interface IBasket {
    */
   void add(TickerSymbol tickerSymbol, int quantity);
 
+  /**
+   * Returns the number of stocks held of each company.
+   *
+   * @return read-only map of ticker symbol to quantity
+   */
+  Map<TickerSymbol, Integer> holdings();
+
 
   /**
    * Calculates the total value of the stock basket held by one user on the given date.
@@ -29,7 +36,7 @@ public interface IBasket {
    * @return the total value
    * @throws IllegalArgumentException if history is null or empty or there is no value for day.
    */
-  double basketValue(Date date, HashMap<TickerSymbol, IHistory> histories)
+  double basketValue(Date date, HistoryTable histories)
           throws IllegalArgumentException;
 
   /**
@@ -42,7 +49,22 @@ public interface IBasket {
    * @return true if this stock trends up, otherwise false
    * @throws IllegalArgumentException if endDate is a date before the start date
    */
-  boolean trendUp(Date startDate, Date endDate, HashMap<TickerSymbol, IHistory> histories);
+  boolean trendUp(Date startDate, Date endDate, HistoryTable histories);
+
+  /**
+   * Calculates the value of the stock basket held by one user on every trading day within the
+   * given day range, in one pass over the prices of its stocks.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @param histories given histories
+   * @param gaps      given treatment of days on which some stocks have no price
+   * @return the value of the basket on each valued day
+   * @throws IllegalArgumentException if endDate is a date before the start date
+   * @throws IllegalArgumentException if history is null or empty or misses a stock of the basket
+   */
+  BasketValueSeries basketValueSeries(Date startDate, Date endDate, HistoryTable histories,
+                                      GapPolicy gaps) throws IllegalArgumentException;
 
 
 }
@@ -1,26 +1,43 @@
 package basket;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-
+import history.EpochDays;
+import history.HistoryTable;
 import history.IHistory;
+import history.PriceSeries;
 import history.TickerSymbol;
 
 /**
- * This class represents all stocks name and quantities held by a user.
+ * This class represents all stocks name and quantities held by a user. Each holding is packed
+ * into one long, the symbol id in the high half and the quantity in the low half, and the
+ * holdings are kept sorted by symbol id in an array that is replaced, never changed, when stocks
+ * are added. A basket costs eight bytes per stock it holds, and can be valued from any thread
+ * while another one adds stocks.
  */
 public class IBasketImpl implements IBasket {
 
-  private final HashMap<TickerSymbol, Integer> portfolio;
+  private volatile long[] holdings;
 
   /**
-   * Constructs an IBackstImpl by creating an empty hashmap of TicketSymbol to Integer.
-   * The Integer represents the quantity of that stock held by a user.
+   * Constructs an IBackstImpl with no stocks in it.
    */
   public IBasketImpl() {
-    this.portfolio = new HashMap<>();
+    this.holdings = new long[0];
+  }
+
+  /**
+   * Constructs an IBasketImpl holding the given packed holdings, which must be sorted by symbol id
+   * and not be changed afterwards.
+   *
+   * @param holdings given packed holdings.
+   */
+  IBasketImpl(long[] holdings) {
+    this.holdings = holdings;
   }
 
   /**
@@ -31,12 +48,105 @@ public class IBasketImpl implements IBasket {
    * @param quantity     given number of stocks
    */
   @Override
-  public void add(TickerSymbol tickerSymbol, int quantity) throws IllegalArgumentException {
-    if (portfolio.containsKey(tickerSymbol)) {
-      portfolio.put(tickerSymbol, portfolio.get(tickerSymbol) + quantity);
+  public synchronized void add(TickerSymbol tickerSymbol, int quantity)
+          throws IllegalArgumentException {
+    this.holdings = added(this.holdings, tickerSymbol.id(), quantity);
+  }
+
+  /**
+   * Returns the number of stocks held of each company, in order of symbol id.
+   *
+   * @return read-only map of ticker symbol to quantity
+   */
+  @Override
+  public Map<TickerSymbol, Integer> holdings() {
+    long[] held = this.holdings;
+    Map<TickerSymbol, Integer> result = new LinkedHashMap<>();
+    for (long holding : held) {
+      result.put(TickerSymbol.byId(symbolIdOf(holding)), quantityOf(holding));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Returns new sorted holdings with the given quantity added to a symbol, leaving the given
+   * holdings unchanged.
+   *
+   * @param holdings given sorted holdings.
+   * @param symbolId given symbol id.
+   * @param quantity given number of stocks.
+   * @return the new holdings.
+   */
+  static long[] added(long[] holdings, int symbolId, int quantity) {
+    int position = find(holdings, symbolId);
+    long[] updated;
+    if (position >= 0) {
+      updated = holdings.clone();
+      updated[position] = pack(symbolId, quantityOf(holdings[position]) + quantity);
     } else {
-      portfolio.put(tickerSymbol, quantity);
+      position = -position - 1;
+      updated = new long[holdings.length + 1];
+      System.arraycopy(holdings, 0, updated, 0, position);
+      System.arraycopy(holdings, position, updated, position + 1, holdings.length - position);
+      updated[position] = pack(symbolId, quantity);
     }
+    return updated;
+  }
+
+  /**
+   * Returns the position of a symbol id in sorted holdings, or a negative number if it is not
+   * held, like Arrays.binarySearch.
+   *
+   * @param holdings given sorted holdings.
+   * @param symbolId given symbol id.
+   * @return position of the holding, or minus one minus the position to insert it at.
+   */
+  static int find(long[] holdings, int symbolId) {
+    int low = 0;
+    int high = holdings.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int id = symbolIdOf(holdings[middle]);
+      if (id < symbolId) {
+        low = middle + 1;
+      } else if (id > symbolId) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Packs a symbol id and a quantity into one holding.
+   *
+   * @param symbolId given symbol id.
+   * @param quantity given quantity.
+   * @return the holding.
+   */
+  static long pack(int symbolId, int quantity) {
+    return ((long) symbolId << 32) | (quantity & 0xffffffffL);
+  }
+
+  /**
+   * Returns the symbol id of a holding.
+   *
+   * @param holding given holding.
+   * @return the symbol id.
+   */
+  static int symbolIdOf(long holding) {
+    return (int) (holding >>> 32);
+  }
+
+  /**
+   * Returns the quantity of a holding.
+   *
+   * @param holding given holding.
+   * @return the quantity.
+   */
+  static int quantityOf(long holding) {
+    return (int) holding;
   }
 
   /**
@@ -48,21 +158,24 @@ public class IBasketImpl implements IBasket {
    * @throws IllegalArgumentException if history is null or empty or there is no value for day.
    */
   @Override
-  public double basketValue(Date date, HashMap<TickerSymbol, IHistory> histories)
+  public double basketValue(Date date, HistoryTable histories)
           throws IllegalArgumentException {
     if (histories == null || histories.size() == 0) {
       throw new IllegalArgumentException("histories is null or empty");
     }
+    long[] held = this.holdings;
     double sum = 0;
-    for (Map.Entry<TickerSymbol, Integer> entry : this.portfolio.entrySet()) {
-      if (!histories.containsKey(entry.getKey())) {
+    for (long holding : held) {
+      TickerSymbol tickerSymbol = TickerSymbol.byId(symbolIdOf(holding));
+      IHistory history = histories.get(tickerSymbol);
+      if (history == null) {
         throw new IllegalArgumentException("no history for this company!");
       }
 
       try {
-        sum += histories.get(entry.getKey()).priceOnDay(date) * entry.getValue();
+        sum += history.priceOnDay(date) * quantityOf(holding);
       } catch (IllegalArgumentException e) {
-        throw new IllegalArgumentException("can not get the stock" + entry.getKey()
+        throw new IllegalArgumentException("can not get the stock" + tickerSymbol
                 + "on this day!");
       }
     }
@@ -70,6 +183,122 @@ public class IBasketImpl implements IBasket {
 
   }
 
+  /**
+   * Calculates the value of the stock basket held by one user on every trading day within the
+   * given day range. The sorted prices of all stocks are merge-joined: one cursor per stock walks
+   * its series, so every price in the range is read once.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @param histories given histories
+   * @param gaps      given treatment of days on which some stocks have no price
+   * @return the value of the basket on each valued day
+   * @throws IllegalArgumentException if endDate is a date before the start date
+   * @throws IllegalArgumentException if history is null or empty or misses a stock of the basket
+   */
+  @Override
+  public BasketValueSeries basketValueSeries(Date startDate, Date endDate,
+                                             HistoryTable histories, GapPolicy gaps)
+          throws IllegalArgumentException {
+    if (endDate.before(startDate)) {
+      throw new IllegalArgumentException("End Date is Before Start Date.");
+    }
+    if (histories == null || histories.size() == 0) {
+      throw new IllegalArgumentException("histories is null or empty");
+    }
+    long[] held = this.holdings;
+    int size = held.length;
+    int startDay = EpochDays.fromDate(startDate);
+    int endDay = EpochDays.fromDate(endDate);
+    PriceSeries[] series = new PriceSeries[size];
+    int[] cursors = new int[size];
+    int[] ends = new int[size];
+    double[] lastPrices = new double[size];
+    int capacity = 0;
+    for (int i = 0; i < size; i++) {
+      IHistory history = histories.get(TickerSymbol.byId(symbolIdOf(held[i])));
+      if (history == null) {
+        throw new IllegalArgumentException("no history for this company!");
+      }
+      series[i] = history.priceSeries();
+      cursors[i] = series[i].lowerBound(startDay);
+      ends[i] = series[i].upperBound(endDay);
+      lastPrices[i] = cursors[i] > 0 ? series[i].closeAt(cursors[i] - 1) : Double.NaN;
+      capacity = Math.max(capacity, ends[i] - cursors[i]);
+    }
+
+    int[] days = new int[capacity];
+    double[] values = new double[capacity];
+    int count = 0;
+    while (size > 0) {
+      int day;
+      if (gaps == GapPolicy.SKIP) {
+        day = nextCommonDay(series, cursors, ends);
+      } else {
+        day = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+          if (cursors[i] < ends[i]) {
+            day = Math.min(day, series[i].dayAt(cursors[i]));
+          }
+        }
+      }
+      if (day == Integer.MAX_VALUE) {
+        break;
+      }
+
+      double value = 0;
+      boolean known = true;
+      for (int i = 0; i < size; i++) {
+        if (cursors[i] < ends[i] && series[i].dayAt(cursors[i]) == day) {
+          lastPrices[i] = series[i].closeAt(cursors[i]);
+          cursors[i]++;
+        }
+        known &= !Double.isNaN(lastPrices[i]);
+        value += lastPrices[i] * quantityOf(held[i]);
+      }
+      if (known) {
+        if (count == days.length) {
+          days = Arrays.copyOf(days, Math.max(16, count * 2));
+          values = Arrays.copyOf(values, days.length);
+        }
+        days[count] = day;
+        values[count] = value;
+        count++;
+      }
+    }
+    return new BasketValueSeries(days, values, count);
+  }
+
+  /**
+   * Moves every cursor to the next day on which all stocks have a price.
+   *
+   * @param series  given series of each stock.
+   * @param cursors given position of each cursor, moved to the common day.
+   * @param ends    given end position of each cursor.
+   * @return the common day, or Integer.MAX_VALUE if a cursor reached its end first.
+   */
+  private static int nextCommonDay(PriceSeries[] series, int[] cursors, int[] ends) {
+    int candidate = Integer.MIN_VALUE;
+    boolean aligned = false;
+    while (!aligned) {
+      aligned = true;
+      for (int i = 0; i < series.length; i++) {
+        while (cursors[i] < ends[i] && series[i].dayAt(cursors[i]) < candidate) {
+          cursors[i]++;
+        }
+        if (cursors[i] == ends[i]) {
+          return Integer.MAX_VALUE;
+        }
+        if (series[i].dayAt(cursors[i]) > candidate) {
+          //the stocks before this one have no price on the new candidate yet
+          candidate = series[i].dayAt(cursors[i]);
+          aligned = i == 0;
+        }
+      }
+    }
+    return candidate;
+  }
+
   /**
    * Return true if there is trending up for the stock portfolio for the user within the given day
    * range.
@@ -81,7 +310,7 @@ public class IBasketImpl implements IBasket {
    * @throws IllegalArgumentException if endDate is a date before the start date
    */
   @Override
-  public boolean trendUp(Date startDate, Date endDate, HashMap<TickerSymbol, IHistory> histories)
+  public boolean trendUp(Date startDate, Date endDate, HistoryTable histories)
           throws IllegalArgumentException {
     if (endDate.before(startDate)) {
       throw new IllegalArgumentException("End Date is Before Start Date.");
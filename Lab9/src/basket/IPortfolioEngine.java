@@ -0,0 +1,72 @@
+package basket;
+
+import java.util.Date;
+import java.util.Map;
+
+import history.TickerSymbol;
+
+/**
+ * This interface presents the stock baskets of many accounts, all valued against one shared set
+ * of histories.
+ */
+public interface IPortfolioEngine {
+
+  /**
+   * Adds given number of stocks of a given company to the basket of an account, opening the
+   * account if it has no basket yet.
+   *
+   * @param account      given account.
+   * @param tickerSymbol given ticker symbol of the stock.
+   * @param quantity     given number of stocks.
+   * @throws IllegalArgumentException if the account or the ticker symbol is null.
+   */
+  void add(String account, TickerSymbol tickerSymbol, int quantity)
+          throws IllegalArgumentException;
+
+  /**
+   * Closes an account and drops its basket.
+   *
+   * @param account given account.
+   * @return true if the account was open.
+   */
+  boolean remove(String account);
+
+  /**
+   * Returns the number of open accounts.
+   *
+   * @return the number of accounts.
+   */
+  int accounts();
+
+  /**
+   * Returns a copy of the basket of an account. Stocks added to the copy are not added to the
+   * account.
+   *
+   * @param account given account.
+   * @return the basket of the account.
+   * @throws IllegalArgumentException if the account is not open.
+   */
+  IBasket basket(String account) throws IllegalArgumentException;
+
+  /**
+   * Calculates the total value of the basket of one account on the given date.
+   *
+   * @param account given account.
+   * @param date    given date.
+   * @return the total value.
+   * @throws IllegalArgumentException if the account is not open, or a stock it holds has no
+   *                                  price on that day.
+   */
+  double value(String account, Date date) throws IllegalArgumentException;
+
+  /**
+   * Calculates the total value of the basket of every account on the given date. The price of
+   * each stock is looked up once, however many accounts hold it.
+   *
+   * @param date given date.
+   * @return the value of each account, NaN for an account holding a stock without a price on
+   *         that day.
+   * @throws IllegalArgumentException if there are no histories.
+   */
+  Map<String, Double> valueAll(Date date) throws IllegalArgumentException;
+}
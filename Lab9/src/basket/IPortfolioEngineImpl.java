@@ -0,0 +1,197 @@
+package basket;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import history.EpochDays;
+import history.HistoryTable;
+import history.IHistory;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+/**
+ * This class holds the stock baskets of many accounts. The histories are not copied: every
+ * valuation reads the current table of one shared supplier, such as the snapshot of a model. An
+ * account costs one map entry and its packed holdings, eight bytes per stock it holds, laid out
+ * like those of IBasketImpl. Holdings are replaced, never changed, so they are read without
+ * locking; updates to the same account are serialized by one of a fixed set of locks picked by
+ * the hash of the account.
+ */
+public class IPortfolioEngineImpl implements IPortfolioEngine {
+
+  private static final int STRIPES = 64;
+  private static final long[] NO_HOLDINGS = new long[0];
+
+  private final Supplier<HistoryTable> histories;
+  private final ConcurrentHashMap<String, long[]> baskets;
+  private final Object[] locks;
+
+  /**
+   * Constructs an IPortfolioEngineImpl with no accounts, valued against the given histories.
+   *
+   * @param histories given supplier of the current histories, such as IStockModel::snapshot.
+   */
+  public IPortfolioEngineImpl(Supplier<HistoryTable> histories) {
+    this.histories = histories;
+    this.baskets = new ConcurrentHashMap<>();
+    this.locks = new Object[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      this.locks[i] = new Object();
+    }
+  }
+
+  /**
+   * Adds given number of stocks of a given company to the basket of an account, opening the
+   * account if it has no basket yet.
+   *
+   * @param account      given account.
+   * @param tickerSymbol given ticker symbol of the stock.
+   * @param quantity     given number of stocks.
+   * @throws IllegalArgumentException if the account or the ticker symbol is null.
+   */
+  @Override
+  public void add(String account, TickerSymbol tickerSymbol, int quantity)
+          throws IllegalArgumentException {
+    if (account == null || tickerSymbol == null) {
+      throw new IllegalArgumentException("account and ticker symbol must not be null");
+    }
+    synchronized (lockOf(account)) {
+      long[] current = baskets.get(account);
+      baskets.put(account, IBasketImpl.added(current == null ? NO_HOLDINGS : current,
+              tickerSymbol.id(), quantity));
+    }
+  }
+
+  /**
+   * Closes an account and drops its basket.
+   *
+   * @param account given account.
+   * @return true if the account was open.
+   */
+  @Override
+  public boolean remove(String account) {
+    if (account == null) {
+      return false;
+    }
+    synchronized (lockOf(account)) {
+      return baskets.remove(account) != null;
+    }
+  }
+
+  /**
+   * Returns the number of open accounts.
+   *
+   * @return the number of accounts.
+   */
+  @Override
+  public int accounts() {
+    return baskets.size();
+  }
+
+  /**
+   * Returns a copy of the basket of an account. Stocks added to the copy are not added to the
+   * account.
+   *
+   * @param account given account.
+   * @return the basket of the account.
+   * @throws IllegalArgumentException if the account is not open.
+   */
+  @Override
+  public IBasket basket(String account) throws IllegalArgumentException {
+    return new IBasketImpl(holdingsOf(account));
+  }
+
+  /**
+   * Calculates the total value of the basket of one account on the given date.
+   *
+   * @param account given account.
+   * @param date    given date.
+   * @return the total value.
+   * @throws IllegalArgumentException if the account is not open, or a stock it holds has no
+   *                                  price on that day.
+   */
+  @Override
+  public double value(String account, Date date) throws IllegalArgumentException {
+    return new IBasketImpl(holdingsOf(account)).basketValue(date, histories.get());
+  }
+
+  /**
+   * Calculates the total value of the basket of every account on the given date. The closing
+   * prices of that day are first gathered into one column indexed by symbol id, then the
+   * accounts are swept in parallel, each holding costing one array read.
+   *
+   * @param date given date.
+   * @return the value of each account, NaN for an account holding a stock without a price on
+   *         that day.
+   * @throws IllegalArgumentException if there are no histories.
+   */
+  @Override
+  public Map<String, Double> valueAll(Date date) throws IllegalArgumentException {
+    HistoryTable table = histories.get();
+    if (table == null || table.size() == 0) {
+      throw new IllegalArgumentException("histories is null or empty");
+    }
+    double[] prices = priceColumn(table, EpochDays.fromDate(date));
+    ConcurrentHashMap<String, Double> values = new ConcurrentHashMap<>(baskets.size() * 4 / 3 + 1);
+    baskets.forEach(1024, (account, holdings) -> {
+      double sum = 0;
+      for (long holding : holdings) {
+        int id = IBasketImpl.symbolIdOf(holding);
+        //a symbol interned after the column was made has no history in this table
+        sum += (id < prices.length ? prices[id] : Double.NaN) * IBasketImpl.quantityOf(holding);
+      }
+      values.put(account, sum);
+    });
+    return values;
+  }
+
+  /**
+   * Returns the closing price of every symbol on the given day, indexed by symbol id.
+   *
+   * @param table    given histories.
+   * @param epochDay given epoch day.
+   * @return the prices, NaN for a symbol without a history or a price on that day.
+   */
+  private static double[] priceColumn(HistoryTable table, int epochDay) {
+    double[] prices = new double[TickerSymbol.count()];
+    Arrays.fill(prices, Double.NaN);
+    for (TickerSymbol tickerSymbol : table.symbols()) {
+      IHistory history = table.get(tickerSymbol);
+      PriceSeries series = history.priceSeries();
+      int index = series.indexOf(epochDay);
+      if (index >= 0 && tickerSymbol.id() < prices.length) {
+        prices[tickerSymbol.id()] = series.closeAt(index);
+      }
+    }
+    return prices;
+  }
+
+  /**
+   * Returns the holdings of an account.
+   *
+   * @param account given account.
+   * @return the holdings.
+   * @throws IllegalArgumentException if the account is not open.
+   */
+  private long[] holdingsOf(String account) throws IllegalArgumentException {
+    long[] holdings = account == null ? null : baskets.get(account);
+    if (holdings == null) {
+      throw new IllegalArgumentException("no basket for account " + account);
+    }
+    return holdings;
+  }
+
+  /**
+   * Returns the lock guarding updates to an account.
+   *
+   * @param account given account.
+   * @return the lock.
+   */
+  private Object lockOf(String account) {
+    int hash = account.hashCode();
+    return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+  }
+}
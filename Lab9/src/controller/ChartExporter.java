@@ -0,0 +1,159 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import history.HistoryTable;
+import history.TickerSymbol;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.IStockModel;
+import view.PngView;
+
+/**
+ * This class represents a batch exporter that writes the chart of many stocks to PNG files
+ * without a display. The charts are prepared by the controller like the charts of the window
+ * and rendered by a fixed number of worker threads, each of which takes the next stock until
+ * none is left and renders all of its charts into one image of its own.
+ */
+public class ChartExporter {
+
+  private static final LatencyHistogram RENDER_NANOS =
+          MetricsRegistry.global().histogram("chart_render_nanos");
+  private static final Counter RENDER_FAILURES =
+          MetricsRegistry.global().counter("chart_render_failures_total");
+
+  private final IStockModel model;
+  private final int threads;
+  private final Controller controller = new Controller();
+
+  /**
+   * Constructs a ChartExporter.
+   *
+   * @param model   given model, whose missing histories are added before they are charted.
+   * @param threads given number of charts rendered at the same time.
+   * @throws IllegalArgumentException if threads is not positive.
+   */
+  public ChartExporter(IStockModel model, int threads) throws IllegalArgumentException {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    this.model = model;
+    this.threads = threads;
+  }
+
+  /**
+   * Writes the chart of each given stock within the given day range to a file named after its
+   * ticker symbol in the given directory, such as MSFT.png. Returns once every chart is written
+   * or failed.
+   *
+   * @param tickerSymbols given ticker symbols.
+   * @param startDate     given start date.
+   * @param endDate       given end date.
+   * @param directory     given directory, made if it does not exist.
+   * @return the failure of each ticker symbol whose chart was not written, empty if all were.
+   * @throws IllegalArgumentException if end date is before start date or the directory cannot
+   *                                  be made.
+   */
+  public Map<TickerSymbol, Exception> export(Collection<TickerSymbol> tickerSymbols,
+                                             Date startDate, Date endDate, File directory)
+          throws IllegalArgumentException {
+    if (endDate.before(startDate)) {
+      throw new IllegalArgumentException("End Date is Before Start Date.");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("can not make directory " + directory);
+    }
+    Map<TickerSymbol, Exception> failures = new ConcurrentHashMap<>();
+    List<TickerSymbol> missing = new ArrayList<>();
+    HistoryTable histories = model.snapshot();
+    for (TickerSymbol tickerSymbol : new LinkedHashSet<>(tickerSymbols)) {
+      if (!histories.contains(tickerSymbol)) {
+        missing.add(tickerSymbol);
+      }
+    }
+    if (!missing.isEmpty()) {
+      failures.putAll(model.addHistories(missing));
+    }
+    List<TickerSymbol> charted = new ArrayList<>();
+    for (TickerSymbol tickerSymbol : new LinkedHashSet<>(tickerSymbols)) {
+      if (!failures.containsKey(tickerSymbol)) {
+        charted.add(tickerSymbol);
+      }
+    }
+
+    AtomicInteger next = new AtomicInteger();
+    int workers = Math.max(1, Math.min(threads, charted.size()));
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      List<Future<?>> running = new ArrayList<>(workers);
+      for (int i = 0; i < workers; i++) {
+        running.add(executor.submit(() -> renderCharts(charted, next, startDate, endDate,
+                directory, failures)));
+      }
+      for (Future<?> worker : running) {
+        try {
+          worker.get();
+        } catch (ExecutionException e) {
+          //renderCharts reports the failure of each chart, so only an Error gets here
+          throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+          //keep the interrupt for the caller and report the charts that were not started
+          Thread.currentThread().interrupt();
+          for (int i = next.getAndSet(charted.size()); i < charted.size(); i++) {
+            failures.put(charted.get(i), e);
+          }
+          break;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return new HashMap<>(failures);
+  }
+
+  /**
+   * Renders the next chart not taken by another worker until none is left, all into the same
+   * image.
+   *
+   * @param charted   given ticker symbols to chart.
+   * @param next      given position of the next ticker symbol to chart.
+   * @param startDate given start date.
+   * @param endDate   given end date.
+   * @param directory given directory of the files.
+   * @param failures  given failures, to which the failure of each chart is added.
+   */
+  private void renderCharts(List<TickerSymbol> charted, AtomicInteger next, Date startDate,
+                            Date endDate, File directory, Map<TickerSymbol, Exception> failures) {
+    BufferedImage image = PngView.newImage();
+    for (int i = next.getAndIncrement(); i < charted.size(); i = next.getAndIncrement()) {
+      TickerSymbol tickerSymbol = charted.get(i);
+      long start = System.nanoTime();
+      try {
+        PngView view = new PngView(tickerSymbol, startDate, endDate,
+                new File(directory, tickerSymbol + ".png"), image);
+        controller.prepareChart(model, view);
+        view.render();
+      } catch (RuntimeException e) {
+        RENDER_FAILURES.increment();
+        failures.put(tickerSymbol, e);
+      } finally {
+        RENDER_NANOS.recordSince(start);
+      }
+    }
+  }
+}
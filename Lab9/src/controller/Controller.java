@@ -1,10 +1,12 @@
 package controller;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.BitSet;
 import java.util.List;
 
+import history.EpochDays;
+import history.PriceCursor;
+import history.PriceRange;
 import history.TickerSymbol;
 import javafx.util.Pair;
 import model.IStockModel;
@@ -38,44 +40,65 @@ public class Controller implements IController {
 
     TickerSymbol symbol = view.getSymbol();
     model.addIHistory(symbol);
-    List<Pair<Date, Double>> data = model.stockHistory(symbol,
-            view.getStartDate(), view.getEndDate());
+    prepareChart(model, view);
+    view.render();
 
-    //need to run data through convert stock scale
-    List<Pair<Double, Double>> listStockPrice = new ArrayList<>();
-    List<Pair<Double, Double>> buyOpportunity = new ArrayList<>();
+  }
 
-    for (int i = 0; i < data.size(); ++i) {
-      double dateScale = convertScaleDate(data.get(i).getKey(), view);
-      // System.out.println(dateScale);
-      double stockScale = convertStockScale(data.get(i).getValue(), model, view);
-      listStockPrice.add(new Pair<>(dateScale, stockScale));
+  /**
+   * Pass the scaled chart of the symbol of the view to the view, in one pass over the prices.
+   * The price range is found once, the prices are read through a cursor over the history
+   * without copying them, dates are scaled by epoch day arithmetic and the buying
+   * opportunities of the whole range come from the model at once.
+   *
+   * @param model given model, holding the history of the symbol of the view.
+   * @param view  given view.
+   */
+  public void prepareChart(IStockModel model, IView view) {
+    TickerSymbol symbol = view.getSymbol();
+    PriceRange data = model.stockPriceRange(symbol, view.getStartDate(), view.getEndDate());
+    BitSet buyOpportunities = model.buyOpportunities(symbol,
+            view.getStartDate(), view.getEndDate());
 
-      if (model.buyOpportunity(symbol, data.get(i).getKey())) {
-        buyOpportunity.add(new Pair<>(dateScale, stockScale));
+    //need to run data through convert stock scale
+    List<Pair<Double, Double>> listStockPrice = new ArrayList<>(data.size());
+    List<Pair<Double, Double>> buyOpportunity = new ArrayList<>(buyOpportunities.cardinality());
+
+    if (!data.isEmpty()) {
+      double minPrice = model.minPrice(symbol, view.getStartDate(), view.getEndDate());
+      double maxPrice = model.maxPrice(symbol, view.getStartDate(), view.getEndDate());
+      view.setMinPrice(minPrice);
+      view.setMaxPrice(maxPrice);
+
+      int startDay = EpochDays.fromDate(view.getStartDate());
+      int maxDate = EpochDays.fromDate(view.getEndDate()) - startDay + 1;
+
+      PriceCursor cursor = data.cursor();
+      while (cursor.next()) {
+        int dateNumber = cursor.day() - startDay + 1;
+        double dateScale = convertScaleDate(dateNumber, maxDate);
+        double stockScale = convertStockScale(cursor.close(), minPrice, maxPrice);
+        listStockPrice.add(new Pair<>(dateScale, stockScale));
+
+        if (buyOpportunities.get(cursor.position())) {
+          buyOpportunity.add(new Pair<>(dateScale, stockScale));
+        }
       }
     }
 
     view.setBuyOpportunity(buyOpportunity);
     view.setData(listStockPrice);
-    view.render();
-
   }
 
   /**
    * Convert stock price to scale with width and height.
    *
-   * @param i     given value.
-   * @param model given model.
-   * @param view  given view.
+   * @param i        given value.
+   * @param minPrice given minimum price of the chart.
+   * @param maxPrice given maximum price of the chart.
    * @return double that represents the scaled price.
    */
-  private double convertStockScale(double i, IStockModel model, IView view) {
-    double minPrice = model.minPrice(view.getSymbol(), view.getStartDate(), view.getEndDate());
-    double maxPrice = model.maxPrice(view.getSymbol(), view.getStartDate(), view.getEndDate());
-
-    view.setMinPrice(minPrice);
-    view.setMaxPrice(maxPrice);
+  private double convertStockScale(double i, double minPrice, double maxPrice) {
     return (((i - (minPrice)) / ((maxPrice) - (minPrice)) * (height - 50))) + 50;
   }
 
@@ -83,28 +106,11 @@ public class Controller implements IController {
   /**
    * Convert date to scale with width and height.
    *
-   * @param i    given date.
-   * @param view given view.
+   * @param dateNumber given number of days from the start date to the date, both included.
+   * @param maxDate    given number of days from the start date to the end date, both included.
    * @return double that represents the scaled date.
    */
-  private double convertScaleDate(Date i, IView view) {
-    Calendar tempStart = Calendar.getInstance();
-    tempStart.setTime(view.getStartDate());
-    Calendar tempStart2 = Calendar.getInstance();
-    tempStart2.setTime(view.getStartDate());
-    int dateNumber = 0;
-    int maxDate = 0;
-
-    while (tempStart.getTime().before(i) || tempStart.getTime().equals(i)) {
-      ++dateNumber;
-      tempStart.add(Calendar.DATE, 1);
-    }
-    while (tempStart2.getTime().before(view.getEndDate()) ||
-            tempStart2.getTime().equals(view.getEndDate())) {
-      ++maxDate;
-      tempStart2.add(Calendar.DATE, 1);
-    }
-
+  private double convertScaleDate(int dateNumber, int maxDate) {
     return ((double) dateNumber) / (maxDate) * (width);
 
   }
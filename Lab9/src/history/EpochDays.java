@@ -0,0 +1,43 @@
+package history;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * This class converts between dates and epoch days, the number of days since 1970-01-01 in the
+ * local time zone. Histories store their trading days as epoch days so that a day is a plain int.
+ */
+public final class EpochDays {
+
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+  private static final TimeZone ZONE = TimeZone.getDefault();
+
+  /**
+   * Empty constructor, this class only has static methods.
+   */
+  private EpochDays() {
+    //empty because this class is never instantiated.
+  }
+
+  /**
+   * Returns the epoch day of the given date. Any time within a day maps to the same epoch day.
+   *
+   * @param date given date.
+   * @return the number of days since 1970-01-01.
+   */
+  public static int fromDate(Date date) {
+    long millis = date.getTime();
+    return (int) Math.floorDiv(millis + ZONE.getOffset(millis), MILLIS_PER_DAY);
+  }
+
+  /**
+   * Returns the date at midnight of the given epoch day.
+   *
+   * @param epochDay given number of days since 1970-01-01.
+   * @return date at the start of that day.
+   */
+  public static Date toDate(int epochDay) {
+    return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE.toZoneId()).toInstant());
+  }
+}
@@ -0,0 +1,172 @@
+package history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class writes a history into a buffer and reads it back, with its series, its trading
+ * calendar and the indexes already built for it, so a restored history answers queries at once
+ * without rebuilding anything. The large columns are moved with bulk copies. Every part is
+ * written up to its own last day only, leaving out the days that longer series sharing its
+ * arrays appended; an index whose arrays a longer index changed is left out and built again
+ * when it is first used.
+ */
+public final class HistoryCodec {
+
+  private static final int AVERAGES = 1;
+  private static final int EXTREMES = 2;
+
+  /**
+   * Constructs nothing, as this class only has static methods.
+   */
+  private HistoryCodec() {
+  }
+
+  /**
+   * Writes a history into a new buffer, flipped for reading.
+   *
+   * @param history given history.
+   * @return the buffer holding the history.
+   */
+  public static ByteBuffer encode(IHistory history) {
+    PriceSeries series = history.priceSeries();
+    MovingAverageIndex averages = null;
+    RangeExtremumIndex extremes = null;
+    if (history instanceof IHistoryImpl) {
+      //read once, as another thread may build them meanwhile
+      averages = ((IHistoryImpl) history).builtAverages();
+      extremes = ((IHistoryImpl) history).builtExtremes();
+      extremes = extremes == null || !extremes.ownsTrees() ? null : extremes;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(series.encodedBytes() + Integer.BYTES
+            + (averages == null ? 0 : averages.encodedBytes())
+            + (extremes == null ? 0 : extremes.encodedBytes()));
+    series.writeTo(buffer);
+    buffer.putInt((averages == null ? 0 : AVERAGES) | (extremes == null ? 0 : EXTREMES));
+    if (averages != null) {
+      averages.writeTo(buffer);
+    }
+    if (extremes != null) {
+      extremes.writeTo(buffer);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Reads a history written by encode at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @return the history.
+   * @throws IllegalArgumentException if the bytes are not a valid history.
+   */
+  public static IHistory decode(ByteBuffer buffer) throws IllegalArgumentException {
+    PriceSeries series = PriceSeries.readFrom(buffer);
+    int indexes = buffer.getInt();
+    if ((indexes & ~(AVERAGES | EXTREMES)) != 0) {
+      throw new IllegalArgumentException("Unknown indexes: " + indexes);
+    }
+    MovingAverageIndex averages = (indexes & AVERAGES) == 0 ? null
+            : MovingAverageIndex.readFrom(buffer, series.size());
+    RangeExtremumIndex extremes = (indexes & EXTREMES) == 0 ? null
+            : RangeExtremumIndex.readFrom(buffer, series);
+    return new IHistoryImpl(series, averages, extremes);
+  }
+
+  /**
+   * Puts the first values of an array at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param values given values.
+   * @param length given number of values to put.
+   */
+  static void putInts(ByteBuffer buffer, int[] values, int length) {
+    buffer.asIntBuffer().put(values, 0, length);
+    buffer.position(buffer.position() + length * Integer.BYTES);
+  }
+
+  /**
+   * Puts the first values of an array at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param values given values.
+   * @param length given number of values to put.
+   */
+  static void putDoubles(ByteBuffer buffer, double[] values, int length) {
+    buffer.asDoubleBuffer().put(values, 0, length);
+    buffer.position(buffer.position() + length * Double.BYTES);
+  }
+
+  /**
+   * Puts the first values of an array at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param values given values.
+   * @param length given number of values to put.
+   */
+  static void putLongs(ByteBuffer buffer, long[] values, int length) {
+    buffer.asLongBuffer().put(values, 0, length);
+    buffer.position(buffer.position() + length * Long.BYTES);
+  }
+
+  /**
+   * Gets values from the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param length given number of values.
+   * @return the values.
+   * @throws IllegalArgumentException if the length is negative or past the end of the buffer.
+   */
+  static int[] getInts(ByteBuffer buffer, int length) throws IllegalArgumentException {
+    int[] values = new int[checkLength(buffer, length, Integer.BYTES)];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + length * Integer.BYTES);
+    return values;
+  }
+
+  /**
+   * Gets values from the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param length given number of values.
+   * @return the values.
+   * @throws IllegalArgumentException if the length is negative or past the end of the buffer.
+   */
+  static double[] getDoubles(ByteBuffer buffer, int length) throws IllegalArgumentException {
+    double[] values = new double[checkLength(buffer, length, Double.BYTES)];
+    buffer.asDoubleBuffer().get(values);
+    buffer.position(buffer.position() + length * Double.BYTES);
+    return values;
+  }
+
+  /**
+   * Gets values from the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param length given number of values.
+   * @return the values.
+   * @throws IllegalArgumentException if the length is negative or past the end of the buffer.
+   */
+  static long[] getLongs(ByteBuffer buffer, int length) throws IllegalArgumentException {
+    long[] values = new long[checkLength(buffer, length, Long.BYTES)];
+    buffer.asLongBuffer().get(values);
+    buffer.position(buffer.position() + length * Long.BYTES);
+    return values;
+  }
+
+  /**
+   * Checks the number of values to get from a buffer.
+   *
+   * @param buffer given buffer.
+   * @param length given number of values.
+   * @param bytes  given bytes per value.
+   * @return the number of values.
+   * @throws IllegalArgumentException if the length is negative or past the end of the buffer.
+   */
+  private static int checkLength(ByteBuffer buffer, int length, int bytes)
+          throws IllegalArgumentException {
+    if (length < 0 || (long) length * bytes > buffer.remaining()) {
+      throw new IllegalArgumentException("Length " + length + " is past the end of the buffer");
+    }
+    return length;
+  }
+}
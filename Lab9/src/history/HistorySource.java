@@ -0,0 +1,65 @@
+package history;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * This interface represents a place the price history of a stock can be loaded from, such as
+ * the Alpha Vantage API, a directory of CSV files or the local history cache.
+ */
+public interface HistorySource {
+
+  /**
+   * Loads the full price history of a stock, with its closing prices only.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @return the series of closing prices sorted by day
+   * @throws IOException if the history cannot be loaded
+   */
+  PriceSeries load(TickerSymbol tickerSymbol) throws IOException;
+
+  /**
+   * Loads the most recent part of the price history of a stock, enough to extend a history that
+   * was loaded a few weeks ago. Sources that cannot load a part of a history load all of it.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @return the series of the most recent closing prices sorted by day
+   * @throws IOException if the history cannot be loaded
+   */
+  default PriceSeries loadRecent(TickerSymbol tickerSymbol) throws IOException {
+    return load(tickerSymbol);
+  }
+
+  /**
+   * Loads the full price history of a stock with the given columns only, so that the columns
+   * that are not asked for take no memory. The trading days and closing prices are always
+   * loaded. Sources that only have closing prices fail when other columns are asked for.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param columns      given columns to load
+   * @return the series of the given columns sorted by day
+   * @throws IOException if the history cannot be loaded or lacks one of the columns
+   */
+  default PriceSeries load(TickerSymbol tickerSymbol, Set<PriceColumn> columns)
+          throws IOException {
+    PriceSeries series = load(tickerSymbol);
+    if (!series.columns().containsAll(columns)) {
+      throw new IOException("The history of " + tickerSymbol + " has no " + columns + " prices");
+    }
+    return series.select(columns);
+  }
+
+  /**
+   * Loads the most recent part of the price history of a stock with the given columns only.
+   * Sources that cannot load a part of a history load all of it.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param columns      given columns to load
+   * @return the series of the given columns of the most recent days sorted by day
+   * @throws IOException if the history cannot be loaded or lacks one of the columns
+   */
+  default PriceSeries loadRecent(TickerSymbol tickerSymbol, Set<PriceColumn> columns)
+          throws IOException {
+    return load(tickerSymbol, columns);
+  }
+}
@@ -0,0 +1,128 @@
+package history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents an immutable table of the histories of many stocks, kept in an array
+ * indexed by the id of their ticker symbol, so that finding the history of a symbol is an array
+ * load. Adding histories returns a new table and leaves this one unchanged, so a table can be
+ * read from any number of threads while newer versions are being built.
+ */
+public final class HistoryTable {
+
+  /**
+   * A table without any history.
+   */
+  public static final HistoryTable EMPTY = new HistoryTable(new IHistory[0], 0);
+
+  private final IHistory[] histories;
+  private final int size;
+
+  /**
+   * Constructs a HistoryTable over the given array, which must not be changed afterwards.
+   *
+   * @param histories given histories indexed by symbol id.
+   * @param size      given number of histories in the array.
+   */
+  private HistoryTable(IHistory[] histories, int size) {
+    this.histories = histories;
+    this.size = size;
+  }
+
+  /**
+   * Returns the history of a symbol.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @return the history, or null if the symbol has none.
+   */
+  public IHistory get(TickerSymbol tickerSymbol) {
+    int id = tickerSymbol.id();
+    return id < histories.length ? histories[id] : null;
+  }
+
+  /**
+   * Return true if the symbol has a history.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @return true if there is a history for the symbol, otherwise false.
+   */
+  public boolean contains(TickerSymbol tickerSymbol) {
+    return get(tickerSymbol) != null;
+  }
+
+  /**
+   * Returns a table with the histories of this one and the given history of a symbol, replacing
+   * the one the symbol had.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @param history      given history.
+   * @return the new table.
+   * @throws IllegalArgumentException if history is null.
+   */
+  public HistoryTable with(TickerSymbol tickerSymbol, IHistory history)
+          throws IllegalArgumentException {
+    if (history == null) {
+      throw new IllegalArgumentException("history is null");
+    }
+    int id = tickerSymbol.id();
+    IHistory[] copy = Arrays.copyOf(histories, Math.max(histories.length, id + 1));
+    int newSize = copy[id] == null ? size + 1 : size;
+    copy[id] = history;
+    return new HistoryTable(copy, newSize);
+  }
+
+  /**
+   * Returns a table with the histories of this one and all the given histories, replacing the
+   * ones their symbols had.
+   *
+   * @param added given histories by ticker symbol.
+   * @return the new table.
+   * @throws IllegalArgumentException if a history is null.
+   */
+  public HistoryTable withAll(Map<TickerSymbol, ? extends IHistory> added)
+          throws IllegalArgumentException {
+    int length = histories.length;
+    for (TickerSymbol tickerSymbol : added.keySet()) {
+      length = Math.max(length, tickerSymbol.id() + 1);
+    }
+    IHistory[] copy = Arrays.copyOf(histories, length);
+    int newSize = size;
+    for (Map.Entry<TickerSymbol, ? extends IHistory> entry : added.entrySet()) {
+      if (entry.getValue() == null) {
+        throw new IllegalArgumentException("history is null");
+      }
+      if (copy[entry.getKey().id()] == null) {
+        newSize++;
+      }
+      copy[entry.getKey().id()] = entry.getValue();
+    }
+    return new HistoryTable(copy, newSize);
+  }
+
+  /**
+   * Returns the number of symbols with a history.
+   *
+   * @return number of histories.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the symbols that have a history, in order of id.
+   *
+   * @return the symbols.
+   */
+  public List<TickerSymbol> symbols() {
+    List<TickerSymbol> symbols = new ArrayList<>(size);
+    for (int id = 0; id < histories.length; id++) {
+      if (histories[id] != null) {
+        symbols.add(TickerSymbol.byId(id));
+      }
+    }
+    return symbols;
+  }
+}
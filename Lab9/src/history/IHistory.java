@@ -1,5 +1,6 @@
 package history;
 
+import java.util.BitSet;
 import java.util.Date;
 import java.util.List;
 
@@ -10,6 +11,33 @@ import javafx.util.Pair;
  */
 public interface IHistory {
 
+  /**
+   * Get all closing prices of this stock as a series sorted by day.
+   *
+   * @return the series of closing prices
+   */
+  PriceSeries priceSeries();
+
+  /**
+   * Returns a history with the closing prices of this history followed by the closing price of
+   * one more day. This history does not change, so readers of it are not disturbed.
+   *
+   * @param date  given day, after the last day of this history
+   * @param close given closing price of that day
+   * @return the extended history
+   * @throws IllegalArgumentException if the day is not after the last day of this history
+   */
+  IHistory append(Date date, double close) throws IllegalArgumentException;
+
+  /**
+   * Returns a history with the closing prices of this history followed by the closing prices of
+   * the given series that come after the last day of this history.
+   *
+   * @param newer given series of more recent closing prices
+   * @return the extended history, or this history if nothing is newer
+   */
+  IHistory extend(PriceSeries newer);
+
   /**
    * Get the price of a stock on a certain day.
    *
@@ -30,6 +58,28 @@ public interface IHistory {
    */
   boolean buyOpportunity(Date date);
 
+  /**
+   * Return the buying opportunities of this stock within the given day range. Bit i of the result
+   * is set if there is a buying opportunity on the i-th trading day of the range, which is also
+   * the i-th price returned by historicalPrices for the same range.
+   *
+   * @param startDate starting date
+   * @param endDate   ending date
+   * @return the buying opportunities, one bit per trading day of the range
+   * @throws IllegalArgumentException if end date before start date.
+   */
+  BitSet buyOpportunities(Date startDate, Date endDate) throws IllegalArgumentException;
+
+
+  /**
+   * Get a view of the closing prices of this stock within a day range, without copying them.
+   *
+   * @param startDate starting date
+   * @param endDate   ending date
+   * @return the view of the trading days of the range
+   * @throws IllegalArgumentException if end date before start date.
+   */
+  PriceRange priceRange(Date startDate, Date endDate) throws IllegalArgumentException;
 
   /**
    * Get closing prices for this stock for a certain day ranges.
@@ -42,6 +92,21 @@ public interface IHistory {
   List<Pair<Date, Double>> historicalPrices(Date startDate, Date endDate)
           throws IllegalArgumentException;
 
+  /**
+   * Compute the indicators of an engine on the trading days of this stock within a day range, in
+   * one pass over its prices. Row i of the buffer is the i-th trading day of priceRange for the
+   * same range.
+   *
+   * @param engine    given indicators to compute
+   * @param startDate starting date
+   * @param endDate   ending date
+   * @param buffer    given buffer to fill, whose previous values are dropped
+   * @return the buffer
+   * @throws IllegalArgumentException if end date before start date.
+   */
+  IndicatorBuffer indicators(IndicatorEngine engine, Date startDate, Date endDate,
+                             IndicatorBuffer buffer) throws IllegalArgumentException;
+
 
   /**
    * Return true if there is trending up for this stock within the given day range.
@@ -53,5 +118,25 @@ public interface IHistory {
    */
   boolean trendUpPerStock(Date startDate, Date endDate) throws IllegalArgumentException;
 
+  /**
+   * Return the highest closing price of this stock within the given day range.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @return the highest closing price in the day range
+   * @throws IllegalArgumentException if there is no price within the day range
+   */
+  double maxPrice(Date startDate, Date endDate) throws IllegalArgumentException;
+
+  /**
+   * Return the lowest closing price of this stock within the given day range.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @return the lowest closing price in the day range
+   * @throws IllegalArgumentException if there is no price within the day range
+   */
+  double minPrice(Date startDate, Date endDate) throws IllegalArgumentException;
+
 
 }
@@ -1,34 +1,177 @@
 package history;
 
-import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.BitSet;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 
 import javafx.util.Pair;
+import metrics.Counter;
+import metrics.MetricsRegistry;
 import stockapp.StockApplication;
 
 /**
  * This class represents an IHistoryImpl, which store the history of a SKU.
- * This history is obtained using the API in StockApplication class.
+ * This history is obtained using the API in StockApplication class and kept as a sorted
+ * PriceSeries of trading days and closing prices. Appending a day keeps the indexes that are
+ * already built up to date, at a constant amortized cost per day.
  */
 public class IHistoryImpl implements IHistory {
-  private HashMap<Date, Double> history;
+  private static final Counter EMPTY_FALLBACKS =
+          MetricsRegistry.global().counter("history_empty_fallbacks_total");
+
+  private final PriceSeries history;
+  private MovingAverageIndex averages;
+  private RangeExtremumIndex extremes;
 
   /**
    * Constructor for IHistoryImpl.  This takes in a ticketSymbol and gets the history of
-   * the stock using the API in the StockApplication class.  If history cannot be obtained,
-   * then an empty hashmap is created.
+   * the stock from the default source of the StockApplication class, the API behind the local
+   * history cache.  If history cannot be obtained, then an empty series is used.
    *
    * @param tickerSymbol given tickerSymbol.
    */
   public IHistoryImpl(TickerSymbol tickerSymbol) {
+    this(tickerSymbol, StockApplication.defaultSource());
+  }
+
+  /**
+   * Constructor for IHistoryImpl.  This takes in a ticketSymbol and gets the history of
+   * the stock from the given source.  If history cannot be obtained, then an empty series
+   * is used.
+   *
+   * @param tickerSymbol given tickerSymbol.
+   * @param source       given source of histories.
+   */
+  public IHistoryImpl(TickerSymbol tickerSymbol, HistorySource source) {
+    this(loadHistory(tickerSymbol, source));
+  }
+
+  /**
+   * Constructor for IHistoryImpl over an already loaded series of closing prices.
+   *
+   * @param history given series of closing prices.
+   */
+  public IHistoryImpl(PriceSeries history) {
+    this.history = history;
+  }
+
+  /**
+   * Constructor for IHistoryImpl over a series and the indexes already built for it.
+   *
+   * @param history  given series of closing prices.
+   * @param averages given moving averages of the series, or null if not built yet.
+   * @param extremes given range extremum index of the series, or null if not built yet.
+   */
+  IHistoryImpl(PriceSeries history, MovingAverageIndex averages,
+               RangeExtremumIndex extremes) {
+    this.history = history;
+    this.averages = averages;
+    this.extremes = extremes;
+  }
+
+  /**
+   * Gets the history of a stock from the given source.
+   *
+   * @param tickerSymbol given tickerSymbol.
+   * @param source       given source of histories.
+   * @return the series of closing prices, empty if the history cannot be obtained.
+   */
+  private static PriceSeries loadHistory(TickerSymbol tickerSymbol, HistorySource source) {
     try {
-      this.history = StockApplication.makeHistory(tickerSymbol);
+      return source.load(tickerSymbol);
     } catch (Exception e) {
-      this.history = new HashMap<>();
+      EMPTY_FALLBACKS.increment();
+      return PriceSeries.EMPTY;
+    }
+  }
+
+  /**
+   * Returns the moving averages of this history if they are built.
+   *
+   * @return the moving averages, or null if they are not built yet.
+   */
+  MovingAverageIndex builtAverages() {
+    return averages;
+  }
+
+  /**
+   * Returns the range extremum index of this history if it is built.
+   *
+   * @return the index, or null if it is not built yet.
+   */
+  RangeExtremumIndex builtExtremes() {
+    return extremes;
+  }
+
+  /**
+   * Get all closing prices of this stock as a series sorted by day.
+   *
+   * @return the series of closing prices
+   */
+  @Override
+  public PriceSeries priceSeries() {
+    return this.history;
+  }
+
+  /**
+   * Returns a history with the closing prices of this history followed by the closing price of
+   * one more day. This history does not change, so readers of it are not disturbed.
+   *
+   * @param date  given day, after the last day of this history
+   * @param close given closing price of that day
+   * @return the extended history
+   * @throws IllegalArgumentException if the day is not after the last day of this history
+   */
+  @Override
+  public IHistory append(Date date, double close) throws IllegalArgumentException {
+    return appendDay(EpochDays.fromDate(date), close);
+  }
+
+  /**
+   * Returns a history extended by the closing price of one more day, appending to the indexes
+   * that are already built.
+   *
+   * @param epochDay given epoch day, after the last day of this history.
+   * @param close    given closing price of that day.
+   * @return the extended history.
+   * @throws IllegalArgumentException if the day is not after the last day of this history.
+   */
+  private IHistoryImpl appendDay(int epochDay, double close) throws IllegalArgumentException {
+    return withAppendedDay(history.append(epochDay, close));
+  }
+
+  /**
+   * Returns a history over a series that is the series of this history with one more day,
+   * appending the closing price of that day to the indexes that are already built.
+   *
+   * @param extended given series with one more day.
+   * @return the extended history.
+   */
+  private IHistoryImpl withAppendedDay(PriceSeries extended) {
+    double close = extended.closeAt(extended.size() - 1);
+    MovingAverageIndex averageIndex = this.averages;
+    RangeExtremumIndex extremumIndex = this.extremes;
+    return new IHistoryImpl(extended,
+            averageIndex == null ? null : averageIndex.append(close),
+            extremumIndex == null ? null : extremumIndex.append(extended));
+  }
+
+  /**
+   * Returns a history with the closing prices of this history followed by the closing prices of
+   * the given series that come after the last day of this history. The new days keep the
+   * columns of this history.
+   *
+   * @param newer given series of more recent closing prices
+   * @return the extended history, or this history if nothing is newer
+   */
+  @Override
+  public IHistory extend(PriceSeries newer) {
+    int from = history.size() == 0 ? 0 : newer.upperBound(history.dayAt(history.size() - 1));
+    IHistoryImpl result = this;
+    for (int i = from; i < newer.size(); i++) {
+      result = result.withAppendedDay(result.history.appendDayOf(newer, i));
     }
+    return result;
   }
 
   /**
@@ -40,10 +183,11 @@ public class IHistoryImpl implements IHistory {
    */
   @Override
   public double priceOnDay(Date date) throws IllegalArgumentException {
-    if (!this.history.containsKey(date)) {
+    int index = history.indexOf(EpochDays.fromDate(date));
+    if (index < 0) {
       throw new IllegalArgumentException("Date doesn't exist in the history!");
     }
-    return history.get(date);
+    return history.closeAt(index);
   }
 
   /**
@@ -59,58 +203,80 @@ public class IHistoryImpl implements IHistory {
   public boolean buyOpportunity(Date date) {
     if (this.history.size() < 200) {
       return false;
-    } else if (!this.history.containsKey(date)) {
-      return false;
     }
-    try {
-      boolean result = this.calculateAverage(50, date)
-              > this.calculateAverage(200, date);
-      return result;
-    } catch (IllegalArgumentException e) {
+    int index = history.indexOf(EpochDays.fromDate(date));
+    if (index < 0) {
       return false;
     }
+    return this.movingAverages().isSignal(index);
   }
 
   /**
-   * Calculates the average price of a stock over a given number of days starting at a given date.
-   * Only takes into account business days and non-holidays.
+   * Return the buying opportunities of this stock within the given day range. Bit i of the result
+   * is set if there is a buying opportunity on the i-th trading day of the range, which is also
+   * the i-th price returned by historicalPrices for the same range.
    *
-   * @param days given days to calculate average.
-   * @param date given date.
-   * @return double that represents the average price over given days at given date.
-   * @throws IllegalArgumentException if negative days given or date is not in hashmap.
+   * @param startDate starting date
+   * @param endDate   ending date
+   * @return the buying opportunities, one bit per trading day of the range
+   * @throws IllegalArgumentException if end date before start date.
    */
-  private double calculateAverage(int days, Date date) throws IllegalArgumentException {
-    Calendar temp = Calendar.getInstance();
-    temp.setTime(date);
-    if (days <= 0) {
-      throw new IllegalArgumentException("Number of days must be positive!");
+  @Override
+  public BitSet buyOpportunities(Date startDate, Date endDate) throws IllegalArgumentException {
+    if (endDate.before(startDate)) {
+      throw new IllegalArgumentException("End date must be after start date!");
     }
-    if (!history.containsKey(date)) {
-      throw new IllegalArgumentException("You cannot buy stock on this day!");
+    BitSet result = new BitSet();
+    if (this.history.size() < 200) {
+      return result;
     }
-    double sum = 0;
-    for (int i = 0; i < days; i++) {
-      int j = 0;
-      while (j < 10 && (!this.history.containsKey(temp.getTime()))) {
-        //check if there is holiday, maximum 10 days in a roll
-        temp.add(Calendar.DATE, -1);
-        j++;
-      }
-      if (j == 10) {
-        //check if the earliest history is reached
-        throw new IllegalArgumentException("earliest history is reached");
-      }
-      sum += this.history.get(temp.getTime());
-
-      temp.add(Calendar.DATE, -1);
+    int from = history.lowerBound(EpochDays.fromDate(startDate));
+    int to = history.upperBound(EpochDays.fromDate(endDate));
+    MovingAverageIndex index = this.movingAverages();
+    for (int i = index.nextSignal(from); i >= 0 && i < to; i = index.nextSignal(i + 1)) {
+      result.set(i - from);
     }
-    return sum / days;
+    return result;
   }
 
   /**
-   * Get closing prices for this stock for a certain day ranges.  Returns a list of pairs of
-   * dates and doubles representing the price of a stock on a given day.
+   * Returns the 50-day and 200-day moving averages of this history. They are computed once, on
+   * the first call, and every later buying opportunity is a lookup.
+   *
+   * @return the moving averages of this history.
+   */
+  private MovingAverageIndex movingAverages() {
+    MovingAverageIndex result = this.averages;
+    if (result == null) {
+      //the index is immutable, so building it twice from two threads is harmless
+      result = new MovingAverageIndex(history, 50, 200);
+      this.averages = result;
+    }
+    return result;
+  }
+
+  /**
+   * Get a view of the closing prices of this stock within a day range, without copying them.
+   *
+   * @param startDate starting date
+   * @param endDate   ending date
+   * @return the view of the trading days of the range
+   * @throws IllegalArgumentException if end date before start date.
+   */
+  @Override
+  public PriceRange priceRange(Date startDate, Date endDate) throws IllegalArgumentException {
+    if (endDate.before(startDate)) {
+      throw new IllegalArgumentException("End date must be after start date!");
+    }
+    int from = history.lowerBound(EpochDays.fromDate(startDate));
+    int to = history.upperBound(EpochDays.fromDate(endDate));
+    return history.range(from, Math.max(from, to));
+  }
+
+  /**
+   * Get closing prices for this stock for a certain day ranges.  Returns a read-only list of
+   * pairs of dates and doubles representing the price of a stock on a given day, made from
+   * priceRange as it is read.
    *
    * @param startDate starting date
    * @param endDate   ending date
@@ -120,22 +286,30 @@ public class IHistoryImpl implements IHistory {
   @Override
   public List<Pair<Date, Double>> historicalPrices(Date startDate, Date endDate)
           throws IllegalArgumentException {
+    return priceRange(startDate, endDate).asList();
+  }
 
-    List<Pair<Date, Double>> historicalPrices = new ArrayList<>();
-    Calendar tempStart = Calendar.getInstance();
-    tempStart.setTime(startDate);
-
+  /**
+   * Compute the indicators of an engine on the trading days of this stock within a day range, in
+   * one pass over its prices. Row i of the buffer is the i-th trading day of priceRange for the
+   * same range.
+   *
+   * @param engine    given indicators to compute
+   * @param startDate starting date
+   * @param endDate   ending date
+   * @param buffer    given buffer to fill, whose previous values are dropped
+   * @return the buffer
+   * @throws IllegalArgumentException if end date before start date.
+   */
+  @Override
+  public IndicatorBuffer indicators(IndicatorEngine engine, Date startDate, Date endDate,
+                                    IndicatorBuffer buffer) throws IllegalArgumentException {
     if (endDate.before(startDate)) {
       throw new IllegalArgumentException("End date must be after start date!");
     }
-
-    while (tempStart.getTime().before(endDate) || tempStart.getTime().equals(endDate)) {
-      if (history.containsKey(tempStart.getTime())) {
-        historicalPrices.add(new Pair<>(tempStart.getTime(), history.get(tempStart.getTime())));
-      }
-      tempStart.add(Calendar.DATE, 1);
-    }
-    return historicalPrices;
+    int from = history.lowerBound(EpochDays.fromDate(startDate));
+    int to = history.upperBound(EpochDays.fromDate(endDate));
+    return engine.compute(history, from, Math.max(from, to), buffer);
   }
 
   /**
@@ -151,23 +325,68 @@ public class IHistoryImpl implements IHistory {
     if (endDate.before(startDate) || endDate.equals(startDate)) {
       throw new IllegalArgumentException("End date must be a date after the start date!");
     }
-    if (!this.history.containsKey(startDate) || !this.history.containsKey(endDate)) {
+    int start = history.indexOf(EpochDays.fromDate(startDate));
+    int end = history.indexOf(EpochDays.fromDate(endDate));
+    if (start < 0 || end < 0) {
       throw new IllegalArgumentException("Start Date or End Date is not a valid business day!");
     }
-    return trendSlope(startDate, endDate) >= 0;
+    return trendSlope(start, end) >= 0;
   }
 
 
   /**
-   * Returns the slope of prices between two given dates.
+   * Return the highest closing price of this stock within the given day range.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @return the highest closing price in the day range
+   * @throws IllegalArgumentException if there is no price within the day range
+   */
+  @Override
+  public double maxPrice(Date startDate, Date endDate) throws IllegalArgumentException {
+    return this.rangeExtremes().max(history.lowerBound(EpochDays.fromDate(startDate)),
+            history.upperBound(EpochDays.fromDate(endDate)) - 1);
+  }
+
+  /**
+   * Return the lowest closing price of this stock within the given day range.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @return the lowest closing price in the day range
+   * @throws IllegalArgumentException if there is no price within the day range
+   */
+  @Override
+  public double minPrice(Date startDate, Date endDate) throws IllegalArgumentException {
+    return this.rangeExtremes().min(history.lowerBound(EpochDays.fromDate(startDate)),
+            history.upperBound(EpochDays.fromDate(endDate)) - 1);
+  }
+
+  /**
+   * Returns the index of the lowest and highest prices of this history, built on the first call.
+   *
+   * @return the range extremum index of this history.
+   */
+  private RangeExtremumIndex rangeExtremes() {
+    RangeExtremumIndex result = this.extremes;
+    if (result == null) {
+      //the index is immutable, so building it twice from two threads is harmless
+      result = new RangeExtremumIndex(history);
+      this.extremes = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the slope of prices between the trading days at two given positions.
    *
-   * @param startDate given start date.
-   * @param endDate   given end date.
+   * @param start given position of the start date.
+   * @param end   given position of the end date.
    * @return double that represents the slope of a line between the prices on two given days.
    */
-  private double trendSlope(Date startDate, Date endDate) {
-    return (history.get(endDate) - history.get(startDate)) /
-            ((endDate.getTime() - startDate.getTime()) / (1000 * 60 * 60 * 24));
+  private double trendSlope(int start, int end) {
+    return (history.closeAt(end) - history.closeAt(start)) /
+            (history.dayAt(end) - history.dayAt(start));
   }
 
 
@@ -0,0 +1,427 @@
+package history;
+
+import java.util.function.Supplier;
+
+/**
+ * This class represents a technical indicator of closing prices, such as a moving average, with
+ * its parameters. An indicator is computed by an IndicatorEngine, together with the others of the
+ * engine, in one pass over the prices: each indicator keeps its running state in a Calculation
+ * that takes one closing price at a time and writes one value per output. An output is NaN on
+ * the days before the indicator has seen enough prices.
+ *
+ * <p>Indicators with the same kind and parameters are equal.
+ */
+public final class Indicator {
+
+  private final String name;
+  private final String[] outputs;
+  private final int lookback;
+  private final Supplier<Calculation> calculations;
+
+  /**
+   * Constructs an Indicator.
+   *
+   * @param name         given name, holding the kind and parameters of the indicator.
+   * @param outputs      given names of the outputs, or just the name for one output.
+   * @param lookback     given number of days before a day that its value depends on, or
+   *                     Integer.MAX_VALUE if it depends on every day before.
+   * @param calculations given maker of new calculations of the indicator.
+   */
+  private Indicator(String name, String[] outputs, int lookback,
+                    Supplier<Calculation> calculations) {
+    this.name = name;
+    this.outputs = outputs;
+    this.lookback = lookback;
+    this.calculations = calculations;
+  }
+
+  /**
+   * Returns the simple moving average of the closing prices over a window.
+   *
+   * @param window given number of days.
+   * @return the indicator.
+   * @throws IllegalArgumentException if the window is not positive.
+   */
+  public static Indicator sma(int window) throws IllegalArgumentException {
+    checkWindow(window);
+    String name = "sma(" + window + ")";
+    return new Indicator(name, new String[]{name}, window - 1, () -> {
+      Window prices = new Window(window);
+      return (close, columns, column, row) -> {
+        prices.add(close);
+        if (row >= 0) {
+          columns[column][row] = prices.isFull() ? prices.sum / window : Double.NaN;
+        }
+      };
+    });
+  }
+
+  /**
+   * Returns the exponential moving average of the closing prices over a window, with a weight of
+   * 2 / (window + 1) for the newest price. It starts at the simple average of the first window.
+   *
+   * @param window given number of days.
+   * @return the indicator.
+   * @throws IllegalArgumentException if the window is not positive.
+   */
+  public static Indicator ema(int window) throws IllegalArgumentException {
+    checkWindow(window);
+    String name = "ema(" + window + ")";
+    return new Indicator(name, new String[]{name}, Integer.MAX_VALUE, () -> {
+      Ema average = new Ema(window);
+      return (close, columns, column, row) -> {
+        double value = average.add(close);
+        if (row >= 0) {
+          columns[column][row] = value;
+        }
+      };
+    });
+  }
+
+  /**
+   * Returns the relative strength index of the closing prices over a window, between 0 and 100,
+   * with the average gains and losses smoothed like Wilder's. It starts at the simple average of
+   * the first window of changes, so its first value is on the day after the first window.
+   *
+   * @param window given number of days.
+   * @return the indicator.
+   * @throws IllegalArgumentException if the window is not positive.
+   */
+  public static Indicator rsi(int window) throws IllegalArgumentException {
+    checkWindow(window);
+    String name = "rsi(" + window + ")";
+    return new Indicator(name, new String[]{name}, Integer.MAX_VALUE, () -> new Rsi(window));
+  }
+
+  /**
+   * Returns the Bollinger bands of the closing prices over a window: the simple moving average,
+   * and the bands a given number of standard deviations above and below it.
+   *
+   * @param window given number of days.
+   * @param widths given number of standard deviations between the average and each band.
+   * @return the indicator, whose outputs are the average, the upper band and the lower band.
+   * @throws IllegalArgumentException if the window is not positive or widths is negative.
+   */
+  public static Indicator bollinger(int window, double widths) throws IllegalArgumentException {
+    checkWindow(window);
+    if (!(widths >= 0)) {
+      throw new IllegalArgumentException("Band width must not be negative!");
+    }
+    String name = "bollinger(" + window + "," + widths + ")";
+    Supplier<Calculation> bands = () -> {
+      Window prices = new Window(window);
+      return (close, columns, column, row) -> {
+        prices.add(close);
+        if (row >= 0) {
+          double middle = Double.NaN;
+          double width = Double.NaN;
+          if (prices.isFull()) {
+            middle = prices.sum / window;
+            width = widths * Math.sqrt(Math.max(0, prices.squaredDeviations / window));
+          }
+          columns[column][row] = middle;
+          columns[column + 1][row] = middle + width;
+          columns[column + 2][row] = middle - width;
+        }
+      };
+    };
+    return new Indicator(name, new String[]{name + ".middle", name + ".upper", name + ".lower"},
+            window - 1, bands);
+  }
+
+  /**
+   * Returns the moving average convergence divergence of the closing prices: the fast minus the
+   * slow exponential moving average, its exponential moving average as a signal line, and the
+   * difference between the two as a histogram.
+   *
+   * @param fast   given number of days of the fast average.
+   * @param slow   given number of days of the slow average.
+   * @param signal given number of days of the signal line.
+   * @return the indicator, whose outputs are the MACD line, the signal line and the histogram.
+   * @throws IllegalArgumentException if a window is not positive or fast is not below slow.
+   */
+  public static Indicator macd(int fast, int slow, int signal) throws IllegalArgumentException {
+    checkWindow(fast);
+    checkWindow(slow);
+    checkWindow(signal);
+    if (fast >= slow) {
+      throw new IllegalArgumentException("Fast window must be shorter than slow window!");
+    }
+    String name = "macd(" + fast + "," + slow + "," + signal + ")";
+    Supplier<Calculation> lines = () -> {
+      Ema fastAverage = new Ema(fast);
+      Ema slowAverage = new Ema(slow);
+      Ema signalAverage = new Ema(signal);
+      return (close, columns, column, row) -> {
+        double line = fastAverage.add(close) - slowAverage.add(close);
+        double signalLine = Double.isNaN(line) ? Double.NaN : signalAverage.add(line);
+        if (row >= 0) {
+          columns[column][row] = line;
+          columns[column + 1][row] = signalLine;
+          columns[column + 2][row] = line - signalLine;
+        }
+      };
+    };
+    return new Indicator(name, new String[]{name + ".line", name + ".signal",
+        name + ".histogram"}, Integer.MAX_VALUE, lines);
+  }
+
+  /**
+   * Checks the window of an indicator.
+   *
+   * @param window given number of days.
+   * @throws IllegalArgumentException if the window is not positive.
+   */
+  private static void checkWindow(int window) throws IllegalArgumentException {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Number of days must be positive!");
+    }
+  }
+
+  /**
+   * Returns the name of this indicator, such as sma(50).
+   *
+   * @return the name.
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Returns the number of values this indicator gives per day.
+   *
+   * @return number of outputs.
+   */
+  public int outputs() {
+    return outputs.length;
+  }
+
+  /**
+   * Returns the name of an output of this indicator, such as bollinger(20,2.0).upper.
+   *
+   * @param output given output.
+   * @return the name of the output.
+   * @throws IndexOutOfBoundsException if there is no such output.
+   */
+  public String outputName(int output) throws IndexOutOfBoundsException {
+    return outputs[output];
+  }
+
+  /**
+   * Returns the number of days before a day that the value of this indicator on that day depends
+   * on.
+   *
+   * @return the number of days, or Integer.MAX_VALUE if it depends on every day before.
+   */
+  int lookback() {
+    return lookback;
+  }
+
+  /**
+   * Returns a new calculation of this indicator, which has seen no price yet.
+   *
+   * @return the calculation.
+   */
+  Calculation start() {
+    return calculations.get();
+  }
+
+  /**
+   * Returns true if the other object is an indicator of the same kind and parameters.
+   *
+   * @param other given object.
+   * @return true if the indicators are the same.
+   */
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Indicator && ((Indicator) other).name.equals(name);
+  }
+
+  /**
+   * Returns the hash code of the indicator.
+   *
+   * @return the hash code.
+   */
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  /**
+   * Returns the name of this indicator.
+   *
+   * @return the name.
+   */
+  @Override
+  public String toString() {
+    return name;
+  }
+
+  /**
+   * This interface represents the running state of an indicator over the prices it has seen.
+   */
+  interface Calculation {
+
+    /**
+     * Takes the closing price of the next day and writes the outputs of that day into the
+     * given columns, from the given one on.
+     *
+     * @param close   given closing price.
+     * @param columns given columns of values.
+     * @param column  given column of the first output.
+     * @param row     given row of the day, or a negative number if the day is only seen to warm
+     *                the indicator up and nothing is written.
+     */
+    void next(double close, double[][] columns, int column, int row);
+  }
+
+  /**
+   * This class represents the last prices of a window, with their sum, and their mean and sum of
+   * squared deviations from it updated by Welford's method, so the variance of prices far from
+   * zero does not cancel out as the difference of two large sums would.
+   */
+  private static final class Window {
+
+    private final double[] prices;
+    private int next;
+    private int seen;
+    private double sum;
+    private double mean;
+    private double squaredDeviations;
+
+    /**
+     * Constructs an empty Window.
+     *
+     * @param window given number of days.
+     */
+    Window(int window) {
+      this.prices = new double[window];
+    }
+
+    /**
+     * Adds the price of the next day, dropping the oldest one if the window is full.
+     *
+     * @param close given closing price.
+     */
+    void add(double close) {
+      if (seen == prices.length) {
+        double oldest = prices[next];
+        double oldMean = mean;
+        sum -= oldest;
+        mean += (close - oldest) / seen;
+        squaredDeviations += (close - oldest) * (close - mean + oldest - oldMean);
+      } else {
+        seen++;
+        double delta = close - mean;
+        mean += delta / seen;
+        squaredDeviations += delta * (close - mean);
+      }
+      prices[next] = close;
+      sum += close;
+      next = next + 1 == prices.length ? 0 : next + 1;
+    }
+
+    /**
+     * Returns true if the window has seen as many prices as it holds.
+     *
+     * @return true if the window is full.
+     */
+    boolean isFull() {
+      return seen == prices.length;
+    }
+  }
+
+  /**
+   * This class represents the relative strength index of the prices seen so far.
+   */
+  private static final class Rsi implements Calculation {
+
+    private final int window;
+    private double previous = Double.NaN;
+    private int changes;
+    private double gain;
+    private double loss;
+
+    /**
+     * Constructs an Rsi that has seen no price yet.
+     *
+     * @param window given number of days.
+     */
+    Rsi(int window) {
+      this.window = window;
+    }
+
+    /**
+     * Takes the closing price of the next day and writes the index of that day.
+     *
+     * @param close   given closing price.
+     * @param columns given columns of values.
+     * @param column  given column of the index.
+     * @param row     given row of the day, or a negative number to write nothing.
+     */
+    @Override
+    public void next(double close, double[][] columns, int column, int row) {
+      double value = Double.NaN;
+      if (!Double.isNaN(previous)) {
+        double change = close - previous;
+        changes++;
+        if (changes <= window) {
+          gain += Math.max(change, 0) / window;
+          loss += Math.max(-change, 0) / window;
+        } else {
+          gain = (gain * (window - 1) + Math.max(change, 0)) / window;
+          loss = (loss * (window - 1) + Math.max(-change, 0)) / window;
+        }
+        if (changes >= window) {
+          value = loss == 0 ? (gain == 0 ? 50 : 100) : 100 - 100 / (1 + gain / loss);
+        }
+      }
+      previous = close;
+      if (row >= 0) {
+        columns[column][row] = value;
+      }
+    }
+  }
+
+  /**
+   * This class represents an exponential moving average that starts at the simple average of
+   * its first window.
+   */
+  private static final class Ema {
+
+    private final int window;
+    private final double weight;
+    private int seen;
+    private double value;
+
+    /**
+     * Constructs an Ema that has seen no value yet.
+     *
+     * @param window given number of days.
+     */
+    Ema(int window) {
+      this.window = window;
+      this.weight = 2.0 / (window + 1);
+    }
+
+    /**
+     * Adds the next value and returns the average.
+     *
+     * @param x given value.
+     * @return the average, or NaN until a window of values is seen.
+     */
+    double add(double x) {
+      seen++;
+      if (seen < window) {
+        value += x / window;
+        return Double.NaN;
+      }
+      if (seen == window) {
+        value += x / window;
+      } else {
+        value += weight * (x - value);
+      }
+      return value;
+    }
+  }
+}
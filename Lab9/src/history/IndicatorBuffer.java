@@ -0,0 +1,93 @@
+package history;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the values computed by an IndicatorEngine: one column of doubles per
+ * output of its indicators and one row per trading day. The columns are kept when the buffer is
+ * filled again, and only grow when more rows or columns are needed, so a buffer reused for many
+ * stocks or indicator combinations stops allocating once it is large enough.
+ */
+public final class IndicatorBuffer {
+
+  private double[][] columns = new double[0][];
+  private int columnCount;
+  private int size;
+
+  /**
+   * Constructs an empty IndicatorBuffer.
+   */
+  public IndicatorBuffer() {
+    //empty because the columns are made when the buffer is first filled.
+  }
+
+  /**
+   * Makes room for the given number of columns and rows, keeping the columns that are large
+   * enough, and empties the buffer of its previous values.
+   *
+   * @param columnCount given number of columns.
+   * @param rows        given number of rows.
+   * @return the columns, each with room for the rows.
+   */
+  double[][] reset(int columnCount, int rows) {
+    if (columns.length < columnCount) {
+      columns = Arrays.copyOf(columns, columnCount);
+    }
+    for (int i = 0; i < columnCount; i++) {
+      if (columns[i] == null || columns[i].length < rows) {
+        columns[i] = new double[Math.max(rows, columns[i] == null ? 0 : columns[i].length * 2)];
+      }
+    }
+    this.columnCount = columnCount;
+    this.size = rows;
+    return columns;
+  }
+
+  /**
+   * Returns the number of rows, one per trading day.
+   *
+   * @return number of rows.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of columns, one per output of the indicators.
+   *
+   * @return number of columns.
+   */
+  public int columns() {
+    return columnCount;
+  }
+
+  /**
+   * Returns a value.
+   *
+   * @param column given column.
+   * @param row    given row.
+   * @return the value, NaN if the indicator has no value on that day.
+   * @throws IndexOutOfBoundsException if there is no such column or row.
+   */
+  public double get(int column, int row) throws IndexOutOfBoundsException {
+    if (column < 0 || column >= columnCount || row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Column: " + column + ", Row: " + row);
+    }
+    return columns[column][row];
+  }
+
+  /**
+   * Returns the array of a column without copying it, to read many values fast. Only its first
+   * size() values belong to this buffer, and it is overwritten when the buffer is filled again.
+   *
+   * @param column given column.
+   * @return the array of the column.
+   * @throws IndexOutOfBoundsException if there is no such column.
+   */
+  public double[] column(int column) throws IndexOutOfBoundsException {
+    if (column < 0 || column >= columnCount) {
+      throw new IndexOutOfBoundsException("Column: " + column);
+    }
+    return columns[column];
+  }
+}
@@ -0,0 +1,134 @@
+package history;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents a set of indicators computed together. Computing them over a range of a
+ * series reads each closing price once and hands it to every indicator before moving on to the
+ * next day, so any number of indicators costs one pass over the prices, and their values are
+ * written into the primitive columns of a reusable IndicatorBuffer.
+ *
+ * <p>The value of an indicator on a day is the one it has over the whole series, so the pass
+ * starts early enough before the range for every indicator to be warmed up: as many days as the
+ * longest window of the moving averages and bands, or the start of the series for the
+ * exponential averages, which depend on every day before.
+ */
+public final class IndicatorEngine {
+
+  private final Indicator[] indicators;
+  private final int[] firstColumns;
+  private final String[] columnNames;
+  private final int lookback;
+
+  /**
+   * Constructs an IndicatorEngine.
+   *
+   * @param indicators given indicators, whose outputs make the columns in order.
+   * @throws IllegalArgumentException if there is no indicator or one is there twice.
+   */
+  public IndicatorEngine(List<Indicator> indicators) throws IllegalArgumentException {
+    if (indicators.isEmpty()) {
+      throw new IllegalArgumentException("There must be an indicator!");
+    }
+    if (indicators.stream().distinct().count() != indicators.size()) {
+      throw new IllegalArgumentException("Indicators must be distinct!");
+    }
+    this.indicators = indicators.toArray(new Indicator[0]);
+    this.firstColumns = new int[this.indicators.length];
+    int columns = 0;
+    int longest = 0;
+    for (int i = 0; i < this.indicators.length; i++) {
+      firstColumns[i] = columns;
+      columns += this.indicators[i].outputs();
+      longest = Math.max(longest, this.indicators[i].lookback());
+    }
+    this.columnNames = new String[columns];
+    for (int i = 0; i < this.indicators.length; i++) {
+      for (int output = 0; output < this.indicators[i].outputs(); output++) {
+        columnNames[firstColumns[i] + output] = this.indicators[i].outputName(output);
+      }
+    }
+    this.lookback = longest;
+  }
+
+  /**
+   * Constructs an IndicatorEngine.
+   *
+   * @param indicators given indicators, whose outputs make the columns in order.
+   * @throws IllegalArgumentException if there is no indicator or one is there twice.
+   */
+  public IndicatorEngine(Indicator... indicators) throws IllegalArgumentException {
+    this(Arrays.asList(indicators));
+  }
+
+  /**
+   * Returns the number of columns of the values, one per output of each indicator.
+   *
+   * @return number of columns.
+   */
+  public int columns() {
+    return columnNames.length;
+  }
+
+  /**
+   * Returns the column of the first output of an indicator.
+   *
+   * @param indicator given indicator.
+   * @return the column.
+   * @throws IllegalArgumentException if the indicator is not computed by this engine.
+   */
+  public int column(Indicator indicator) throws IllegalArgumentException {
+    for (int i = 0; i < indicators.length; i++) {
+      if (indicators[i].equals(indicator)) {
+        return firstColumns[i];
+      }
+    }
+    throw new IllegalArgumentException("Indicator is not in the engine: " + indicator);
+  }
+
+  /**
+   * Returns the name of a column, the name of its output.
+   *
+   * @param column given column.
+   * @return the name of the column.
+   * @throws IndexOutOfBoundsException if there is no such column.
+   */
+  public String columnName(int column) throws IndexOutOfBoundsException {
+    return columnNames[column];
+  }
+
+  /**
+   * Computes every indicator over the trading days at the positions from from to to, excluded,
+   * of a series, in one pass. Row i of the buffer is the trading day at position from + i.
+   *
+   * @param series given series of closing prices.
+   * @param from   given position of the first trading day.
+   * @param to     given position after the last trading day.
+   * @param buffer given buffer to fill, whose previous values are dropped.
+   * @return the buffer.
+   * @throws IndexOutOfBoundsException if the positions are not a range of the series.
+   */
+  public IndicatorBuffer compute(PriceSeries series, int from, int to, IndicatorBuffer buffer)
+          throws IndexOutOfBoundsException {
+    if (from < 0 || from > to || to > series.size()) {
+      throw new IndexOutOfBoundsException("Range: " + from + " to " + to + ", Size: "
+              + series.size());
+    }
+    double[][] columns = buffer.reset(columnNames.length, to - from);
+    int count = indicators.length;
+    Indicator.Calculation[] calculations = new Indicator.Calculation[count];
+    for (int i = 0; i < count; i++) {
+      calculations[i] = indicators[i].start();
+    }
+    int start = lookback >= from ? 0 : from - lookback;
+    for (int day = start; day < to; day++) {
+      double close = series.closeAt(day);
+      int row = day - from;
+      for (int i = 0; i < count; i++) {
+        calculations[i].next(close, columns, firstColumns[i], row);
+      }
+    }
+    return buffer;
+  }
+}
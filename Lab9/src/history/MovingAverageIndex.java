@@ -0,0 +1,250 @@
+package history;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents precomputed moving averages over a PriceSeries. It keeps the cumulative
+ * sums of the closing prices, so that the average over any window is found in constant time, and
+ * a bitset of every trading day on which the short moving average is above the long one.
+ * Appending a closing price updates both in constant amortized time, sharing their arrays with
+ * this index the same way PriceSeries shares its columns.
+ */
+public final class MovingAverageIndex {
+
+  private final double[] prefixSums;
+  private final long[] signals;
+  private final int shortWindow;
+  private final int longWindow;
+  private final int size;
+  private final AtomicInteger written;
+
+  /**
+   * Constructs a MovingAverageIndex over the given series.
+   *
+   * @param series      given series of closing prices.
+   * @param shortWindow given number of days of the short moving average.
+   * @param longWindow  given number of days of the long moving average.
+   * @throws IllegalArgumentException if a window is not positive.
+   */
+  public MovingAverageIndex(PriceSeries series, int shortWindow, int longWindow)
+          throws IllegalArgumentException {
+    if (shortWindow <= 0 || longWindow <= 0) {
+      throw new IllegalArgumentException("Number of days must be positive!");
+    }
+    this.shortWindow = shortWindow;
+    this.longWindow = longWindow;
+    int size = series.size();
+    this.prefixSums = new double[size + 1];
+    for (int i = 0; i < size; i++) {
+      prefixSums[i + 1] = prefixSums[i] + series.closeAt(i);
+    }
+    this.signals = new long[(size + 63) >>> 6];
+    int first = Math.max(shortWindow, longWindow) - 1;
+    for (int i = first; i < size; i++) {
+      if (sum(i, shortWindow) / shortWindow > sum(i, longWindow) / longWindow) {
+        signals[i >>> 6] |= 1L << i;
+      }
+    }
+    this.size = size;
+    this.written = new AtomicInteger(size);
+  }
+
+  /**
+   * Constructs a MovingAverageIndex over the first days of shared arrays.
+   *
+   * @param prefixSums  given cumulative sums, the first size + 1 of them in use.
+   * @param signals     given signal bits, the first size of them in use.
+   * @param shortWindow given number of days of the short moving average.
+   * @param longWindow  given number of days of the long moving average.
+   * @param size        given number of trading days of the index.
+   * @param written     given number of trading days written into the arrays.
+   */
+  private MovingAverageIndex(double[] prefixSums, long[] signals, int shortWindow,
+                             int longWindow, int size, AtomicInteger written) {
+    this.prefixSums = prefixSums;
+    this.signals = signals;
+    this.shortWindow = shortWindow;
+    this.longWindow = longWindow;
+    this.size = size;
+    this.written = written;
+  }
+
+  /**
+   * Returns an index with one more trading day, whose moving averages and signal are computed
+   * from the sums of this index.
+   *
+   * @param close given closing price of the next trading day.
+   * @return the extended index.
+   */
+  public MovingAverageIndex append(double close) {
+    double[] sums = this.prefixSums;
+    long[] bits = this.signals;
+    AtomicInteger tip = this.written;
+    if (size + 1 >= sums.length || (size >>> 6) >= bits.length
+            || !tip.compareAndSet(size, size + 1)) {
+      int capacity = Math.max(64, size * 2);
+      sums = Arrays.copyOf(sums, capacity + 1);
+      //bits past this index were written by a longer one and must not leak into the copy, so
+      //only the words of this index are copied and the last of them is masked
+      long[] copy = new long[(capacity + 63) >>> 6];
+      System.arraycopy(bits, 0, copy, 0, Math.min(bits.length, (size >>> 6) + 1));
+      if ((size >>> 6) < bits.length) {
+        copy[size >>> 6] &= (1L << size) - 1;
+      }
+      bits = copy;
+      tip = new AtomicInteger(size + 1);
+    }
+    sums[size + 1] = sums[size] + close;
+    MovingAverageIndex result = new MovingAverageIndex(sums, bits, shortWindow, longWindow,
+            size + 1, tip);
+    boolean signal = size + 1 >= Math.max(shortWindow, longWindow)
+            && result.sum(size, shortWindow) / shortWindow
+            > result.sum(size, longWindow) / longWindow;
+    if (signal) {
+      bits[size >>> 6] |= 1L << size;
+    } else {
+      bits[size >>> 6] &= ~(1L << size);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the average closing price over a given number of trading days ending at the trading
+   * day at the given position.
+   *
+   * @param index  given position of the last trading day.
+   * @param window given number of trading days.
+   * @return the average closing price.
+   * @throws IllegalArgumentException if the window is not positive or reaches before the history.
+   */
+  public double average(int index, int window) throws IllegalArgumentException {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Number of days must be positive!");
+    }
+    if (index + 1 < window || index >= size) {
+      throw new IllegalArgumentException("earliest history is reached");
+    }
+    return sum(index, window) / window;
+  }
+
+  /**
+   * Return true if the short moving average is above the long moving average on the trading day
+   * at the given position. Days for which the long window does not fit return false.
+   *
+   * @param index given position of the trading day.
+   * @return true if the short average is above the long average, otherwise false.
+   */
+  public boolean isSignal(int index) {
+    if (index < 0 || index >= size) {
+      return false;
+    }
+    return (signals[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Returns the position of the first trading day at or after the given position on which the
+   * short moving average is above the long moving average.
+   *
+   * @param fromIndex given position to start searching from.
+   * @return position of the next signal, or -1 if there is none.
+   */
+  public int nextSignal(int fromIndex) {
+    if (fromIndex < 0) {
+      fromIndex = 0;
+    }
+    if (fromIndex >= size) {
+      return -1;
+    }
+    int word = fromIndex >>> 6;
+    int lastWord = (size - 1) >>> 6;
+    long bits = signals[word] & (-1L << fromIndex);
+    while (true) {
+      if (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        //a longer index over the same arrays may have set bits past this one
+        return index < size ? index : -1;
+      }
+      if (++word > lastWord) {
+        return -1;
+      }
+      bits = signals[word];
+    }
+  }
+
+  /**
+   * Returns the number of days of the short moving average.
+   *
+   * @return days of the short window.
+   */
+  public int getShortWindow() {
+    return shortWindow;
+  }
+
+  /**
+   * Returns the number of days of the long moving average.
+   *
+   * @return days of the long window.
+   */
+  public int getLongWindow() {
+    return longWindow;
+  }
+
+  /**
+   * Returns the sum of the closing prices over a window ending at the given position.
+   *
+   * @param index  given position of the last trading day.
+   * @param window given number of trading days.
+   * @return the sum of the closing prices.
+   */
+  private double sum(int index, int window) {
+    return prefixSums[index + 1] - prefixSums[index + 1 - window];
+  }
+
+  /**
+   * Returns the number of bytes writeTo writes.
+   *
+   * @return number of bytes.
+   */
+  int encodedBytes() {
+    return 3 * Integer.BYTES + (size + 1) * Double.BYTES + ((size + 63) >>> 6) * Long.BYTES;
+  }
+
+  /**
+   * Writes this index at the position of a buffer, without the days of longer indexes sharing
+   * its arrays.
+   *
+   * @param buffer given buffer.
+   */
+  void writeTo(ByteBuffer buffer) {
+    buffer.putInt(shortWindow).putInt(longWindow).putInt(size);
+    HistoryCodec.putDoubles(buffer, prefixSums, size + 1);
+    int words = (size + 63) >>> 6;
+    for (int i = 0; i < words; i++) {
+      boolean last = i == words - 1 && (size & 63) != 0;
+      buffer.putLong(last ? signals[i] & ((1L << size) - 1) : signals[i]);
+    }
+  }
+
+  /**
+   * Reads an index written by writeTo at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param size   given number of trading days of the series of the index.
+   * @return the index.
+   * @throws IllegalArgumentException if the bytes are not a valid index of that many days.
+   */
+  static MovingAverageIndex readFrom(ByteBuffer buffer, int size)
+          throws IllegalArgumentException {
+    int shortWindow = buffer.getInt();
+    int longWindow = buffer.getInt();
+    if (buffer.getInt() != size || shortWindow <= 0 || longWindow <= 0) {
+      throw new IllegalArgumentException("Moving averages do not match their series");
+    }
+    double[] prefixSums = HistoryCodec.getDoubles(buffer, size + 1);
+    long[] signals = HistoryCodec.getLongs(buffer, (size + 63) >>> 6);
+    return new MovingAverageIndex(prefixSums, signals, shortWindow, longWindow, size,
+            new AtomicInteger(size));
+  }
+}
@@ -0,0 +1,26 @@
+package history;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * This enum represents the columns of a daily price history, in the order Alpha Vantage sends
+ * them. The trading days and closing prices are always loaded; the other columns are only loaded
+ * when they are asked for, so a history of closing prices costs nothing for them.
+ */
+public enum PriceColumn {
+  OPEN, HIGH, LOW, CLOSE, VOLUME;
+
+  /**
+   * The closing prices only, which is all most queries read.
+   */
+  public static final Set<PriceColumn> CLOSE_ONLY =
+          Collections.unmodifiableSet(EnumSet.of(CLOSE));
+
+  /**
+   * Every column: open, high, low, close and volume.
+   */
+  public static final Set<PriceColumn> ALL =
+          Collections.unmodifiableSet(EnumSet.allOf(PriceColumn.class));
+}
@@ -0,0 +1,95 @@
+package history;
+
+/**
+ * This class represents a cursor over the trading days of a PriceRange. It starts before the
+ * first day, and each call of next moves it to the following one, so a whole range is read with
+ * one object and no allocation per trading day:
+ * <pre>
+ *   PriceCursor cursor = range.cursor();
+ *   while (cursor.next()) {
+ *     use(cursor.day(), cursor.close());
+ *   }
+ * </pre>
+ */
+public final class PriceCursor {
+
+  private final PriceSeries series;
+  private final int from;
+  private final int to;
+  private int index;
+
+  /**
+   * Constructs a PriceCursor over the trading days of a series between two positions.
+   *
+   * @param series given series.
+   * @param from   given first position, inclusive.
+   * @param to     given last position, exclusive.
+   */
+  PriceCursor(PriceSeries series, int from, int to) {
+    this.series = series;
+    this.from = from;
+    this.to = to;
+    this.index = from - 1;
+  }
+
+  /**
+   * Moves the cursor to the next trading day.
+   *
+   * @return true if there was a next trading day, false if the cursor is past the end.
+   */
+  public boolean next() {
+    if (index < to) {
+      index++;
+    }
+    return index < to;
+  }
+
+  /**
+   * Returns the trading day of the cursor as an epoch day.
+   *
+   * @return the epoch day.
+   * @throws IllegalStateException if the cursor is not on a trading day.
+   */
+  public int day() throws IllegalStateException {
+    return series.dayAt(checkPosition());
+  }
+
+  /**
+   * Returns the closing price of the trading day of the cursor.
+   *
+   * @return the closing price.
+   * @throws IllegalStateException if the cursor is not on a trading day.
+   */
+  public double close() throws IllegalStateException {
+    return series.closeAt(checkPosition());
+  }
+
+  /**
+   * Returns the position of the cursor within its range, 0 for the first trading day.
+   *
+   * @return the position.
+   */
+  public int position() {
+    return index - from;
+  }
+
+  /**
+   * Moves the cursor back before the first trading day.
+   */
+  public void reset() {
+    index = from - 1;
+  }
+
+  /**
+   * Checks that the cursor is on a trading day.
+   *
+   * @return the position of the cursor in the series.
+   * @throws IllegalStateException if the cursor is not on a trading day.
+   */
+  private int checkPosition() throws IllegalStateException {
+    if (index < from || index >= to) {
+      throw new IllegalStateException("Cursor is not on a trading day!");
+    }
+    return index;
+  }
+}
@@ -0,0 +1,270 @@
+package history;
+
+import java.util.AbstractList;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javafx.util.Pair;
+
+/**
+ * This class represents a read-only view of the trading days of a PriceSeries between two
+ * positions. Nothing is copied: the view reads the columns of the series, and walking it with a
+ * PriceCursor allocates nothing per trading day.
+ */
+public final class PriceRange {
+
+  private final PriceSeries series;
+  private final int from;
+  private final int to;
+
+  /**
+   * Constructs a PriceRange over the trading days of a series between two positions.
+   *
+   * @param series given series.
+   * @param from   given first position, inclusive.
+   * @param to     given last position, exclusive.
+   */
+  PriceRange(PriceSeries series, int from, int to) {
+    this.series = series;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Returns the number of trading days in this range.
+   *
+   * @return number of trading days.
+   */
+  public int size() {
+    return to - from;
+  }
+
+  /**
+   * Return true if this range has no trading day.
+   *
+   * @return true if the range is empty, otherwise false.
+   */
+  public boolean isEmpty() {
+    return to == from;
+  }
+
+  /**
+   * Returns the trading day at the given position of this range, as an epoch day.
+   *
+   * @param index given position, from 0 to size() - 1.
+   * @return the epoch day.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   */
+  public int dayAt(int index) throws IndexOutOfBoundsException {
+    return series.dayAt(from + checkIndex(index));
+  }
+
+  /**
+   * Returns the trading day at the given position of this range.
+   *
+   * @param index given position, from 0 to size() - 1.
+   * @return the date.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   */
+  public Date dateAt(int index) throws IndexOutOfBoundsException {
+    return EpochDays.toDate(dayAt(index));
+  }
+
+  /**
+   * Returns the closing price at the given position of this range.
+   *
+   * @param index given position, from 0 to size() - 1.
+   * @return the closing price.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   */
+  public double closeAt(int index) throws IndexOutOfBoundsException {
+    return series.closeAt(from + checkIndex(index));
+  }
+
+  /**
+   * Returns the opening price at the given position of this range.
+   *
+   * @param index given position, from 0 to size() - 1.
+   * @return the opening price.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   * @throws IllegalStateException     if the opening prices are not loaded.
+   */
+  public double openAt(int index) throws IndexOutOfBoundsException, IllegalStateException {
+    return series.openAt(from + checkIndex(index));
+  }
+
+  /**
+   * Returns the highest price at the given position of this range.
+   *
+   * @param index given position, from 0 to size() - 1.
+   * @return the highest price.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   * @throws IllegalStateException     if the highest prices are not loaded.
+   */
+  public double highAt(int index) throws IndexOutOfBoundsException, IllegalStateException {
+    return series.highAt(from + checkIndex(index));
+  }
+
+  /**
+   * Returns the lowest price at the given position of this range.
+   *
+   * @param index given position, from 0 to size() - 1.
+   * @return the lowest price.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   * @throws IllegalStateException     if the lowest prices are not loaded.
+   */
+  public double lowAt(int index) throws IndexOutOfBoundsException, IllegalStateException {
+    return series.lowAt(from + checkIndex(index));
+  }
+
+  /**
+   * Returns the number of shares traded at the given position of this range.
+   *
+   * @param index given position, from 0 to size() - 1.
+   * @return the volume.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   * @throws IllegalStateException     if the volumes are not loaded.
+   */
+  public long volumeAt(int index) throws IndexOutOfBoundsException, IllegalStateException {
+    return series.volumeAt(from + checkIndex(index));
+  }
+
+  /**
+   * Returns the volume weighted average price of this range, with the typical price of a day
+   * being the average of its high, low and closing prices.
+   *
+   * @return the average price, or NaN if no share was traded in the range.
+   * @throws IllegalStateException if the highs, lows or volumes are not loaded.
+   */
+  public double vwap() throws IllegalStateException {
+    requireColumns(PriceColumn.HIGH, PriceColumn.LOW, PriceColumn.VOLUME);
+    double value = 0;
+    double volume = 0;
+    for (int i = from; i < to; i++) {
+      long shares = series.volumeAt(i);
+      value += (series.highAt(i) + series.lowAt(i) + series.closeAt(i)) / 3 * shares;
+      volume += shares;
+    }
+    return volume == 0 ? Double.NaN : value / volume;
+  }
+
+  /**
+   * Returns the average true range of this range: the average over its days of the largest of
+   * the high minus the low, and the distances of the high and the low from the closing price of
+   * the day before. The first day of a series has no day before and uses its high minus its low.
+   *
+   * @return the average true range, or NaN if the range is empty.
+   * @throws IllegalStateException if the highs or lows are not loaded.
+   */
+  public double averageTrueRange() throws IllegalStateException {
+    requireColumns(PriceColumn.HIGH, PriceColumn.LOW);
+    if (to == from) {
+      return Double.NaN;
+    }
+    double sum = 0;
+    for (int i = from; i < to; i++) {
+      double high = series.highAt(i);
+      double low = series.lowAt(i);
+      double range = high - low;
+      if (i > 0) {
+        double previous = series.closeAt(i - 1);
+        range = Math.max(range, Math.max(Math.abs(high - previous), Math.abs(low - previous)));
+      }
+      sum += range;
+    }
+    return sum / (to - from);
+  }
+
+  /**
+   * Checks that the series of this range has the given columns.
+   *
+   * @param columns given columns.
+   * @throws IllegalStateException if a column is not loaded.
+   */
+  private void requireColumns(PriceColumn... columns) throws IllegalStateException {
+    for (PriceColumn column : columns) {
+      if (!series.hasColumn(column)) {
+        throw new IllegalStateException(column + " column is not loaded!");
+      }
+    }
+  }
+
+  /**
+   * Returns the position of the first trading day of this range in its series.
+   *
+   * @return the position in the series.
+   */
+  public int seriesIndex() {
+    return from;
+  }
+
+  /**
+   * Returns the series this range is a view of.
+   *
+   * @return the series.
+   */
+  public PriceSeries series() {
+    return series;
+  }
+
+  /**
+   * Returns a new cursor before the first trading day of this range.
+   *
+   * @return the cursor.
+   */
+  public PriceCursor cursor() {
+    return new PriceCursor(series, from, to);
+  }
+
+  /**
+   * Returns this range as a read-only list of dates and closing prices. The pair of a trading
+   * day is made each time it is read, so the list costs nothing until it is used.
+   *
+   * @return the list of dates and closing prices.
+   */
+  public List<Pair<Date, Double>> asList() {
+    return new PairList();
+  }
+
+  /**
+   * Checks a position of this range.
+   *
+   * @param index given position.
+   * @return the position.
+   * @throws IndexOutOfBoundsException if the position is outside the range.
+   */
+  private int checkIndex(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= to - from) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+    }
+    return index;
+  }
+
+  /**
+   * This class represents the list of dates and closing prices of the range.
+   */
+  private final class PairList extends AbstractList<Pair<Date, Double>> implements RandomAccess {
+
+    /**
+     * Returns the date and closing price of a trading day.
+     *
+     * @param index given position.
+     * @return the date and closing price.
+     */
+    @Override
+    public Pair<Date, Double> get(int index) {
+      return new Pair<>(dateAt(index), closeAt(index));
+    }
+
+    /**
+     * Returns the number of trading days.
+     *
+     * @return number of trading days.
+     */
+    @Override
+    public int size() {
+      return PriceRange.this.size();
+    }
+  }
+}
@@ -0,0 +1,618 @@
+package history;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents the closing prices of one stock stored as two sorted columns: the trading
+ * days as epoch days and the closing price of each day. The open, high and low prices and the
+ * volume of each day are optional columns of their own, null when they were not loaded, so a
+ * series of closing prices costs nothing for them. Lookups by day read the position of the
+ * day from a TradingCalendar in constant time, or use a binary search when the days are too far
+ * apart for a calendar.
+ * A series never changes. Appending a day returns a new series that, when this series is the
+ * longest one over its columns, writes the day into their spare room and shares them, so a day
+ * is appended in constant amortized time while older series keep seeing only their own days.
+ */
+public final class PriceSeries {
+
+  /**
+   * A series without any trading day.
+   */
+  public static final PriceSeries EMPTY = new PriceSeries(new int[0], new double[0]);
+
+  private final int[] days;
+  private final double[] closes;
+  //optional columns, null when they are not loaded
+  private final double[] opens;
+  private final double[] highs;
+  private final double[] lows;
+  private final long[] volumes;
+  private final int size;
+  //null when there are no days or they are too sparse, then lookups search the days instead
+  private final TradingCalendar calendar;
+  //number of days written into the shared columns, by the longest series over them
+  private final AtomicInteger written;
+
+  /**
+   * Constructs a PriceSeries over the given columns. The arrays are used as they are, so the
+   * caller must not change them afterwards.
+   *
+   * @param days   given trading days as epoch days, strictly increasing.
+   * @param closes given closing prices, one per trading day.
+   * @throws IllegalArgumentException if the columns differ in length or days are not increasing.
+   */
+  public PriceSeries(int[] days, double[] closes) throws IllegalArgumentException {
+    this(days, null, null, null, closes, null);
+  }
+
+  /**
+   * Constructs a PriceSeries over the given columns, null for the optional columns that are not
+   * loaded. The arrays are used as they are, so the caller must not change them afterwards.
+   *
+   * @param days    given trading days as epoch days, strictly increasing.
+   * @param opens   given opening prices, or null.
+   * @param highs   given highest prices, or null.
+   * @param lows    given lowest prices, or null.
+   * @param closes  given closing prices, one per trading day.
+   * @param volumes given numbers of shares traded, or null.
+   * @throws IllegalArgumentException if the columns differ in length or days are not increasing.
+   */
+  public PriceSeries(int[] days, double[] opens, double[] highs, double[] lows, double[] closes,
+                     long[] volumes) throws IllegalArgumentException {
+    if (days.length != closes.length || opens != null && opens.length != days.length
+            || highs != null && highs.length != days.length
+            || lows != null && lows.length != days.length
+            || volumes != null && volumes.length != days.length) {
+      throw new IllegalArgumentException("Days and closes must have the same length!");
+    }
+    for (int i = 1; i < days.length; i++) {
+      if (days[i] <= days[i - 1]) {
+        throw new IllegalArgumentException("Days must be strictly increasing!");
+      }
+    }
+    this.days = days;
+    this.opens = opens;
+    this.highs = highs;
+    this.lows = lows;
+    this.closes = closes;
+    this.volumes = volumes;
+    this.size = days.length;
+    this.calendar = TradingCalendar.of(days, size);
+    this.written = new AtomicInteger(size);
+  }
+
+  /**
+   * Constructs a PriceSeries over the first days of shared columns.
+   *
+   * @param days     given trading days, the first size of them in use.
+   * @param opens    given opening prices, or null.
+   * @param highs    given highest prices, or null.
+   * @param lows     given lowest prices, or null.
+   * @param closes   given closing prices, the first size of them in use.
+   * @param volumes  given numbers of shares traded, or null.
+   * @param size     given number of days of the series.
+   * @param calendar given calendar of the days, or null to search them.
+   * @param written  given number of days written into the columns.
+   */
+  private PriceSeries(int[] days, double[] opens, double[] highs, double[] lows, double[] closes,
+                      long[] volumes, int size, TradingCalendar calendar, AtomicInteger written) {
+    this.days = days;
+    this.opens = opens;
+    this.highs = highs;
+    this.lows = lows;
+    this.closes = closes;
+    this.volumes = volumes;
+    this.size = size;
+    this.calendar = calendar;
+    this.written = written;
+  }
+
+  /**
+   * Creates a PriceSeries from a hashmap of date to closing price.
+   *
+   * @param history given hashmap of date to closing price.
+   * @return the sorted series.
+   */
+  public static PriceSeries fromMap(Map<Date, Double> history) {
+    long[] packed = new long[history.size()];
+    double[] values = new double[history.size()];
+    int i = 0;
+    for (Map.Entry<Date, Double> entry : history.entrySet()) {
+      //day in the high bits so that sorting packed sorts by day, position in the low bits
+      packed[i] = ((long) EpochDays.fromDate(entry.getKey()) << 32) | i;
+      values[i] = entry.getValue();
+      i++;
+    }
+    Arrays.sort(packed);
+    int[] days = new int[packed.length];
+    double[] closes = new double[packed.length];
+    for (int j = 0; j < packed.length; j++) {
+      days[j] = (int) (packed[j] >> 32);
+      closes[j] = values[(int) packed[j]];
+    }
+    return new PriceSeries(days, closes);
+  }
+
+  /**
+   * Returns a series with the trading days of this series followed by the trading days of the
+   * given series that come after the last day of this one. The new days keep the columns of this
+   * series, NaN or 0 where the given series does not have one of them.
+   *
+   * @param newer given series of more recent closing prices.
+   * @return the extended series, or this series if nothing is newer.
+   */
+  public PriceSeries extend(PriceSeries newer) {
+    PriceSeries result = this;
+    for (int i = size == 0 ? 0 : newer.upperBound(days[size - 1]); i < newer.size(); i++) {
+      result = result.appendDayOf(newer, i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns a series with the trading days of this series before the given day, in columns of
+   * its own.
+   *
+   * @param epochDay given epoch day.
+   * @return the truncated series, or this series if it has no day on or after the given day.
+   */
+  public PriceSeries before(int epochDay) {
+    int to = lowerBound(epochDay);
+    if (to == size) {
+      return this;
+    }
+    return new PriceSeries(Arrays.copyOf(days, to),
+            opens == null ? null : Arrays.copyOf(opens, to),
+            highs == null ? null : Arrays.copyOf(highs, to),
+            lows == null ? null : Arrays.copyOf(lows, to), Arrays.copyOf(closes, to),
+            volumes == null ? null : Arrays.copyOf(volumes, to));
+  }
+
+  /**
+   * Returns a series with the trading days of this series followed by the day at the given
+   * position of another series, with the columns of this series.
+   *
+   * @param other given series.
+   * @param index given position of the day in the other series.
+   * @return the extended series.
+   * @throws IllegalArgumentException if the day is not after the last day of this series.
+   */
+  PriceSeries appendDayOf(PriceSeries other, int index) throws IllegalArgumentException {
+    return append(other.dayAt(index), valueOrNaN(other.opens, index),
+            valueOrNaN(other.highs, index), valueOrNaN(other.lows, index), other.closes[index],
+            other.volumes == null ? 0 : other.volumes[index]);
+  }
+
+  /**
+   * Returns a series with the trading days of this series followed by one more day. The open,
+   * high and low prices of the day are NaN and its volume is 0 in the columns this series has.
+   *
+   * @param epochDay given epoch day, after the last day of this series.
+   * @param close    given closing price of that day.
+   * @return the extended series.
+   * @throws IllegalArgumentException if the day is not after the last day of this series.
+   */
+  public PriceSeries append(int epochDay, double close) throws IllegalArgumentException {
+    return append(epochDay, Double.NaN, Double.NaN, Double.NaN, close, 0);
+  }
+
+  /**
+   * Returns a series with the trading days of this series followed by one more day. The values
+   * of the columns this series does not have are dropped.
+   *
+   * @param epochDay given epoch day, after the last day of this series.
+   * @param open     given opening price of that day.
+   * @param high     given highest price of that day.
+   * @param low      given lowest price of that day.
+   * @param close    given closing price of that day.
+   * @param volume   given number of shares traded that day.
+   * @return the extended series.
+   * @throws IllegalArgumentException if the day is not after the last day of this series.
+   */
+  public PriceSeries append(int epochDay, double open, double high, double low, double close,
+                            long volume) throws IllegalArgumentException {
+    if (size > 0 && epochDay <= days[size - 1]) {
+      throw new IllegalArgumentException("Days must be strictly increasing!");
+    }
+    if (size < days.length && written.compareAndSet(size, size + 1)) {
+      //no other series uses this slot, and only the returned series will read it
+      write(days, opens, highs, lows, closes, volumes, epochDay, open, high, low, close, volume);
+      return new PriceSeries(days, opens, highs, lows, closes, volumes, size + 1,
+              appendCalendar(days, epochDay, true), written);
+    }
+    int capacity = Math.max(16, size * 2);
+    int[] grownDays = Arrays.copyOf(days, capacity);
+    double[] grownOpens = opens == null ? null : Arrays.copyOf(opens, capacity);
+    double[] grownHighs = highs == null ? null : Arrays.copyOf(highs, capacity);
+    double[] grownLows = lows == null ? null : Arrays.copyOf(lows, capacity);
+    double[] grownCloses = Arrays.copyOf(closes, capacity);
+    long[] grownVolumes = volumes == null ? null : Arrays.copyOf(volumes, capacity);
+    write(grownDays, grownOpens, grownHighs, grownLows, grownCloses, grownVolumes, epochDay, open,
+            high, low, close, volume);
+    return new PriceSeries(grownDays, grownOpens, grownHighs, grownLows, grownCloses,
+            grownVolumes, size + 1, appendCalendar(grownDays, epochDay, false),
+            new AtomicInteger(size + 1));
+  }
+
+  /**
+   * Writes one day into the slot after the last day of this series, in the columns that are
+   * there.
+   *
+   * @param toDays    given trading days.
+   * @param toOpens   given opening prices, or null.
+   * @param toHighs   given highest prices, or null.
+   * @param toLows    given lowest prices, or null.
+   * @param toCloses  given closing prices.
+   * @param toVolumes given volumes, or null.
+   * @param epochDay  given epoch day.
+   * @param open      given opening price.
+   * @param high      given highest price.
+   * @param low       given lowest price.
+   * @param close     given closing price.
+   * @param volume    given volume.
+   */
+  private void write(int[] toDays, double[] toOpens, double[] toHighs, double[] toLows,
+                     double[] toCloses, long[] toVolumes, int epochDay, double open,
+                     double high, double low, double close, long volume) {
+    toDays[size] = epochDay;
+    toCloses[size] = close;
+    if (toOpens != null) {
+      toOpens[size] = open;
+    }
+    if (toHighs != null) {
+      toHighs[size] = high;
+    }
+    if (toLows != null) {
+      toLows[size] = low;
+    }
+    if (toVolumes != null) {
+      toVolumes[size] = volume;
+    }
+  }
+
+  /**
+   * Returns a series with only the given columns of this series, sharing them. The trading days
+   * and closing prices are always kept.
+   *
+   * @param columns given columns to keep.
+   * @return the series with those columns, or this series if it has no other column.
+   * @throws IllegalArgumentException if this series does not have one of the columns.
+   */
+  public PriceSeries select(Set<PriceColumn> columns) throws IllegalArgumentException {
+    Set<PriceColumn> loaded = columns();
+    if (!loaded.containsAll(columns)) {
+      throw new IllegalArgumentException("Columns " + columns + " are not all loaded!");
+    }
+    if (columns.containsAll(loaded)) {
+      return this;
+    }
+    return new PriceSeries(days, columns.contains(PriceColumn.OPEN) ? opens : null,
+            columns.contains(PriceColumn.HIGH) ? highs : null,
+            columns.contains(PriceColumn.LOW) ? lows : null, closes,
+            columns.contains(PriceColumn.VOLUME) ? volumes : null, size, calendar, written);
+  }
+
+  /**
+   * Returns the columns of this series.
+   *
+   * @return the columns, always with CLOSE.
+   */
+  public Set<PriceColumn> columns() {
+    Set<PriceColumn> columns = EnumSet.noneOf(PriceColumn.class);
+    for (PriceColumn column : PriceColumn.values()) {
+      if (hasColumn(column)) {
+        columns.add(column);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Return true if this series has the given column.
+   *
+   * @param column given column.
+   * @return true if the column is loaded, otherwise false.
+   */
+  public boolean hasColumn(PriceColumn column) {
+    switch (column) {
+      case OPEN:
+        return opens != null;
+      case HIGH:
+        return highs != null;
+      case LOW:
+        return lows != null;
+      case VOLUME:
+        return volumes != null;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Returns the calendar of this series with one more day, which is already written into the
+   * given days. The first day makes a new calendar, and a series too sparse for one stays
+   * without.
+   *
+   * @param grownDays given days with the new day.
+   * @param epochDay  given new day.
+   * @param owned     given true if no other series wrote past the last day of this one.
+   * @return the extended calendar, or null to search the days.
+   */
+  private TradingCalendar appendCalendar(int[] grownDays, int epochDay, boolean owned) {
+    if (size == 0) {
+      return TradingCalendar.of(grownDays, 1);
+    }
+    return calendar == null ? null : calendar.append(epochDay, owned);
+  }
+
+  /**
+   * Returns the number of trading days in this series.
+   *
+   * @return number of trading days.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the trading day at the given position.
+   *
+   * @param index given position.
+   * @return the epoch day.
+   * @throws ArrayIndexOutOfBoundsException if the position is outside the series.
+   */
+  public int dayAt(int index) {
+    if (index >= size) {
+      //the columns may be longer than this series
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return days[index];
+  }
+
+  /**
+   * Returns the closing price at the given position.
+   *
+   * @param index given position.
+   * @return the closing price.
+   * @throws ArrayIndexOutOfBoundsException if the position is outside the series.
+   */
+  public double closeAt(int index) {
+    if (index >= size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return closes[index];
+  }
+
+  /**
+   * Returns the opening price at the given position.
+   *
+   * @param index given position.
+   * @return the opening price.
+   * @throws ArrayIndexOutOfBoundsException if the position is outside the series.
+   * @throws IllegalStateException          if the opening prices are not loaded.
+   */
+  public double openAt(int index) throws IllegalStateException {
+    return valueAt(opens, PriceColumn.OPEN, index);
+  }
+
+  /**
+   * Returns the highest price at the given position.
+   *
+   * @param index given position.
+   * @return the highest price.
+   * @throws ArrayIndexOutOfBoundsException if the position is outside the series.
+   * @throws IllegalStateException          if the highest prices are not loaded.
+   */
+  public double highAt(int index) throws IllegalStateException {
+    return valueAt(highs, PriceColumn.HIGH, index);
+  }
+
+  /**
+   * Returns the lowest price at the given position.
+   *
+   * @param index given position.
+   * @return the lowest price.
+   * @throws ArrayIndexOutOfBoundsException if the position is outside the series.
+   * @throws IllegalStateException          if the lowest prices are not loaded.
+   */
+  public double lowAt(int index) throws IllegalStateException {
+    return valueAt(lows, PriceColumn.LOW, index);
+  }
+
+  /**
+   * Returns the number of shares traded at the given position.
+   *
+   * @param index given position.
+   * @return the volume.
+   * @throws ArrayIndexOutOfBoundsException if the position is outside the series.
+   * @throws IllegalStateException          if the volumes are not loaded.
+   */
+  public long volumeAt(int index) throws IllegalStateException {
+    if (volumes == null) {
+      throw new IllegalStateException("VOLUME column is not loaded!");
+    }
+    if (index >= size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return volumes[index];
+  }
+
+  /**
+   * Returns the value at the given position of an optional column.
+   *
+   * @param column given column, or null if it is not loaded.
+   * @param name   given name of the column.
+   * @param index  given position.
+   * @return the value.
+   * @throws ArrayIndexOutOfBoundsException if the position is outside the series.
+   * @throws IllegalStateException          if the column is not loaded.
+   */
+  private double valueAt(double[] column, PriceColumn name, int index)
+          throws IllegalStateException {
+    if (column == null) {
+      throw new IllegalStateException(name + " column is not loaded!");
+    }
+    if (index >= size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return column[index];
+  }
+
+  /**
+   * Returns the value at the given position of an optional column, or NaN if it is not loaded.
+   *
+   * @param column given column, or null.
+   * @param index  given position.
+   * @return the value, or NaN.
+   */
+  private static double valueOrNaN(double[] column, int index) {
+    return column == null ? Double.NaN : column[index];
+  }
+
+  /**
+   * Returns a view of the trading days between two positions of this series.
+   *
+   * @param from given first position, inclusive.
+   * @param to   given last position, exclusive.
+   * @return the view of the range.
+   * @throws IndexOutOfBoundsException if the positions are outside this series or reversed.
+   */
+  public PriceRange range(int from, int to) throws IndexOutOfBoundsException {
+    if (from < 0 || to > size || from > to) {
+      throw new IndexOutOfBoundsException("Range " + from + " to " + to + " of " + size);
+    }
+    return new PriceRange(this, from, to);
+  }
+
+  /**
+   * Returns the position of the given day, or a negative number if it is not a trading day.
+   *
+   * @param epochDay given epoch day.
+   * @return position of the day, or a negative number if missing.
+   */
+  public int indexOf(int epochDay) {
+    if (calendar != null) {
+      return calendar.ordinal(epochDay);
+    }
+    return Arrays.binarySearch(days, 0, size, epochDay);
+  }
+
+  /**
+   * Returns the position of the first trading day on or after the given day.
+   *
+   * @param epochDay given epoch day.
+   * @return position of the first day not before the given day, size() if there is none.
+   */
+  public int lowerBound(int epochDay) {
+    if (calendar != null) {
+      return calendar.rank(epochDay);
+    }
+    int index = Arrays.binarySearch(days, 0, size, epochDay);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  /**
+   * Returns the position of the first trading day after the given day.
+   *
+   * @param epochDay given epoch day.
+   * @return position of the first day after the given day, size() if there is none.
+   */
+  public int upperBound(int epochDay) {
+    if (calendar != null) {
+      return epochDay == Integer.MAX_VALUE ? size : calendar.rank(epochDay + 1);
+    }
+    int index = Arrays.binarySearch(days, 0, size, epochDay);
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  /**
+   * Returns the number of bytes writeTo writes.
+   *
+   * @return number of bytes.
+   */
+  int encodedBytes() {
+    int optional = columns().size() - 1;
+    return 3 * Integer.BYTES + size * (Integer.BYTES + Double.BYTES + optional * Long.BYTES)
+            + (calendar == null ? 0 : calendar.encodedBytes());
+  }
+
+  /**
+   * Writes the days, the columns and the calendar of this series at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   */
+  void writeTo(ByteBuffer buffer) {
+    int mask = 0;
+    for (PriceColumn column : columns()) {
+      mask |= 1 << column.ordinal();
+    }
+    buffer.putInt(size).putInt(mask).putInt(calendar == null ? 0 : 1);
+    HistoryCodec.putInts(buffer, days, size);
+    HistoryCodec.putDoubles(buffer, closes, size);
+    for (double[] column : new double[][]{opens, highs, lows}) {
+      if (column != null) {
+        HistoryCodec.putDoubles(buffer, column, size);
+      }
+    }
+    if (volumes != null) {
+      HistoryCodec.putLongs(buffer, volumes, size);
+    }
+    if (calendar != null) {
+      calendar.writeTo(buffer);
+    }
+  }
+
+  /**
+   * Reads a series written by writeTo at the position of a buffer, checking that its days are
+   * strictly increasing and that its calendar matches them, so a damaged series is never
+   * searched.
+   *
+   * @param buffer given buffer.
+   * @return the series.
+   * @throws IllegalArgumentException if the bytes are not a valid series.
+   */
+  static PriceSeries readFrom(ByteBuffer buffer) throws IllegalArgumentException {
+    int size = buffer.getInt();
+    int mask = buffer.getInt();
+    int hasCalendar = buffer.getInt();
+    if (size < 0 || (mask & (1 << PriceColumn.CLOSE.ordinal())) == 0
+            || mask >>> PriceColumn.values().length != 0 || (hasCalendar & ~1) != 0) {
+      throw new IllegalArgumentException("Not a price series");
+    }
+    int[] days = HistoryCodec.getInts(buffer, size);
+    for (int i = 1; i < size; i++) {
+      if (days[i] <= days[i - 1]) {
+        throw new IllegalArgumentException("Days must be strictly increasing!");
+      }
+    }
+    double[] closes = HistoryCodec.getDoubles(buffer, size);
+    double[] opens = hasColumn(mask, PriceColumn.OPEN) ? HistoryCodec.getDoubles(buffer, size)
+            : null;
+    double[] highs = hasColumn(mask, PriceColumn.HIGH) ? HistoryCodec.getDoubles(buffer, size)
+            : null;
+    double[] lows = hasColumn(mask, PriceColumn.LOW) ? HistoryCodec.getDoubles(buffer, size)
+            : null;
+    long[] volumes = hasColumn(mask, PriceColumn.VOLUME) ? HistoryCodec.getLongs(buffer, size)
+            : null;
+    TradingCalendar calendar = hasCalendar == 0 ? null : TradingCalendar.readFrom(buffer, days);
+    return new PriceSeries(days, opens, highs, lows, closes, volumes, size, calendar,
+            new AtomicInteger(size));
+  }
+
+  /**
+   * Return true if a mask of columns has the given column.
+   *
+   * @param mask   given bit per column.
+   * @param column given column.
+   * @return true if the bit of the column is set.
+   */
+  private static boolean hasColumn(int mask, PriceColumn column) {
+    return (mask & (1 << column.ordinal())) != 0;
+  }
+}
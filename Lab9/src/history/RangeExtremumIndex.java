@@ -0,0 +1,226 @@
+package history;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents an index that answers the lowest and highest closing price between two
+ * positions of a PriceSeries in logarithmic time. Closing prices are grouped into blocks of eight
+ * days, and two segment trees keep the minimum and maximum of every block, so that the index only
+ * needs about half as many doubles as the series itself. Appending a closing price updates one
+ * leaf and its parents in place while the trees have room for it: a query of an older index only
+ * reads whole blocks before its last one, which appending never changes.
+ */
+public final class RangeExtremumIndex {
+
+  private static final int BLOCK_SHIFT = 3;
+  private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+
+  private final PriceSeries series;
+  private final int leaves;
+  private final double[] minTree;
+  private final double[] maxTree;
+  private final AtomicInteger written;
+
+  /**
+   * Constructs a RangeExtremumIndex over the given series.
+   *
+   * @param series given series of closing prices.
+   */
+  public RangeExtremumIndex(PriceSeries series) {
+    this.series = series;
+    int blocks = (series.size() + BLOCK_MASK) >>> BLOCK_SHIFT;
+    this.leaves = Math.max(1, Integer.highestOneBit(Math.max(1, blocks - 1)) << 1);
+    this.minTree = new double[2 * leaves];
+    this.maxTree = new double[2 * leaves];
+    Arrays.fill(minTree, Double.POSITIVE_INFINITY);
+    Arrays.fill(maxTree, Double.NEGATIVE_INFINITY);
+    for (int i = 0; i < series.size(); i++) {
+      int leaf = leaves + (i >>> BLOCK_SHIFT);
+      minTree[leaf] = Math.min(minTree[leaf], series.closeAt(i));
+      maxTree[leaf] = Math.max(maxTree[leaf], series.closeAt(i));
+    }
+    for (int node = leaves - 1; node > 0; node--) {
+      minTree[node] = Math.min(minTree[2 * node], minTree[2 * node + 1]);
+      maxTree[node] = Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+    }
+    this.written = new AtomicInteger(series.size());
+  }
+
+  /**
+   * Constructs a RangeExtremumIndex over shared trees.
+   *
+   * @param series  given series of closing prices.
+   * @param leaves  given number of leaves of each tree.
+   * @param minTree given tree of lowest prices.
+   * @param maxTree given tree of highest prices.
+   * @param written given number of prices written into the trees.
+   */
+  private RangeExtremumIndex(PriceSeries series, int leaves, double[] minTree, double[] maxTree,
+                             AtomicInteger written) {
+    this.series = series;
+    this.leaves = leaves;
+    this.minTree = minTree;
+    this.maxTree = maxTree;
+    this.written = written;
+  }
+
+  /**
+   * Returns an index over the given series, which is the series of this index with one more
+   * trading day appended. The trees are rebuilt only when they are full, which happens each time
+   * the series doubles.
+   *
+   * @param extended given series with one more closing price than the series of this index.
+   * @return the index of the extended series.
+   * @throws IllegalArgumentException if the series is not one day longer.
+   */
+  public RangeExtremumIndex append(PriceSeries extended) throws IllegalArgumentException {
+    int index = series.size();
+    if (extended.size() != index + 1) {
+      throw new IllegalArgumentException("Series must have exactly one more day!");
+    }
+    int leaf = leaves + (index >>> BLOCK_SHIFT);
+    if (leaf >= 2 * leaves || !written.compareAndSet(index, index + 1)) {
+      return new RangeExtremumIndex(extended);
+    }
+    double close = extended.closeAt(index);
+    for (int node = leaf; node > 0; node >>>= 1) {
+      minTree[node] = Math.min(minTree[node], close);
+      maxTree[node] = Math.max(maxTree[node], close);
+    }
+    return new RangeExtremumIndex(extended, leaves, minTree, maxTree, written);
+  }
+
+  /**
+   * Returns the lowest closing price between two positions, both inclusive.
+   *
+   * @param from given first position.
+   * @param to   given last position.
+   * @return the lowest closing price.
+   * @throws IllegalArgumentException if the range is empty or outside the series.
+   */
+  public double min(int from, int to) throws IllegalArgumentException {
+    return query(from, to, false);
+  }
+
+  /**
+   * Returns the highest closing price between two positions, both inclusive.
+   *
+   * @param from given first position.
+   * @param to   given last position.
+   * @return the highest closing price.
+   * @throws IllegalArgumentException if the range is empty or outside the series.
+   */
+  public double max(int from, int to) throws IllegalArgumentException {
+    return query(from, to, true);
+  }
+
+  /**
+   * Returns the lowest or highest closing price between two positions. The partial blocks at
+   * both ends are scanned directly and the whole blocks between them come from the tree.
+   *
+   * @param from    given first position.
+   * @param to      given last position.
+   * @param highest true for the highest price, false for the lowest.
+   * @return the extreme closing price.
+   * @throws IllegalArgumentException if the range is empty or outside the series.
+   */
+  private double query(int from, int to, boolean highest) throws IllegalArgumentException {
+    if (from < 0 || to >= series.size() || from > to) {
+      throw new IllegalArgumentException("No prices are contained within this day range");
+    }
+    double result = highest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    int fromBlock = from >>> BLOCK_SHIFT;
+    int toBlock = to >>> BLOCK_SHIFT;
+    if (fromBlock == toBlock) {
+      return scan(from, to, result, highest);
+    }
+    result = scan(from, (fromBlock << BLOCK_SHIFT) + BLOCK_MASK, result, highest);
+    result = scan(toBlock << BLOCK_SHIFT, to, result, highest);
+    double[] tree = highest ? maxTree : minTree;
+    int left = leaves + fromBlock + 1;
+    int right = leaves + toBlock;
+    while (left < right) {
+      if ((left & 1) == 1) {
+        result = highest ? Math.max(result, tree[left]) : Math.min(result, tree[left]);
+        left++;
+      }
+      if ((right & 1) == 1) {
+        right--;
+        result = highest ? Math.max(result, tree[right]) : Math.min(result, tree[right]);
+      }
+      left >>>= 1;
+      right >>>= 1;
+    }
+    return result;
+  }
+
+  /**
+   * Scans the closing prices between two positions, both inclusive.
+   *
+   * @param from    given first position.
+   * @param to      given last position.
+   * @param result  given extreme found so far.
+   * @param highest true for the highest price, false for the lowest.
+   * @return the extreme closing price.
+   */
+  private double scan(int from, int to, double result, boolean highest) {
+    for (int i = from; i <= to; i++) {
+      result = highest ? Math.max(result, series.closeAt(i)) : Math.min(result, series.closeAt(i));
+    }
+    return result;
+  }
+
+  /**
+   * Return true if no longer index wrote into the trees of this index, so they hold the prices
+   * of its series only.
+   *
+   * @return true if the trees are only this index's.
+   */
+  boolean ownsTrees() {
+    return written.get() == series.size();
+  }
+
+  /**
+   * Returns the number of bytes writeTo writes.
+   *
+   * @return number of bytes.
+   */
+  int encodedBytes() {
+    return Integer.BYTES + 4 * leaves * Double.BYTES;
+  }
+
+  /**
+   * Writes the trees of this index at the position of a buffer. The trees must hold the prices
+   * of its series only.
+   *
+   * @param buffer given buffer.
+   */
+  void writeTo(ByteBuffer buffer) {
+    buffer.putInt(leaves);
+    HistoryCodec.putDoubles(buffer, minTree, 2 * leaves);
+    HistoryCodec.putDoubles(buffer, maxTree, 2 * leaves);
+  }
+
+  /**
+   * Reads an index written by writeTo at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @param series given series of the index.
+   * @return the index.
+   * @throws IllegalArgumentException if the bytes are not a valid index of the series.
+   */
+  static RangeExtremumIndex readFrom(ByteBuffer buffer, PriceSeries series)
+          throws IllegalArgumentException {
+    int leaves = buffer.getInt();
+    int blocks = (series.size() + BLOCK_MASK) >>> BLOCK_SHIFT;
+    if (Integer.bitCount(leaves) != 1 || leaves < blocks) {
+      throw new IllegalArgumentException("Range index does not match its series");
+    }
+    double[] minTree = HistoryCodec.getDoubles(buffer, 2 * leaves);
+    double[] maxTree = HistoryCodec.getDoubles(buffer, 2 * leaves);
+    return new RangeExtremumIndex(series, leaves, minTree, maxTree,
+            new AtomicInteger(series.size()));
+  }
+}
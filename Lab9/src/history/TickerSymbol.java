@@ -1,8 +1,175 @@
 package history;
 
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Ticker Symbol for All Companies.
+ * Ticker Symbol for All Companies. Symbols are interned: there is exactly one TickerSymbol per
+ * name, and every symbol gets a dense id in the order symbols are first used, so that histories
+ * and holdings can be kept in arrays indexed by id.
  */
-public enum TickerSymbol {
-  AAPL, W, MSFT, IBM
+public final class TickerSymbol implements Comparable<TickerSymbol> {
+
+  private static final ConcurrentHashMap<String, TickerSymbol> SYMBOLS =
+          new ConcurrentHashMap<>();
+  private static volatile TickerSymbol[] byId = new TickerSymbol[64];
+  private static int count;
+
+  public static final TickerSymbol AAPL = of("AAPL");
+  public static final TickerSymbol W = of("W");
+  public static final TickerSymbol MSFT = of("MSFT");
+  public static final TickerSymbol IBM = of("IBM");
+
+  private final String name;
+  private final int id;
+
+  /**
+   * Constructs a TickerSymbol, only called when a name is interned.
+   *
+   * @param name given upper case name.
+   * @param id   given dense id.
+   */
+  private TickerSymbol(String name, int id) {
+    this.name = name;
+    this.id = id;
+  }
+
+  /**
+   * Returns the symbol with the given name, creating it the first time the name is used. Names
+   * are not case sensitive, and are looked up by their upper case form only, so other spellings
+   * of a name are not kept.
+   *
+   * @param name given name, such as MSFT or BRK.B.
+   * @return the symbol.
+   * @throws IllegalArgumentException if the name is empty or has characters other than letters,
+   *                                  digits, dots and dashes.
+   */
+  public static TickerSymbol of(String name) throws IllegalArgumentException {
+    //both return the name itself when it is already upper case without spaces around
+    String upper = name.trim().toUpperCase(Locale.ROOT);
+    TickerSymbol symbol = SYMBOLS.get(upper);
+    if (symbol != null) {
+      return symbol;
+    }
+    if (upper.isEmpty() || !upper.matches("[A-Z0-9.\\-]+")) {
+      throw new IllegalArgumentException("Not a valid ticker symbol: " + name);
+    }
+    return intern(upper);
+  }
+
+  /**
+   * Returns the symbol with the given name, like the valueOf method of an enum.
+   *
+   * @param name given name.
+   * @return the symbol.
+   * @throws IllegalArgumentException if the name is not a valid ticker symbol.
+   */
+  public static TickerSymbol valueOf(String name) throws IllegalArgumentException {
+    return of(name);
+  }
+
+  /**
+   * Returns the symbol with the given id.
+   *
+   * @param id given id.
+   * @return the symbol.
+   * @throws IllegalArgumentException if no symbol has this id.
+   */
+  public static TickerSymbol byId(int id) throws IllegalArgumentException {
+    TickerSymbol[] symbols = byId;
+    if (id < 0 || id >= symbols.length || symbols[id] == null) {
+      throw new IllegalArgumentException("No ticker symbol has id " + id);
+    }
+    return symbols[id];
+  }
+
+  /**
+   * Returns every symbol used so far, in order of id.
+   *
+   * @return the symbols.
+   */
+  public static synchronized TickerSymbol[] values() {
+    return Arrays.copyOf(byId, count);
+  }
+
+  /**
+   * Returns the number of symbols used so far, which is one more than the largest id.
+   *
+   * @return the number of symbols.
+   */
+  public static synchronized int count() {
+    return count;
+  }
+
+  /**
+   * Creates the symbol of an upper case name unless another thread already did.
+   *
+   * @param upper given upper case name.
+   * @return the symbol.
+   */
+  private static synchronized TickerSymbol intern(String upper) {
+    TickerSymbol symbol = SYMBOLS.get(upper);
+    if (symbol == null) {
+      symbol = new TickerSymbol(upper, count);
+      TickerSymbol[] symbols = byId;
+      if (count == symbols.length) {
+        symbols = Arrays.copyOf(symbols, count * 2);
+      }
+      symbols[count++] = symbol;
+      byId = symbols;
+      SYMBOLS.put(upper, symbol);
+    }
+    return symbol;
+  }
+
+  /**
+   * Returns the dense id of this symbol.
+   *
+   * @return the id.
+   */
+  public int id() {
+    return id;
+  }
+
+  /**
+   * Returns the upper case name of this symbol.
+   *
+   * @return the name.
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Compares symbols in order of id.
+   *
+   * @param other given symbol.
+   * @return negative, zero or positive as this id is less than, equal to or greater than the
+   *         other one.
+   */
+  @Override
+  public int compareTo(TickerSymbol other) {
+    return Integer.compare(id, other.id);
+  }
+
+  /**
+   * Returns the id of this symbol.
+   *
+   * @return the hash code.
+   */
+  @Override
+  public int hashCode() {
+    return id;
+  }
+
+  /**
+   * Returns the name of this symbol.
+   *
+   * @return the name.
+   */
+  @Override
+  public String toString() {
+    return name;
+  }
 }
@@ -0,0 +1,228 @@
+package history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents the trading days of a PriceSeries as dense ordinals: the n-th trading
+ * day has ordinal n, its position in the series. Every calendar day from the first trading day
+ * on has a bit, set if it is a trading day, and every block of 64 days keeps the number of
+ * trading days before it, so the ordinal of a day is one array load and one bit count instead of
+ * a search. The calendar costs 12 bytes per 64 calendar days, about a fifth of a byte per day.
+ *
+ * <p>A calendar grows with its series, sharing its arrays the same way: days are only written
+ * past the last day of the longest calendar over them, and a calendar only reads up to its own
+ * last day.
+ */
+final class TradingCalendar {
+
+  private final long[] bits;
+  private final int[] ranks;
+  private final int firstDay;
+  private final int lastDay;
+  private final int size;
+
+  /**
+   * Constructs a TradingCalendar over shared arrays.
+   *
+   * @param bits     given bit of each calendar day from the first day, set on trading days.
+   * @param ranks    given number of trading days before each block of 64 days.
+   * @param firstDay given first trading day.
+   * @param lastDay  given last trading day.
+   * @param size     given number of trading days.
+   */
+  private TradingCalendar(long[] bits, int[] ranks, int firstDay, int lastDay, int size) {
+    this.bits = bits;
+    this.ranks = ranks;
+    this.firstDay = firstDay;
+    this.lastDay = lastDay;
+    this.size = size;
+  }
+
+  /**
+   * Returns the calendar of sorted trading days, unless they are so far apart that a search
+   * takes less room: more than 64 calendar days per trading day on average.
+   *
+   * @param days given trading days, strictly increasing.
+   * @param size given number of trading days in use.
+   * @return the calendar, or null if the days are too sparse or there are none.
+   */
+  static TradingCalendar of(int[] days, int size) {
+    if (size == 0 || isSparse((long) days[size - 1] - days[0], size)) {
+      return null;
+    }
+    int blocks = (int) (((long) days[size - 1] - days[0]) >>> 6) + 1;
+    long[] bits = new long[blocks];
+    int[] ranks = new int[blocks];
+    int block = 0;
+    for (int i = 0; i < size; i++) {
+      int offset = days[i] - days[0];
+      while (block < offset >>> 6) {
+        ranks[++block] = i;
+      }
+      bits[block] |= 1L << offset;
+    }
+    return new TradingCalendar(bits, ranks, days[0], days[size - 1], size);
+  }
+
+  /**
+   * Returns true if a calendar over a span of days would take more room than the days.
+   *
+   * @param span given number of calendar days from the first trading day to the last.
+   * @param size given number of trading days.
+   * @return true if the days are too sparse for a calendar.
+   */
+  private static boolean isSparse(long span, int size) {
+    return (span >>> 6) > size + 64;
+  }
+
+  /**
+   * Returns a calendar with one more trading day. The day is written into the arrays of this
+   * calendar if they have room and the caller owns the days after the last day of this calendar
+   * in them; otherwise the arrays are copied without the days of longer calendars.
+   *
+   * @param epochDay given trading day, after the last day of this calendar.
+   * @param owned    given true if no other calendar wrote past the last day of this one.
+   * @return the extended calendar, or null if the days became too sparse for a calendar.
+   */
+  TradingCalendar append(int epochDay, boolean owned) {
+    if (isSparse((long) epochDay - firstDay, size + 1)) {
+      return null;
+    }
+    int lastBlock = (lastDay - firstDay) >>> 6;
+    int block = (epochDay - firstDay) >>> 6;
+    long[] grownBits = this.bits;
+    int[] grownRanks = this.ranks;
+    if (!owned || block >= bits.length) {
+      int capacity = Math.max(block + 1, (lastBlock + 1) * 2);
+      grownBits = new long[capacity];
+      grownRanks = new int[capacity];
+      System.arraycopy(bits, 0, grownBits, 0, lastBlock + 1);
+      System.arraycopy(ranks, 0, grownRanks, 0, lastBlock + 1);
+      //days after the last one were written by a longer calendar and must not leak into the copy
+      grownBits[lastBlock] &= -1L >>> (63 - ((lastDay - firstDay) & 63));
+    }
+    for (int i = lastBlock + 1; i <= block; i++) {
+      grownRanks[i] = size;
+    }
+    grownBits[block] |= 1L << (epochDay - firstDay);
+    return new TradingCalendar(grownBits, grownRanks, firstDay, epochDay, size + 1);
+  }
+
+  /**
+   * Returns the number of trading days before the given day, which is the ordinal of the day if
+   * it is a trading day and the ordinal of the next trading day otherwise.
+   *
+   * @param epochDay given epoch day.
+   * @return number of trading days before the day.
+   */
+  int rank(int epochDay) {
+    if (epochDay <= firstDay) {
+      return 0;
+    }
+    if (epochDay > lastDay) {
+      return size;
+    }
+    int offset = epochDay - firstDay;
+    int block = offset >>> 6;
+    return ranks[block] + Long.bitCount(bits[block] & ((1L << offset) - 1));
+  }
+
+  /**
+   * Returns true if the given day is a trading day.
+   *
+   * @param epochDay given epoch day.
+   * @return true if it is a trading day.
+   */
+  boolean isTradingDay(int epochDay) {
+    if (epochDay < firstDay || epochDay > lastDay) {
+      return false;
+    }
+    int offset = epochDay - firstDay;
+    return (bits[offset >>> 6] & (1L << offset)) != 0;
+  }
+
+  /**
+   * Returns the ordinal of a trading day, or a negative number if it is not a trading day,
+   * like Arrays.binarySearch.
+   *
+   * @param epochDay given epoch day.
+   * @return ordinal of the day, or minus one minus the ordinal of the next trading day.
+   */
+  int ordinal(int epochDay) {
+    int rank = rank(epochDay);
+    return isTradingDay(epochDay) ? rank : -rank - 1;
+  }
+
+  /**
+   * Returns the number of bytes writeTo writes.
+   *
+   * @return number of bytes.
+   */
+  int encodedBytes() {
+    return 4 * Integer.BYTES + blocks() * (Long.BYTES + Integer.BYTES);
+  }
+
+  /**
+   * Returns the number of blocks of 64 days up to the last trading day.
+   *
+   * @return number of blocks.
+   */
+  private int blocks() {
+    return (int) (((long) lastDay - firstDay) >>> 6) + 1;
+  }
+
+  /**
+   * Writes this calendar at the position of a buffer, without the days of longer calendars
+   * sharing its arrays.
+   *
+   * @param buffer given buffer.
+   */
+  void writeTo(ByteBuffer buffer) {
+    int blocks = blocks();
+    buffer.putInt(firstDay).putInt(lastDay).putInt(size).putInt(blocks);
+    HistoryCodec.putLongs(buffer, bits, blocks - 1);
+    buffer.putLong(bits[blocks - 1] & (-1L >>> (63 - ((lastDay - firstDay) & 63))));
+    HistoryCodec.putInts(buffer, ranks, blocks);
+  }
+
+  /**
+   * Reads a calendar written by writeTo at the position of a buffer, and checks that its bits
+   * are the given days and its ranks count them.
+   *
+   * @param buffer given buffer.
+   * @param days   given trading days of the series of the calendar, strictly increasing.
+   * @return the calendar.
+   * @throws IllegalArgumentException if the bytes are not a valid calendar of the days.
+   */
+  static TradingCalendar readFrom(ByteBuffer buffer, int[] days)
+          throws IllegalArgumentException {
+    int firstDay = buffer.getInt();
+    int lastDay = buffer.getInt();
+    int size = buffer.getInt();
+    int blocks = buffer.getInt();
+    if (size != days.length || size == 0 || firstDay != days[0] || lastDay != days[size - 1]
+            || blocks != (int) (((long) lastDay - firstDay) >>> 6) + 1) {
+      throw new IllegalArgumentException("Calendar does not match its series");
+    }
+    long[] bits = HistoryCodec.getLongs(buffer, blocks);
+    int[] ranks = HistoryCodec.getInts(buffer, blocks);
+    //the ranks count the bits, and the bits are as many as the days and set on each of them
+    int rank = 0;
+    for (int block = 0; block < blocks; block++) {
+      if (ranks[block] != rank) {
+        throw new IllegalArgumentException("Calendar does not match its series");
+      }
+      rank += Long.bitCount(bits[block]);
+    }
+    if (rank != size) {
+      throw new IllegalArgumentException("Calendar does not match its series");
+    }
+    for (int day : days) {
+      int offset = day - firstDay;
+      if ((bits[offset >>> 6] & (1L << offset)) == 0) {
+        throw new IllegalArgumentException("Calendar does not match its series");
+      }
+    }
+    return new TradingCalendar(bits, ranks, firstDay, lastDay, size);
+  }
+}
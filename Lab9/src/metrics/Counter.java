@@ -0,0 +1,44 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a count of events, such as failed downloads. Threads add to separate
+ * cells that are only summed when the count is read, so counting does not contend or allocate.
+ */
+public final class Counter {
+
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Constructs a Counter at zero. Counters are made by a MetricsRegistry.
+   */
+  Counter() {
+    //empty because the adder starts at zero.
+  }
+
+  /**
+   * Adds one event.
+   */
+  public void increment() {
+    count.increment();
+  }
+
+  /**
+   * Adds a number of events.
+   *
+   * @param events given number of events.
+   */
+  public void add(long events) {
+    count.add(events);
+  }
+
+  /**
+   * Returns the number of events counted so far.
+   *
+   * @return the count.
+   */
+  public long get() {
+    return count.sum();
+  }
+}
@@ -0,0 +1,216 @@
+package metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a histogram of latencies in nanoseconds, laid out like an HDR histogram:
+ * values below 16 have a bucket each, and every power of two above is split into 16 buckets of
+ * equal width, so a bucket is never wider than a sixteenth of its values. Any long fits in 960
+ * fixed buckets, and recording a value is one array increment, without allocation. Calls too
+ * short to afford two reads of the clock are sampled: sampleStart times one call in sixteen,
+ * picked at random so that the percentiles stay unbiased. The calls that are not timed are still
+ * counted, so calls and estimatedSum cover every call while count and sum cover the timed ones.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+  private static final int SAMPLE_MASK = 15;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder sum = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+  private volatile boolean sampled;
+
+  /**
+   * Constructs an empty LatencyHistogram. Histograms are made by a MetricsRegistry.
+   */
+  LatencyHistogram() {
+    //empty because every bucket starts at zero.
+  }
+
+  /**
+   * Records one latency.
+   *
+   * @param nanos given latency in nanoseconds, negative values are recorded as zero.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(bucketOf(value));
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Records the time elapsed since a start time taken with System.nanoTime.
+   *
+   * @param startNanos given start time.
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Returns the start time of a call if it is one of the sampled ones.
+   *
+   * @return the start time to give to recordSample, or 0 if the call is not timed.
+   */
+  public long sampleStart() {
+    if (!sampled) {
+      sampled = true;
+    }
+    if ((ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) != 0) {
+      skipped.increment();
+      return 0;
+    }
+    long start = System.nanoTime();
+    //0 means not sampled, so a clock reading of exactly 0 is moved by a nanosecond
+    return start == 0 ? 1 : start;
+  }
+
+  /**
+   * Records the time elapsed since a start time returned by sampleStart, if it was sampled.
+   *
+   * @param startNanos given start time, 0 if the call was not sampled.
+   */
+  public void recordSample(long startNanos) {
+    if (startNanos != 0) {
+      record(System.nanoTime() - startNanos);
+    }
+  }
+
+  /**
+   * Returns true if the calls of this histogram are sampled, so its count and sum cover only the
+   * timed ones.
+   *
+   * @return true if sampleStart was ever called.
+   */
+  public boolean sampled() {
+    return sampled;
+  }
+
+  /**
+   * Returns the number of calls, timed or not.
+   *
+   * @return the count of latencies recorded and of sampled calls that were not timed.
+   */
+  public long calls() {
+    return count() + skipped.sum();
+  }
+
+  /**
+   * Returns the sum of the latencies of every call, estimated from the timed ones if the calls
+   * are sampled.
+   *
+   * @return the sum in nanoseconds.
+   */
+  public long estimatedSum() {
+    long timed = count();
+    long total = timed + skipped.sum();
+    if (timed == total) {
+      return sum();
+    }
+    return timed == 0 ? 0 : Math.round((double) sum() * total / timed);
+  }
+
+  /**
+   * Returns the number of latencies recorded.
+   *
+   * @return the count.
+   */
+  public long count() {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += buckets.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * Returns the sum of the latencies recorded.
+   *
+   * @return the sum in nanoseconds.
+   */
+  public long sum() {
+    return sum.sum();
+  }
+
+  /**
+   * Returns the highest latency recorded.
+   *
+   * @return the highest latency in nanoseconds, 0 if none was recorded.
+   */
+  public long max() {
+    return max.get();
+  }
+
+  /**
+   * Returns the mean of the latencies recorded.
+   *
+   * @return the mean in nanoseconds, 0 if none was recorded.
+   */
+  public double mean() {
+    long events = count();
+    return events == 0 ? 0 : (double) sum() / events;
+  }
+
+  /**
+   * Returns the latency below which the given fraction of the recorded latencies fall, rounded up
+   * to the end of its bucket. Latencies recorded while this runs may or may not be counted.
+   *
+   * @param quantile given fraction, from 0 to 1.
+   * @return the latency in nanoseconds, 0 if none was recorded.
+   * @throws IllegalArgumentException if the fraction is not between 0 and 1.
+   */
+  public long percentile(double quantile) throws IllegalArgumentException {
+    if (!(quantile >= 0 && quantile <= 1)) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1!");
+    }
+    long total = count();
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS && total > 0; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), max());
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the bucket of a value.
+   *
+   * @param value given non-negative value.
+   * @return the position of its bucket.
+   */
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Returns the highest value of a bucket.
+   *
+   * @param bucket given position of the bucket.
+   * @return the highest value that falls in it.
+   */
+  static long highestValueOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+    long width = 1L << (exponent - SUB_BITS);
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+    return lowest + width - 1;
+  }
+}
@@ -0,0 +1,126 @@
+package metrics;
+
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/**
+ * This class represents a MetricsRegistry over JMX. Every value of the registry is a read-only
+ * attribute, and the dump operation returns the registry as text. Metrics made after the bean
+ * was registered show up the next time a JMX client reads its attributes.
+ */
+final class MetricsMBean implements DynamicMBean {
+
+  private final MetricsRegistry registry;
+
+  /**
+   * Constructs a MetricsMBean.
+   *
+   * @param registry given registry.
+   */
+  MetricsMBean(MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Returns the current value of a metric.
+   *
+   * @param attribute given name of the value.
+   * @return the value.
+   * @throws AttributeNotFoundException if there is no such value.
+   */
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Number value = registry.values().get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return value;
+  }
+
+  /**
+   * Refuses to change a metric, they are read-only.
+   *
+   * @param attribute given attribute.
+   * @throws AttributeNotFoundException always.
+   */
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+  }
+
+  /**
+   * Returns the current values of some metrics, skipping unknown ones.
+   *
+   * @param attributes given names of the values.
+   * @return the values.
+   */
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    Map<String, Number> values = registry.values();
+    AttributeList result = new AttributeList();
+    for (String attribute : attributes) {
+      if (values.containsKey(attribute)) {
+        result.add(new Attribute(attribute, values.get(attribute)));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Changes nothing, metrics are read-only.
+   *
+   * @param attributes given attributes.
+   * @return an empty list.
+   */
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  /**
+   * Runs the dump operation.
+   *
+   * @param actionName given name of the operation.
+   * @param params     given parameters.
+   * @param signature  given types of the parameters.
+   * @return the registry as text.
+   * @throws ReflectionException if the operation is not dump.
+   */
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+          throws ReflectionException {
+    if (!"dump".equals(actionName)) {
+      throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+    return registry.dump();
+  }
+
+  /**
+   * Describes the current metrics as attributes, and the dump operation.
+   *
+   * @return the description of the bean.
+   */
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    Map<String, Number> values = registry.values();
+    MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+    int i = 0;
+    for (Map.Entry<String, Number> value : values.entrySet()) {
+      attributes[i++] = new MBeanAttributeInfo(value.getKey(),
+              value.getValue().getClass().getName(), value.getKey(), true, false, false);
+    }
+    MBeanOperationInfo dump = new MBeanOperationInfo("dump", "Returns every metric as text",
+            new MBeanParameterInfo[0], String.class.getName(), MBeanOperationInfo.INFO);
+    return new MBeanInfo(getClass().getName(), "Stock model metrics", attributes, null,
+            new MBeanOperationInfo[]{dump}, null);
+  }
+}
@@ -0,0 +1,168 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class represents a set of named counters and latency histograms. Instrumented code looks
+ * its metrics up once, keeps them in static fields and records into them directly, so the
+ * registry is never on a hot path. The metrics can be dumped as text in the Prometheus format,
+ * served over HTTP by a MetricsServer or read over JMX.
+ */
+public final class MetricsRegistry {
+
+  private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs an empty MetricsRegistry. Most code records into the global one instead.
+   */
+  public MetricsRegistry() {
+    //empty because the maps start empty.
+  }
+
+  /**
+   * Returns the registry the model, histories and history sources record into.
+   *
+   * @return the global registry.
+   */
+  public static MetricsRegistry global() {
+    return GLOBAL;
+  }
+
+  /**
+   * Returns the counter of the given name, made on the first call.
+   *
+   * @param name given name, letters, digits and underscores.
+   * @return the counter.
+   * @throws IllegalArgumentException if the name is not valid or used by a histogram.
+   */
+  public Counter counter(String name) throws IllegalArgumentException {
+    checkName(name, histograms);
+    return counters.computeIfAbsent(name, key -> new Counter());
+  }
+
+  /**
+   * Returns the latency histogram of the given name, made on the first call.
+   *
+   * @param name given name, letters, digits and underscores.
+   * @return the histogram.
+   * @throws IllegalArgumentException if the name is not valid or used by a counter.
+   */
+  public LatencyHistogram histogram(String name) throws IllegalArgumentException {
+    checkName(name, counters);
+    return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+  }
+
+  /**
+   * Returns the value of every metric by name, sorted by name. A counter gives one value, and a
+   * histogram gives its count, sum, mean, max and percentiles under its name with a suffix, such
+   * as fetch_nanos_p99. The count and sum are over every call; a sampled histogram estimates its
+   * sum from the timed calls, whose own count and sum it also gives as _sampled_count and
+   * _sampled_sum.
+   *
+   * @return the values of the metrics.
+   */
+  public Map<String, Number> values() {
+    Map<String, Number> values = new TreeMap<>();
+    counters.forEach((name, counter) -> values.put(name, counter.get()));
+    histograms.forEach((name, histogram) -> {
+      values.put(name + "_count", histogram.calls());
+      values.put(name + "_sum", histogram.estimatedSum());
+      if (histogram.sampled()) {
+        values.put(name + "_sampled_count", histogram.count());
+        values.put(name + "_sampled_sum", histogram.sum());
+      }
+      values.put(name + "_mean", histogram.mean());
+      values.put(name + "_max", histogram.max());
+      for (double quantile : QUANTILES) {
+        values.put(name + "_p" + quantileSuffix(quantile), histogram.percentile(quantile));
+      }
+    });
+    return values;
+  }
+
+  /**
+   * Returns every metric as text in the Prometheus exposition format, sorted by name: counters
+   * as counters, and histograms as summaries with their quantiles, count and sum, followed by a
+   * gauge of their max. A sampled histogram is followed by counters of its timed calls and of
+   * their latencies as well, named _sampled_count and _sampled_sum.
+   *
+   * @return the metrics as text.
+   */
+  public String dump() {
+    StringBuilder text = new StringBuilder();
+    new TreeMap<>(counters).forEach((name, counter) -> text.append("# TYPE ").append(name)
+            .append(" counter\n").append(name).append(' ').append(counter.get()).append('\n'));
+    new TreeMap<>(histograms).forEach((name, histogram) -> {
+      text.append("# TYPE ").append(name).append(" summary\n");
+      for (double quantile : QUANTILES) {
+        text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                .append(histogram.percentile(quantile)).append('\n');
+      }
+      text.append(name).append("_sum ").append(histogram.estimatedSum()).append('\n');
+      text.append(name).append("_count ").append(histogram.calls()).append('\n');
+      text.append("# TYPE ").append(name).append("_max gauge\n");
+      text.append(name).append("_max ").append(histogram.max()).append('\n');
+      if (histogram.sampled()) {
+        text.append("# TYPE ").append(name).append("_sampled_count counter\n");
+        text.append(name).append("_sampled_count ").append(histogram.count()).append('\n');
+        text.append("# TYPE ").append(name).append("_sampled_sum counter\n");
+        text.append(name).append("_sampled_sum ").append(histogram.sum()).append('\n');
+      }
+    });
+    return text.toString();
+  }
+
+  /**
+   * Registers this registry with the platform MBean server, under the given name.
+   *
+   * @param objectName given JMX object name, such as stock:type=Metrics.
+   * @throws IllegalArgumentException if the name is not valid or already registered.
+   */
+  public void registerMBean(String objectName) throws IllegalArgumentException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(new MetricsMBean(this), new ObjectName(objectName));
+    } catch (JMException e) {
+      throw new IllegalArgumentException("Cannot register metrics as " + objectName, e);
+    }
+  }
+
+  /**
+   * Returns the suffix of a quantile, such as 99 for 0.99 and 999 for 0.999.
+   *
+   * @param quantile given quantile.
+   * @return the suffix.
+   */
+  static String quantileSuffix(double quantile) {
+    String digits = Double.toString(quantile).substring(2);
+    return digits.length() == 1 ? digits + "0" : digits;
+  }
+
+  /**
+   * Checks the name of a new metric.
+   *
+   * @param name   given name.
+   * @param others given metrics of the other kind.
+   * @throws IllegalArgumentException if the name is not valid or used by the other kind.
+   */
+  private static void checkName(String name, Map<String, ?> others)
+          throws IllegalArgumentException {
+    if (name == null || !name.matches("[a-zA-Z_][a-zA-Z0-9_]*")) {
+      throw new IllegalArgumentException("Invalid metric name: " + name);
+    }
+    if (others.containsKey(name)) {
+      throw new IllegalArgumentException("Metric " + name + " is of another kind");
+    }
+  }
+}
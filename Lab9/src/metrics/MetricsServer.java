@@ -0,0 +1,68 @@
+package metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class represents a local HTTP server that answers GET /metrics with the dump of a
+ * MetricsRegistry, so that a Prometheus scraper or curl can read it.
+ */
+public class MetricsServer implements AutoCloseable {
+
+  private final MetricsRegistry registry;
+  private final HttpServer server;
+
+  /**
+   * Starts a MetricsServer on the given port of the loopback address.
+   *
+   * @param registry given registry to serve.
+   * @param port     given port, 0 for a free one.
+   * @throws IOException if the server cannot be started.
+   */
+  public MetricsServer(MetricsRegistry registry, int port) throws IOException {
+    this.registry = registry;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+            0);
+    server.createContext("/metrics", this::handle);
+    server.start();
+  }
+
+  /**
+   * Returns the address of the metrics endpoint.
+   *
+   * @return the metrics URL.
+   */
+  public String getUrl() {
+    return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+            + "/metrics";
+  }
+
+  /**
+   * Stops the server.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  /**
+   * Answers one request with the dump of the registry.
+   *
+   * @param exchange given request and response.
+   * @throws IOException if the response cannot be sent.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    byte[] body = registry.dump().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
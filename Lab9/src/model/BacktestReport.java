@@ -0,0 +1,274 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import history.TickerSymbol;
+
+/**
+ * This class represents the results of replaying strategies over the histories of stocks: for
+ * every strategy and stock, the total return, the largest drawdown, the number of trades and of
+ * winning trades, and the number of days a position was held. The results are kept in primitive
+ * columns indexed by strategy and then by stock, about 28 bytes per pair.
+ *
+ * <p>The summaries of a strategy are over the stocks with trading days in the backtested range.
+ * Its mean return is the return of putting the same amount of money in every such stock.
+ */
+public final class BacktestReport {
+
+  private final List<Strategy> strategies;
+  private final List<TickerSymbol> symbols;
+  private final int[] days;
+  final double[] returns;
+  final double[] drawdowns;
+  final int[] trades;
+  final int[] wins;
+  final int[] daysHeld;
+
+  /**
+   * Constructs a BacktestReport whose columns a Backtester fills.
+   *
+   * @param strategies given strategies.
+   * @param symbols    given ticker symbols of the stocks.
+   * @param days       given number of trading days in the range of each stock.
+   */
+  BacktestReport(List<Strategy> strategies, List<TickerSymbol> symbols, int[] days) {
+    this.strategies = Collections.unmodifiableList(strategies);
+    this.symbols = Collections.unmodifiableList(symbols);
+    this.days = days;
+    int cells = strategies.size() * symbols.size();
+    this.returns = new double[cells];
+    this.drawdowns = new double[cells];
+    this.trades = new int[cells];
+    this.wins = new int[cells];
+    this.daysHeld = new int[cells];
+  }
+
+  /**
+   * Returns the strategies, in the order of their positions.
+   *
+   * @return read-only list of strategies.
+   */
+  public List<Strategy> strategies() {
+    return strategies;
+  }
+
+  /**
+   * Returns the ticker symbols of the stocks, in the order of their positions.
+   *
+   * @return read-only list of ticker symbols.
+   */
+  public List<TickerSymbol> symbols() {
+    return symbols;
+  }
+
+  /**
+   * Returns the position of the results of a strategy on a stock in the columns.
+   *
+   * @param strategy given position of the strategy.
+   * @param stock    given position of the stock.
+   * @return position in the columns.
+   * @throws IllegalArgumentException if a position is out of range.
+   */
+  private int cell(int strategy, int stock) throws IllegalArgumentException {
+    if (strategy < 0 || strategy >= strategies.size() || stock < 0 || stock >= symbols.size()) {
+      throw new IllegalArgumentException("No such strategy or stock!");
+    }
+    return strategy * symbols.size() + stock;
+  }
+
+  /**
+   * Returns the position of the results of a strategy on its first stock in the columns.
+   *
+   * @param strategy given position of the strategy.
+   * @return position in the columns.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  private int firstCell(int strategy) throws IllegalArgumentException {
+    if (strategy < 0 || strategy >= strategies.size()) {
+      throw new IllegalArgumentException("No such strategy!");
+    }
+    return strategy * symbols.size();
+  }
+
+  /**
+   * Returns the total return of a strategy on a stock, such as 0.25 for a gain of a quarter.
+   *
+   * @param strategy given position of the strategy.
+   * @param stock    given position of the stock.
+   * @return total return.
+   * @throws IllegalArgumentException if a position is out of range.
+   */
+  public double totalReturn(int strategy, int stock) throws IllegalArgumentException {
+    return returns[cell(strategy, stock)];
+  }
+
+  /**
+   * Returns the largest fall of the value of a strategy on a stock from its highest value before,
+   * as a fraction of that value, on the closes of the days a position was held.
+   *
+   * @param strategy given position of the strategy.
+   * @param stock    given position of the stock.
+   * @return largest drawdown, between 0 and 1.
+   * @throws IllegalArgumentException if a position is out of range.
+   */
+  public double maxDrawdown(int strategy, int stock) throws IllegalArgumentException {
+    return drawdowns[cell(strategy, stock)];
+  }
+
+  /**
+   * Returns the number of trades of a strategy on a stock, a position still held at the end of
+   * the range counting as sold at its last close.
+   *
+   * @param strategy given position of the strategy.
+   * @param stock    given position of the stock.
+   * @return number of trades.
+   * @throws IllegalArgumentException if a position is out of range.
+   */
+  public int trades(int strategy, int stock) throws IllegalArgumentException {
+    return trades[cell(strategy, stock)];
+  }
+
+  /**
+   * Returns the number of trades of a strategy on a stock that sold above their buying price.
+   *
+   * @param strategy given position of the strategy.
+   * @param stock    given position of the stock.
+   * @return number of winning trades.
+   * @throws IllegalArgumentException if a position is out of range.
+   */
+  public int winningTrades(int strategy, int stock) throws IllegalArgumentException {
+    return wins[cell(strategy, stock)];
+  }
+
+  /**
+   * Returns the fraction of the trading days of the range on which a strategy held a stock.
+   *
+   * @param strategy given position of the strategy.
+   * @param stock    given position of the stock.
+   * @return fraction of days held, or 0 if the stock has no day in the range.
+   * @throws IllegalArgumentException if a position is out of range.
+   */
+  public double exposure(int strategy, int stock) throws IllegalArgumentException {
+    int cell = cell(strategy, stock);
+    return days[stock] == 0 ? 0 : (double) daysHeld[cell] / days[stock];
+  }
+
+  /**
+   * Returns the mean total return of a strategy over the stocks with days in the range.
+   *
+   * @param strategy given position of the strategy.
+   * @return mean return, or 0 if no stock has days in the range.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  public double meanReturn(int strategy) throws IllegalArgumentException {
+    return mean(strategy, returns);
+  }
+
+  /**
+   * Returns the mean of the largest drawdowns of a strategy over the stocks with days in the
+   * range.
+   *
+   * @param strategy given position of the strategy.
+   * @return mean drawdown, or 0 if no stock has days in the range.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  public double meanDrawdown(int strategy) throws IllegalArgumentException {
+    return mean(strategy, drawdowns);
+  }
+
+  /**
+   * Returns the largest drawdown of a strategy over all stocks.
+   *
+   * @param strategy given position of the strategy.
+   * @return largest drawdown, between 0 and 1.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  public double worstDrawdown(int strategy) throws IllegalArgumentException {
+    int first = firstCell(strategy);
+    double worst = 0;
+    for (int i = first; i < first + symbols.size(); i++) {
+      worst = Math.max(worst, drawdowns[i]);
+    }
+    return worst;
+  }
+
+  /**
+   * Returns the number of trades of a strategy over all stocks.
+   *
+   * @param strategy given position of the strategy.
+   * @return number of trades.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  public long totalTrades(int strategy) throws IllegalArgumentException {
+    return sum(strategy, trades);
+  }
+
+  /**
+   * Returns the fraction of the trades of a strategy over all stocks that were winning trades.
+   *
+   * @param strategy given position of the strategy.
+   * @return fraction of winning trades, or NaN if there was no trade.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  public double winRate(int strategy) throws IllegalArgumentException {
+    long total = totalTrades(strategy);
+    return total == 0 ? Double.NaN : (double) sum(strategy, wins) / total;
+  }
+
+  /**
+   * Returns the positions of the strategies from the highest mean return to the lowest.
+   *
+   * @return positions of the strategies.
+   */
+  public int[] ranking() {
+    double[] means = new double[strategies.size()];
+    Integer[] order = new Integer[strategies.size()];
+    for (int i = 0; i < order.length; i++) {
+      means[i] = meanReturn(i);
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -means[i]));
+    return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Returns the mean of a column over the stocks of a strategy with days in the range.
+   *
+   * @param strategy given position of the strategy.
+   * @param column   given column.
+   * @return mean, or 0 if no stock has days in the range.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  private double mean(int strategy, double[] column) throws IllegalArgumentException {
+    int first = firstCell(strategy);
+    double sum = 0;
+    int stocks = 0;
+    for (int i = 0; i < symbols.size(); i++) {
+      if (days[i] > 0) {
+        sum += column[first + i];
+        stocks++;
+      }
+    }
+    return stocks == 0 ? 0 : sum / stocks;
+  }
+
+  /**
+   * Returns the sum of a column over the stocks of a strategy.
+   *
+   * @param strategy given position of the strategy.
+   * @param column   given column.
+   * @return sum.
+   * @throws IllegalArgumentException if the position is out of range.
+   */
+  private long sum(int strategy, int[] column) throws IllegalArgumentException {
+    int first = firstCell(strategy);
+    long sum = 0;
+    for (int i = first; i < first + symbols.size(); i++) {
+      sum += column[i];
+    }
+    return sum;
+  }
+}
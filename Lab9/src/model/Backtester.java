@@ -0,0 +1,258 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import history.EpochDays;
+import history.HistoryTable;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+/**
+ * This class represents a backtester that replays strategies over every stock of a HistoryTable.
+ * For each stock the cumulative sums of its closing prices are computed once; then the entry and
+ * exit rules of each strategy are evaluated over the whole range into bitsets, the exit rule
+ * only if the strategy has one of its own, and the position is replayed from bit to bit,
+ * skipping the days without a position. The pairs of a stock and a
+ * strategy are split between the threads of the common fork-join pool, by stocks first and by
+ * strategies when a slice holds a single stock, and write their results into their own cells of
+ * a BacktestReport.
+ */
+public final class Backtester {
+
+  //number of pairs of a stock and a strategy below which a task replays them itself
+  private static final int LEAF_SIZE = 256;
+
+  private final HistoryTable histories;
+
+  /**
+   * Constructs a Backtester over the given histories.
+   *
+   * @param histories given histories, such as the snapshot of a model.
+   */
+  public Backtester(HistoryTable histories) {
+    this.histories = histories;
+  }
+
+  /**
+   * Replays the strategies over every stock within the given day range. Each strategy starts
+   * every stock without a position, does not buy on the last day of the range, and sells a
+   * position still held at the last close of the range.
+   *
+   * @param strategies given strategies.
+   * @param startDate  given start date.
+   * @param endDate    given end date.
+   * @return the results of every strategy on every stock.
+   * @throws IllegalArgumentException if end date before start date or there is no strategy.
+   */
+  public BacktestReport run(List<Strategy> strategies, Date startDate, Date endDate)
+          throws IllegalArgumentException {
+    if (endDate.before(startDate)) {
+      throw new IllegalArgumentException("End date must be after start date!");
+    }
+    if (strategies.isEmpty()) {
+      throw new IllegalArgumentException("There must be a strategy!");
+    }
+    List<TickerSymbol> symbols = histories.symbols();
+    PriceSeries[] series = new PriceSeries[symbols.size()];
+    int[] from = new int[series.length];
+    int[] to = new int[series.length];
+    int[] days = new int[series.length];
+    for (int i = 0; i < series.length; i++) {
+      series[i] = histories.get(symbols.get(i)).priceSeries();
+      from[i] = series[i].lowerBound(EpochDays.fromDate(startDate));
+      to[i] = Math.max(from[i], series[i].upperBound(EpochDays.fromDate(endDate)));
+      days[i] = to[i] - from[i];
+    }
+    BacktestReport report = new BacktestReport(strategies, symbols, days);
+    new BacktestTask(series, from, to, strategies.toArray(new Strategy[0]), report, 0,
+            series.length, 0, strategies.size()).invoke();
+    return report;
+  }
+
+  /**
+   * Replays a strategy over a range of a series, given the bits of its entry and exit rules, and
+   * writes the results into a cell of a report.
+   *
+   * @param series   given series.
+   * @param from     given first position of the range, inclusive.
+   * @param to       given last position of the range, exclusive.
+   * @param entries  given bits of the days the entry rule holds on.
+   * @param exits    given bits of the days the exit rule holds on.
+   * @param exitBit  given value of the bit of a day to sell on: 1, or 0 if the exits are the
+   *                 entries.
+   * @param stopLoss given stop loss of the strategy, or 0 for none.
+   * @param report   given report.
+   * @param cell     given position of the results in the report.
+   */
+  private static void replay(PriceSeries series, int from, int to, long[] entries, long[] exits,
+                             long exitBit, double stopLoss, BacktestReport report, int cell) {
+    double equity = 1;
+    double peak = 1;
+    double drawdown = 0;
+    int trades = 0;
+    int wins = 0;
+    int held = 0;
+    //a position bought on the last day could not be held, so the last day is no entry
+    int day = nextBit(entries, from, to - 1);
+    while (day >= 0) {
+      double buy = series.closeAt(day);
+      double stop = buy * (1 - stopLoss);
+      double entryEquity = equity;
+      int sell = day + 1;
+      //a position held at the end of the range is sold on its last day
+      while (sell < to - 1 && ((exits[sell >>> 6] >>> sell) & 1L) != exitBit
+              && (stopLoss == 0 || series.closeAt(sell) > stop)) {
+        double value = entryEquity * series.closeAt(sell) / buy;
+        peak = Math.max(peak, value);
+        drawdown = Math.max(drawdown, 1 - value / peak);
+        sell++;
+      }
+      double close = series.closeAt(sell);
+      equity = entryEquity * close / buy;
+      peak = Math.max(peak, equity);
+      drawdown = Math.max(drawdown, 1 - equity / peak);
+      trades++;
+      wins += close > buy ? 1 : 0;
+      held += sell - day + 1;
+      day = nextBit(entries, sell + 1, to - 1);
+    }
+    report.returns[cell] = equity - 1;
+    report.drawdowns[cell] = drawdown;
+    report.trades[cell] = trades;
+    report.wins[cell] = wins;
+    report.daysHeld[cell] = held;
+  }
+
+  /**
+   * Returns the position of the first set bit between two positions.
+   *
+   * @param bits given bits.
+   * @param from given first position, inclusive.
+   * @param to   given last position, exclusive.
+   * @return position of the bit, or -1 if there is none.
+   */
+  private static int nextBit(long[] bits, int from, int to) {
+    if (from >= to) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long current = bits[word] & (-1L << from);
+    while (current == 0) {
+      if (++word > (to - 1) >>> 6) {
+        return -1;
+      }
+      current = bits[word];
+    }
+    int index = (word << 6) + Long.numberOfTrailingZeros(current);
+    return index < to ? index : -1;
+  }
+
+  /**
+   * This class represents the replay of a slice of the strategies over a slice of the stocks,
+   * split in two until it holds few enough pairs.
+   */
+  private static final class BacktestTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PriceSeries[] series;
+    private final int[] from;
+    private final int[] to;
+    private final Strategy[] strategies;
+    private final BacktestReport report;
+    private final int firstStock;
+    private final int lastStock;
+    private final int firstStrategy;
+    private final int lastStrategy;
+
+    /**
+     * Constructs a BacktestTask over the stocks and strategies between two positions.
+     *
+     * @param series        given series of all stocks.
+     * @param from          given first position of the range of each stock.
+     * @param to            given last position, exclusive, of the range of each stock.
+     * @param strategies    given all strategies.
+     * @param report        given report the results are written into.
+     * @param firstStock    given first position of the stocks, inclusive.
+     * @param lastStock     given last position of the stocks, exclusive.
+     * @param firstStrategy given first position of the strategies, inclusive.
+     * @param lastStrategy  given last position of the strategies, exclusive.
+     */
+    BacktestTask(PriceSeries[] series, int[] from, int[] to, Strategy[] strategies,
+                 BacktestReport report, int firstStock, int lastStock, int firstStrategy,
+                 int lastStrategy) {
+      this.series = series;
+      this.from = from;
+      this.to = to;
+      this.strategies = strategies;
+      this.report = report;
+      this.firstStock = firstStock;
+      this.lastStock = lastStock;
+      this.firstStrategy = firstStrategy;
+      this.lastStrategy = lastStrategy;
+    }
+
+    /**
+     * Replays the slice, or splits it in two and replays both halves.
+     */
+    @Override
+    protected void compute() {
+      int stocks = lastStock - firstStock;
+      int count = lastStrategy - firstStrategy;
+      if ((long) stocks * count <= LEAF_SIZE) {
+        for (int i = firstStock; i < lastStock; i++) {
+          replayStock(i);
+        }
+      } else if (stocks > 1) {
+        int middle = (firstStock + lastStock) >>> 1;
+        invokeAll(new BacktestTask(series, from, to, strategies, report, firstStock, middle,
+                        firstStrategy, lastStrategy),
+                new BacktestTask(series, from, to, strategies, report, middle, lastStock,
+                        firstStrategy, lastStrategy));
+      } else {
+        int middle = (firstStrategy + lastStrategy) >>> 1;
+        invokeAll(new BacktestTask(series, from, to, strategies, report, firstStock, lastStock,
+                        firstStrategy, middle),
+                new BacktestTask(series, from, to, strategies, report, firstStock, lastStock,
+                        middle, lastStrategy));
+      }
+    }
+
+    /**
+     * Replays the strategies of the slice over one stock.
+     *
+     * @param stock given position of the stock.
+     */
+    private void replayStock(int stock) {
+      PriceSeries prices = series[stock];
+      int first = from[stock];
+      int last = to[stock];
+      if (first == last) {
+        return;
+      }
+      double[] sums = new double[last + 1];
+      for (int i = 0; i < last; i++) {
+        sums[i + 1] = sums[i] + prices.closeAt(i);
+      }
+      long[] entries = new long[(last + 63) >>> 6];
+      long[] exits = new long[entries.length];
+      for (int s = firstStrategy; s < lastStrategy; s++) {
+        Strategy strategy = strategies[s];
+        Arrays.fill(entries, first >>> 6, entries.length, 0);
+        strategy.getEntry().evaluate(prices, sums, first, last, entries);
+        if (strategy.exitsWhenEntryEnds()) {
+          replay(prices, first, last, entries, entries, 0, strategy.getStopLoss(), report,
+                  s * series.length + stock);
+        } else {
+          Arrays.fill(exits, first >>> 6, exits.length, 0);
+          strategy.getExit().evaluate(prices, sums, first, last, exits);
+          replay(prices, first, last, entries, exits, 1, strategy.getStopLoss(), report,
+                  s * series.length + stock);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package model;
+
+import java.util.Date;
+
+import history.EpochDays;
+import history.TickerSymbol;
+
+/**
+ * This class represents a day on which the 50-day moving average of a stock crossed above its
+ * 200-day moving average, as found by a Screener.
+ */
+public final class CrossoverEvent {
+
+  private final TickerSymbol tickerSymbol;
+  private final int epochDay;
+  private final double close;
+
+  /**
+   * Constructs a CrossoverEvent.
+   *
+   * @param tickerSymbol given ticker symbol of the stock.
+   * @param epochDay     given trading day of the crossing, as an epoch day.
+   * @param close        given closing price of that day.
+   */
+  public CrossoverEvent(TickerSymbol tickerSymbol, int epochDay, double close) {
+    this.tickerSymbol = tickerSymbol;
+    this.epochDay = epochDay;
+    this.close = close;
+  }
+
+  /**
+   * Returns the ticker symbol of the stock.
+   *
+   * @return the ticker symbol.
+   */
+  public TickerSymbol getTickerSymbol() {
+    return tickerSymbol;
+  }
+
+  /**
+   * Returns the trading day of the crossing as an epoch day.
+   *
+   * @return the epoch day.
+   */
+  public int getEpochDay() {
+    return epochDay;
+  }
+
+  /**
+   * Returns the trading day of the crossing.
+   *
+   * @return the date.
+   */
+  public Date getDate() {
+    return EpochDays.toDate(epochDay);
+  }
+
+  /**
+   * Returns the closing price on the day of the crossing.
+   *
+   * @return the closing price.
+   */
+  public double getClose() {
+    return close;
+  }
+
+  /**
+   * Returns the ticker symbol, date and closing price of the crossing.
+   *
+   * @return the crossing as a string.
+   */
+  @Override
+  public String toString() {
+    return tickerSymbol + " " + getDate() + " " + String.format("%.2f", close);
+  }
+}
@@ -1,8 +1,17 @@
 package model;
 
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import basket.BasketValueSeries;
+import basket.GapPolicy;
+import history.HistoryTable;
+import history.PriceColumn;
+import history.PriceRange;
 import history.TickerSymbol;
 import javafx.util.Pair;
 
@@ -22,6 +31,96 @@ public interface IStockModel {
    */
   void addIHistory(TickerSymbol tickerSymbol) throws IllegalArgumentException;
 
+  /**
+   * Add the histories of many stocks to the database, loading them in parallel with a default
+   * number of threads. Returns once every history is loaded or failed.
+   *
+   * @param tickerSymbols given ticker symbols
+   * @return the failure of each ticker symbol that could not be loaded, empty if all loaded
+   */
+  Map<TickerSymbol, Exception> addHistories(Collection<TickerSymbol> tickerSymbols);
+
+  /**
+   * Add the histories of many stocks to the database, loading at most the given number of them
+   * at the same time. Returns once every history is loaded or failed.
+   *
+   * @param tickerSymbols given ticker symbols
+   * @param parallelism   given maximum number of histories loaded at the same time
+   * @return the failure of each ticker symbol that could not be loaded, empty if all loaded
+   * @throws IllegalArgumentException if parallelism is not positive
+   */
+  Map<TickerSymbol, Exception> addHistories(Collection<TickerSymbol> tickerSymbols,
+                                            int parallelism) throws IllegalArgumentException;
+
+  /**
+   * Add the histories of many stocks to the database with the given columns, loading at most the
+   * given number of them at the same time. Returns once every history is loaded or failed.
+   *
+   * @param tickerSymbols given ticker symbols
+   * @param parallelism   given maximum number of histories loaded at the same time
+   * @param columns       given columns to load, the closing prices always
+   * @return the failure of each ticker symbol that could not be loaded, empty if all loaded
+   * @throws IllegalArgumentException if parallelism is not positive
+   */
+  Map<TickerSymbol, Exception> addHistories(Collection<TickerSymbol> tickerSymbols,
+                                            int parallelism, Set<PriceColumn> columns)
+          throws IllegalArgumentException;
+
+  /**
+   * Appends the closing prices of one new trading day to the histories of the given stocks, and
+   * publishes all of them together. Only the new day is added: the moving averages and range
+   * indexes of each history are updated, not rebuilt.
+   *
+   * @param date   given trading day, after the last day of every given history
+   * @param closes given closing price of each stock on that day
+   * @throws IllegalArgumentException if a stock is not in the database or already has a price
+   *                                  on or after that day; no history is changed then
+   */
+  void appendCloses(Date date, Map<TickerSymbol, Double> closes) throws IllegalArgumentException;
+
+  /**
+   * Extends every history in the database with the recent closing prices of its stock, loading
+   * only the recent part of each history with the columns it has, in parallel with a default
+   * number of threads. The extended histories are published together once all of them are done.
+   *
+   * @return the failure of each ticker symbol that could not be refreshed, empty if all were
+   */
+  Map<TickerSymbol, Exception> refreshHistories();
+
+  /**
+   * Returns an immutable snapshot of the histories in the database. Later additions do not
+   * change it, so a reader can make several consistent queries on it.
+   *
+   * @return the current history table
+   */
+  HistoryTable snapshot();
+
+  /**
+   * Find every crossover of the 50-day moving average above the 200-day moving average of every
+   * stock in the database within the given day range, screening the stocks in parallel.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @param filter    given filter of the crossovers, such as ScreenFilter.ANY
+   * @return the accepted crossovers, sorted by day and then by ticker symbol
+   * @throws IllegalArgumentException if end date before start date
+   */
+  List<CrossoverEvent> screenBuyOpportunities(Date startDate, Date endDate, ScreenFilter filter)
+          throws IllegalArgumentException;
+
+  /**
+   * Replay the given strategies over every stock in the database within the given day range,
+   * replaying the stocks and strategies in parallel.
+   *
+   * @param strategies given strategies, such as Strategy.crossover(50, 200)
+   * @param startDate  given start date
+   * @param endDate    given end date
+   * @return the return, drawdown and trades of every strategy on every stock
+   * @throws IllegalArgumentException if end date before start date or there is no strategy
+   */
+  BacktestReport backtest(List<Strategy> strategies, Date startDate, Date endDate)
+          throws IllegalArgumentException;
+
   /**
    * Retrieve the price of a stock on a given date.
    *
@@ -44,6 +143,21 @@ public interface IStockModel {
    */
   boolean buyOpportunity(TickerSymbol tickerSymbol, Date date) throws IllegalArgumentException;
 
+  /**
+   * Determine the buying opportunities of the given stock within a range of time. Bit i of the
+   * result is set if there is a buying opportunity on the i-th entry of stockHistory for the same
+   * stock and range.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param startDate    given start date
+   * @param endDate      given end date
+   * @return the buying opportunities, one bit per trading day of the range
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if start date is after the end date
+   */
+  BitSet buyOpportunities(TickerSymbol tickerSymbol, Date startDate, Date endDate)
+          throws IllegalArgumentException;
+
   /**
    * Return a list of IStock on within given range of time.
    *
@@ -57,6 +171,20 @@ public interface IStockModel {
   List<Pair<Date, Double>> stockHistory(TickerSymbol tickerSymbol, Date startDate, Date endDate)
           throws IllegalArgumentException;
 
+  /**
+   * Return a view of the closing prices of a stock within given range of time, read from its
+   * history without copying.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param startDate    given start date
+   * @param endDate      given end date
+   * @return the view of the trading days within the two dates
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if start date is after the end date
+   */
+  PriceRange stockPriceRange(TickerSymbol tickerSymbol, Date startDate, Date endDate)
+          throws IllegalArgumentException;
+
   /**
    * Determines the total price of a basket on a given date.
    *
@@ -66,6 +194,20 @@ public interface IStockModel {
    */
   double totalPrice(Date date) throws IllegalArgumentException;
 
+  /**
+   * Determines the total price of a basket on every trading day within a range of time, in one
+   * pass over the prices of its stocks.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @param gaps      given treatment of days on which some stocks of the basket have no price
+   * @return the total price of the basket on each valued day
+   * @throws IllegalArgumentException if a stock of the basket is not in the database
+   * @throws IllegalArgumentException if start date is after the end date
+   */
+  BasketValueSeries totalPriceSeries(Date startDate, Date endDate, GapPolicy gaps)
+          throws IllegalArgumentException;
+
 
   /**
    * Returns true if the price of a stock on the end date is higher than the price of a stock
@@ -118,6 +260,8 @@ public interface IStockModel {
    * @param startDate given start date.
    * @param endDate   given end date.
    * @return maximum price in date range.
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if there is no price within the date range
    */
   double maxPrice(TickerSymbol symbol, Date startDate, Date endDate);
 
@@ -128,6 +272,8 @@ public interface IStockModel {
    * @param startDate given start date.
    * @param endDate   given end date.
    * @return minimum price in date range.
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if there is no price within the date range
    */
   double minPrice(TickerSymbol symbol, Date startDate, Date endDate);
 
@@ -1,33 +1,152 @@
 package model;
 
-import java.util.Calendar;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
+import basket.BasketValueSeries;
+import basket.GapPolicy;
 import basket.IBasket;
+import history.EpochDays;
+import history.HistorySource;
+import history.HistoryTable;
 import history.IHistory;
 import history.IHistoryImpl;
+import history.PriceColumn;
+import history.PriceRange;
+import history.PriceSeries;
 import history.TickerSymbol;
 import javafx.util.Pair;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import stockapp.StockApplication;
 
 /**
  * This class represents a model for storing and retrieving stock information by implementing the
- * IStockModel interface.
+ * IStockModel interface. The model can be shared by many threads: its histories are an immutable
+ * HistoryTable, every query reads the current table once without locking, and adding histories
+ * publishes a new table atomically. The latency of the calls is recorded in the global
+ * MetricsRegistry, sampled for the single-stock and single-day queries that take less time than
+ * reading the clock twice. The results of stockHistory, maxPrice and minPrice are kept in a
+ * QueryCache, so that the same query asked again is answered without reading the history, and
+ * the results of a stock are dropped whenever its history is replaced.
  */
 public class IStockModelImpl implements IStockModel {
-  private HashMap<TickerSymbol, IHistory> histories;
+  private static final int DEFAULT_LOAD_THREADS = 16;
+  static final long DEFAULT_CACHE_WEIGHT = 1 << 18;
+
+  private static final LatencyHistogram ADD_HISTORY_NANOS =
+          MetricsRegistry.global().histogram("model_add_history_nanos");
+  private static final LatencyHistogram ADD_HISTORIES_NANOS =
+          MetricsRegistry.global().histogram("model_add_histories_nanos");
+  private static final LatencyHistogram APPEND_CLOSES_NANOS =
+          MetricsRegistry.global().histogram("model_append_closes_nanos");
+  private static final LatencyHistogram REFRESH_HISTORIES_NANOS =
+          MetricsRegistry.global().histogram("model_refresh_histories_nanos");
+  private static final LatencyHistogram SCREEN_NANOS =
+          MetricsRegistry.global().histogram("model_screen_nanos");
+  private static final LatencyHistogram BACKTEST_NANOS =
+          MetricsRegistry.global().histogram("model_backtest_nanos");
+  private static final LatencyHistogram PRICE_OF_DAY_NANOS =
+          MetricsRegistry.global().histogram("model_price_of_day_nanos");
+  private static final LatencyHistogram BUY_OPPORTUNITY_NANOS =
+          MetricsRegistry.global().histogram("model_buy_opportunity_nanos");
+  private static final LatencyHistogram BUY_OPPORTUNITIES_NANOS =
+          MetricsRegistry.global().histogram("model_buy_opportunities_nanos");
+  private static final LatencyHistogram STOCK_HISTORY_NANOS =
+          MetricsRegistry.global().histogram("model_stock_history_nanos");
+  private static final LatencyHistogram STOCK_PRICE_RANGE_NANOS =
+          MetricsRegistry.global().histogram("model_stock_price_range_nanos");
+  private static final LatencyHistogram TOTAL_PRICE_NANOS =
+          MetricsRegistry.global().histogram("model_total_price_nanos");
+  private static final LatencyHistogram TOTAL_PRICE_SERIES_NANOS =
+          MetricsRegistry.global().histogram("model_total_price_series_nanos");
+  private static final LatencyHistogram STOCK_TREND_UP_NANOS =
+          MetricsRegistry.global().histogram("model_stock_trend_up_nanos");
+  private static final LatencyHistogram BASKET_TREND_UP_NANOS =
+          MetricsRegistry.global().histogram("model_basket_trend_up_nanos");
+  private static final LatencyHistogram MAX_PRICE_NANOS =
+          MetricsRegistry.global().histogram("model_max_price_nanos");
+  private static final LatencyHistogram MIN_PRICE_NANOS =
+          MetricsRegistry.global().histogram("model_min_price_nanos");
+
+  private final AtomicReference<HistoryTable> histories;
   private IBasket basket;
+  private final HistorySource source;
+  private final QueryCache cache;
 
   /**
    * Constructor for IStockModelImpl class.  This class takes in a basket of stock and
-   * creates a new hashmap.
+   * starts with an empty history table.  Histories are loaded from the default source of the
+   * StockApplication class.
    *
    * @param basket given basket of stocks.
    */
   public IStockModelImpl(IBasket basket) {
-    this.histories = new HashMap<>();
+    this(basket, StockApplication.defaultSource());
+  }
+
+  /**
+   * Constructor for IStockModelImpl class.  This class takes in a basket of stock and the
+   * source to load histories from, and starts with an empty history table.
+   *
+   * @param basket given basket of stocks.
+   * @param source given source of histories.
+   */
+  public IStockModelImpl(IBasket basket, HistorySource source) {
+    this(basket, source, DEFAULT_CACHE_WEIGHT);
+  }
+
+  /**
+   * Constructor for IStockModelImpl class.  This class takes in a basket of stock, the source to
+   * load histories from and the size of its query cache, and starts with an empty history table.
+   *
+   * @param basket      given basket of stocks.
+   * @param source      given source of histories.
+   * @param cacheWeight given number of prices the query cache holds, 0 to cache nothing.
+   * @throws IllegalArgumentException if the cache weight is negative.
+   */
+  public IStockModelImpl(IBasket basket, HistorySource source, long cacheWeight)
+          throws IllegalArgumentException {
+    this(basket, source, cacheWeight, HistoryTable.EMPTY);
+  }
+
+  /**
+   * Constructor for IStockModelImpl class that starts with the given histories, such as the ones
+   * restored from a ModelSnapshot.
+   *
+   * @param basket      given basket of stocks.
+   * @param source      given source of histories.
+   * @param cacheWeight given number of prices the query cache holds, 0 to cache nothing.
+   * @param histories   given histories to start with.
+   * @throws IllegalArgumentException if the cache weight is negative.
+   */
+  IStockModelImpl(IBasket basket, HistorySource source, long cacheWeight, HistoryTable histories)
+          throws IllegalArgumentException {
+    this.histories = new AtomicReference<>(histories);
     this.basket = basket;
+    this.source = source;
+    this.cache = new QueryCache(cacheWeight, MetricsRegistry.global());
+  }
+
+  /**
+   * Returns the basket of this model.
+   *
+   * @return the basket.
+   */
+  IBasket basket() {
+    return basket;
   }
 
   /**
@@ -38,10 +157,229 @@ public class IStockModelImpl implements IStockModel {
    */
   @Override
   public void addIHistory(TickerSymbol tickerSymbol) {
+    long start = System.nanoTime();
+    try {
+      IHistory history = new IHistoryImpl(tickerSymbol, source);
+      this.histories.updateAndGet(table -> table.with(tickerSymbol, history));
+      cache.invalidate(Collections.singleton(tickerSymbol));
+    } finally {
+      ADD_HISTORY_NANOS.recordSince(start);
+    }
+  }
 
-    IHistory history = new IHistoryImpl(tickerSymbol);
-    this.histories.put(tickerSymbol, history);
+  /**
+   * Add the histories of many stocks to the database, loading them in parallel with a default
+   * number of threads. Returns once every history is loaded or failed.
+   *
+   * @param tickerSymbols given ticker symbols
+   * @return the failure of each ticker symbol that could not be loaded, empty if all loaded
+   */
+  @Override
+  public Map<TickerSymbol, Exception> addHistories(Collection<TickerSymbol> tickerSymbols) {
+    return addHistories(tickerSymbols, DEFAULT_LOAD_THREADS);
+  }
 
+  /**
+   * Add the histories of many stocks to the database, loading at most the given number of them
+   * at the same time. Every history is fetched and parsed on a worker thread, and the loaded
+   * ones are published together once all of them are done, so a reader sees either none or all
+   * of them. Unlike addIHistory, a stock
+   * whose history cannot be loaded is not added and its failure is returned.
+   *
+   * @param tickerSymbols given ticker symbols
+   * @param parallelism   given maximum number of histories loaded at the same time
+   * @return the failure of each ticker symbol that could not be loaded, empty if all loaded
+   * @throws IllegalArgumentException if parallelism is not positive
+   */
+  @Override
+  public Map<TickerSymbol, Exception> addHistories(Collection<TickerSymbol> tickerSymbols,
+                                                   int parallelism)
+          throws IllegalArgumentException {
+    return addHistories(tickerSymbols, parallelism, PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Add the histories of many stocks to the database with the given columns, loading at most the
+   * given number of them at the same time. Only the given columns are kept in memory, so a
+   * history of closing prices costs nothing for the other columns.
+   *
+   * @param tickerSymbols given ticker symbols
+   * @param parallelism   given maximum number of histories loaded at the same time
+   * @param columns       given columns to load, the closing prices always
+   * @return the failure of each ticker symbol that could not be loaded, empty if all loaded
+   * @throws IllegalArgumentException if parallelism is not positive
+   */
+  @Override
+  public Map<TickerSymbol, Exception> addHistories(Collection<TickerSymbol> tickerSymbols,
+                                                   int parallelism, Set<PriceColumn> columns)
+          throws IllegalArgumentException {
+    long start = System.nanoTime();
+    try {
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException("Parallelism must be positive!");
+      }
+      Map<TickerSymbol, Exception> failures = new LinkedHashMap<>();
+      Map<TickerSymbol, IHistory> loaded = new LinkedHashMap<>();
+      loadAll(tickerSymbols, parallelism, false, tickerSymbol -> columns, failures).forEach(
+              (tickerSymbol, series) -> loaded.put(tickerSymbol, new IHistoryImpl(series)));
+      this.histories.updateAndGet(table -> table.withAll(loaded));
+      cache.invalidate(loaded.keySet());
+      return failures;
+    } finally {
+      ADD_HISTORIES_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Appends the closing prices of one new trading day to the histories of the given stocks, and
+   * publishes all of them together. Only the new day is added: the moving averages and range
+   * indexes of each history are updated, not rebuilt.
+   *
+   * @param date   given trading day, after the last day of every given history
+   * @param closes given closing price of each stock on that day
+   * @throws IllegalArgumentException if a stock is not in the database or already has a price
+   *                                  on or after that day; no history is changed then
+   */
+  @Override
+  public void appendCloses(Date date, Map<TickerSymbol, Double> closes)
+          throws IllegalArgumentException {
+    long start = System.nanoTime();
+    try {
+      this.histories.updateAndGet(table -> {
+        Map<TickerSymbol, IHistory> appended = new LinkedHashMap<>();
+        for (Map.Entry<TickerSymbol, Double> close : closes.entrySet()) {
+          IHistory history = table.get(close.getKey());
+          if (history == null) {
+            throw new IllegalArgumentException("Ticker Symbol is not in the database");
+          }
+          appended.put(close.getKey(), history.append(date, close.getValue()));
+        }
+        return table.withAll(appended);
+      });
+      cache.invalidate(closes.keySet());
+    } finally {
+      APPEND_CLOSES_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Extends every history in the database with the recent closing prices of its stock, loading
+   * only the recent part of each history, in parallel with a default number of threads. The
+   * extended histories are published together once all of them are done.
+   *
+   * @return the failure of each ticker symbol that could not be refreshed, empty if all were
+   */
+  @Override
+  public Map<TickerSymbol, Exception> refreshHistories() {
+    long start = System.nanoTime();
+    try {
+      Map<TickerSymbol, Exception> failures = new LinkedHashMap<>();
+      HistoryTable current = this.histories.get();
+      Map<TickerSymbol, PriceSeries> recent = loadAll(current.symbols(), DEFAULT_LOAD_THREADS,
+              true, tickerSymbol -> current.get(tickerSymbol).priceSeries().columns(), failures);
+      this.histories.updateAndGet(table -> {
+        Map<TickerSymbol, IHistory> extended = new LinkedHashMap<>();
+        recent.forEach((tickerSymbol, series) -> {
+          IHistory history = table.get(tickerSymbol);
+          if (history != null) {
+            extended.put(tickerSymbol, history.extend(series));
+          }
+        });
+        return table.withAll(extended);
+      });
+      cache.invalidate(recent.keySet());
+      return failures;
+    } finally {
+      REFRESH_HISTORIES_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Loads the price series of many stocks from the source, at most the given number of them at
+   * the same time.
+   *
+   * @param tickerSymbols given ticker symbols
+   * @param parallelism   given maximum number of series loaded at the same time
+   * @param recent        true to load only the recent part of each series
+   * @param columns       given columns to load of each stock
+   * @param failures      given map the failure of each stock that could not be loaded is put in
+   * @return the series of each stock that loaded
+   */
+  private Map<TickerSymbol, PriceSeries> loadAll(Collection<TickerSymbol> tickerSymbols,
+                                                 int parallelism, boolean recent,
+                                                 Function<TickerSymbol, Set<PriceColumn>> columns,
+                                                 Map<TickerSymbol, Exception> failures) {
+    Map<TickerSymbol, PriceSeries> loaded = new LinkedHashMap<>();
+    Map<TickerSymbol, Future<PriceSeries>> loads = new LinkedHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(parallelism, tickerSymbols.size())));
+    try {
+      for (TickerSymbol tickerSymbol : tickerSymbols) {
+        if (!loads.containsKey(tickerSymbol)) {
+          Set<PriceColumn> wanted = columns.apply(tickerSymbol);
+          loads.put(tickerSymbol, executor.submit(() -> recent
+                  ? source.loadRecent(tickerSymbol, wanted) : source.load(tickerSymbol, wanted)));
+        }
+      }
+      for (Map.Entry<TickerSymbol, Future<PriceSeries>> load : loads.entrySet()) {
+        try {
+          loaded.put(load.getKey(), load.getValue().get());
+        } catch (ExecutionException e) {
+          failures.put(load.getKey(), e.getCause() instanceof Exception
+                  ? (Exception) e.getCause() : e);
+        } catch (InterruptedException e) {
+          //keep the interrupt for the caller and report the stocks that did not load
+          Thread.currentThread().interrupt();
+          failures.put(load.getKey(), e);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return loaded;
+  }
+
+  /**
+   * Find every crossover of the 50-day moving average above the 200-day moving average of every
+   * stock in the database within the given day range, screening the stocks in parallel.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @param filter    given filter of the crossovers, such as ScreenFilter.ANY
+   * @return the accepted crossovers, sorted by day and then by ticker symbol
+   * @throws IllegalArgumentException if end date before start date
+   */
+  @Override
+  public List<CrossoverEvent> screenBuyOpportunities(Date startDate, Date endDate,
+                                                     ScreenFilter filter)
+          throws IllegalArgumentException {
+    long start = System.nanoTime();
+    try {
+      return new Screener(this.histories.get()).screen(startDate, endDate, filter);
+    } finally {
+      SCREEN_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Replay the given strategies over every stock in the database within the given day range,
+   * replaying the stocks and strategies in parallel.
+   *
+   * @param strategies given strategies, such as Strategy.crossover(50, 200)
+   * @param startDate  given start date
+   * @param endDate    given end date
+   * @return the return, drawdown and trades of every strategy on every stock
+   * @throws IllegalArgumentException if end date before start date or there is no strategy
+   */
+  @Override
+  public BacktestReport backtest(List<Strategy> strategies, Date startDate, Date endDate)
+          throws IllegalArgumentException {
+    long start = System.nanoTime();
+    try {
+      return new Backtester(this.histories.get()).run(strategies, startDate, endDate);
+    } finally {
+      BACKTEST_NANOS.recordSince(start);
+    }
   }
 
   /**
@@ -55,8 +393,12 @@ public class IStockModelImpl implements IStockModel {
    */
   @Override
   public double priceOfDay(TickerSymbol tickerSymbol, Date date) {
-    this.throwIllegalTickerSymbol(tickerSymbol);
-    return this.histories.get(tickerSymbol).priceOnDay(date);
+    long start = PRICE_OF_DAY_NANOS.sampleStart();
+    try {
+      return this.historyOf(tickerSymbol).priceOnDay(date);
+    } finally {
+      PRICE_OF_DAY_NANOS.recordSample(start);
+    }
   }
 
   /**
@@ -70,12 +412,40 @@ public class IStockModelImpl implements IStockModel {
    */
   @Override
   public boolean buyOpportunity(TickerSymbol tickerSymbol, Date date) {
-    this.throwIllegalTickerSymbol(tickerSymbol);
-    return this.histories.get(tickerSymbol).buyOpportunity(date);
+    long start = BUY_OPPORTUNITY_NANOS.sampleStart();
+    try {
+      return this.historyOf(tickerSymbol).buyOpportunity(date);
+    } finally {
+      BUY_OPPORTUNITY_NANOS.recordSample(start);
+    }
+  }
+
+  /**
+   * Determine the buying opportunities of the given stock within a range of time. Bit i of the
+   * result is set if there is a buying opportunity on the i-th entry of stockHistory for the same
+   * stock and range.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param startDate    given start date
+   * @param endDate      given end date
+   * @return the buying opportunities, one bit per trading day of the range
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if start date is after the end date
+   */
+  @Override
+  public BitSet buyOpportunities(TickerSymbol tickerSymbol, Date startDate, Date endDate)
+          throws IllegalArgumentException {
+    long start = System.nanoTime();
+    try {
+      return this.historyOf(tickerSymbol).buyOpportunities(startDate, endDate);
+    } finally {
+      BUY_OPPORTUNITIES_NANOS.recordSince(start);
+    }
   }
 
   /**
-   * Return a list of IStock on within given range of time.
+   * Return a list of IStock on within given range of time. The range of trading days is cached,
+   * and every call reads it into a list of its own, whose pairs and dates are made when read.
    *
    * @param tickerSymbol given ticker symbol
    * @param startDate    given start date
@@ -87,8 +457,42 @@ public class IStockModelImpl implements IStockModel {
   @Override
   public List<Pair<Date, Double>> stockHistory(TickerSymbol tickerSymbol, Date startDate,
                                                Date endDate) throws IllegalArgumentException {
-    this.throwIllegalTickerSymbol(tickerSymbol);
-    return this.histories.get(tickerSymbol).historicalPrices(startDate, endDate);
+    long start = System.nanoTime();
+    try {
+      IHistory history = this.historyOf(tickerSymbol);
+      QueryCache.Key key = new QueryCache.Key(QueryCache.STOCK_HISTORY, tickerSymbol,
+              EpochDays.fromDate(startDate), EpochDays.fromDate(endDate));
+      PriceRange range = (PriceRange) cache.get(key, history);
+      if (range == null) {
+        range = history.priceRange(startDate, endDate);
+        cache.put(key, history, range, 1);
+      }
+      return range.asList();
+    } finally {
+      STOCK_HISTORY_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Return a view of the closing prices of a stock within given range of time, read from its
+   * history without copying.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param startDate    given start date
+   * @param endDate      given end date
+   * @return the view of the trading days within the two dates
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if start date is after the end date
+   */
+  @Override
+  public PriceRange stockPriceRange(TickerSymbol tickerSymbol, Date startDate, Date endDate)
+          throws IllegalArgumentException {
+    long start = STOCK_PRICE_RANGE_NANOS.sampleStart();
+    try {
+      return this.historyOf(tickerSymbol).priceRange(startDate, endDate);
+    } finally {
+      STOCK_PRICE_RANGE_NANOS.recordSample(start);
+    }
   }
 
   /**
@@ -100,7 +504,33 @@ public class IStockModelImpl implements IStockModel {
    */
   @Override
   public double totalPrice(Date date) {
-    return basket.basketValue(date, histories);
+    long start = TOTAL_PRICE_NANOS.sampleStart();
+    try {
+      return basket.basketValue(date, histories.get());
+    } finally {
+      TOTAL_PRICE_NANOS.recordSample(start);
+    }
+  }
+
+  /**
+   * Determines the total price of a basket on every trading day within a range of time, in one
+   * pass over the prices of its stocks.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @param gaps      given treatment of days on which some stocks of the basket have no price
+   * @return the total price of the basket on each valued day
+   * @throws IllegalArgumentException if a stock of the basket is not in the database
+   * @throws IllegalArgumentException if start date is after the end date
+   */
+  @Override
+  public BasketValueSeries totalPriceSeries(Date startDate, Date endDate, GapPolicy gaps) {
+    long start = System.nanoTime();
+    try {
+      return basket.basketValueSeries(startDate, endDate, histories.get(), gaps);
+    } finally {
+      TOTAL_PRICE_SERIES_NANOS.recordSince(start);
+    }
   }
 
   /**
@@ -116,8 +546,12 @@ public class IStockModelImpl implements IStockModel {
    */
   @Override
   public boolean stockTrendUp(TickerSymbol tickerSymbol, Date startDate, Date endDate) {
-    this.throwIllegalTickerSymbol(tickerSymbol);
-    return this.histories.get(tickerSymbol).trendUpPerStock(startDate, endDate);
+    long start = STOCK_TREND_UP_NANOS.sampleStart();
+    try {
+      return this.historyOf(tickerSymbol).trendUpPerStock(startDate, endDate);
+    } finally {
+      STOCK_TREND_UP_NANOS.recordSample(start);
+    }
   }
 
   /**
@@ -130,20 +564,74 @@ public class IStockModelImpl implements IStockModel {
    */
   @Override
   public boolean basketTrendUp(Date startDate, Date endDate) {
-    return basket.trendUp(startDate, endDate, this.histories);
+    long start = System.nanoTime();
+    try {
+      return basket.trendUp(startDate, endDate, this.histories.get());
+    } finally {
+      BASKET_TREND_UP_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Returns an immutable snapshot of the histories in the database. Later additions do not
+   * change it, so a reader can make several consistent queries on it.
+   *
+   * @return the current history table
+   */
+  @Override
+  public HistoryTable snapshot() {
+    return this.histories.get();
   }
 
   /**
-   * Effectuate throwing of exception if tickerSymbol is not in the database.
+   * Returns the history of tickerSymbol in the current snapshot, effectuating throwing of
+   * exception if tickerSymbol is not in the database.
    *
    * @param tickerSymbol given ticker symbol
+   * @return the history of the ticker symbol
    * @throws IllegalArgumentException if ticker symbol is not in the database
    */
-  private void throwIllegalTickerSymbol(TickerSymbol tickerSymbol)
-          throws IllegalArgumentException {
-    if (!histories.containsKey(tickerSymbol)) {
+  private IHistory historyOf(TickerSymbol tickerSymbol) throws IllegalArgumentException {
+    IHistory history = this.histories.get().get(tickerSymbol);
+    if (history == null) {
       throw new IllegalArgumentException("this stock is not contained in the database.");
     }
+    return history;
+  }
+
+  /**
+   * Returns the maximum or minimum price of symbol in date range from the query cache, finding
+   * and caching it if it is not there.
+   *
+   * @param query     given query, QueryCache.MAX_PRICE or QueryCache.MIN_PRICE.
+   * @param symbol    given symbol.
+   * @param startDate given start date.
+   * @param endDate   given end date.
+   * @return the price.
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if there is no price within the date range
+   */
+  private double cachedPrice(int query, TickerSymbol symbol, Date startDate, Date endDate)
+          throws IllegalArgumentException {
+    IHistory history = this.historyOf(symbol);
+    QueryCache.Key key = new QueryCache.Key(query, symbol, EpochDays.fromDate(startDate),
+            EpochDays.fromDate(endDate));
+    Double price = (Double) cache.get(key, history);
+    if (price == null) {
+      price = query == QueryCache.MAX_PRICE ? history.maxPrice(startDate, endDate)
+              : history.minPrice(startDate, endDate);
+      cache.put(key, history, price, 1);
+    }
+    return price;
+  }
+
+  /**
+   * Returns the query cache of the model, to read its hit rate.
+   *
+   * @return the query cache.
+   */
+  public QueryCache queryCache() {
+    return cache;
   }
 
   /**
@@ -153,27 +641,17 @@ public class IStockModelImpl implements IStockModel {
    * @param startDate given start date.
    * @param endDate   given end date.
    * @return maximum price.
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if there is no price within the date range
    */
   @Override
   public double maxPrice(TickerSymbol symbol, Date startDate, Date endDate) {
-
-    double maxPrice = 0;
-    Calendar tempStart = Calendar.getInstance();
-    tempStart.setTime(startDate);
-    double temp = 0;
-
-    while (tempStart.getTime().before(endDate) || tempStart.getTime().equals(endDate)) {
-      try {
-        temp = this.priceOfDay(symbol, tempStart.getTime());
-      } catch (Exception e) {
-      // empty because we don't need it to do anything
-      }
-      if (temp > maxPrice) {
-        maxPrice = temp;
-      }
-      tempStart.add(Calendar.DATE, 1);
+    long start = MAX_PRICE_NANOS.sampleStart();
+    try {
+      return cachedPrice(QueryCache.MAX_PRICE, symbol, startDate, endDate);
+    } finally {
+      MAX_PRICE_NANOS.recordSample(start);
     }
-    return maxPrice;
   }
 
 
@@ -184,26 +662,17 @@ public class IStockModelImpl implements IStockModel {
    * @param startDate given start date.
    * @param endDate   given end date.
    * @return minimum price.
+   * @throws IllegalArgumentException if ticker symbol is not in the database
+   * @throws IllegalArgumentException if there is no price within the date range
    */
   @Override
   public double minPrice(TickerSymbol symbol, Date startDate, Date endDate) {
-    double minPrice = this.priceOfDay(symbol, startDate);
-    Calendar tempStart = Calendar.getInstance();
-    tempStart.setTime(startDate);
-    double temp = this.priceOfDay(symbol, startDate);
-
-    while (tempStart.getTime().before(endDate) || tempStart.getTime().equals(endDate)) {
-      try {
-        temp = this.priceOfDay(symbol, tempStart.getTime());
-      } catch (Exception e) {
-      //empty because we don't need it to do anything.
-      }
-      if (temp < minPrice) {
-        minPrice = temp;
-      }
-      tempStart.add(Calendar.DATE, 1);
+    long start = MIN_PRICE_NANOS.sampleStart();
+    try {
+      return cachedPrice(QueryCache.MIN_PRICE, symbol, startDate, endDate);
+    } finally {
+      MIN_PRICE_NANOS.recordSample(start);
     }
-    return minPrice;
   }
 
 
@@ -0,0 +1,338 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+import basket.IBasket;
+import basket.IBasketImpl;
+import history.HistoryCodec;
+import history.HistorySource;
+import history.HistoryTable;
+import history.IHistory;
+import history.TickerSymbol;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+/**
+ * This class represents a file holding the whole state of a model: every history with its
+ * columns, trading calendar and built indexes, and the holdings of the basket, so a model
+ * restored from it answers queries at once instead of loading and indexing every history again.
+ *
+ * <p>A file holds a header (magic number, format version, number of histories and number of
+ * holdings), the offset in the file of each history and of the end of the last one, the
+ * holdings as symbol names and quantities, and then the histories, each one the name of its
+ * symbol followed by the history as HistoryCodec writes it. Symbols are stored by name, as their
+ * ids depend on the order a process first sees them. The histories are read back in parallel on
+ * the common fork-join pool, each thread mapping its own part of the file.
+ */
+public final class ModelSnapshot {
+
+  private static final int MAGIC = 0x53544b53; //"STKS"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 4 * Integer.BYTES;
+  private static final int LEAF_SIZE = 16;
+  private static final LatencyHistogram SAVE_NANOS =
+          MetricsRegistry.global().histogram("snapshot_save_nanos");
+  private static final LatencyHistogram RESTORE_NANOS =
+          MetricsRegistry.global().histogram("snapshot_restore_nanos");
+
+  private final Path file;
+
+  /**
+   * Constructs a ModelSnapshot kept in the given file.
+   *
+   * @param file given snapshot file, written by save.
+   */
+  public ModelSnapshot(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the file of this snapshot.
+   *
+   * @return path of the snapshot file.
+   */
+  public Path file() {
+    return file;
+  }
+
+  /**
+   * Returns true if the snapshot file exists.
+   *
+   * @return true if there is a snapshot to restore.
+   */
+  public boolean exists() {
+    return Files.exists(file);
+  }
+
+  /**
+   * Writes the histories and the basket holdings of a model, replacing the snapshot. The
+   * histories are the ones of a single history table of the model, so they are consistent with
+   * each other. The file is written next to the old one and moved over it, so a restore never
+   * sees a partial file.
+   *
+   * @param model given model.
+   * @throws IOException if the file cannot be written.
+   */
+  public void save(IStockModelImpl model) throws IOException {
+    long start = System.nanoTime();
+    try {
+      HistoryTable table = model.snapshot();
+      List<TickerSymbol> symbols = table.symbols();
+      Map<TickerSymbol, Integer> holdings = model.basket().holdings();
+      int count = symbols.size();
+      ByteBuffer[] buffers = new ByteBuffer[1 + 2 * count];
+      int holdingBytes = 0;
+      for (TickerSymbol tickerSymbol : holdings.keySet()) {
+        holdingBytes += nameBytes(tickerSymbol) + Integer.BYTES;
+      }
+      long offset = HEADER_BYTES + (count + 1L) * Long.BYTES + holdingBytes;
+      ByteBuffer header = ByteBuffer.allocate((int) offset);
+      header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(holdings.size());
+      for (int i = 0; i < count; i++) {
+        ByteBuffer name = ByteBuffer.allocate(nameBytes(symbols.get(i)));
+        putName(name, symbols.get(i));
+        name.flip();
+        ByteBuffer history = HistoryCodec.encode(table.get(symbols.get(i)));
+        buffers[1 + 2 * i] = name;
+        buffers[2 + 2 * i] = history;
+        header.putLong(offset);
+        offset += name.remaining() + history.remaining();
+      }
+      header.putLong(offset);
+      for (Map.Entry<TickerSymbol, Integer> entry : holdings.entrySet()) {
+        putName(header, entry.getKey());
+        header.putInt(entry.getValue());
+      }
+      header.flip();
+      buffers[0] = header;
+      write(buffers, offset);
+    } finally {
+      SAVE_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Writes buffers into a temporary file with gathering writes and moves it over the snapshot.
+   *
+   * @param buffers given buffers, in order.
+   * @param length  given number of bytes in all buffers.
+   * @throws IOException if the file cannot be written.
+   */
+  private void write(ByteBuffer[] buffers, long length) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        long written = 0;
+        while (written < length) {
+          written += channel.write(buffers);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Reads the snapshot into a new model with a new basket, which loads further histories from
+   * the given source.
+   *
+   * @param source given source of the histories added to the restored model.
+   * @return the restored model.
+   * @throws IOException if the file cannot be read or is not a valid snapshot.
+   */
+  public IStockModelImpl restore(HistorySource source) throws IOException {
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < HEADER_BYTES) {
+        throw new IOException("Snapshot is truncated: " + file);
+      }
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+        throw new IOException("Not a model snapshot: " + file);
+      }
+      int count = header.getInt();
+      int holdingCount = header.getInt();
+      long[] offsets = readOffsets(channel, count, length);
+      ByteBuffer holdingBuffer = channel.map(FileChannel.MapMode.READ_ONLY,
+              HEADER_BYTES + (count + 1L) * Long.BYTES,
+              offsets[0] - HEADER_BYTES - (count + 1L) * Long.BYTES);
+      IBasket basket = new IBasketImpl();
+      for (int i = 0; i < holdingCount; i++) {
+        basket.add(getName(holdingBuffer), holdingBuffer.getInt());
+      }
+      if (holdingBuffer.hasRemaining()) {
+        throw new IOException("Snapshot is corrupt: " + file);
+      }
+      TickerSymbol[] symbols = new TickerSymbol[count];
+      IHistory[] histories = new IHistory[count];
+      new RestoreTask(channel, offsets, symbols, histories, 0, count).invoke();
+      Map<TickerSymbol, IHistory> restored = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++) {
+        restored.put(symbols[i], histories[i]);
+      }
+      if (restored.size() != count) {
+        throw new IOException("Snapshot is corrupt: " + file);
+      }
+      return new IStockModelImpl(basket, source, IStockModelImpl.DEFAULT_CACHE_WEIGHT,
+              HistoryTable.EMPTY.withAll(restored));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (IllegalArgumentException | BufferUnderflowException
+            | IndexOutOfBoundsException e) {
+      throw new IOException("Snapshot is corrupt: " + file, e);
+    } finally {
+      RESTORE_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Reads the offsets of the histories and checks that they increase and end at the end of the
+   * file.
+   *
+   * @param channel given channel of the file.
+   * @param count   given number of histories.
+   * @param length  given length of the file.
+   * @return the offsets of the histories and of the end of the last one.
+   * @throws IOException if the offsets cannot be read or are not valid.
+   */
+  private long[] readOffsets(FileChannel channel, int count, long length) throws IOException {
+    long first = HEADER_BYTES + (count + 1L) * Long.BYTES;
+    if (count < 0 || first > length) {
+      throw new IOException("Snapshot is truncated: " + file);
+    }
+    long[] offsets = new long[count + 1];
+    channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, first - HEADER_BYTES)
+            .asLongBuffer().get(offsets);
+    long previous = first;
+    for (long offset : offsets) {
+      if (offset < previous) {
+        throw new IOException("Snapshot is corrupt: " + file);
+      }
+      previous = offset;
+    }
+    if (previous != length) {
+      throw new IOException("Snapshot is truncated: " + file);
+    }
+    return offsets;
+  }
+
+  /**
+   * Returns the number of bytes putName writes for a symbol.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @return number of bytes.
+   */
+  private static int nameBytes(TickerSymbol tickerSymbol) {
+    return Short.BYTES + tickerSymbol.toString().length();
+  }
+
+  /**
+   * Puts the name of a symbol at the position of a buffer, as its length and its characters.
+   *
+   * @param buffer       given buffer.
+   * @param tickerSymbol given ticker symbol.
+   */
+  private static void putName(ByteBuffer buffer, TickerSymbol tickerSymbol) {
+    byte[] name = tickerSymbol.toString().getBytes(StandardCharsets.US_ASCII);
+    buffer.putShort((short) name.length).put(name);
+  }
+
+  /**
+   * Gets a symbol by the name written by putName at the position of a buffer.
+   *
+   * @param buffer given buffer.
+   * @return the ticker symbol.
+   * @throws IllegalArgumentException if the name is not a valid ticker symbol.
+   */
+  private static TickerSymbol getName(ByteBuffer buffer) throws IllegalArgumentException {
+    byte[] name = new byte[buffer.getShort() & 0xffff];
+    buffer.get(name);
+    return TickerSymbol.of(new String(name, StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * This class represents the reading of a slice of the histories of a snapshot, split in two
+   * until the slices are small enough. A slice maps its own part of the file.
+   */
+  private final class RestoreTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final TickerSymbol[] symbols;
+    private final IHistory[] histories;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a RestoreTask over the histories between two positions.
+     *
+     * @param channel   given channel of the file.
+     * @param offsets   given offsets of the histories and of the end of the last one.
+     * @param symbols   given array the symbols are read into.
+     * @param histories given array the histories are read into.
+     * @param from      given first position, inclusive.
+     * @param to        given last position, exclusive.
+     */
+    RestoreTask(FileChannel channel, long[] offsets, TickerSymbol[] symbols,
+                IHistory[] histories, int from, int to) {
+      this.channel = channel;
+      this.offsets = offsets;
+      this.symbols = symbols;
+      this.histories = histories;
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * Reads the slice, or splits it in two and reads both halves.
+     */
+    @Override
+    protected void compute() {
+      if (to - from > LEAF_SIZE) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new RestoreTask(channel, offsets, symbols, histories, from, middle),
+                new RestoreTask(channel, offsets, symbols, histories, middle, to));
+        return;
+      }
+      if (from == to) {
+        return;
+      }
+      MappedByteBuffer buffer;
+      try {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offsets[from],
+                offsets[to] - offsets[from]);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      for (int i = from; i < to; i++) {
+        symbols[i] = getName(buffer);
+        histories[i] = HistoryCodec.decode(buffer);
+        if (buffer.position() != offsets[i + 1] - offsets[from]) {
+          throw new IllegalArgumentException("History of " + symbols[i] + " has "
+                  + (offsets[i + 1] - offsets[from] - buffer.position()) + " bytes left");
+        }
+      }
+    }
+  }
+}
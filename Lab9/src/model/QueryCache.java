@@ -0,0 +1,386 @@
+package model;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import history.IHistory;
+import history.TickerSymbol;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+/**
+ * This class represents a bounded cache of the results of the range queries of a model, keyed by
+ * the query, the ticker symbol and the day range. Each result is weighed, one for a price or for
+ * a range of days, which is a view of its history, and the least recently used results are
+ * evicted once the total weight is over the limit. The cache is split into segments that are
+ * locked separately, so threads asking for different results rarely wait for each other.
+ *
+ * <p>A result remembers the history it was computed from, and is only returned while that
+ * history is still the one of its stock, so a reloaded or appended history never answers from
+ * the results of the one it replaced. Those results are dropped by invalidate, or on their next
+ * lookup, whichever comes first.
+ *
+ * <p>A cache counts its own hits, misses and evictions, and adds them to the counters of its
+ * registry as well, which are shared by every cache of the registry.
+ */
+public final class QueryCache {
+
+  /**
+   * The query of the range of trading days of a stock, read by stockHistory.
+   */
+  static final int STOCK_HISTORY = 0;
+
+  /**
+   * The query of the maximum price of a stock within a range.
+   */
+  static final int MAX_PRICE = 1;
+
+  /**
+   * The query of the minimum price of a stock within a range.
+   */
+  static final int MIN_PRICE = 2;
+
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final long segmentWeight;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final Counter exportedHits;
+  private final Counter exportedMisses;
+  private final Counter exportedEvictions;
+
+  /**
+   * Constructs an empty QueryCache that also adds its hits, misses and evictions to the
+   * query_cache_hits_total, query_cache_misses_total and query_cache_evictions_total counters of
+   * the given registry.
+   *
+   * @param maxWeight given maximum total weight of the results, 0 to cache nothing.
+   * @param registry  given registry of the counters.
+   * @throws IllegalArgumentException if the maximum weight is negative.
+   */
+  public QueryCache(long maxWeight, MetricsRegistry registry) throws IllegalArgumentException {
+    if (maxWeight < 0) {
+      throw new IllegalArgumentException("maximum weight must not be negative");
+    }
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment();
+    }
+    this.segmentWeight = maxWeight / SEGMENTS;
+    this.exportedHits = registry.counter("query_cache_hits_total");
+    this.exportedMisses = registry.counter("query_cache_misses_total");
+    this.exportedEvictions = registry.counter("query_cache_evictions_total");
+  }
+
+  /**
+   * Returns the cached result of a query on a history.
+   *
+   * @param key     given query.
+   * @param history given current history of the stock of the query.
+   * @return the result, or null if there is none computed from that history.
+   */
+  Object get(Key key, IHistory history) {
+    Segment segment = segmentOf(key);
+    Object value = null;
+    synchronized (segment) {
+      Entry entry = segment.get(key);
+      if (entry != null) {
+        if (entry.history == history) {
+          value = entry.value;
+        } else {
+          segment.remove(key);
+        }
+      }
+    }
+    if (value == null) {
+      misses.increment();
+      exportedMisses.increment();
+    } else {
+      hits.increment();
+      exportedHits.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Caches the result of a query on a history, evicting the least recently used results of its
+   * segment if they weigh too much. A result heavier than a segment can hold is not cached.
+   *
+   * @param key     given query.
+   * @param history given history the result was computed from.
+   * @param value   given result, which must not be changed afterwards.
+   * @param weight  given weight of the result, at least one.
+   */
+  void put(Key key, IHistory history, Object value, int weight) {
+    if (weight > segmentWeight) {
+      return;
+    }
+    Segment segment = segmentOf(key);
+    int evicted;
+    synchronized (segment) {
+      evicted = segment.put(key, new Entry(history, value, weight), segmentWeight);
+    }
+    if (evicted > 0) {
+      evictions.add(evicted);
+      exportedEvictions.add(evicted);
+    }
+  }
+
+  /**
+   * Drops the results of the given stocks, in one pass over the cache.
+   *
+   * @param tickerSymbols given ticker symbols.
+   */
+  public void invalidate(Collection<TickerSymbol> tickerSymbols) {
+    if (tickerSymbols.isEmpty()) {
+      return;
+    }
+    BitSet ids = new BitSet();
+    for (TickerSymbol tickerSymbol : tickerSymbols) {
+      ids.set(tickerSymbol.id());
+    }
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.removeSymbols(ids);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of cached results.
+   *
+   * @return number of results.
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the total weight of the cached results.
+   *
+   * @return the weight.
+   */
+  public long weight() {
+    long weight = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        weight += segment.weight;
+      }
+    }
+    return weight;
+  }
+
+  /**
+   * Returns the number of lookups in this cache that found a result.
+   *
+   * @return number of hits.
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups in this cache that found no result.
+   *
+   * @return number of misses.
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of results this cache evicted to stay within the maximum weight.
+   *
+   * @return number of evictions.
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the share of lookups in this cache that found a result.
+   *
+   * @return the hit rate between 0 and 1, or 0 before any lookup.
+   */
+  public double hitRate() {
+    long found = hits.sum();
+    long total = found + misses.sum();
+    return total == 0 ? 0 : (double) found / total;
+  }
+
+  /**
+   * Returns the segment of a query.
+   *
+   * @param key given query.
+   * @return the segment.
+   */
+  private Segment segmentOf(Key key) {
+    int hash = key.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+  }
+
+  /**
+   * This class represents a query: what is asked, of which stock and for which days.
+   */
+  static final class Key {
+
+    private final int query;
+    private final int symbolId;
+    private final int startDay;
+    private final int endDay;
+
+    /**
+     * Constructs a Key.
+     *
+     * @param query        given query, such as MAX_PRICE.
+     * @param tickerSymbol given ticker symbol.
+     * @param startDay     given first epoch day of the range.
+     * @param endDay       given last epoch day of the range.
+     */
+    Key(int query, TickerSymbol tickerSymbol, int startDay, int endDay) {
+      this.query = query;
+      this.symbolId = tickerSymbol.id();
+      this.startDay = startDay;
+      this.endDay = endDay;
+    }
+
+    /**
+     * Returns true if the other object is the same query.
+     *
+     * @param other given object.
+     * @return true if the queries are the same.
+     */
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return query == key.query && symbolId == key.symbolId && startDay == key.startDay
+              && endDay == key.endDay;
+    }
+
+    /**
+     * Returns the hash code of the query.
+     *
+     * @return the hash code.
+     */
+    @Override
+    public int hashCode() {
+      return ((query * 31 + symbolId) * 31 + startDay) * 31 + endDay;
+    }
+  }
+
+  /**
+   * This class represents a cached result and the history it was computed from.
+   */
+  private static final class Entry {
+
+    private final IHistory history;
+    private final Object value;
+    private final int weight;
+
+    /**
+     * Constructs an Entry.
+     *
+     * @param history given history.
+     * @param value   given result.
+     * @param weight  given weight.
+     */
+    Entry(IHistory history, Object value, int weight) {
+      this.history = history;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * This class represents a segment of the cache: its results in least recently used order and
+   * their total weight, guarded by the lock of the segment.
+   */
+  private static final class Segment {
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    /**
+     * Returns the cached result of a query, marking it as the most recently used.
+     *
+     * @param key given query.
+     * @return the result, or null if there is none.
+     */
+    Entry get(Key key) {
+      return entries.get(key);
+    }
+
+    /**
+     * Caches the result of a query, then evicts the least recently used results until the
+     * segment weighs no more than a limit.
+     *
+     * @param key       given query.
+     * @param entry     given result.
+     * @param maxWeight given weight limit of the segment.
+     * @return the number of results evicted.
+     */
+    int put(Key key, Entry entry, long maxWeight) {
+      Entry previous = entries.put(key, entry);
+      weight += entry.weight - (previous == null ? 0 : previous.weight);
+      int evicted = 0;
+      Iterator<Entry> eldest = entries.values().iterator();
+      while (weight > maxWeight) {
+        weight -= eldest.next().weight;
+        eldest.remove();
+        evicted++;
+      }
+      return evicted;
+    }
+
+    /**
+     * Drops the cached result of a query.
+     *
+     * @param key given query.
+     */
+    void remove(Key key) {
+      Entry entry = entries.remove(key);
+      if (entry != null) {
+        weight -= entry.weight;
+      }
+    }
+
+    /**
+     * Drops the cached results of the given stocks.
+     *
+     * @param ids given ids of the ticker symbols of the stocks.
+     */
+    void removeSymbols(BitSet ids) {
+      Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Key, Entry> entry = iterator.next();
+        if (ids.get(entry.getKey().symbolId)) {
+          weight -= entry.getValue().weight;
+          iterator.remove();
+        }
+      }
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return number of results.
+     */
+    int size() {
+      return entries.size();
+    }
+  }
+}
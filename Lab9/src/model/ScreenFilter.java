@@ -0,0 +1,61 @@
+package model;
+
+import history.PriceSeries;
+
+/**
+ * This interface represents a condition a crossover must meet to be returned by a Screener. It
+ * is given the series of the stock and the position of the day of the crossing in it.
+ */
+@FunctionalInterface
+public interface ScreenFilter {
+
+  /**
+   * A filter that accepts every crossover.
+   */
+  ScreenFilter ANY = (series, index) -> true;
+
+  /**
+   * Return true if the crossover on the trading day at the given position is accepted.
+   *
+   * @param series given series of closing prices of the stock.
+   * @param index  given position of the day of the crossing.
+   * @return true if the crossover is accepted, otherwise false.
+   */
+  boolean accept(PriceSeries series, int index);
+
+  /**
+   * Returns a filter that accepts the crossovers accepted by both this filter and the given one.
+   *
+   * @param other given filter.
+   * @return the combined filter.
+   */
+  default ScreenFilter and(ScreenFilter other) {
+    return (series, index) -> accept(series, index) && other.accept(series, index);
+  }
+
+  /**
+   * Returns a filter that accepts crossovers on days that closed at or above a price.
+   *
+   * @param price given lowest accepted closing price.
+   * @return the filter.
+   */
+  static ScreenFilter minPrice(double price) {
+    return (series, index) -> series.closeAt(index) >= price;
+  }
+
+  /**
+   * Returns a filter that accepts crossovers on days that closed above the close of a given
+   * number of trading days before. Crossovers too early in the history to look back are refused.
+   *
+   * @param tradingDays given number of trading days to look back.
+   * @return the filter.
+   * @throws IllegalArgumentException if the number of days is not positive.
+   */
+  static ScreenFilter trendUp(int tradingDays) throws IllegalArgumentException {
+    if (tradingDays <= 0) {
+      throw new IllegalArgumentException("Number of days must be positive!");
+    }
+    return (series, index) -> index >= tradingDays
+            && series.closeAt(index) > series.closeAt(index - tradingDays);
+  }
+}
@@ -0,0 +1,183 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import history.EpochDays;
+import history.HistoryTable;
+import history.IHistory;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+/**
+ * This class represents a screener that finds every crossover of the 50-day moving average above
+ * the 200-day moving average over all stocks of a HistoryTable. A crossover is a trading day on
+ * which the short average is above the long one while it was not on the trading day before.
+ * The stocks are split between the threads of the common fork-join pool.
+ */
+public final class Screener {
+
+  //number of stocks below which a task scans them itself instead of splitting
+  private static final int LEAF_SIZE = 16;
+
+  private final HistoryTable histories;
+
+  /**
+   * Constructs a Screener over the given histories.
+   *
+   * @param histories given histories, such as the snapshot of a model.
+   */
+  public Screener(HistoryTable histories) {
+    this.histories = histories;
+  }
+
+  /**
+   * Returns every crossover within the given day range that is accepted by the filter, sorted by
+   * day and then by ticker symbol.
+   *
+   * @param startDate given start date
+   * @param endDate   given end date
+   * @param filter    given filter of the crossovers
+   * @return the accepted crossovers
+   * @throws IllegalArgumentException if end date before start date.
+   */
+  public List<CrossoverEvent> screen(Date startDate, Date endDate, ScreenFilter filter)
+          throws IllegalArgumentException {
+    if (endDate.before(startDate)) {
+      throw new IllegalArgumentException("End date must be after start date!");
+    }
+    List<TickerSymbol> symbols = histories.symbols();
+    List<CrossoverEvent> events = new ScreenTask(symbols, 0, symbols.size(), startDate, endDate,
+            filter).invoke();
+    events.sort(Comparator.comparingInt(CrossoverEvent::getEpochDay)
+            .thenComparing(CrossoverEvent::getTickerSymbol));
+    return events;
+  }
+
+  /**
+   * Returns every crossover within the given number of trading days before and including the
+   * given date that is accepted by the filter. The days are counted on the calendar of each stock.
+   *
+   * @param date        given last date
+   * @param tradingDays given number of trading days
+   * @param filter      given filter of the crossovers
+   * @return the accepted crossovers, sorted by day and then by ticker symbol
+   * @throws IllegalArgumentException if the number of days is not positive.
+   */
+  public List<CrossoverEvent> screenRecent(Date date, int tradingDays, ScreenFilter filter)
+          throws IllegalArgumentException {
+    if (tradingDays <= 0) {
+      throw new IllegalArgumentException("Number of days must be positive!");
+    }
+    int lastDay = EpochDays.fromDate(date);
+    ScreenFilter recent = (series, index) -> series.upperBound(lastDay) - index <= tradingDays;
+    //a trading day is at least a calendar day, so this range holds the recent trading days
+    return screen(EpochDays.toDate(firstRecentDay(lastDay, tradingDays)), date,
+            recent.and(filter));
+  }
+
+  /**
+   * Returns the earliest of the first days of the recent trading days of every stock.
+   *
+   * @param lastDay     given last epoch day.
+   * @param tradingDays given number of trading days.
+   * @return the earliest epoch day to screen from.
+   */
+  private int firstRecentDay(int lastDay, int tradingDays) {
+    int first = lastDay;
+    for (TickerSymbol tickerSymbol : histories.symbols()) {
+      PriceSeries series = histories.get(tickerSymbol).priceSeries();
+      int index = Math.max(0, series.upperBound(lastDay) - tradingDays);
+      if (index < series.size()) {
+        first = Math.min(first, series.dayAt(index));
+      }
+    }
+    return first;
+  }
+
+  /**
+   * This class represents the screening of a slice of the stocks, split in two until the slices
+   * are small enough.
+   */
+  private final class ScreenTask extends RecursiveTask<List<CrossoverEvent>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<TickerSymbol> symbols;
+    private final int from;
+    private final int to;
+    private final Date startDate;
+    private final Date endDate;
+    private final ScreenFilter filter;
+
+    /**
+     * Constructs a ScreenTask over the stocks between two positions.
+     *
+     * @param symbols   given ticker symbols of all stocks.
+     * @param from      given first position, inclusive.
+     * @param to        given last position, exclusive.
+     * @param startDate given start date.
+     * @param endDate   given end date.
+     * @param filter    given filter of the crossovers.
+     */
+    ScreenTask(List<TickerSymbol> symbols, int from, int to, Date startDate, Date endDate,
+               ScreenFilter filter) {
+      this.symbols = symbols;
+      this.from = from;
+      this.to = to;
+      this.startDate = startDate;
+      this.endDate = endDate;
+      this.filter = filter;
+    }
+
+    /**
+     * Screens the slice, or splits it in two and joins the crossovers of both halves.
+     *
+     * @return the accepted crossovers of the slice.
+     */
+    @Override
+    protected List<CrossoverEvent> compute() {
+      if (to - from <= LEAF_SIZE) {
+        List<CrossoverEvent> events = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+          screenOne(symbols.get(i), events);
+        }
+        return events;
+      }
+      int middle = (from + to) >>> 1;
+      ScreenTask left = new ScreenTask(symbols, from, middle, startDate, endDate, filter);
+      left.fork();
+      List<CrossoverEvent> events = new ScreenTask(symbols, middle, to, startDate, endDate,
+              filter).compute();
+      List<CrossoverEvent> leftEvents = left.join();
+      leftEvents.addAll(events);
+      return leftEvents;
+    }
+
+    /**
+     * Adds the accepted crossovers of one stock.
+     *
+     * @param tickerSymbol given ticker symbol.
+     * @param events       given list the crossovers are added to.
+     */
+    private void screenOne(TickerSymbol tickerSymbol, List<CrossoverEvent> events) {
+      IHistory history = histories.get(tickerSymbol);
+      PriceSeries series = history.priceSeries();
+      int first = series.lowerBound(EpochDays.fromDate(startDate));
+      BitSet above = history.buyOpportunities(startDate, endDate);
+      boolean before = first > 0
+              && history.buyOpportunity(EpochDays.toDate(series.dayAt(first - 1)));
+      for (int i = above.nextSetBit(0); i >= 0; i = above.nextSetBit(i + 1)) {
+        boolean crossed = i == 0 ? !before : !above.get(i - 1);
+        if (crossed && filter.accept(series, first + i)) {
+          events.add(new CrossoverEvent(tickerSymbol, series.dayAt(first + i),
+                  series.closeAt(first + i)));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package model;
+
+import history.PriceSeries;
+
+/**
+ * This interface represents a condition on the trading days of a stock that a Strategy enters or
+ * leaves a position on. A rule is evaluated over a whole range of days at once into a bitset, one
+ * bit per position in the series, so a Backtester tests the bits of a day instead of calling the
+ * rule for it. Rules are given the cumulative sums of the closing prices of the series, computed
+ * once per stock for every rule, so the moving averages of any window cost one subtraction.
+ */
+@FunctionalInterface
+public interface SignalRule {
+
+  /**
+   * Sets the bit of every trading day between two positions of a series on which the rule holds.
+   * The bits of the range are clear when it is called, and the bits outside it are left alone.
+   *
+   * @param series given series of the stock.
+   * @param sums   given cumulative sums of the closing prices: sums[i] is the sum of the first i.
+   * @param from   given first position, inclusive.
+   * @param to     given last position, exclusive.
+   * @param bits   given bits of the days, bit i of word i / 64 for position i.
+   */
+  void evaluate(PriceSeries series, double[] sums, int from, int to, long[] bits);
+
+  /**
+   * Returns a rule that holds on days on which the short moving average of the closing prices is
+   * above the long one, as IHistory.buyOpportunity does for windows of 50 and 200 days. It does
+   * not hold on days before the longer window fits in the history.
+   *
+   * @param shortWindow given number of days of the short moving average.
+   * @param longWindow  given number of days of the long moving average.
+   * @return the rule.
+   * @throws IllegalArgumentException if a window is not positive.
+   */
+  static SignalRule above(int shortWindow, int longWindow) throws IllegalArgumentException {
+    if (shortWindow <= 0 || longWindow <= 0) {
+      throw new IllegalArgumentException("Number of days must be positive!");
+    }
+    return (series, sums, from, to, bits) -> {
+      //the same sums and divisions as MovingAverageIndex, so the signals are the same
+      for (int i = Math.max(from, Math.max(shortWindow, longWindow) - 1); i < to; i++) {
+        double shortAverage = (sums[i + 1] - sums[i + 1 - shortWindow]) / shortWindow;
+        double longAverage = (sums[i + 1] - sums[i + 1 - longWindow]) / longWindow;
+        if (shortAverage > longAverage) {
+          bits[i >>> 6] |= 1L << i;
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns a rule that holds on days on which the short moving average of the closing prices is
+   * below the long one. It does not hold on days before the longer window fits in the history.
+   *
+   * @param shortWindow given number of days of the short moving average.
+   * @param longWindow  given number of days of the long moving average.
+   * @return the rule.
+   * @throws IllegalArgumentException if a window is not positive.
+   */
+  static SignalRule below(int shortWindow, int longWindow) throws IllegalArgumentException {
+    return above(longWindow, shortWindow);
+  }
+
+  /**
+   * Returns a rule that holds on the days on which this one does not.
+   *
+   * @return the negated rule.
+   */
+  default SignalRule not() {
+    return (series, sums, from, to, bits) -> {
+      evaluate(series, sums, from, to, bits);
+      for (int i = from; i < to; i++) {
+        bits[i >>> 6] ^= 1L << i;
+      }
+    };
+  }
+
+  /**
+   * Returns a rule that holds on the days on which both this rule and the given one hold.
+   *
+   * @param other given rule.
+   * @return the combined rule.
+   */
+  default SignalRule and(SignalRule other) {
+    return (series, sums, from, to, bits) -> {
+      long[] both = new long[bits.length];
+      evaluate(series, sums, from, to, bits);
+      other.evaluate(series, sums, from, to, both);
+      int first = from >>> 6;
+      int last = (to - 1) >>> 6;
+      for (int word = first; to > from && word <= last; word++) {
+        long range = (word == first ? -1L << from : -1L)
+                & (word == last ? -1L >>> (63 - ((to - 1) & 63)) : -1L);
+        bits[word] &= both[word] | ~range;
+      }
+    };
+  }
+
+  /**
+   * Returns a rule that holds on the days on which this rule or the given one holds.
+   *
+   * @param other given rule.
+   * @return the combined rule.
+   */
+  default SignalRule or(SignalRule other) {
+    return (series, sums, from, to, bits) -> {
+      evaluate(series, sums, from, to, bits);
+      other.evaluate(series, sums, from, to, bits);
+    };
+  }
+}
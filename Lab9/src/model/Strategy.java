@@ -0,0 +1,164 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a trading strategy that a Backtester replays over the histories of
+ * stocks: it buys a stock at the close of a day on which its entry rule holds, and sells it at
+ * the close of a later day on which its exit rule holds or the close fell below its stop loss.
+ * A strategy that holds a stock while a rule holds has no exit rule of its own: it sells on the
+ * first day its entry rule no longer holds, read from the same bits.
+ */
+public final class Strategy {
+
+  private final String name;
+  private final SignalRule entry;
+  private final SignalRule exit;
+  private final double stopLoss;
+
+  /**
+   * Constructs a Strategy without a stop loss.
+   *
+   * @param name  given name, shown in reports.
+   * @param entry given rule of the days to buy on.
+   * @param exit  given rule of the days to sell on.
+   */
+  public Strategy(String name, SignalRule entry, SignalRule exit) {
+    this(name, entry, exit, 0);
+  }
+
+  /**
+   * Constructs a Strategy that holds a stock on the days a rule holds: it buys on a day the rule
+   * holds and sells on the next day it does not.
+   *
+   * @param name given name, shown in reports.
+   * @param rule given rule of the days to hold the stock on.
+   */
+  public Strategy(String name, SignalRule rule) {
+    this(name, rule, null, 0);
+  }
+
+  /**
+   * Constructs a Strategy.
+   *
+   * @param name     given name, shown in reports.
+   * @param entry    given rule of the days to buy on.
+   * @param exit     given rule of the days to sell on, or null to sell when entry no longer holds.
+   * @param stopLoss given fraction of the buying price a close may fall by before the stock is
+   *                 sold, or 0 for no stop loss.
+   */
+  private Strategy(String name, SignalRule entry, SignalRule exit, double stopLoss) {
+    this.name = name;
+    this.entry = entry;
+    this.exit = exit;
+    this.stopLoss = stopLoss;
+  }
+
+  /**
+   * Returns the strategy of IHistory.buyOpportunity with the given windows: buy when the short
+   * moving average is above the long one, and sell when it no longer is.
+   *
+   * @param shortWindow given number of days of the short moving average.
+   * @param longWindow  given number of days of the long moving average.
+   * @return the strategy.
+   * @throws IllegalArgumentException if a window is not positive.
+   */
+  public static Strategy crossover(int shortWindow, int longWindow)
+          throws IllegalArgumentException {
+    return new Strategy("crossover(" + shortWindow + "," + longWindow + ")",
+            SignalRule.above(shortWindow, longWindow));
+  }
+
+  /**
+   * Returns the crossover strategies of every pair of a short window and a longer long window.
+   *
+   * @param shortWindows given numbers of days of the short moving average.
+   * @param longWindows  given numbers of days of the long moving average.
+   * @return the strategies, by short window and then by long window.
+   * @throws IllegalArgumentException if a window is not positive.
+   */
+  public static List<Strategy> crossovers(int[] shortWindows, int[] longWindows)
+          throws IllegalArgumentException {
+    List<Strategy> strategies = new ArrayList<>();
+    for (int shortWindow : shortWindows) {
+      for (int longWindow : longWindows) {
+        if (shortWindow < longWindow) {
+          strategies.add(crossover(shortWindow, longWindow));
+        }
+      }
+    }
+    return strategies;
+  }
+
+  /**
+   * Returns this strategy with a stop loss: a stock is also sold at the close of a day that
+   * closed the given fraction or more below its buying price.
+   *
+   * @param fraction given fraction of the buying price, between 0 and 1.
+   * @return the strategy with the stop loss.
+   * @throws IllegalArgumentException if the fraction is not between 0 and 1.
+   */
+  public Strategy withStopLoss(double fraction) throws IllegalArgumentException {
+    if (!(fraction > 0 && fraction < 1)) {
+      throw new IllegalArgumentException("Stop loss must be between 0 and 1!");
+    }
+    return new Strategy(name + " stop(" + fraction + ")", entry, exit, fraction);
+  }
+
+  /**
+   * Returns the name of this strategy.
+   *
+   * @return name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the rule of the days to buy on.
+   *
+   * @return entry rule.
+   */
+  public SignalRule getEntry() {
+    return entry;
+  }
+
+  /**
+   * Returns the rule of the days to sell on.
+   *
+   * @return exit rule.
+   */
+  public SignalRule getExit() {
+    return exit == null ? entry.not() : exit;
+  }
+
+  /**
+   * Returns true if this strategy sells on the first day its entry rule no longer holds, so the
+   * bits of its entry rule are also the bits of its exit rule, inverted.
+   *
+   * @return true if the strategy has no exit rule of its own.
+   */
+  boolean exitsWhenEntryEnds() {
+    return exit == null;
+  }
+
+  /**
+   * Returns the fraction of the buying price a close may fall by before the stock is sold.
+   *
+   * @return stop loss, or 0 for none.
+   */
+  public double getStopLoss() {
+    return stopLoss;
+  }
+
+  /**
+   * Returns the name of this strategy.
+   *
+   * @return name.
+   */
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,133 @@
+package stockapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Set;
+
+import history.HistorySource;
+import history.PriceColumn;
+import history.PriceSeries;
+import history.TickerSymbol;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+/**
+ * This class represents a HistorySource that pulls daily prices from the Alpha Vantage API, or
+ * from any server that answers the same queries, such as LocalStandInServer.
+ */
+public class AlphaVantageSource implements HistorySource {
+
+  /**
+   * Address of the Alpha Vantage API.
+   */
+  public static final String DEFAULT_URL = "https://www.alphavantage.co/query";
+
+  private static final String DEFAULT_KEY = "5FXWZ6AFS647GIUC";
+
+  private static final LatencyHistogram FETCH_NANOS =
+          MetricsRegistry.global().histogram("fetch_nanos");
+  private static final Counter FETCH_FAILURES =
+          MetricsRegistry.global().counter("fetch_failures_total");
+
+  private final String baseUrl;
+  private final String apiKey;
+
+  /**
+   * Constructs an AlphaVantageSource for the Alpha Vantage API.
+   */
+  public AlphaVantageSource() {
+    this(DEFAULT_URL, DEFAULT_KEY);
+  }
+
+  /**
+   * Constructs an AlphaVantageSource for the given server.
+   *
+   * @param baseUrl given address of the query endpoint.
+   * @param apiKey  given API key.
+   */
+  public AlphaVantageSource(String baseUrl, String apiKey) {
+    this.baseUrl = baseUrl;
+    this.apiKey = apiKey;
+  }
+
+  /**
+   * Pulls the full history of a stock.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @return the series of closing prices sorted by day
+   * @throws IOException if API fails or sends malformed data
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol) throws IOException {
+    return fetch(tickerSymbol, true, PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Pulls the full history of a stock and keeps the given columns.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param columns      given columns to keep
+   * @return the series of the given columns sorted by day
+   * @throws IOException if API fails or sends malformed data
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol, Set<PriceColumn> columns)
+          throws IOException {
+    return fetch(tickerSymbol, true, columns);
+  }
+
+  /**
+   * Pulls the latest 100 days of the history of a stock.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @return the series of closing prices sorted by day
+   * @throws IOException if API fails or sends malformed data
+   */
+  @Override
+  public PriceSeries loadRecent(TickerSymbol tickerSymbol) throws IOException {
+    return fetch(tickerSymbol, false, PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Pulls the latest 100 days of the history of a stock and keeps the given columns.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param columns      given columns to keep
+   * @return the series of the given columns sorted by day
+   * @throws IOException if API fails or sends malformed data
+   */
+  @Override
+  public PriceSeries loadRecent(TickerSymbol tickerSymbol, Set<PriceColumn> columns)
+          throws IOException {
+    return fetch(tickerSymbol, false, columns);
+  }
+
+  /**
+   * Given a tickerSymbol, this pulls the pricing history of a given stock and parses it straight
+   * into a series of trading days and the given columns.
+   *
+   * @param tickerSymbol given tickerSymbol.
+   * @param full         true for the full history, false for only the latest 100 days.
+   * @param columns      given columns to keep.
+   * @return series of the given columns sorted by day
+   * @throws IOException if API fails or sends malformed data
+   */
+  private PriceSeries fetch(TickerSymbol tickerSymbol, boolean full, Set<PriceColumn> columns)
+          throws IOException {
+    URL url = new URL(baseUrl + "?function=TIME_SERIES_DAILY&symbol="
+            + tickerSymbol + "&outputsize=" + (full ? "full" : "compact")
+            + "&apikey=" + apiKey + "&datatype=csv");
+    //sends the URL and reads the response, as a web browser would
+    long start = System.nanoTime();
+    try (InputStream in = url.openStream()) {
+      return CsvHistoryParser.parse(in, columns);
+    } catch (IOException e) {
+      FETCH_FAILURES.increment();
+      throw e;
+    } finally {
+      FETCH_NANOS.recordSince(start);
+    }
+  }
+}
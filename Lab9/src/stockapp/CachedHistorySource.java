@@ -0,0 +1,159 @@
+package stockapp;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+import history.EpochDays;
+import history.HistorySource;
+import history.PriceColumn;
+import history.PriceSeries;
+import history.TickerSymbol;
+import metrics.Counter;
+import metrics.MetricsRegistry;
+
+/**
+ * This class represents a HistorySource that keeps the histories of another source in a
+ * HistoryCache. A cache file written in the last twelve hours is used as it is. An older one is
+ * extended with only the most recent days of the other source, which replace the cached days
+ * they overlap as prices may have been adjusted since, and a missing one is filled with
+ * the full history. If the other source fails, a cached history is still returned. The other
+ * source is asked for the columns asked for and the columns the cache file already has, or for
+ * the columns asked for only if it does not have the others, and only the columns asked for are
+ * read back.
+ */
+public class CachedHistorySource implements HistorySource {
+
+  private static final long REFRESH_MILLIS = 12L * 60 * 60 * 1000;
+  private static final int RECENT_CALENDAR_DAYS = 120;
+
+  private static final Counter HITS = MetricsRegistry.global().counter("cache_hits_total");
+  private static final Counter EXTENSIONS =
+          MetricsRegistry.global().counter("cache_extensions_total");
+  private static final Counter MISSES = MetricsRegistry.global().counter("cache_misses_total");
+  private static final Counter STALE_FALLBACKS =
+          MetricsRegistry.global().counter("cache_stale_fallbacks_total");
+
+  private final HistoryCache cache;
+  private final HistorySource remote;
+
+  /**
+   * Constructs a CachedHistorySource.
+   *
+   * @param cache  given cache to keep histories in.
+   * @param remote given source to load missing and stale histories from.
+   */
+  public CachedHistorySource(HistoryCache cache, HistorySource remote) {
+    this.cache = cache;
+    this.remote = remote;
+  }
+
+  /**
+   * Loads the closing prices of a stock from the cache, extending or filling it from the other
+   * source.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @return the series of closing prices sorted by day
+   * @throws IOException if nothing is cached and the other source fails
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol) throws IOException {
+    return load(tickerSymbol, PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Loads the given columns of the history of a stock from the cache, extending or filling it
+   * from the other source. A cache file without one of the columns is filled again with the
+   * columns asked for and the columns it had.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param columns      given columns to load
+   * @return the series of the given columns sorted by day
+   * @throws IOException if nothing is cached and the other source fails
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol, Set<PriceColumn> columns)
+          throws IOException {
+    PriceSeries cached;
+    Set<PriceColumn> wanted = EnumSet.noneOf(PriceColumn.class);
+    wanted.addAll(columns);
+    try {
+      cached = cache.read(tickerSymbol, columns);
+      if (cached != null && cached.columns().containsAll(columns)) {
+        if (cache.ageMillis(tickerSymbol) < REFRESH_MILLIS) {
+          HITS.increment();
+          return cached;
+        }
+        //the whole file is extended and written back, with the columns not asked for
+        cached = cache.read(tickerSymbol);
+        wanted.addAll(cached.columns());
+      } else {
+        if (cached != null) {
+          //the file is filled again, keeping the columns it has that were not asked for
+          wanted.addAll(cache.read(tickerSymbol).columns());
+        }
+        cached = null;
+      }
+    } catch (IOException e) {
+      //a corrupt cache file is replaced by a fresh download
+      cached = null;
+    }
+
+    PriceSeries series;
+    try {
+      series = null;
+      if (cached != null && cached.size() > 0 && EpochDays.fromDate(new Date())
+              - cached.dayAt(cached.size() - 1) < RECENT_CALENDAR_DAYS) {
+        PriceSeries recent = fetch(tickerSymbol, wanted, columns, true);
+        if (recent.size() > 0 && recent.dayAt(0) <= cached.dayAt(cached.size() - 1)) {
+          //the overlapping days are downloaded again, and their fresh prices win
+          series = cached.before(recent.dayAt(0)).extend(recent);
+          EXTENSIONS.increment();
+        }
+      }
+      if (series == null) {
+        MISSES.increment();
+        series = fetch(tickerSymbol, wanted, columns, false);
+      }
+    } catch (IOException e) {
+      if (cached != null && cached.columns().containsAll(columns)) {
+        STALE_FALLBACKS.increment();
+        return cached.select(columns);
+      }
+      throw e;
+    }
+
+    try {
+      cache.write(tickerSymbol, series);
+    } catch (IOException e) {
+      //empty because the cache only saves downloads, the history is still valid
+    }
+    return series.select(columns);
+  }
+
+  /**
+   * Loads the history of a stock from the other source with the wanted columns, or with the
+   * columns asked for only if the other source cannot load the others.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param wanted       given columns to load if the other source has them
+   * @param columns      given columns asked for, which the wanted columns include
+   * @param recent       given true to load only the most recent part of the history
+   * @return the series of the wanted columns, or of the columns asked for
+   * @throws IOException if the other source fails to load the columns asked for
+   */
+  private PriceSeries fetch(TickerSymbol tickerSymbol, Set<PriceColumn> wanted,
+                            Set<PriceColumn> columns, boolean recent) throws IOException {
+    try {
+      return recent ? remote.loadRecent(tickerSymbol, wanted) : remote.load(tickerSymbol, wanted);
+    } catch (IOException e) {
+      if (columns.containsAll(wanted)) {
+        throw e;
+      }
+      //a source of closing prices only cannot load the other columns of the cache file
+      return recent ? remote.loadRecent(tickerSymbol, columns)
+              : remote.load(tickerSymbol, columns);
+    }
+  }
+}
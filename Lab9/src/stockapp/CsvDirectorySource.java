@@ -0,0 +1,64 @@
+package stockapp;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import history.HistorySource;
+import history.PriceColumn;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+/**
+ * This class represents a HistorySource that reads Alpha Vantage daily CSV files from a local
+ * directory, one file named after each ticker symbol, such as MSFT.csv.
+ */
+public class CsvDirectorySource implements HistorySource {
+
+  private final Path directory;
+
+  /**
+   * Constructs a CsvDirectorySource over the given directory.
+   *
+   * @param directory given directory of CSV files.
+   */
+  public CsvDirectorySource(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Reads the closing prices in the CSV file of a stock.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @return the series of closing prices sorted by day
+   * @throws IOException if there is no file for the stock or it is malformed
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol) throws IOException {
+    return load(tickerSymbol, PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Reads the given columns of the CSV file of a stock.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param columns      given columns to keep
+   * @return the series of the given columns sorted by day
+   * @throws IOException if there is no file for the stock or it is malformed
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol, Set<PriceColumn> columns)
+          throws IOException {
+    Path file = directory.resolve(tickerSymbol + ".csv");
+    if (!Files.exists(file)) {
+      throw new FileNotFoundException("No history file for " + tickerSymbol + ": " + file);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return CsvHistoryParser.parse(channel, columns);
+    }
+  }
+}
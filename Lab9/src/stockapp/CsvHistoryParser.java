@@ -0,0 +1,432 @@
+package stockapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Set;
+
+import history.PriceColumn;
+import history.PriceSeries;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+/**
+ * This class parses the daily CSV sent by the Alpha Vantage API, with the columns
+ * timestamp,open,high,low,close,volume, into a PriceSeries. It reads the bytes straight from a
+ * channel into a reused buffer and parses the ISO dates and decimal prices by hand, so a row
+ * costs no objects at all. Only the columns asked for are kept, the closing prices always.
+ */
+public final class CsvHistoryParser {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  //includes the time spent waiting for the bytes, when they come from a download
+  private static final LatencyHistogram PARSE_NANOS =
+          MetricsRegistry.global().histogram("parse_nanos");
+  private static final int DATE = 0;
+  private static final int CLOSE = 4;
+  private static final int VOLUME = 5;
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+    1e16, 1e17, 1e18
+  };
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  //the fields after the date are the columns of PriceColumn in order, field 1 being OPEN
+  private final boolean[] wanted = new boolean[VOLUME + 1];
+  private int required;
+  private int[] days = new int[4096];
+  //open, high, low and closing prices by field - 1, null if they are not wanted
+  private final double[][] prices = new double[CLOSE][];
+  private long[] volumes;
+  private int size;
+
+  //state of the row being parsed
+  private int line;
+  private int field;
+  private int datePart;
+  private int year;
+  private int month;
+  private int dayOfMonth;
+  private long mantissa;
+  private int digits;
+  private int scale;
+  private boolean fraction;
+  private boolean negative;
+  //values of the wanted fields by field - 1, and a bit per field that was parsed
+  private final double[] row = new double[VOLUME];
+  private int seen;
+
+  /**
+   * Constructs a CsvHistoryParser that keeps the given columns and the closing prices.
+   *
+   * @param columns given columns to keep.
+   */
+  private CsvHistoryParser(Set<PriceColumn> columns) {
+    for (PriceColumn column : columns) {
+      wanted[column.ordinal() + 1] = true;
+    }
+    wanted[CLOSE] = true;
+    for (int f = DATE + 1; f <= VOLUME; f++) {
+      if (wanted[f]) {
+        required |= 1 << f;
+      }
+    }
+    for (int f = DATE + 1; f <= CLOSE; f++) {
+      prices[f - 1] = wanted[f] ? new double[days.length] : null;
+    }
+    volumes = wanted[VOLUME] ? new long[days.length] : null;
+  }
+
+  /**
+   * Parses the CSV read from the given stream into a series of closing prices sorted by day. The
+   * stream is read to its end but not closed.
+   *
+   * @param in given stream of CSV.
+   * @return the series of closing prices.
+   * @throws IOException if the stream fails or the CSV is malformed.
+   */
+  public static PriceSeries parse(InputStream in) throws IOException {
+    return parse(Channels.newChannel(in), PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Parses the CSV read from the given stream into a series of the given columns sorted by day.
+   * The stream is read to its end but not closed.
+   *
+   * @param in      given stream of CSV.
+   * @param columns given columns to keep.
+   * @return the series of the given columns.
+   * @throws IOException if the stream fails or the CSV is malformed.
+   */
+  public static PriceSeries parse(InputStream in, Set<PriceColumn> columns) throws IOException {
+    return parse(Channels.newChannel(in), columns);
+  }
+
+  /**
+   * Parses the CSV read from the given channel into a series of closing prices sorted by day.
+   * The channel is read to its end but not closed.
+   *
+   * @param channel given channel of CSV.
+   * @return the series of closing prices.
+   * @throws IOException if the channel fails or the CSV is malformed.
+   */
+  public static PriceSeries parse(ReadableByteChannel channel) throws IOException {
+    return parse(channel, PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Parses the CSV read from the given channel into a series of the given columns sorted by day.
+   * The channel is read to its end but not closed.
+   *
+   * @param channel given channel of CSV.
+   * @param columns given columns to keep.
+   * @return the series of the given columns.
+   * @throws IOException if the channel fails or the CSV is malformed.
+   */
+  public static PriceSeries parse(ReadableByteChannel channel, Set<PriceColumn> columns)
+          throws IOException {
+    return new CsvHistoryParser(columns).read(channel);
+  }
+
+  /**
+   * Reads the whole channel and returns the parsed rows.
+   *
+   * @param channel given channel of CSV.
+   * @return the series of closing prices.
+   * @throws IOException if the channel fails or the CSV is malformed.
+   */
+  private PriceSeries read(ReadableByteChannel channel) throws IOException {
+    long start = System.nanoTime();
+    try {
+      return readRows(channel);
+    } finally {
+      PARSE_NANOS.recordSince(start);
+    }
+  }
+
+  /**
+   * Reads the whole channel and returns the parsed rows, without timing it.
+   *
+   * @param channel given channel of CSV.
+   * @return the series of closing prices.
+   * @throws IOException if the channel fails or the CSV is malformed.
+   */
+  private PriceSeries readRows(ReadableByteChannel channel) throws IOException {
+    resetRow();
+    byte[] bytes = buffer.array();
+    boolean header = true;
+    while (channel.read(buffer) >= 0) {
+      int limit = buffer.position();
+      int i = 0;
+      if (header) {
+        while (i < limit && bytes[i] != '\n') {
+          i++;
+        }
+        if (i == limit) {
+          buffer.clear();
+          continue;
+        }
+        header = false;
+        line = 1;
+        i++;
+      }
+      for (; i < limit; i++) {
+        accept(bytes[i]);
+      }
+      buffer.clear();
+    }
+    if (field > 0 || datePart > 0 || year > 0) {
+      endRow();
+    }
+    return toSeries();
+  }
+
+  /**
+   * Feeds one byte of a data row to the parser.
+   *
+   * @param b given byte.
+   * @throws IOException if the byte is not allowed at this place.
+   */
+  private void accept(byte b) throws IOException {
+    if (b == '\n') {
+      endRow();
+    } else if (b == ',') {
+      endField();
+    } else if (b == '\r') {
+      return;
+    } else if (field == DATE) {
+      if (b == '-') {
+        datePart++;
+      } else if (b >= '0' && b <= '9' && datePart < 3) {
+        if (datePart == 0) {
+          year = year * 10 + (b - '0');
+        } else if (datePart == 1) {
+          month = month * 10 + (b - '0');
+        } else {
+          dayOfMonth = dayOfMonth * 10 + (b - '0');
+        }
+      } else {
+        throw malformed();
+      }
+    } else if (b >= '0' && b <= '9') {
+      if (digits < 18) {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (fraction) {
+          scale++;
+        }
+      } else if (!fraction) {
+        throw malformed();
+      }
+    } else if (b == '.' && !fraction) {
+      fraction = true;
+    } else if (b == '-' && digits == 0 && !negative) {
+      negative = true;
+    } else {
+      throw malformed();
+    }
+  }
+
+  /**
+   * Finishes the current field.
+   *
+   * @throws IOException if the date is not a valid yyyy-MM-dd date.
+   */
+  private void endField() throws IOException {
+    if (field == DATE) {
+      if (datePart != 2 || month < 1 || month > 12 || dayOfMonth < 1
+              || dayOfMonth > lengthOfMonth(year, month)) {
+        throw malformed();
+      }
+    } else if (field <= VOLUME && wanted[field]) {
+      if (digits == 0) {
+        throw malformed();
+      }
+      double value = mantissa / POWERS_OF_TEN[scale];
+      row[field - 1] = negative ? -value : value;
+      seen |= 1 << field;
+    }
+    field++;
+    mantissa = 0;
+    digits = 0;
+    scale = 0;
+    fraction = false;
+    negative = false;
+  }
+
+  /**
+   * Finishes the current row and stores its day and wanted prices.
+   *
+   * @throws IOException if the row has too few columns.
+   */
+  private void endRow() throws IOException {
+    if (field == DATE && datePart == 0 && year == 0) {
+      //blank line
+      line++;
+      return;
+    }
+    endField();
+    if ((seen & required) != required) {
+      throw malformed();
+    }
+    if (size == days.length) {
+      days = Arrays.copyOf(days, size * 2);
+      for (int f = 0; f < CLOSE; f++) {
+        prices[f] = prices[f] == null ? null : Arrays.copyOf(prices[f], size * 2);
+      }
+      volumes = volumes == null ? null : Arrays.copyOf(volumes, size * 2);
+    }
+    days[size] = epochDay(year, month, dayOfMonth);
+    for (int f = 0; f < CLOSE; f++) {
+      if (prices[f] != null) {
+        prices[f][size] = row[f];
+      }
+    }
+    if (volumes != null) {
+      volumes[size] = Math.round(row[VOLUME - 1]);
+    }
+    size++;
+    line++;
+    resetRow();
+  }
+
+  /**
+   * Clears the state of the row being parsed.
+   */
+  private void resetRow() {
+    field = DATE;
+    datePart = 0;
+    year = 0;
+    month = 0;
+    dayOfMonth = 0;
+    mantissa = 0;
+    digits = 0;
+    scale = 0;
+    fraction = false;
+    negative = false;
+    seen = 0;
+  }
+
+  /**
+   * Returns the parsed rows as a series in increasing order of days. Alpha Vantage sends the
+   * newest day first, so the rows are usually just reversed; rows in any other order are sorted,
+   * and of the rows of the same day only the last one is kept.
+   *
+   * @return the series of the wanted columns.
+   */
+  private PriceSeries toSeries() {
+    boolean descending = true;
+    boolean ascending = true;
+    for (int i = 1; i < size && (descending || ascending); i++) {
+      descending &= days[i] < days[i - 1];
+      ascending &= days[i] > days[i - 1];
+    }
+    int[] order;
+    if (descending || ascending) {
+      order = new int[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = descending ? size - 1 - i : i;
+      }
+    } else {
+      order = sortedRows();
+    }
+    int[] sortedDays = new int[order.length];
+    long[] sortedVolumes = volumes == null ? null : new long[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedDays[i] = days[order[i]];
+      if (sortedVolumes != null) {
+        sortedVolumes[i] = volumes[order[i]];
+      }
+    }
+    return new PriceSeries(sortedDays, sorted(prices[0], order), sorted(prices[1], order),
+            sorted(prices[2], order), sorted(prices[CLOSE - 1], order), sortedVolumes);
+  }
+
+  /**
+   * Returns the positions of the parsed rows in increasing order of days, keeping only the last
+   * row of each day.
+   *
+   * @return the positions of the rows.
+   */
+  private int[] sortedRows() {
+    long[] packed = new long[size];
+    for (int i = 0; i < size; i++) {
+      //day in the high bits so that sorting packed sorts by day, row in the low bits
+      packed[i] = ((long) days[i] << 32) | i;
+    }
+    Arrays.sort(packed);
+    int[] order = new int[size];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (i + 1 < size && packed[i + 1] >> 32 == packed[i] >> 32) {
+        //a later row of the same day follows
+        continue;
+      }
+      order[count++] = (int) packed[i];
+    }
+    return Arrays.copyOf(order, count);
+  }
+
+  /**
+   * Returns the parsed rows of a column of prices at the given positions.
+   *
+   * @param column given column, or null if it is not wanted.
+   * @param order  given positions of the rows, in increasing order of days.
+   * @return the sorted column, or null.
+   */
+  private static double[] sorted(double[] column, int[] order) {
+    if (column == null) {
+      return null;
+    }
+    double[] result = new double[order.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = column[order[i]];
+    }
+    return result;
+  }
+
+  /**
+   * Returns the exception for a malformed line.
+   *
+   * @return exception naming the line.
+   */
+  private IOException malformed() {
+    return new IOException("Malformed CSV at line " + (line + 1));
+  }
+
+  /**
+   * Returns the number of days in a month of the proleptic Gregorian calendar.
+   *
+   * @param year  given year.
+   * @param month given month, from 1 to 12.
+   * @return the number of days, from 28 to 31.
+   */
+  static int lengthOfMonth(int year, int month) {
+    if (month == 2) {
+      boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+      return leap ? 29 : 28;
+    }
+    return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+  }
+
+  /**
+   * Returns the number of days since 1970-01-01 of the given date of the proleptic Gregorian
+   * calendar.
+   *
+   * @param year       given year.
+   * @param month      given month, from 1 to 12.
+   * @param dayOfMonth given day of month.
+   * @return the epoch day.
+   */
+  static int epochDay(int year, int month, int dayOfMonth) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+}
@@ -0,0 +1,246 @@
+package stockapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import history.PriceColumn;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+/**
+ * This class represents a local on-disk cache of price histories, one binary file per ticker
+ * symbol. A file holds a header (magic number, format version, number of days and a bit per
+ * PriceColumn it has) followed by the column of epoch days, the column of closing prices and the
+ * other columns it has in the order of PriceColumn. It is read back through a memory mapping, so
+ * only the columns asked for are copied into memory. Files of the first version, which only
+ * have the closing prices, are still read.
+ */
+public class HistoryCache {
+
+  private static final int MAGIC = 0x53544b48; //"STKH"
+  private static final int VERSION = 2;
+  private static final int CLOSE_ONLY_VERSION = 1;
+  private static final int CLOSE_ONLY_HEADER_BYTES = 3 * Integer.BYTES;
+  private static final int HEADER_BYTES = 4 * Integer.BYTES;
+  //the optional columns, in the order they follow the closing prices in a file
+  private static final PriceColumn[] OPTIONAL_COLUMNS = {
+    PriceColumn.OPEN, PriceColumn.HIGH, PriceColumn.LOW, PriceColumn.VOLUME
+  };
+
+  private final Path directory;
+
+  /**
+   * Constructs a HistoryCache that keeps its files in the given directory.
+   *
+   * @param directory given cache directory, created when the first file is written.
+   */
+  public HistoryCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the cache in the directory named by the stock.cache.dir system property, or in
+   * .stockcache in the home directory of the user.
+   *
+   * @return the default cache.
+   */
+  public static HistoryCache defaultCache() {
+    String dir = System.getProperty("stock.cache.dir");
+    if (dir == null) {
+      return new HistoryCache(Paths.get(System.getProperty("user.home"), ".stockcache"));
+    }
+    return new HistoryCache(Paths.get(dir));
+  }
+
+  /**
+   * Returns the file of a ticker symbol.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @return path of the cache file.
+   */
+  public Path fileOf(TickerSymbol tickerSymbol) {
+    return directory.resolve(tickerSymbol + ".hist");
+  }
+
+  /**
+   * Reads the cached history of a ticker symbol with every column the file has.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @return the cached series, or null if nothing is cached.
+   * @throws IOException if the file cannot be read or is not a valid cache file.
+   */
+  public PriceSeries read(TickerSymbol tickerSymbol) throws IOException {
+    return read(tickerSymbol, PriceColumn.ALL);
+  }
+
+  /**
+   * Reads the cached history of a ticker symbol with the given columns only. A column the file
+   * does not have is left out, so the caller checks the columns of the series it gets.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @param columns      given columns to read.
+   * @return the cached series, or null if nothing is cached.
+   * @throws IOException if the file cannot be read or is not a valid cache file.
+   */
+  public PriceSeries read(TickerSymbol tickerSymbol, Set<PriceColumn> columns)
+          throws IOException {
+    Path file = fileOf(tickerSymbol);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < CLOSE_ONLY_HEADER_BYTES) {
+        throw new IOException("Cache file is truncated: " + file);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a history cache file: " + file);
+      }
+      int version = buffer.getInt();
+      if (version != VERSION && version != CLOSE_ONLY_VERSION) {
+        throw new IOException("Not a history cache file: " + file);
+      }
+      if (version == VERSION && length < HEADER_BYTES) {
+        throw new IOException("Cache file is truncated: " + file);
+      }
+      int size = buffer.getInt();
+      int mask = version == VERSION ? buffer.getInt() : 1 << PriceColumn.CLOSE.ordinal();
+      int header = version == VERSION ? HEADER_BYTES : CLOSE_ONLY_HEADER_BYTES;
+      if (mask >>> PriceColumn.values().length != 0
+              || (mask & (1 << PriceColumn.CLOSE.ordinal())) == 0) {
+        throw new IOException("Cache file is corrupt: " + file);
+      }
+      int optional = Integer.bitCount(mask & ~(1 << PriceColumn.CLOSE.ordinal()));
+      if (size < 0 || length != header + (long) size * (Integer.BYTES + Double.BYTES
+              + optional * Long.BYTES)) {
+        throw new IOException("Cache file is truncated: " + file);
+      }
+      int[] days = new int[size];
+      double[] closes = new double[size];
+      buffer.asIntBuffer().get(days);
+      int position = header + size * Integer.BYTES;
+      buffer.position(position);
+      buffer.asDoubleBuffer().get(closes);
+      position += size * Double.BYTES;
+      double[][] prices = new double[PriceColumn.values().length][];
+      long[] volumes = null;
+      for (PriceColumn column : OPTIONAL_COLUMNS) {
+        if ((mask & (1 << column.ordinal())) == 0) {
+          continue;
+        }
+        if (columns.contains(column)) {
+          buffer.position(position);
+          if (column == PriceColumn.VOLUME) {
+            volumes = new long[size];
+            buffer.asLongBuffer().get(volumes);
+          } else {
+            prices[column.ordinal()] = new double[size];
+            buffer.asDoubleBuffer().get(prices[column.ordinal()]);
+          }
+        }
+        position += size * Long.BYTES;
+      }
+      return new PriceSeries(days, prices[PriceColumn.OPEN.ordinal()],
+              prices[PriceColumn.HIGH.ordinal()], prices[PriceColumn.LOW.ordinal()], closes,
+              volumes);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Cache file is corrupt: " + file, e);
+    }
+  }
+
+  /**
+   * Writes the history of a ticker symbol with every column of its series, replacing the cached
+   * one. The file is written next to the old one and moved over it, so readers never see a
+   * partial file.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @param series       given series.
+   * @throws IOException if the file cannot be written.
+   */
+  public void write(TickerSymbol tickerSymbol, PriceSeries series) throws IOException {
+    Files.createDirectories(directory);
+    Path file = fileOf(tickerSymbol);
+    int size = series.size();
+    int mask = 1 << PriceColumn.CLOSE.ordinal();
+    int optional = 0;
+    for (PriceColumn column : OPTIONAL_COLUMNS) {
+      if (series.hasColumn(column)) {
+        mask |= 1 << column.ordinal();
+        optional++;
+      }
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES
+            + size * (Integer.BYTES + Double.BYTES + optional * Long.BYTES));
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(mask);
+    for (int i = 0; i < size; i++) {
+      buffer.putInt(series.dayAt(i));
+    }
+    for (int i = 0; i < size; i++) {
+      buffer.putDouble(series.closeAt(i));
+    }
+    for (PriceColumn column : OPTIONAL_COLUMNS) {
+      if (series.hasColumn(column)) {
+        putColumn(buffer, series, column);
+      }
+    }
+    buffer.flip();
+    Path temp = Files.createTempFile(directory, tickerSymbol.toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Puts an optional column of a series into a buffer.
+   *
+   * @param buffer given buffer.
+   * @param series given series.
+   * @param column given column, which the series has.
+   */
+  private static void putColumn(ByteBuffer buffer, PriceSeries series, PriceColumn column) {
+    for (int i = 0; i < series.size(); i++) {
+      switch (column) {
+        case OPEN:
+          buffer.putDouble(series.openAt(i));
+          break;
+        case HIGH:
+          buffer.putDouble(series.highAt(i));
+          break;
+        case LOW:
+          buffer.putDouble(series.lowAt(i));
+          break;
+        default:
+          buffer.putLong(series.volumeAt(i));
+          break;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of milliseconds since the cached history of a ticker symbol was written.
+   *
+   * @param tickerSymbol given ticker symbol.
+   * @return age of the cache file in milliseconds.
+   * @throws IOException if the file cannot be read.
+   */
+  public long ageMillis(TickerSymbol tickerSymbol) throws IOException {
+    return System.currentTimeMillis() - Files.getLastModifiedTime(fileOf(tickerSymbol)).toMillis();
+  }
+}
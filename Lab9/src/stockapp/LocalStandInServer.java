@@ -0,0 +1,154 @@
+package stockapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import history.HistorySource;
+import history.PriceColumn;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+/**
+ * This class represents a local HTTP server that answers TIME_SERIES_DAILY queries the way the
+ * Alpha Vantage API does, with the histories of another HistorySource. Pointing an
+ * AlphaVantageSource at it runs the whole download path without network access or rate limits.
+ */
+public class LocalStandInServer implements AutoCloseable {
+
+  private static final int COMPACT_DAYS = 100;
+
+  private final HistorySource source;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  /**
+   * Starts a LocalStandInServer on a free port of the loopback address.
+   *
+   * @param source  given source of the histories to serve.
+   * @param threads given number of threads answering requests.
+   * @throws IOException if the server cannot be started.
+   */
+  public LocalStandInServer(HistorySource source, int threads) throws IOException {
+    this.source = source;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+            0);
+    this.executor = Executors.newFixedThreadPool(threads);
+    server.createContext("/query", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Returns the address of the query endpoint, to give to an AlphaVantageSource.
+   *
+   * @return the query URL.
+   */
+  public String getUrl() {
+    return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+            + "/query";
+  }
+
+  /**
+   * Returns a source that downloads from this server.
+   *
+   * @return the source.
+   */
+  public AlphaVantageSource newSource() {
+    return new AlphaVantageSource(getUrl(), "stand-in");
+  }
+
+  /**
+   * Stops the server.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Answers one query.
+   *
+   * @param exchange given request and response.
+   * @throws IOException if the response cannot be sent.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    String symbol = parameter(exchange.getRequestURI(), "symbol");
+    boolean compact = "compact".equals(parameter(exchange.getRequestURI(), "outputsize"));
+    byte[] body;
+    try {
+      PriceSeries series = source.load(TickerSymbol.of(symbol), PriceColumn.ALL);
+      body = toCsv(series, compact ? Math.max(0, series.size() - COMPACT_DAYS) : 0);
+    } catch (IOException | RuntimeException e) {
+      //Alpha Vantage answers unknown symbols with an error message and status 200
+      body = ("{\n    \"Error Message\": \"Invalid API call. " + e.getMessage() + "\"\n}")
+              .getBytes(StandardCharsets.UTF_8);
+    }
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /**
+   * Returns the value of a query parameter.
+   *
+   * @param uri  given request URI.
+   * @param name given parameter name.
+   * @return the value, or null if it is missing.
+   */
+  private static String parameter(URI uri, String name) {
+    String query = uri.getRawQuery();
+    if (query == null) {
+      return null;
+    }
+    for (String pair : query.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0 && pair.substring(0, equals).equals(name)) {
+        return pair.substring(equals + 1);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Writes a series as Alpha Vantage daily CSV, newest day first.
+   *
+   * @param series given series with every column.
+   * @param from   given position of the first day to write.
+   * @return the CSV bytes.
+   */
+  private static byte[] toCsv(PriceSeries series, int from) {
+    StringBuilder csv = new StringBuilder("timestamp,open,high,low,close,volume\r\n");
+    for (int i = series.size() - 1; i >= from; i--) {
+      csv.append(LocalDate.ofEpochDay(series.dayAt(i))).append(',')
+              .append(decimal(series.openAt(i))).append(',')
+              .append(decimal(series.highAt(i))).append(',')
+              .append(decimal(series.lowAt(i))).append(',')
+              .append(decimal(series.closeAt(i))).append(',')
+              .append(series.volumeAt(i)).append("\r\n");
+    }
+    return csv.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Returns a price as a plain decimal number.
+   *
+   * @param price given price.
+   * @return the decimal number.
+   */
+  private static String decimal(double price) {
+    return BigDecimal.valueOf(price).toPlainString();
+  }
+}
@@ -0,0 +1,98 @@
+package stockapp;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import history.HistorySource;
+import history.PriceColumn;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+/**
+ * This class represents a HistorySource that makes up histories as a random walk of closing
+ * prices over the weekdays before a given last day. The walk of a ticker symbol only depends on
+ * its name, so the same symbol always gets the same history. The open, high and low prices and
+ * the volume of each day are made up from another random sequence, so the closing prices are the
+ * same whichever columns are loaded. It lets load and latency tests run at any scale without
+ * files or network access.
+ */
+public class SyntheticHistorySource implements HistorySource {
+
+  private final int lastDay;
+  private final int years;
+
+  /**
+   * Constructs a SyntheticHistorySource.
+   *
+   * @param lastDay given last trading day of every history, as an epoch day.
+   * @param years   given number of years of every history.
+   */
+  public SyntheticHistorySource(int lastDay, int years) {
+    this.lastDay = lastDay;
+    this.years = years;
+  }
+
+  /**
+   * Makes up the closing prices of a stock.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @return the series of closing prices sorted by day
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol) {
+    return load(tickerSymbol, PriceColumn.CLOSE_ONLY);
+  }
+
+  /**
+   * Makes up the given columns of the history of a stock.
+   *
+   * @param tickerSymbol given ticker symbol
+   * @param columns      given columns to make up
+   * @return the series of the given columns sorted by day
+   */
+  @Override
+  public PriceSeries load(TickerSymbol tickerSymbol, Set<PriceColumn> columns) {
+    int firstDay = lastDay - years * 365;
+    int[] days = new int[lastDay - firstDay + 1];
+    double[] closes = new double[days.length];
+    double[] opens = columns.contains(PriceColumn.OPEN) ? new double[days.length] : null;
+    double[] highs = columns.contains(PriceColumn.HIGH) ? new double[days.length] : null;
+    double[] lows = columns.contains(PriceColumn.LOW) ? new double[days.length] : null;
+    long[] volumes = columns.contains(PriceColumn.VOLUME) ? new long[days.length] : null;
+    Random random = new Random(tickerSymbol.toString().hashCode());
+    Random intraday = new Random(~tickerSymbol.toString().hashCode());
+    double close = 20 + random.nextInt(200);
+    int size = 0;
+    for (int day = firstDay; day <= lastDay; day++) {
+      //1970-01-01 was a Thursday, so day + 3 modulo 7 is 5 on Saturday and 6 on Sunday
+      if (Math.floorMod(day + 3, 7) >= 5) {
+        continue;
+      }
+      double open = close * (1 + intraday.nextGaussian() * 0.005);
+      close = Math.max(1, close * (1 + random.nextGaussian() * 0.015));
+      double high = Math.max(open, close) * (1 + Math.abs(intraday.nextGaussian()) * 0.005);
+      double low = Math.min(open, close) * (1 - Math.abs(intraday.nextGaussian()) * 0.005);
+      long volume = 100_000 + intraday.nextInt(900_000);
+      days[size] = day;
+      closes[size] = Math.round(close * 10000) / 10000.0;
+      if (opens != null) {
+        opens[size] = Math.round(open * 10000) / 10000.0;
+      }
+      if (highs != null) {
+        highs[size] = Math.round(high * 10000) / 10000.0;
+      }
+      if (lows != null) {
+        lows[size] = Math.round(low * 10000) / 10000.0;
+      }
+      if (volumes != null) {
+        volumes[size] = volume;
+      }
+      size++;
+    }
+    return new PriceSeries(Arrays.copyOf(days, size), opens == null ? null
+            : Arrays.copyOf(opens, size), highs == null ? null : Arrays.copyOf(highs, size),
+            lows == null ? null : Arrays.copyOf(lows, size), Arrays.copyOf(closes, size),
+            volumes == null ? null : Arrays.copyOf(volumes, size));
+  }
+}
@@ -0,0 +1,117 @@
+package view;
+
+/**
+ * This class reduces a line chart to the resolution it is drawn at. The points, sorted by x, are
+ * grouped by the pixel column they fall in, and each column keeps its first, lowest, highest and
+ * last point in their original order. The line drawn through the kept points covers the same
+ * pixels as the line through all of them, so peaks and drops survive however many points share
+ * a column.
+ */
+public final class ChartDownsampler {
+
+  /**
+   * Empty constructor, the class only has static methods.
+   */
+  private ChartDownsampler() {
+    //empty because the class is never instantiated.
+  }
+
+  /**
+   * Returns the largest number of points downsample can keep.
+   *
+   * @param size    given number of points.
+   * @param columns given number of pixel columns.
+   * @return the size the output arrays need.
+   */
+  public static int capacity(int size, int columns) {
+    return (int) Math.min(size, 4L * columns);
+  }
+
+  /**
+   * Keeps the first, lowest, highest and last point of every pixel column.
+   *
+   * @param xs      given x of each point, sorted.
+   * @param ys      given y of each point.
+   * @param size    given number of points.
+   * @param xFrom   given x at the left edge of the first column.
+   * @param xTo     given x at the right edge of the last column.
+   * @param columns given number of pixel columns.
+   * @param outXs   given array the x of the kept points are written to, of at least capacity.
+   * @param outYs   given array the y of the kept points are written to, of at least capacity.
+   * @return the number of kept points.
+   * @throws IllegalArgumentException if there are no columns or the x range is empty.
+   */
+  public static int downsample(double[] xs, double[] ys, int size, double xFrom, double xTo,
+                               int columns, double[] outXs, double[] outYs)
+          throws IllegalArgumentException {
+    if (columns <= 0 || !(xTo > xFrom)) {
+      throw new IllegalArgumentException("Columns and x range must not be empty!");
+    }
+    double scale = columns / (xTo - xFrom);
+    int count = 0;
+    int start = 0;
+    while (start < size) {
+      int column = columnOf(xs[start], xFrom, scale, columns);
+      int end = start + 1;
+      int lowest = start;
+      int highest = start;
+      while (end < size && columnOf(xs[end], xFrom, scale, columns) == column) {
+        if (ys[end] < ys[lowest]) {
+          lowest = end;
+        }
+        if (ys[end] > ys[highest]) {
+          highest = end;
+        }
+        end++;
+      }
+      int last = end - 1;
+      //the kept points of the column, in the order they come in the series
+      int first = Math.min(lowest, highest);
+      int second = Math.max(lowest, highest);
+      count = keep(xs, ys, start, outXs, outYs, count);
+      if (first != start) {
+        count = keep(xs, ys, first, outXs, outYs, count);
+      }
+      if (second != first && second != last) {
+        count = keep(xs, ys, second, outXs, outYs, count);
+      }
+      if (last != start && last != first) {
+        count = keep(xs, ys, last, outXs, outYs, count);
+      }
+      start = end;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the pixel column of an x.
+   *
+   * @param x       given x.
+   * @param xFrom   given x at the left edge of the first column.
+   * @param scale   given number of columns per unit of x.
+   * @param columns given number of columns.
+   * @return the column, clamped to the chart.
+   */
+  private static int columnOf(double x, double xFrom, double scale, int columns) {
+    int column = (int) ((x - xFrom) * scale);
+    return Math.max(0, Math.min(columns - 1, column));
+  }
+
+  /**
+   * Copies one point to the output.
+   *
+   * @param xs    given x of each point.
+   * @param ys    given y of each point.
+   * @param index given position of the point.
+   * @param outXs given output x.
+   * @param outYs given output y.
+   * @param count given number of points already kept.
+   * @return the number of points kept with this one.
+   */
+  private static int keep(double[] xs, double[] ys, int index, double[] outXs, double[] outYs,
+                          int count) {
+    outXs[count] = xs[index];
+    outYs[count] = ys[index];
+    return count + 1;
+  }
+}
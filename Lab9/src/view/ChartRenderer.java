@@ -0,0 +1,142 @@
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
+import java.util.Date;
+import java.util.List;
+
+import javafx.util.Pair;
+
+/**
+ * This class represents a stock chart ready to be painted: the scaled prices are downsampled to
+ * one pixel column per unit of the 500 wide plot once, and painting the chart draws the segments
+ * between the kept prices with one reused line, allocating nothing per price.
+ */
+public final class ChartRenderer {
+
+  private static final int PLOT_LEFT = 50;
+  private static final int PLOT_WIDTH = 500;
+  private static final int HEIGHT = 500;
+  private static final Stroke DASHED = new BasicStroke(3, BasicStroke.CAP_BUTT,
+          BasicStroke.JOIN_BEVEL, 0, new float[]{9}, 0);
+
+  private final double[] lineXs;
+  private final double[] lineYs;
+  private final int linePoints;
+  private final Line2D.Double segment = new Line2D.Double();
+  private final int[] dotXs;
+  private final int[] dotYs;
+  private final int dots;
+  private final Date minDate;
+  private final Date maxDate;
+  private final double minStock;
+  private final double maxStock;
+  private final double xStart;
+  private final double yStart;
+  private final double xEnd;
+  private final double yEnd;
+
+  /**
+   * Constructs a ChartRenderer from the scaled chart the controller passes to a view.
+   *
+   * @param data           given scaled dates and prices, sorted by date.
+   * @param buyOpportunity given scaled dates and prices of the buying opportunities.
+   * @param minDate        given start date.
+   * @param maxDate        given end date.
+   * @param minStock       given minimum price.
+   * @param maxStock       given maximum price.
+   */
+  public ChartRenderer(List<Pair<Double, Double>> data, List<Pair<Double, Double>> buyOpportunity,
+                       Date minDate, Date maxDate, double minStock, double maxStock) {
+    this.minDate = minDate;
+    this.maxDate = maxDate;
+    this.minStock = minStock;
+    this.maxStock = maxStock;
+
+    int size = data.size();
+    double[] xs = new double[size];
+    double[] ys = new double[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = data.get(i).getKey();
+      ys[i] = data.get(i).getValue();
+    }
+    double[] keptXs = new double[ChartDownsampler.capacity(size, PLOT_WIDTH)];
+    double[] keptYs = new double[keptXs.length];
+    int kept = size < 2 ? size
+            : ChartDownsampler.downsample(xs, ys, size, 0, PLOT_WIDTH, PLOT_WIDTH, keptXs, keptYs);
+    for (int i = 0; i < kept; i++) {
+      //shift right by 50 to make room for axis
+      keptXs[i] += PLOT_LEFT;
+      keptYs[i] = HEIGHT - keptYs[i];
+    }
+    this.lineXs = keptXs;
+    this.lineYs = keptYs;
+    this.linePoints = kept;
+
+    //the trend line joins the first and last price, drawn only when there is a segment
+    this.xStart = size < 2 ? 0 : xs[0] + PLOT_LEFT;
+    this.yStart = size < 2 ? 0 : HEIGHT - ys[0];
+    this.xEnd = size < 2 ? 0 : xs[size - 1] + PLOT_LEFT;
+    this.yEnd = size < 2 ? 0 : HEIGHT - ys[size - 1];
+
+    //dots falling on the same pixel as the one before are drawn once
+    int[] xDots = new int[buyOpportunity.size()];
+    int[] yDots = new int[buyOpportunity.size()];
+    int count = 0;
+    for (Pair<Double, Double> dot : buyOpportunity) {
+      int x = (int) (double) dot.getKey() + PLOT_LEFT;
+      int y = (int) (HEIGHT - dot.getValue());
+      if (count == 0 || x != xDots[count - 1] || y != yDots[count - 1]) {
+        xDots[count] = x;
+        yDots[count] = y;
+        count++;
+      }
+    }
+    this.dotXs = xDots;
+    this.dotYs = yDots;
+    this.dots = count;
+  }
+
+  /**
+   * Returns the number of points of the price line after downsampling.
+   *
+   * @return number of points drawn.
+   */
+  public int linePoints() {
+    return linePoints;
+  }
+
+  /**
+   * Paints the chart: the buying opportunities, the price line, the axes with their labels and
+   * the dashed trend line. The color and font of the graphics are used as they are. The segment
+   * reused for the price line makes painting from two threads at once take turns.
+   *
+   * @param g2 given graphics.
+   */
+  public synchronized void paint(Graphics2D g2) {
+    for (int i = 0; i < dots; i++) {
+      g2.fillOval(dotXs[i], dotYs[i], 5, 5);
+    }
+    for (int i = 0; i < linePoints - 1; i++) {
+      segment.setLine(lineXs[i], lineYs[i], lineXs[i + 1], lineYs[i + 1]);
+      g2.draw(segment);
+    }
+
+    g2.drawLine(PLOT_LEFT, 0, PLOT_LEFT, HEIGHT);
+    g2.drawLine(PLOT_LEFT, HEIGHT, PLOT_LEFT + PLOT_WIDTH, HEIGHT);
+
+    g2.drawString(minDate.toString(), 10, 520);
+    g2.drawString(maxDate.toString(), 490, 520);
+    g2.drawString("$" + (int) minStock, 5, 500);
+    g2.drawString("$" + (int) maxStock, 5, 10);
+    g2.fillOval(340, 12, 7, 7);
+    g2.drawString(" indicates Buying Opportunity", 350, 20);
+
+    Stroke stroke = g2.getStroke();
+    g2.setStroke(DASHED);
+    g2.drawLine((int) xStart, (int) yStart, (int) xEnd, (int) yEnd);
+    g2.setStroke(stroke);
+  }
+}
@@ -0,0 +1,179 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import history.TickerSymbol;
+import javafx.util.Pair;
+
+/**
+ * Represents a view that renders the same chart as View into an image and writes it to a PNG
+ * file instead of opening a window, so that charts can be made without a display.
+ */
+public class PngView implements IView {
+
+  public static final int WIDTH = 550;
+  public static final int HEIGHT = 550;
+
+  private final TickerSymbol tickerSymbol;
+  private final Date startDate;
+  private final Date endDate;
+  private final File file;
+  private final BufferedImage image;
+  private double minPrice;
+  private double maxPrice;
+  private List<Pair<Double, Double>> data;
+  private List<Pair<Double, Double>> buyOpportunity;
+
+  /**
+   * Constructs a PngView.
+   *
+   * @param symbol    given symbol.
+   * @param startDate given start date.
+   * @param endDate   given end date.
+   * @param file      given PNG file to write.
+   * @throws IllegalArgumentException if end date is before start date.
+   */
+  public PngView(TickerSymbol symbol, Date startDate, Date endDate, File file)
+          throws IllegalArgumentException {
+    this(symbol, startDate, endDate, file, newImage());
+  }
+
+  /**
+   * Constructs a PngView that renders into a given image, which is painted over entirely, so
+   * that one image can be used for many charts one after the other.
+   *
+   * @param symbol    given symbol.
+   * @param startDate given start date.
+   * @param endDate   given end date.
+   * @param file      given PNG file to write.
+   * @param image     given image of WIDTH by HEIGHT pixels.
+   * @throws IllegalArgumentException if end date is before start date.
+   */
+  public PngView(TickerSymbol symbol, Date startDate, Date endDate, File file,
+                 BufferedImage image)
+          throws IllegalArgumentException {
+    if (endDate.before(startDate)) {
+      throw new IllegalArgumentException("Start date after end date");
+    }
+    this.tickerSymbol = symbol;
+    this.startDate = startDate;
+    this.endDate = endDate;
+    this.file = file;
+    this.image = image;
+  }
+
+  /**
+   * Returns a new image to render charts into.
+   *
+   * @return the image.
+   */
+  public static BufferedImage newImage() {
+    return new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+  }
+
+  /**
+   * Set buying opportunity.
+   *
+   * @param data given data.
+   */
+  @Override
+  public void setBuyOpportunity(List<Pair<Double, Double>> data) {
+    this.buyOpportunity = data;
+  }
+
+  /**
+   * Set data in view.
+   *
+   * @param data given data.
+   */
+  @Override
+  public void setData(List<Pair<Double, Double>> data) {
+    this.data = data;
+  }
+
+  /**
+   * Get ticket symbol.
+   *
+   * @return ticker symbol.
+   */
+  @Override
+  public TickerSymbol getSymbol() {
+    return this.tickerSymbol;
+  }
+
+  /**
+   * Get start date in given range.
+   *
+   * @return start date.
+   */
+  @Override
+  public Date getStartDate() {
+    return this.startDate;
+  }
+
+  /**
+   * Get end date in given range.
+   *
+   * @return end date.
+   */
+  @Override
+  public Date getEndDate() {
+    return this.endDate;
+  }
+
+  /**
+   * Set the minimum price.
+   *
+   * @param minPrice given minimum price.
+   */
+  @Override
+  public void setMinPrice(double minPrice) {
+    this.minPrice = minPrice;
+  }
+
+  /**
+   * Set maximum price.
+   *
+   * @param maxPrice given maximum price.
+   */
+  @Override
+  public void setMaxPrice(double maxPrice) {
+    this.maxPrice = maxPrice;
+  }
+
+  /**
+   * Render the image, black on white, and write it to the PNG file.
+   *
+   * @throws UncheckedIOException if the file cannot be written.
+   */
+  @Override
+  public void render() {
+    ChartRenderer chart = new ChartRenderer(data, buyOpportunity, startDate, endDate,
+            minPrice, maxPrice);
+    Graphics2D g2 = image.createGraphics();
+    try {
+      g2.setColor(Color.WHITE);
+      g2.fillRect(0, 0, image.getWidth(), image.getHeight());
+      g2.setColor(Color.BLACK);
+      chart.paint(g2);
+    } finally {
+      g2.dispose();
+    }
+    try {
+      if (!ImageIO.write(image, "png", file)) {
+        throw new IOException("no PNG writer");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("can not write " + file, e);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import history.EpochDays;
+import history.HistoryTable;
+import history.IHistory;
+import history.IHistoryImpl;
+import history.PriceSeries;
+import history.TickerSymbol;
+import model.BacktestReport;
+import model.Backtester;
+import model.SignalRule;
+import model.Strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for Backtester, on random walks that are also replayed day
+ * by day with moving averages computed by brute force.
+ */
+public class BacktesterTest {
+
+  private static final int DAYS = 1500;
+
+  private HistoryTable histories;
+
+  /**
+   * This interface represents a condition on a day of a series, computed by brute force.
+   */
+  private interface DayRule {
+
+    /**
+     * Returns true if the condition holds on the trading day at the given position.
+     *
+     * @param series given series.
+     * @param index  given position of the day.
+     * @return true if the condition holds.
+     */
+    boolean holds(PriceSeries series, int index);
+  }
+
+  /**
+   * Set up Before scenario. Thirty stocks, each a random walk over days 0 to 1499.
+   */
+  @Before
+  public void setUp() {
+    histories = HistoryTable.EMPTY;
+    Random random = new Random(5);
+    for (int s = 0; s < 30; s++) {
+      histories = histories.with(TickerSymbol.of("BKT" + s),
+              new IHistoryImpl(TestHistories.randomWalk(random, DAYS, 50)));
+    }
+  }
+
+  /**
+   * Returns true if the short moving average is above the long one on a day, by brute force.
+   *
+   * @param series      given series.
+   * @param index       given position of the day.
+   * @param shortWindow given days of the short average.
+   * @param longWindow  given days of the long average.
+   * @return true if the short average is above the long one.
+   */
+  private static boolean above(PriceSeries series, int index, int shortWindow, int longWindow) {
+    if (index < Math.max(shortWindow, longWindow) - 1) {
+      return false;
+    }
+    return average(series, index, shortWindow) > average(series, index, longWindow);
+  }
+
+  /**
+   * Returns the average close over a window ending on a day, by brute force.
+   *
+   * @param series given series.
+   * @param index  given position of the last day.
+   * @param window given number of days.
+   * @return the average close.
+   */
+  private static double average(PriceSeries series, int index, int window) {
+    double sum = 0;
+    for (int i = index - window + 1; i <= index; i++) {
+      sum += series.closeAt(i);
+    }
+    return sum / window;
+  }
+
+  /**
+   * Replays a strategy over a range of days, one day at a time, and asserts that the report has
+   * the same results for it on a stock.
+   *
+   * @param report   given report.
+   * @param strategy given position of the strategy in the report.
+   * @param stock    given position of the stock in the report.
+   * @param entry    given condition of the days to buy on.
+   * @param exit     given condition of the days to sell on.
+   * @param stopLoss given stop loss, or 0 for none.
+   * @param from     given first position, inclusive.
+   * @param to       given last position, exclusive.
+   */
+  private void assertReplay(BacktestReport report, int strategy, int stock, DayRule entry,
+                            DayRule exit, double stopLoss, int from, int to) {
+    PriceSeries series = histories.get(report.symbols().get(stock)).priceSeries();
+    double equity = 1;
+    double peak = 1;
+    double drawdown = 0;
+    boolean holding = false;
+    double buy = 0;
+    double entryEquity = 0;
+    int trades = 0;
+    int wins = 0;
+    int held = 0;
+    for (int i = from; i < to; i++) {
+      double close = series.closeAt(i);
+      if (!holding) {
+        if (i < to - 1 && entry.holds(series, i)) {
+          holding = true;
+          buy = close;
+          entryEquity = equity;
+          held++;
+        }
+        continue;
+      }
+      held++;
+      double value = entryEquity * close / buy;
+      peak = Math.max(peak, value);
+      drawdown = Math.max(drawdown, 1 - value / peak);
+      if (i == to - 1 || exit.holds(series, i)
+              || stopLoss > 0 && close <= buy * (1 - stopLoss)) {
+        equity = value;
+        trades++;
+        wins += close > buy ? 1 : 0;
+        holding = false;
+      }
+    }
+    String cell = report.strategies().get(strategy) + " on " + report.symbols().get(stock);
+    assertEquals(cell, equity - 1, report.totalReturn(strategy, stock), 1e-12);
+    assertEquals(cell, drawdown, report.maxDrawdown(strategy, stock), 1e-12);
+    assertEquals(cell, trades, report.trades(strategy, stock));
+    assertEquals(cell, wins, report.winningTrades(strategy, stock));
+    assertEquals(cell, (double) held / (to - from), report.exposure(strategy, stock), 1e-12);
+  }
+
+  /**
+   * Test that the crossover strategy of 50 and 200 days holds a stock exactly on the days of
+   * its buying opportunities, except for an opportunity on the last day of the range.
+   */
+  @Test
+  public void testCrossoverFollowsBuyOpportunities() {
+    for (int[] range : new int[][]{{0, DAYS - 1}, {700, 900}, {1200, 1200}}) {
+      BacktestReport report = new Backtester(histories).run(
+              Collections.singletonList(Strategy.crossover(50, 200)),
+              EpochDays.toDate(range[0]), EpochDays.toDate(range[1]));
+      for (int stock = 0; stock < report.symbols().size(); stock++) {
+        IHistory history = histories.get(report.symbols().get(stock));
+        DayRule opportunity = (series, index) ->
+                history.buyOpportunity(EpochDays.toDate(series.dayAt(index)));
+        assertReplay(report, 0, stock, opportunity, (series, index) ->
+                !opportunity.holds(series, index), 0, range[0], range[1] + 1);
+      }
+      //a range of one day leaves no day to hold a position bought on it
+      assertEquals(range[0] < range[1], report.totalTrades(0) > 0);
+    }
+  }
+
+  /**
+   * Test a sweep of window pairs, with and without a stop loss, against replays one day at a
+   * time. There are enough pairs of a stock and a strategy to split them between threads.
+   */
+  @Test
+  public void testSweepMatchesReplay() {
+    List<Strategy> strategies = new ArrayList<>(Strategy.crossovers(new int[]{5, 10, 20, 60},
+            new int[]{10, 30, 60}));
+    assertEquals(7, strategies.size());
+    strategies.add(Strategy.crossover(5, 30).withStopLoss(0.05));
+    strategies.add(new Strategy("dip", SignalRule.below(1, 20), SignalRule.above(1, 20))
+            .withStopLoss(0.1));
+    BacktestReport report = new Backtester(histories).run(strategies, EpochDays.toDate(100),
+            EpochDays.toDate(1100));
+    int[][] windows = {{5, 10}, {5, 30}, {5, 60}, {10, 30}, {10, 60}, {20, 30}, {20, 60},
+        {5, 30}};
+    for (int stock = 0; stock < report.symbols().size(); stock++) {
+      for (int s = 0; s < windows.length; s++) {
+        int shortWindow = windows[s][0];
+        int longWindow = windows[s][1];
+        assertReplay(report, s, stock,
+                (series, index) -> above(series, index, shortWindow, longWindow),
+                (series, index) -> !above(series, index, shortWindow, longWindow),
+                s == 7 ? 0.05 : 0, 100, 1101);
+      }
+      DayRule dip = (series, index) -> index >= 19
+              && series.closeAt(index) < average(series, index, 20);
+      DayRule recovered = (series, index) -> index >= 19
+              && series.closeAt(index) > average(series, index, 20);
+      assertReplay(report, 8, stock, dip, recovered, 0.1, 100, 1101);
+    }
+  }
+
+  /**
+   * Test that combined rules set the bits of the days both or either rule holds on, and leave
+   * the bits outside the range alone.
+   */
+  @Test
+  public void testCombinedRules() {
+    PriceSeries series = histories.get(TickerSymbol.of("BKT3")).priceSeries();
+    double[] sums = new double[series.size() + 1];
+    for (int i = 0; i < series.size(); i++) {
+      sums[i + 1] = sums[i] + series.closeAt(i);
+    }
+    SignalRule fast = SignalRule.above(3, 12);
+    SignalRule slow = SignalRule.above(1, 40);
+    DayRule[] expected = {
+        (s, i) -> !above(s, i, 3, 12),
+        (s, i) -> above(s, i, 3, 12) && above(s, i, 1, 40),
+        (s, i) -> above(s, i, 3, 12) || above(s, i, 1, 40),
+        (s, i) -> !above(s, i, 3, 12) && above(s, i, 1, 40)
+    };
+    SignalRule[] rules = {fast.not(), fast.and(slow), fast.or(slow), fast.not().and(slow)};
+    for (int r = 0; r < rules.length; r++) {
+      for (int[] range : new int[][]{{0, 1500}, {30, 100}, {64, 128}, {70, 71}, {90, 90}}) {
+        long[] bits = new long[(series.size() + 63) >>> 6];
+        Arrays.fill(bits, 0, range[0] >>> 6, -1L);
+        long[] before = bits.clone();
+        rules[r].evaluate(series, sums, range[0], range[1], bits);
+        for (int i = 0; i < series.size(); i++) {
+          boolean set = (bits[i >>> 6] & (1L << i)) != 0;
+          if (i >= range[0] && i < range[1]) {
+            assertEquals(r + " at " + i, expected[r].holds(series, i), set);
+          } else {
+            assertEquals(r + " at " + i, (before[i >>> 6] & (1L << i)) != 0, set);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the summaries and the ranking of the strategies, and that a stock without days in the
+   * range is left out of the means.
+   */
+  @Test
+  public void testSummaries() {
+    histories = histories.with(TickerSymbol.of("BKTLATE"), new IHistoryImpl(
+            new PriceSeries(new int[]{5000, 5001}, new double[]{1, 2})));
+    List<Strategy> strategies = Strategy.crossovers(new int[]{2, 50}, new int[]{20, 200});
+    BacktestReport report = new Backtester(histories).run(strategies, EpochDays.toDate(0),
+            EpochDays.toDate(DAYS - 1));
+    int late = report.symbols().indexOf(TickerSymbol.of("BKTLATE"));
+    int[] ranking = report.ranking();
+    assertEquals(strategies.size(), ranking.length);
+    for (int s = 0; s < strategies.size(); s++) {
+      double sum = 0;
+      long trades = 0;
+      long wins = 0;
+      double worst = 0;
+      for (int stock = 0; stock < report.symbols().size(); stock++) {
+        sum += stock == late ? 0 : report.totalReturn(s, stock);
+        trades += report.trades(s, stock);
+        wins += report.winningTrades(s, stock);
+        worst = Math.max(worst, report.maxDrawdown(s, stock));
+      }
+      assertEquals(0, report.trades(s, late));
+      assertEquals(0, report.exposure(s, late), 0);
+      assertEquals(sum / 30, report.meanReturn(s), 1e-12);
+      assertEquals(trades, report.totalTrades(s));
+      assertEquals((double) wins / trades, report.winRate(s), 1e-12);
+      assertEquals(worst, report.worstDrawdown(s), 0);
+      if (s > 0) {
+        assertTrue(report.meanReturn(ranking[s - 1]) >= report.meanReturn(ranking[s]));
+      }
+    }
+  }
+
+  /**
+   * Test that a backtest without strategies fails.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoStrategy() {
+    new Backtester(histories).run(Collections.emptyList(), EpochDays.toDate(0),
+            EpochDays.toDate(10));
+  }
+
+  /**
+   * Test that a stop loss must be a fraction.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidStopLoss() {
+    Strategy.crossover(50, 200).withStopLoss(1.5);
+  }
+}
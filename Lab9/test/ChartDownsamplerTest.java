@@ -0,0 +1,90 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import view.ChartDownsampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for ChartDownsampler.
+ */
+public class ChartDownsamplerTest {
+
+  /**
+   * Test that every column keeps its first, lowest, highest and last point, in order, and at
+   * most four points.
+   */
+  @Test
+  public void testKeepsExtremesOfEveryColumn() {
+    int size = 100_000;
+    double[] xs = new double[size];
+    double[] ys = new double[size];
+    Random random = new Random(1);
+    for (int i = 0; i < size; i++) {
+      xs[i] = 500.0 * i / size;
+      ys[i] = random.nextGaussian();
+    }
+    double[] outXs = new double[ChartDownsampler.capacity(size, 500)];
+    double[] outYs = new double[outXs.length];
+    int kept = ChartDownsampler.downsample(xs, ys, size, 0, 500, 500, outXs, outYs);
+    assertTrue(kept <= 2000);
+
+    int next = 0;
+    for (int column = 0; column < 500; column++) {
+      int from = column * 200;
+      int to = from + 200;
+      double low = Double.POSITIVE_INFINITY;
+      double high = Double.NEGATIVE_INFINITY;
+      for (int i = from; i < to; i++) {
+        low = Math.min(low, ys[i]);
+        high = Math.max(high, ys[i]);
+      }
+      double columnLow = Double.POSITIVE_INFINITY;
+      double columnHigh = Double.NEGATIVE_INFINITY;
+      assertEquals(xs[from], outXs[next], 0);
+      assertEquals(ys[from], outYs[next], 0);
+      int points = 0;
+      while (next < kept && outXs[next] < xs[to - 1] + 1e-12) {
+        columnLow = Math.min(columnLow, outYs[next]);
+        columnHigh = Math.max(columnHigh, outYs[next]);
+        if (points > 0) {
+          assertTrue(outXs[next] > outXs[next - 1]);
+        }
+        next++;
+        points++;
+      }
+      assertEquals(ys[to - 1], outYs[next - 1], 0);
+      assertEquals(low, columnLow, 0);
+      assertEquals(high, columnHigh, 0);
+      assertTrue(points <= 4);
+    }
+    assertEquals(kept, next);
+  }
+
+  /**
+   * Test that a series with fewer points than columns is kept whole.
+   */
+  @Test
+  public void testSparseSeriesKeptWhole() {
+    double[] xs = {0, 10, 20, 499.5};
+    double[] ys = {5, 1, 9, 3};
+    double[] outXs = new double[4];
+    double[] outYs = new double[4];
+    assertEquals(4, ChartDownsampler.downsample(xs, ys, 4, 0, 500, 500, outXs, outYs));
+    for (int i = 0; i < 4; i++) {
+      assertEquals(xs[i], outXs[i], 0);
+      assertEquals(ys[i], outYs[i], 0);
+    }
+  }
+
+  /**
+   * Test that an empty range of x is refused.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyRange() {
+    ChartDownsampler.downsample(new double[1], new double[1], 1, 5, 5, 10, new double[1],
+            new double[1]);
+  }
+}
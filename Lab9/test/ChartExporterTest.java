@@ -0,0 +1,121 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import basket.IBasketImpl;
+import controller.ChartExporter;
+import controller.Controller;
+import history.EpochDays;
+import history.HistorySource;
+import history.TickerSymbol;
+import model.IStockModel;
+import model.IStockModelImpl;
+import stockapp.SyntheticHistorySource;
+import view.PngView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for writing charts to PNG files with ChartExporter.
+ */
+public class ChartExporterTest {
+
+  private static final Date START = EpochDays.toDate(TestHistories.LAST_DAY - 365);
+  private static final Date END = EpochDays.toDate(TestHistories.LAST_DAY);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Returns a model over synthetic histories, failing to load the history of BAD.
+   *
+   * @return the model.
+   */
+  private static IStockModel model() {
+    HistorySource synthetic = new SyntheticHistorySource(TestHistories.LAST_DAY, 2);
+    HistorySource source = tickerSymbol -> {
+      if (tickerSymbol.name().equals("BAD")) {
+        throw new IOException("no history for BAD");
+      }
+      return synthetic.load(tickerSymbol);
+    };
+    return new IStockModelImpl(new IBasketImpl(), source);
+  }
+
+  /**
+   * Asserts that two images have the same size and pixels.
+   *
+   * @param expected given expected image.
+   * @param actual   given actual image.
+   */
+  private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+      }
+    }
+  }
+
+  /**
+   * Test that the charts written in parallel with reused images are the charts a single view
+   * writes on its own, and that a stock without history is reported without stopping the rest.
+   */
+  @Test
+  public void testExportMatchesSingleView() throws IOException {
+    List<TickerSymbol> symbols = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      symbols.add(TickerSymbol.of("PNG" + i));
+    }
+    symbols.add(TickerSymbol.of("BAD"));
+    IStockModel model = model();
+    File directory = new File(folder.getRoot(), "charts");
+
+    Map<TickerSymbol, Exception> failures = new ChartExporter(model, 3)
+            .export(symbols, START, END, directory);
+
+    assertEquals(1, failures.size());
+    assertTrue(failures.containsKey(TickerSymbol.of("BAD")));
+    assertFalse(new File(directory, "BAD.png").exists());
+    for (TickerSymbol symbol : symbols.subList(0, 20)) {
+      File single = folder.newFile(symbol + "-single.png");
+      PngView view = new PngView(symbol, START, END, single);
+      new Controller().prepareChart(model, view);
+      view.render();
+
+      BufferedImage exported = ImageIO.read(new File(directory, symbol + ".png"));
+      assertEquals(PngView.WIDTH, exported.getWidth());
+      assertEquals(PngView.HEIGHT, exported.getHeight());
+      assertSameImage(ImageIO.read(single), exported);
+    }
+  }
+
+  /**
+   * Test that exporting needs at least one thread.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoThreads() {
+    new ChartExporter(model(), 0);
+  }
+
+  /**
+   * Test that exporting needs a start date before the end date.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testEndBeforeStart() {
+    new ChartExporter(model(), 1).export(new ArrayList<>(), END, START, folder.getRoot());
+  }
+}
@@ -0,0 +1,138 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import basket.IBasket;
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.HistorySource;
+import history.HistoryTable;
+import history.PriceSeries;
+import history.TickerSymbol;
+import model.IStockModel;
+import model.IStockModelImpl;
+import stockapp.SyntheticHistorySource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a stress test of one IStockModelImpl shared by reader threads while
+ * another thread keeps refreshing all of its histories.
+ */
+public class ConcurrentModelTest {
+
+  private static final int SYMBOLS = 20;
+  private static final int READERS = 4;
+  private static final int REFRESHES = 40;
+
+  /**
+   * Test that every snapshot a reader takes holds histories of a single refresh, even though
+   * refreshes publish while readers query. Refresh g loads histories ending on the last day of
+   * TestHistories plus g.
+   */
+  @Test
+  public void testSnapshotsAreConsistentUnderRefresh() throws Exception {
+    AtomicInteger generation = new AtomicInteger();
+    HistorySource source = tickerSymbol ->
+            new SyntheticHistorySource(TestHistories.LAST_DAY + generation.get(), 1)
+                    .load(tickerSymbol);
+    List<TickerSymbol> symbols = new ArrayList<>();
+    IBasket basket = new IBasketImpl();
+    for (int i = 0; i < SYMBOLS; i++) {
+      symbols.add(TickerSymbol.of("C" + i));
+      basket.add(symbols.get(i), i + 1);
+    }
+    IStockModel model = new IStockModelImpl(basket, source);
+    assertTrue(model.addHistories(symbols).isEmpty());
+
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicLong snapshots = new AtomicLong();
+    AtomicInteger inconsistent = new AtomicInteger();
+    List<Throwable> errors = new ArrayList<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int r = 0; r < READERS; r++) {
+      Thread reader = new Thread(() -> {
+        try {
+          while (!done.get()) {
+            HistoryTable snapshot = model.snapshot();
+            int expected = lastDay(snapshot.get(symbols.get(0)).priceSeries());
+            for (TickerSymbol tickerSymbol : symbols) {
+              if (lastDay(snapshot.get(tickerSymbol).priceSeries()) != expected) {
+                inconsistent.incrementAndGet();
+              }
+            }
+            basket.basketValue(EpochDays.toDate(TestHistories.LAST_DAY), snapshot);
+            model.maxPrice(symbols.get(1), EpochDays.toDate(TestHistories.LAST_DAY - 300),
+                    EpochDays.toDate(TestHistories.LAST_DAY));
+            snapshots.incrementAndGet();
+          }
+        } catch (Throwable e) {
+          synchronized (errors) {
+            errors.add(e);
+          }
+        }
+      });
+      readers.add(reader);
+      reader.start();
+    }
+
+    for (int g = 1; g <= REFRESHES; g++) {
+      generation.set(g);
+      assertTrue(model.addHistories(symbols, 4).isEmpty());
+    }
+    done.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertTrue(errors.toString(), errors.isEmpty());
+    assertEquals(0, inconsistent.get());
+    assertTrue(snapshots.get() > 0);
+    assertEquals(lastDay(source.load(symbols.get(0))),
+            lastDay(model.snapshot().get(symbols.get(0)).priceSeries()));
+  }
+
+  /**
+   * Test that stocks added to a basket from many threads are all counted.
+   */
+  @Test
+  public void testConcurrentBasketAdds() throws InterruptedException {
+    IBasket basket = new IBasketImpl();
+    TickerSymbol tickerSymbol = TickerSymbol.of("C0");
+    HistorySource source = new SyntheticHistorySource(TestHistories.LAST_DAY, 1);
+    IStockModel model = new IStockModelImpl(basket, source);
+    model.addIHistory(tickerSymbol);
+    List<Thread> adders = new ArrayList<>();
+    for (int t = 0; t < READERS; t++) {
+      Thread adder = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          basket.add(tickerSymbol, 1);
+        }
+      });
+      adders.add(adder);
+      adder.start();
+    }
+    for (Thread adder : adders) {
+      adder.join();
+    }
+    Date last = EpochDays.toDate(TestHistories.LAST_DAY);
+    double price = model.priceOfDay(tickerSymbol, last);
+    assertEquals(READERS * 1000 * price, model.totalPrice(last), 1e-6);
+  }
+
+  /**
+   * Returns the last trading day of a series.
+   *
+   * @param series given series
+   * @return the last epoch day
+   */
+  private static int lastDay(PriceSeries series) {
+    return series.dayAt(series.size() - 1);
+  }
+}
@@ -0,0 +1,145 @@
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import history.PriceSeries;
+import stockapp.CsvHistoryParser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * This class represents a JUnit test for CsvHistoryParser.
+ */
+public class CsvHistoryParserTest {
+
+  private static final String CSV = "timestamp,open,high,low,close,volume\n"
+          + "2018-07-09,142.6600,144.6400,142.5000,144.3900,4058235\n"
+          + "2018-07-06,141.6000,142.9400,141.1700,142.4800,2053926\n"
+          + "2018-07-05,141.2200,141.6000,139.5400,141.4300,3427366\n";
+
+  /**
+   * Test that rows sent newest first are returned in increasing order of days.
+   */
+  @Test
+  public void testParseSortsByDay() throws IOException {
+    PriceSeries series = parse(CSV);
+    assertEquals(3, series.size());
+    assertEquals(TestHistories.epochDay("2018-07-05"), series.dayAt(0));
+    assertEquals(TestHistories.epochDay("2018-07-09"), series.dayAt(2));
+  }
+
+  /**
+   * Test that closing prices keep full double precision.
+   */
+  @Test
+  public void testParseClosePrecision() throws IOException {
+    PriceSeries series = parse(CSV);
+    assertEquals(141.43, series.closeAt(0), 0);
+    assertEquals(142.48, series.closeAt(1), 0);
+    assertEquals(144.39, series.closeAt(2), 0);
+  }
+
+  /**
+   * Test that Windows line endings and a missing final newline are accepted.
+   */
+  @Test
+  public void testParseCrlfWithoutFinalNewline() throws IOException {
+    PriceSeries series = parse("timestamp,open,high,low,close,volume\r\n"
+            + "2018-07-06,1,2,0.5,1.5,10\r\n"
+            + "2018-07-05,1,2,0.5,1.25,10");
+    assertEquals(2, series.size());
+    assertEquals(1.25, series.closeAt(0), 0);
+    assertEquals(1.5, series.closeAt(1), 0);
+  }
+
+  /**
+   * Test that a CSV with only a header gives an empty series.
+   */
+  @Test
+  public void testParseHeaderOnly() throws IOException {
+    assertEquals(0, parse("timestamp,open,high,low,close,volume\n").size());
+  }
+
+  /**
+   * Test that an error message sent instead of CSV is reported as an IOException.
+   */
+  @Test(expected = IOException.class)
+  public void testParseErrorMessage() throws IOException {
+    parse("{\n    \"Error Message\": \"Invalid API call.\"\n}");
+  }
+
+  /**
+   * Test that a row without a closing price is reported as an IOException.
+   */
+  @Test(expected = IOException.class)
+  public void testParseMissingClose() throws IOException {
+    parse("timestamp,open,high,low,close,volume\n2018-07-06,1,2,0.5\n");
+  }
+
+  /**
+   * Test that rows out of order are sorted, and that of two rows of the same day the later one
+   * is kept.
+   */
+  @Test
+  public void testParseUnorderedAndDuplicateRows() throws IOException {
+    PriceSeries series = parse("timestamp,open,high,low,close,volume\n"
+            + "2018-07-06,1,2,0.5,2,10\n"
+            + "2018-07-09,1,2,0.5,3,10\n"
+            + "2018-07-05,1,2,0.5,1,10\n"
+            + "2018-07-06,1,2,0.5,2.5,10\n");
+    assertEquals(3, series.size());
+    assertEquals(TestHistories.epochDay("2018-07-05"), series.dayAt(0));
+    assertEquals(TestHistories.epochDay("2018-07-06"), series.dayAt(1));
+    assertEquals(TestHistories.epochDay("2018-07-09"), series.dayAt(2));
+    assertEquals(1, series.closeAt(0), 0);
+    assertEquals(2.5, series.closeAt(1), 0);
+    assertEquals(3, series.closeAt(2), 0);
+
+    PriceSeries twice = parse("timestamp,open,high,low,close,volume\n"
+            + "2018-07-06,1,2,0.5,2,10\n"
+            + "2018-07-06,1,2,0.5,4,10\n");
+    assertEquals(1, twice.size());
+    assertEquals(4, twice.closeAt(0), 0);
+  }
+
+  /**
+   * Test that a day past the end of its month is reported as an IOException.
+   */
+  @Test(expected = IOException.class)
+  public void testParseInvalidDayOfMonth() throws IOException {
+    parse("timestamp,open,high,low,close,volume\n2018-02-31,1,2,0.5,1.5,10\n");
+  }
+
+  /**
+   * Test that the last day of February is the 29th in leap years only.
+   */
+  @Test
+  public void testParseLeapDay() throws IOException {
+    assertEquals(TestHistories.epochDay("2016-02-29"),
+            parse("timestamp,open,high,low,close,volume\n2016-02-29,1,2,0.5,1.5,10\n")
+                    .dayAt(0));
+    for (String date : new String[]{"2018-02-29", "1900-02-29", "2018-04-31"}) {
+      try {
+        parse("timestamp,open,high,low,close,volume\n" + date + ",1,2,0.5,1.5,10\n");
+        fail(date + " is not a valid date");
+      } catch (IOException e) {
+        assertEquals("Malformed CSV at line 2", e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Parses the given CSV text.
+   *
+   * @param csv given CSV text
+   * @return the parsed series
+   * @throws IOException if the CSV is malformed
+   */
+  private static PriceSeries parse(String csv) throws IOException {
+    return CsvHistoryParser.parse(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)));
+  }
+}
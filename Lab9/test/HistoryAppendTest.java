@@ -0,0 +1,186 @@
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.HistorySource;
+import history.IHistory;
+import history.IHistoryImpl;
+import history.PriceSeries;
+import history.TickerSymbol;
+import model.IStockModel;
+import model.IStockModelImpl;
+import stockapp.SyntheticHistorySource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class represents a JUnit test for appending closing prices to histories.
+ */
+public class HistoryAppendTest {
+
+
+  /**
+   * Test that a history built by appending days to a history whose indexes are already built
+   * answers like a history built over all days at once.
+   */
+  @Test
+  public void testAppendMatchesRebuild() {
+    PriceSeries all = TestHistories.randomWalk(new Random(7), 700, 100);
+    IHistory history = new IHistoryImpl(new PriceSeries(new int[0], new double[0]));
+    for (int i = 0; i < all.size(); i++) {
+      history = history.append(EpochDays.toDate(all.dayAt(i)), all.closeAt(i));
+      if (i == 250) {
+        //build the indexes, so the remaining days are appended to them
+        history.buyOpportunity(EpochDays.toDate(i));
+        history.maxPrice(EpochDays.toDate(0), EpochDays.toDate(i));
+      }
+    }
+    IHistory rebuilt = new IHistoryImpl(all);
+    Date first = EpochDays.toDate(0);
+    Date last = EpochDays.toDate(all.size() - 1);
+    assertEquals(rebuilt.buyOpportunities(first, last), history.buyOpportunities(first, last));
+    Random random = new Random(11);
+    for (int i = 0; i < 1000; i++) {
+      int from = random.nextInt(all.size());
+      int to = from + random.nextInt(all.size() - from);
+      assertEquals(rebuilt.maxPrice(EpochDays.toDate(from), EpochDays.toDate(to)),
+              history.maxPrice(EpochDays.toDate(from), EpochDays.toDate(to)), 0);
+      assertEquals(rebuilt.minPrice(EpochDays.toDate(from), EpochDays.toDate(to)),
+              history.minPrice(EpochDays.toDate(from), EpochDays.toDate(to)), 0);
+    }
+  }
+
+  /**
+   * Test that appending does not change the history appended to, and that two days appended to
+   * the same history give two separate histories.
+   */
+  @Test
+  public void testAppendLeavesOlderHistory() {
+    IHistory built = new IHistoryImpl(TestHistories.randomWalk(new Random(7), 299, 100));
+    Date first = EpochDays.toDate(0);
+    Date last = EpochDays.toDate(299);
+    built.buyOpportunities(first, last);
+    built.maxPrice(first, last);
+    //the appended history has room to spare, so the first day appended to it is written in place
+    IHistory base = built.append(last, 100);
+    BitSet signals = base.buyOpportunities(first, last);
+    double max = base.maxPrice(first, last);
+
+    Date next = EpochDays.toDate(300);
+    IHistory high = base.append(next, 1e9);
+    IHistory low = base.append(next, 1);
+    assertEquals(1e9, high.priceOnDay(next), 0);
+    assertEquals(1, low.priceOnDay(next), 0);
+    assertEquals(1e9, high.maxPrice(first, next), 0);
+    assertEquals(max, low.maxPrice(first, next), 0);
+    assertEquals(300, base.priceSeries().size());
+    assertEquals(max, base.maxPrice(first, next), 0);
+    assertEquals(signals, base.buyOpportunities(first, next));
+    assertTrue(high.buyOpportunity(next));
+    assertFalse(base.buyOpportunity(next));
+  }
+
+  /**
+   * Test that a history forked from an older version, after a longer one grew from it by more
+   * than a word of signals, has only its own buying opportunities.
+   */
+  @Test
+  public void testForkAfterLongerAppends() {
+    IHistory built = new IHistoryImpl(TestHistories.randomWalk(new Random(7), 300, 100));
+    Date first = EpochDays.toDate(0);
+    built.buyOpportunities(first, EpochDays.toDate(299));
+    //the grown version has room to spare, which the rising one then writes its days into
+    IHistory base = built.append(EpochDays.toDate(300), built.priceSeries().closeAt(299));
+    IHistory rising = base;
+    IHistory falling = base;
+    double risingClose = base.priceSeries().closeAt(300);
+    double fallingClose = risingClose;
+    for (int day = 301; day < 461; day++) {
+      risingClose += 1;
+      rising = rising.append(EpochDays.toDate(day), risingClose);
+      rising.buyOpportunity(EpochDays.toDate(day));
+    }
+    for (int day = 301; day < 461; day++) {
+      fallingClose = Math.max(1, fallingClose - 1);
+      falling = falling.append(EpochDays.toDate(day), fallingClose);
+    }
+    Date last = EpochDays.toDate(460);
+    assertEquals(new IHistoryImpl(rising.priceSeries()).buyOpportunities(first, last),
+            rising.buyOpportunities(first, last));
+    BitSet expected = new IHistoryImpl(falling.priceSeries()).buyOpportunities(first, last);
+    assertEquals(expected, falling.buyOpportunities(first, last));
+    assertTrue(rising.buyOpportunity(last));
+    assertFalse(falling.buyOpportunity(last));
+  }
+
+  /**
+   * Test that a day on or before the last day of the history cannot be appended.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testAppendOutOfOrder() {
+    new IHistoryImpl(TestHistories.randomWalk(new Random(7), 10, 100))
+            .append(EpochDays.toDate(9), 1);
+  }
+
+  /**
+   * Test that the model appends a day to its histories, and refreshes them with only the days
+   * its source has that they do not.
+   */
+  @Test
+  public void testModelAppendAndRefresh() throws Exception {
+    int[] sourceLastDay = {TestHistories.LAST_DAY};
+    HistorySource source = tickerSymbol ->
+            new SyntheticHistorySource(sourceLastDay[0], 2).load(tickerSymbol);
+    IStockModel model = new IStockModelImpl(new IBasketImpl(), source);
+    model.addIHistory(TickerSymbol.MSFT);
+    model.addIHistory(TickerSymbol.IBM);
+    PriceSeries loaded = model.snapshot().get(TickerSymbol.MSFT).priceSeries();
+
+    Date next = EpochDays.toDate(TestHistories.LAST_DAY + 1);
+    model.appendCloses(next, Collections.singletonMap(TickerSymbol.MSFT, 42.0));
+    assertEquals(42.0, model.priceOfDay(TickerSymbol.MSFT, next), 0);
+
+    sourceLastDay[0] = TestHistories.LAST_DAY + 30;
+    assertTrue(model.refreshHistories().isEmpty());
+    PriceSeries fresh = source.load(TickerSymbol.MSFT);
+    PriceSeries refreshed = model.snapshot().get(TickerSymbol.MSFT).priceSeries();
+    assertEquals(fresh.dayAt(fresh.size() - 1), refreshed.dayAt(refreshed.size() - 1));
+    assertEquals(fresh.closeAt(fresh.size() - 1), refreshed.closeAt(refreshed.size() - 1), 0);
+    //the appended day is kept, and only the days after it were added
+    assertEquals(42.0, model.priceOfDay(TickerSymbol.MSFT, next), 0);
+    assertEquals(loaded.size() + 1 + (fresh.size() - fresh.upperBound(TestHistories.LAST_DAY + 1)),
+            refreshed.size());
+    PriceSeries ibm = model.snapshot().get(TickerSymbol.IBM).priceSeries();
+    assertEquals(fresh.dayAt(fresh.size() - 1), ibm.dayAt(ibm.size() - 1));
+  }
+
+  /**
+   * Test that appending a day for a stock the model does not hold changes nothing.
+   */
+  @Test
+  public void testModelAppendUnknownStock() {
+    IStockModel model = new IStockModelImpl(new IBasketImpl(),
+            new SyntheticHistorySource(TestHistories.LAST_DAY, 2));
+    model.addIHistory(TickerSymbol.MSFT);
+    Map<TickerSymbol, Double> closes = new LinkedHashMap<>();
+    closes.put(TickerSymbol.MSFT, 42.0);
+    closes.put(TickerSymbol.AAPL, 1.0);
+    try {
+      model.appendCloses(EpochDays.toDate(TestHistories.LAST_DAY + 1), closes);
+      fail("AAPL is not in the model");
+    } catch (IllegalArgumentException e) {
+      PriceSeries msft = model.snapshot().get(TickerSymbol.MSFT).priceSeries();
+      assertEquals(TestHistories.LAST_DAY, msft.dayAt(msft.size() - 1));
+    }
+  }
+}
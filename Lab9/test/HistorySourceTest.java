@@ -0,0 +1,244 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.HistorySource;
+import history.PriceSeries;
+import history.TickerSymbol;
+import model.IStockModel;
+import model.IStockModelImpl;
+import stockapp.CachedHistorySource;
+import stockapp.CsvDirectorySource;
+import stockapp.HistoryCache;
+import stockapp.LocalStandInServer;
+import stockapp.SyntheticHistorySource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class represents a JUnit test for the history sources. Everything runs offline.
+ */
+public class HistorySourceTest {
+
+
+  private final HistorySource synthetic = new SyntheticHistorySource(TestHistories.LAST_DAY, 2);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test that a download from the local stand-in server gives the history it serves.
+   */
+  @Test
+  public void testStandInServerFullHistory() throws IOException {
+    try (LocalStandInServer server = new LocalStandInServer(synthetic, 2)) {
+      assertSameSeries(synthetic.load(TickerSymbol.MSFT),
+              server.newSource().load(TickerSymbol.MSFT));
+    }
+  }
+
+  /**
+   * Test that a compact download from the local stand-in server gives the latest 100 days.
+   */
+  @Test
+  public void testStandInServerRecentHistory() throws IOException {
+    try (LocalStandInServer server = new LocalStandInServer(synthetic, 2)) {
+      PriceSeries recent = server.newSource().loadRecent(TickerSymbol.IBM);
+      assertEquals(100, recent.size());
+      assertEquals(TestHistories.LAST_DAY, recent.dayAt(99));
+    }
+  }
+
+  /**
+   * Test that a cached history is still returned after its source went away.
+   */
+  @Test
+  public void testCachedSourceServesFromDisk() throws IOException {
+    Path directory = folder.newFolder("stockcache").toPath();
+    HistoryCache cache = new HistoryCache(directory);
+    PriceSeries loaded;
+    try (LocalStandInServer server = new LocalStandInServer(synthetic, 2)) {
+      loaded = new CachedHistorySource(cache, server.newSource()).load(TickerSymbol.AAPL);
+    }
+    assertSameSeries(loaded, cache.read(TickerSymbol.AAPL));
+    HistorySource unreachable = tickerSymbol -> {
+      throw new IOException("offline");
+    };
+    assertSameSeries(loaded, new CachedHistorySource(cache, unreachable).load(TickerSymbol.AAPL));
+  }
+
+  /**
+   * Test that the recent days downloaded to extend an older cache file replace the cached days
+   * they overlap, so a close adjusted since it was cached is updated.
+   */
+  @Test
+  public void testCachedSourceReplacesOverlap() throws IOException {
+    Path directory = folder.newFolder("stockcache").toPath();
+    HistoryCache cache = new HistoryCache(directory);
+    int today = EpochDays.fromDate(new Date());
+    cache.write(TickerSymbol.IBM, series(today - 10, 7, 1));
+    Files.setLastModifiedTime(cache.fileOf(TickerSymbol.IBM),
+            FileTime.fromMillis(System.currentTimeMillis() - 24L * 60 * 60 * 1000));
+    HistorySource remote = tickerSymbol -> series(today - 5, 6, 100);
+
+    PriceSeries loaded = new CachedHistorySource(cache, remote).load(TickerSymbol.IBM);
+    assertEquals(11, loaded.size());
+    for (int i = 0; i < loaded.size(); i++) {
+      assertEquals(today - 10 + i, loaded.dayAt(i));
+      assertEquals(i < 5 ? 1 + i : 100 + i - 5, loaded.closeAt(i), 0);
+    }
+    assertSameSeries(loaded, cache.read(TickerSymbol.IBM));
+  }
+
+  /**
+   * Test that a cache file that cannot be written leaves no temporary file behind.
+   */
+  @Test
+  public void testFailedCacheWriteLeavesNoTemporaryFile() throws IOException {
+    Path directory = folder.newFolder("stockcache").toPath();
+    HistoryCache cache = new HistoryCache(directory);
+    //a directory that is not empty cannot be replaced by the cache file
+    Files.createDirectories(cache.fileOf(TickerSymbol.IBM).resolve("taken"));
+    try {
+      cache.write(TickerSymbol.IBM, synthetic.load(TickerSymbol.IBM));
+      fail("the cache file is a directory");
+    } catch (IOException e) {
+      try (Stream<Path> files = Files.list(directory)) {
+        assertEquals(Collections.singletonList(cache.fileOf(TickerSymbol.IBM)),
+                files.collect(Collectors.toList()));
+      }
+    }
+  }
+
+  /**
+   * Returns a series of every price column over consecutive days, with increasing prices.
+   *
+   * @param first given first epoch day.
+   * @param size  given number of days.
+   * @param price given closing price of the first day.
+   * @return the series.
+   */
+  private static PriceSeries series(int first, int size, double price) {
+    int[] days = new int[size];
+    double[] closes = new double[size];
+    long[] volumes = new long[size];
+    for (int i = 0; i < size; i++) {
+      days[i] = first + i;
+      closes[i] = price + i;
+      volumes[i] = 1000;
+    }
+    return new PriceSeries(days, closes.clone(), closes.clone(), closes.clone(), closes, volumes);
+  }
+
+  /**
+   * Test that a directory of CSV files is read by file name.
+   */
+  @Test
+  public void testCsvDirectorySource() throws IOException {
+    Path directory = folder.newFolder("csv").toPath();
+    Files.write(directory.resolve("W.csv"), ("timestamp,open,high,low,close,volume\n"
+            + "2018-07-09,1,1,1,52.25,100\n").getBytes(StandardCharsets.US_ASCII));
+    PriceSeries series = new CsvDirectorySource(directory).load(TickerSymbol.W);
+    assertEquals(1, series.size());
+    assertEquals(52.25, series.closeAt(0), 0);
+  }
+
+  /**
+   * Test that a missing CSV file is reported as an IOException.
+   */
+  @Test(expected = IOException.class)
+  public void testCsvDirectorySourceMissingFile() throws IOException {
+    new CsvDirectorySource(folder.getRoot().toPath()).load(TickerSymbol.W);
+  }
+
+  /**
+   * Test that a model can be built on a local source.
+   */
+  @Test
+  public void testModelWithLocalSource() throws IOException {
+    IStockModel model = new IStockModelImpl(new IBasketImpl(), synthetic);
+    model.addIHistory(TickerSymbol.MSFT);
+    Date day = EpochDays.toDate(TestHistories.LAST_DAY);
+    PriceSeries expected = synthetic.load(TickerSymbol.MSFT);
+    assertEquals(expected.closeAt(expected.size() - 1), model.priceOfDay(TickerSymbol.MSFT, day),
+            0);
+  }
+
+  /**
+   * Test that a bulk load adds every history it can load and reports the others.
+   */
+  @Test
+  public void testAddHistoriesReportsFailures() {
+    HistorySource failsOnW = tickerSymbol -> {
+      if (tickerSymbol == TickerSymbol.W) {
+        throw new IOException("no history");
+      }
+      return synthetic.load(tickerSymbol);
+    };
+    IStockModel model = new IStockModelImpl(new IBasketImpl(), failsOnW);
+    Map<TickerSymbol, Exception> failures = model.addHistories(Arrays.asList(TickerSymbol.AAPL,
+            TickerSymbol.W, TickerSymbol.MSFT, TickerSymbol.IBM), 2);
+    assertEquals(1, failures.size());
+    assertTrue(failures.get(TickerSymbol.W) instanceof IOException);
+    Date day = EpochDays.toDate(TestHistories.LAST_DAY);
+    for (TickerSymbol tickerSymbol : Arrays.asList(TickerSymbol.AAPL, TickerSymbol.MSFT,
+            TickerSymbol.IBM)) {
+      model.priceOfDay(tickerSymbol, day);
+    }
+  }
+
+  /**
+   * Test that ticker symbols outside the original four can be loaded and are interned.
+   */
+  @Test
+  public void testDynamicTickerSymbols() {
+    TickerSymbol brk = TickerSymbol.of("brk.b");
+    assertTrue(brk == TickerSymbol.of("BRK.B"));
+    int count = TickerSymbol.count();
+    assertTrue(brk == TickerSymbol.of(" Brk.B "));
+    assertEquals("BRK.B", TickerSymbol.of("brk.b").name());
+    assertEquals(count, TickerSymbol.count());
+    assertEquals(brk, TickerSymbol.byId(brk.id()));
+    IStockModel model = new IStockModelImpl(new IBasketImpl(), synthetic);
+    model.addIHistory(brk);
+    model.priceOfDay(brk, EpochDays.toDate(TestHistories.LAST_DAY));
+  }
+
+  /**
+   * Test that a ticker symbol with characters no exchange uses is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalTickerSymbol() {
+    TickerSymbol.of("MS FT");
+  }
+
+  /**
+   * Asserts that two series have the same days and closing prices.
+   *
+   * @param expected given expected series
+   * @param actual   given actual series
+   */
+  private static void assertSameSeries(PriceSeries expected, PriceSeries actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.dayAt(i), actual.dayAt(i));
+      assertEquals(expected.closeAt(i), actual.closeAt(i), 0);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import basket.BasketValueSeries;
+import basket.GapPolicy;
+import basket.IBasket;
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.HistoryTable;
+import history.IHistoryImpl;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class represents a JUnit test for IBasket, on small hand-made histories.
+ */
+public class IBasketTest {
+  private IBasket basket;
+  private HistoryTable histories;
+
+  /**
+   * Set up Before scenario.  MSFT trades on days 1 to 5 and IBM on days 0, 1, 2 and 4, with 2
+   * MSFT and 1 IBM in the basket.
+   */
+  @Before
+  public void setUp() {
+    histories = HistoryTable.EMPTY
+            .with(TickerSymbol.MSFT, new IHistoryImpl(new PriceSeries(
+                    new int[]{1, 2, 3, 4, 5}, new double[]{10, 11, 12, 13, 14})))
+            .with(TickerSymbol.IBM, new IHistoryImpl(new PriceSeries(
+                    new int[]{0, 1, 2, 4}, new double[]{100, 101, 102, 104})));
+    basket = new IBasketImpl();
+    basket.add(TickerSymbol.MSFT, 1);
+    basket.add(TickerSymbol.IBM, 1);
+    basket.add(TickerSymbol.MSFT, 1);
+  }
+
+  /**
+   * Test that the series skipping gaps only values days on which every stock trades, and
+   * agrees with basketValue on them.
+   */
+  @Test
+  public void testBasketValueSeriesSkip() {
+    BasketValueSeries series = basket.basketValueSeries(EpochDays.toDate(0), EpochDays.toDate(5),
+            histories, GapPolicy.SKIP);
+    assertEquals(3, series.size());
+    int[] days = {1, 2, 4};
+    for (int i = 0; i < days.length; i++) {
+      assertEquals(days[i], series.dayAt(i));
+      assertEquals(basket.basketValue(EpochDays.toDate(days[i]), histories), series.valueAt(i),
+              1e-9);
+    }
+  }
+
+  /**
+   * Test that the series carrying prices forward values every day after each stock has a price.
+   */
+  @Test
+  public void testBasketValueSeriesCarryForward() {
+    BasketValueSeries series = basket.basketValueSeries(EpochDays.toDate(0), EpochDays.toDate(5),
+            histories, GapPolicy.CARRY_FORWARD);
+    assertEquals(5, series.size());
+    assertEquals(1, series.dayAt(0));
+    assertEquals(2 * 12 + 102, series.valueAt(2), 1e-9);
+    assertEquals(2 * 14 + 104, series.valueAt(4), 1e-9);
+  }
+
+  /**
+   * Test that carrying forward uses the last price before the range.
+   */
+  @Test
+  public void testBasketValueSeriesCarryForwardFromBeforeRange() {
+    BasketValueSeries series = basket.basketValueSeries(EpochDays.toDate(3), EpochDays.toDate(3),
+            histories, GapPolicy.CARRY_FORWARD);
+    assertEquals(1, series.size());
+    assertEquals(2 * 12 + 102, series.valueAt(0), 1e-9);
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown if a stock of the basket has no history.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testBasketValueSeriesMissingHistory() {
+    basket.add(TickerSymbol.AAPL, 1);
+    basket.basketValueSeries(EpochDays.toDate(0), EpochDays.toDate(5), histories, GapPolicy.SKIP);
+  }
+}
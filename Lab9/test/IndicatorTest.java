@@ -0,0 +1,288 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import history.EpochDays;
+import history.IHistory;
+import history.IHistoryImpl;
+import history.Indicator;
+import history.IndicatorBuffer;
+import history.IndicatorEngine;
+import history.MovingAverageIndex;
+import history.PriceSeries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for the indicators computed by IndicatorEngine, checked
+ * against direct computations of each indicator.
+ */
+public class IndicatorTest {
+
+  private static final PriceSeries SERIES =
+          TestHistories.randomWalk(new Random(5), 600, 100);
+  private static final double[] CLOSES = closes(SERIES);
+
+  /**
+   * Returns the closing prices of a series.
+   *
+   * @param series given series.
+   * @return the closing prices.
+   */
+  private static double[] closes(PriceSeries series) {
+    double[] closes = new double[series.size()];
+    for (int i = 0; i < closes.length; i++) {
+      closes[i] = series.closeAt(i);
+    }
+    return closes;
+  }
+
+  /**
+   * Returns the simple moving averages of values.
+   *
+   * @param values given values.
+   * @param window given window.
+   * @return the average of each day, NaN before the first window.
+   */
+  private static double[] sma(double[] values, int window) {
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      double sum = 0;
+      for (int j = i - window + 1; j <= i && j >= 0; j++) {
+        sum += values[j];
+      }
+      result[i] = i + 1 < window ? Double.NaN : sum / window;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the exponential moving averages of values that start at the simple average of the
+   * first window of values that are not NaN.
+   *
+   * @param values given values.
+   * @param window given window.
+   * @return the average of each day, NaN before the first window.
+   */
+  private static double[] ema(double[] values, int window) {
+    double[] result = new double[values.length];
+    Arrays.fill(result, Double.NaN);
+    int first = 0;
+    while (first < values.length && Double.isNaN(values[first])) {
+      first++;
+    }
+    if (first + window > values.length) {
+      return result;
+    }
+    double value = 0;
+    for (int i = first; i < first + window; i++) {
+      value += values[i] / window;
+    }
+    result[first + window - 1] = value;
+    for (int i = first + window; i < values.length; i++) {
+      value = value + 2.0 / (window + 1) * (values[i] - value);
+      result[i] = value;
+    }
+    return result;
+  }
+
+  /**
+   * Asserts that two columns are the same, NaN where the expected one is NaN.
+   *
+   * @param expected given expected values.
+   * @param buffer   given buffer.
+   * @param column   given column of the buffer.
+   * @param from     given position of the first row in the expected values.
+   */
+  private static void assertColumn(double[] expected, IndicatorBuffer buffer, int column,
+                                   int from) {
+    for (int row = 0; row < buffer.size(); row++) {
+      double value = expected[from + row];
+      if (Double.isNaN(value)) {
+        assertTrue(Double.isNaN(buffer.get(column, row)));
+      } else {
+        assertEquals(value, buffer.get(column, row), 1e-9);
+      }
+    }
+  }
+
+  /**
+   * Test the simple and exponential moving averages against direct computations.
+   */
+  @Test
+  public void testMovingAverages() {
+    IndicatorEngine engine = new IndicatorEngine(Indicator.sma(50), Indicator.sma(200),
+            Indicator.ema(12), Indicator.ema(26));
+    IndicatorBuffer buffer = engine.compute(SERIES, 0, SERIES.size(), new IndicatorBuffer());
+    assertEquals(SERIES.size(), buffer.size());
+    assertEquals(4, buffer.columns());
+    assertColumn(sma(CLOSES, 50), buffer, engine.column(Indicator.sma(50)), 0);
+    assertColumn(sma(CLOSES, 200), buffer, engine.column(Indicator.sma(200)), 0);
+    assertColumn(ema(CLOSES, 12), buffer, engine.column(Indicator.ema(12)), 0);
+    assertColumn(ema(CLOSES, 26), buffer, engine.column(Indicator.ema(26)), 0);
+
+    MovingAverageIndex index = new MovingAverageIndex(SERIES, 50, 200);
+    assertEquals(index.average(300, 50), buffer.get(0, 300), 1e-9);
+  }
+
+  /**
+   * Test the relative strength index against a direct computation.
+   */
+  @Test
+  public void testRsi() {
+    int window = 14;
+    IndicatorEngine engine = new IndicatorEngine(Indicator.rsi(window));
+    IndicatorBuffer buffer = engine.compute(SERIES, 0, SERIES.size(), new IndicatorBuffer());
+    double[] expected = new double[CLOSES.length];
+    Arrays.fill(expected, Double.NaN);
+    double gain = 0;
+    double loss = 0;
+    for (int i = 1; i < CLOSES.length; i++) {
+      double change = CLOSES[i] - CLOSES[i - 1];
+      if (i <= window) {
+        gain += Math.max(change, 0) / window;
+        loss += Math.max(-change, 0) / window;
+      } else {
+        gain = (gain * (window - 1) + Math.max(change, 0)) / window;
+        loss = (loss * (window - 1) + Math.max(-change, 0)) / window;
+      }
+      if (i >= window) {
+        expected[i] = 100 - 100 / (1 + gain / loss);
+      }
+    }
+    assertColumn(expected, buffer, 0, 0);
+    for (int row = window; row < buffer.size(); row++) {
+      assertTrue(buffer.get(0, row) >= 0 && buffer.get(0, row) <= 100);
+    }
+  }
+
+  /**
+   * Test the Bollinger bands and MACD against direct computations.
+   */
+  @Test
+  public void testBandsAndMacd() {
+    IndicatorEngine engine = new IndicatorEngine(Indicator.bollinger(20, 2),
+            Indicator.macd(12, 26, 9));
+    IndicatorBuffer buffer = engine.compute(SERIES, 0, SERIES.size(), new IndicatorBuffer());
+    assertEquals(6, engine.columns());
+    assertEquals("bollinger(20,2.0).upper", engine.columnName(1));
+    assertEquals("macd(12,26,9).signal", engine.columnName(4));
+
+    double[] middle = sma(CLOSES, 20);
+    double[] upper = new double[CLOSES.length];
+    double[] lower = new double[CLOSES.length];
+    for (int i = 0; i < CLOSES.length; i++) {
+      double variance = 0;
+      for (int j = i - 19; j <= i && j >= 0; j++) {
+        variance += (CLOSES[j] - middle[i]) * (CLOSES[j] - middle[i]) / 20;
+      }
+      upper[i] = middle[i] + 2 * Math.sqrt(variance);
+      lower[i] = middle[i] - 2 * Math.sqrt(variance);
+    }
+    assertColumn(middle, buffer, 0, 0);
+    assertColumn(upper, buffer, 1, 0);
+    assertColumn(lower, buffer, 2, 0);
+
+    double[] fast = ema(CLOSES, 12);
+    double[] slow = ema(CLOSES, 26);
+    double[] line = new double[CLOSES.length];
+    for (int i = 0; i < CLOSES.length; i++) {
+      line[i] = fast[i] - slow[i];
+    }
+    double[] signal = ema(line, 9);
+    double[] histogram = new double[CLOSES.length];
+    for (int i = 0; i < CLOSES.length; i++) {
+      histogram[i] = line[i] - signal[i];
+    }
+    assertColumn(line, buffer, 3, 0);
+    assertColumn(signal, buffer, 4, 0);
+    assertColumn(histogram, buffer, 5, 0);
+  }
+
+  /**
+   * Test that the bands of prices far from zero and close to each other keep their width, which
+   * the difference of the mean square and the squared mean loses to rounding.
+   */
+  @Test
+  public void testBandsOfLargePrices() {
+    Random random = new Random(3);
+    int[] days = new int[1000];
+    double[] closes = new double[days.length];
+    for (int i = 0; i < days.length; i++) {
+      days[i] = i;
+      closes[i] = 1e9 + random.nextInt(100) / 100.0;
+    }
+    IndicatorBuffer buffer = new IndicatorEngine(Indicator.bollinger(20, 1))
+            .compute(new PriceSeries(days, closes), 0, days.length, new IndicatorBuffer());
+    for (int i = 19; i < days.length; i++) {
+      double mean = 0;
+      for (int j = i - 19; j <= i; j++) {
+        mean += closes[j] / 20;
+      }
+      double variance = 0;
+      for (int j = i - 19; j <= i; j++) {
+        variance += (closes[j] - mean) * (closes[j] - mean) / 20;
+      }
+      double width = buffer.get(1, i) - buffer.get(0, i);
+      assertEquals("day " + i, Math.sqrt(variance), width, 1e-5);
+    }
+  }
+
+  /**
+   * Test that the values over a range are the values of the whole series on those days, when
+   * computed together in one engine and again into a reused buffer.
+   */
+  @Test
+  public void testRangeMatchesWholeSeries() {
+    IndicatorEngine engine = new IndicatorEngine(Indicator.sma(200), Indicator.ema(20),
+            Indicator.rsi(14), Indicator.bollinger(20, 2), Indicator.macd(12, 26, 9));
+    IndicatorBuffer whole = engine.compute(SERIES, 0, SERIES.size(), new IndicatorBuffer());
+    IndicatorBuffer reused = new IndicatorBuffer();
+    for (int from : new int[]{0, 150, 420}) {
+      engine.compute(SERIES, from, from + 100, reused);
+      assertEquals(100, reused.size());
+      for (int column = 0; column < engine.columns(); column++) {
+        for (int row = 0; row < 100; row++) {
+          assertEquals(whole.get(column, from + row), reused.get(column, row), 1e-9);
+        }
+      }
+    }
+
+    IndicatorBuffer alone = new IndicatorEngine(Indicator.rsi(14))
+            .compute(SERIES, 0, SERIES.size(), new IndicatorBuffer());
+    assertColumn(alone.column(0), whole, engine.column(Indicator.rsi(14)), 0);
+  }
+
+  /**
+   * Test that a history computes the indicators of the trading days of its price range.
+   */
+  @Test
+  public void testHistoryIndicators() {
+    IHistory history = new IHistoryImpl(SERIES);
+    Date start = EpochDays.toDate(300);
+    Date end = EpochDays.toDate(399);
+    IndicatorEngine engine = new IndicatorEngine(Indicator.sma(50));
+    IndicatorBuffer buffer = history.indicators(engine, start, end, new IndicatorBuffer());
+    assertEquals(history.priceRange(start, end).size(), buffer.size());
+    assertColumn(sma(CLOSES, 50), buffer, 0, 300);
+  }
+
+  /**
+   * Test that an engine needs distinct indicators.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateIndicator() {
+    new IndicatorEngine(Indicator.sma(5), Indicator.sma(5));
+  }
+
+  /**
+   * Test that MACD needs a fast window below the slow one.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMacdWindows() {
+    Indicator.macd(26, 12, 9);
+  }
+}
@@ -0,0 +1,173 @@
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import basket.IBasketImpl;
+import history.IHistoryImpl;
+import history.TickerSymbol;
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import metrics.MetricsServer;
+import model.IStockModel;
+import model.IStockModelImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for the metrics registry and its histograms.
+ */
+public class MetricsTest {
+
+  /**
+   * Test that the percentiles of a histogram are within a sixteenth of the exact ones.
+   */
+  @Test
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new MetricsRegistry().histogram("test_nanos");
+    Random random = new Random(5);
+    long[] values = new long[100_000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (long) Math.exp(random.nextDouble() * 20);
+      histogram.record(values[i]);
+    }
+    Arrays.sort(values);
+    for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999, 1}) {
+      long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+      long estimate = histogram.percentile(quantile);
+      assertTrue(quantile + ": " + exact + " vs " + estimate,
+              estimate >= exact && estimate <= exact + exact / 16 + 1);
+    }
+    assertEquals(values.length, histogram.count());
+    assertEquals(values[values.length - 1], histogram.max());
+    assertEquals(values[values.length - 1], histogram.percentile(1));
+  }
+
+  /**
+   * Test that an empty histogram and extreme values are handled.
+   */
+  @Test
+  public void testHistogramEdges() {
+    LatencyHistogram histogram = new MetricsRegistry().histogram("edge_nanos");
+    assertEquals(0, histogram.percentile(0.5));
+    assertEquals(0, histogram.mean(), 0);
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(0, histogram.percentile(0.5));
+    assertEquals(Long.MAX_VALUE, histogram.percentile(1));
+  }
+
+  /**
+   * Test that sampled calls are about one in sixteen, and that every call is still counted and
+   * exported as such, next to the count of the timed ones.
+   */
+  @Test
+  public void testSampling() {
+    MetricsRegistry registry = new MetricsRegistry();
+    LatencyHistogram histogram = registry.histogram("sampled_nanos");
+    for (int i = 0; i < 160_000; i++) {
+      histogram.recordSample(histogram.sampleStart());
+    }
+    assertTrue(histogram.sampled());
+    assertTrue(Long.toString(histogram.count()),
+            histogram.count() > 9000 && histogram.count() < 11000);
+    assertEquals(160_000, histogram.calls());
+    assertTrue(histogram.estimatedSum() >= histogram.sum());
+    Map<String, Number> values = registry.values();
+    assertEquals(160_000L, values.get("sampled_nanos_count"));
+    assertEquals(histogram.count(), values.get("sampled_nanos_sampled_count"));
+    assertEquals(histogram.sum(), values.get("sampled_nanos_sampled_sum"));
+    String dump = registry.dump();
+    assertTrue(dump, dump.contains("sampled_nanos_count 160000\n"));
+    assertTrue(dump, dump.contains("sampled_nanos_sampled_count " + histogram.count() + "\n"));
+  }
+
+  /**
+   * Test that a registry returns the same metric for a name and refuses a name of each kind.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegistryNames() {
+    MetricsRegistry registry = new MetricsRegistry();
+    Counter counter = registry.counter("events_total");
+    counter.add(3);
+    assertSame(counter, registry.counter("events_total"));
+    assertEquals(3L, registry.values().get("events_total"));
+    registry.histogram("events_total");
+  }
+
+  /**
+   * Test that the dump is in the Prometheus format.
+   */
+  @Test
+  public void testDump() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("events_total").increment();
+    registry.histogram("call_nanos").record(100);
+    String dump = registry.dump();
+    assertTrue(dump, dump.contains("# TYPE events_total counter\nevents_total 1\n"));
+    assertTrue(dump, dump.contains("# TYPE call_nanos summary\n"));
+    assertTrue(dump, dump.contains("call_nanos{quantile=\"0.99\"} 100\n"));
+    assertTrue(dump, dump.contains("call_nanos_count 1\n"));
+    assertTrue(dump, dump.contains("call_nanos_max 100\n"));
+    assertTrue(dump, dump.contains("call_nanos_sum 100\n"));
+    assertFalse(dump, dump.contains("_sampled_"));
+  }
+
+  /**
+   * Test that the model records its calls and the histories that fell back to empty ones, and
+   * that the global registry can be read over HTTP and JMX.
+   */
+  @Test
+  public void testModelMetricsServedAndExported() throws Exception {
+    MetricsRegistry registry = MetricsRegistry.global();
+    long fallbacks = registry.counter("history_empty_fallbacks_total").get();
+    long calls = registry.histogram("model_add_history_nanos").count();
+    new IHistoryImpl(TickerSymbol.IBM, tickerSymbol -> {
+      throw new IOException("offline");
+    });
+    assertEquals(fallbacks + 1, registry.counter("history_empty_fallbacks_total").get());
+
+    IStockModel model = new IStockModelImpl(new IBasketImpl(), tickerSymbol -> {
+      throw new IOException("offline");
+    });
+    model.addIHistory(TickerSymbol.IBM);
+    assertEquals(calls + 1, registry.histogram("model_add_history_nanos").count());
+
+    try (MetricsServer server = new MetricsServer(registry, 0)) {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      try (InputStream in = new URL(server.getUrl()).openStream()) {
+        byte[] buffer = new byte[4096];
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+          body.write(buffer, 0, read);
+        }
+      }
+      assertTrue(new String(body.toByteArray(), StandardCharsets.UTF_8)
+              .contains("# TYPE model_add_history_nanos summary"));
+    }
+
+    ObjectName name = new ObjectName("stock.test:type=Metrics");
+    registry.registerMBean(name.toString());
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      assertEquals(registry.counter("history_empty_fallbacks_total").get(),
+              server.getAttribute(name, "history_empty_fallbacks_total"));
+      assertTrue(((String) server.invoke(name, "dump", null, null)).contains("model_"));
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.HistorySource;
+import history.IHistory;
+import history.PriceColumn;
+import history.PriceSeries;
+import history.TickerSymbol;
+import model.IStockModelImpl;
+import model.ModelSnapshot;
+import stockapp.SyntheticHistorySource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This class represents a JUnit test for saving a model into a snapshot and restoring it: the
+ * restored histories, indexes and holdings must answer every query like the saved ones.
+ */
+public class ModelSnapshotTest {
+
+  private static final Date START = EpochDays.toDate(TestHistories.epochDay("2015-03-02"));
+  private static final Date MIDDLE = EpochDays.toDate(TestHistories.epochDay("2017-01-03"));
+  private static final Date END = EpochDays.toDate(TestHistories.LAST_DAY);
+
+  private final HistorySource source = new SyntheticHistorySource(TestHistories.LAST_DAY, 2);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Asserts that two histories have the same days, columns and query results.
+   *
+   * @param expected given expected history.
+   * @param actual   given actual history.
+   */
+  private static void assertSameHistory(IHistory expected, IHistory actual) {
+    PriceSeries expectedSeries = expected.priceSeries();
+    PriceSeries actualSeries = actual.priceSeries();
+    assertEquals(expectedSeries.columns(), actualSeries.columns());
+    assertEquals(expectedSeries.size(), actualSeries.size());
+    for (int i = 0; i < expectedSeries.size(); i++) {
+      assertEquals(expectedSeries.dayAt(i), actualSeries.dayAt(i));
+      assertEquals(expectedSeries.closeAt(i), actualSeries.closeAt(i), 0);
+      if (expectedSeries.hasColumn(PriceColumn.VOLUME)) {
+        assertEquals(expectedSeries.highAt(i), actualSeries.highAt(i), 0);
+        assertEquals(expectedSeries.volumeAt(i), actualSeries.volumeAt(i));
+      }
+    }
+    int first = expectedSeries.dayAt(0);
+    int last = expectedSeries.dayAt(expectedSeries.size() - 1);
+    for (int day = first - 3; day <= last + 3; day += 7) {
+      assertEquals(expectedSeries.indexOf(day), actualSeries.indexOf(day));
+    }
+    assertEquals(expected.buyOpportunities(START, END), actual.buyOpportunities(START, END));
+    assertEquals(expected.maxPrice(START, MIDDLE), actual.maxPrice(START, MIDDLE), 0);
+    assertEquals(expected.minPrice(MIDDLE, END), actual.minPrice(MIDDLE, END), 0);
+    assertEquals(expected.historicalPrices(MIDDLE, END), actual.historicalPrices(MIDDLE, END));
+  }
+
+  /**
+   * Test that a restored model has the histories, indexes and holdings of the saved one, with
+   * histories of closing prices and of every column, and queried ones that built their indexes.
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    IBasketImpl basket = new IBasketImpl();
+    IStockModelImpl model = new IStockModelImpl(basket, source);
+    assertTrue(model.addHistories(Arrays.asList(TickerSymbol.IBM, TickerSymbol.W)).isEmpty());
+    assertTrue(model.addHistories(Collections.singletonList(TickerSymbol.MSFT), 1,
+            PriceColumn.ALL).isEmpty());
+    basket.add(TickerSymbol.IBM, 10);
+    basket.add(TickerSymbol.MSFT, 3);
+    model.maxPrice(TickerSymbol.IBM, START, END);
+    model.buyOpportunities(TickerSymbol.MSFT, START, END);
+
+    ModelSnapshot snapshot = new ModelSnapshot(folder.getRoot().toPath().resolve("model.snap"));
+    assertFalse(snapshot.exists());
+    snapshot.save(model);
+    assertTrue(snapshot.exists());
+    IStockModelImpl restored = snapshot.restore(source);
+
+    assertEquals(model.snapshot().symbols(), restored.snapshot().symbols());
+    for (TickerSymbol tickerSymbol : model.snapshot().symbols()) {
+      assertSameHistory(model.snapshot().get(tickerSymbol), restored.snapshot().get(tickerSymbol));
+    }
+    assertEquals(model.totalPrice(MIDDLE), restored.totalPrice(MIDDLE), 0);
+    assertEquals(model.totalPrice(END), restored.totalPrice(END), 0);
+
+    //the restored model loads further histories from its source
+    restored.addIHistory(TickerSymbol.AAPL);
+    assertSameHistory(model.snapshot().get(TickerSymbol.W),
+            restored.snapshot().get(TickerSymbol.W));
+    assertEquals(4, restored.snapshot().size());
+  }
+
+  /**
+   * Test that a history appended to after a longer one was appended to from the same history,
+   * sharing its arrays, is saved without the days of the longer one.
+   */
+  @Test
+  public void testSharedArrays() throws IOException {
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(), source);
+    model.addIHistory(TickerSymbol.IBM);
+    IHistory base = model.snapshot().get(TickerSymbol.IBM);
+    base.maxPrice(START, END);
+    base.buyOpportunities(START, END);
+    Date next = new Date(END.getTime() + 24L * 3600 * 1000);
+    IHistory longer = base.append(next, 1000).append(
+            new Date(next.getTime() + 24L * 3600 * 1000), 2000);
+    longer.maxPrice(START, next);
+    longer.buyOpportunities(START, next);
+
+    Map<TickerSymbol, Double> closes = new HashMap<>();
+    closes.put(TickerSymbol.IBM, 1.0);
+    model.appendCloses(next, closes);
+    IHistory saved = model.snapshot().get(TickerSymbol.IBM);
+    saved.maxPrice(START, next);
+
+    ModelSnapshot snapshot = new ModelSnapshot(folder.newFile("model.snap").toPath());
+    snapshot.save(model);
+    IHistory restored = snapshot.restore(source).snapshot().get(TickerSymbol.IBM);
+    assertSameHistory(saved, restored);
+    assertEquals(saved.priceSeries().size(), restored.priceSeries().size());
+    assertEquals(1.0, restored.priceOnDay(next), 0);
+    assertEquals(saved.maxPrice(START, next), restored.maxPrice(START, next), 0);
+
+    //appending to the restored history keeps it apart from the days that were left out
+    IHistory appended = restored.append(new Date(next.getTime() + 24L * 3600 * 1000), 3);
+    assertEquals(1.0, appended.maxPrice(next, next), 0);
+  }
+
+  /**
+   * Test that an empty model is saved and restored.
+   */
+  @Test
+  public void testEmptyModel() throws IOException {
+    ModelSnapshot snapshot = new ModelSnapshot(folder.newFile("model.snap").toPath());
+    snapshot.save(new IStockModelImpl(new IBasketImpl(), source));
+    IStockModelImpl restored = snapshot.restore(source);
+    assertEquals(0, restored.snapshot().size());
+  }
+
+  /**
+   * Test that a file that is not a snapshot, or a truncated one, or one with a damaged header,
+   * offset or name, fails to restore with an IOException.
+   */
+  @Test
+  public void testCorruptFiles() throws IOException {
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(), source);
+    model.addHistories(Arrays.asList(TickerSymbol.IBM, TickerSymbol.MSFT), 1, PriceColumn.ALL);
+    model.maxPrice(TickerSymbol.IBM, START, END);
+    Path file = folder.newFile("model.snap").toPath();
+    new ModelSnapshot(file).save(model);
+    byte[] bytes = Files.readAllBytes(file);
+
+    //the same number of bytes, with two days of IBM out of order or a rank of its calendar off
+    PriceSeries ibm = model.snapshot().get(TickerSymbol.IBM).priceSeries();
+    byte[] unsorted = bytes.clone();
+    int days = indexOf(bytes, ibm.dayAt(0), ibm.dayAt(1), ibm.dayAt(2));
+    ByteBuffer.wrap(unsorted).putInt(days + 4, ibm.dayAt(2)).putInt(days + 8, ibm.dayAt(1));
+    byte[] miscounted = bytes.clone();
+    int calendar = indexOf(bytes, ibm.dayAt(0), ibm.dayAt(ibm.size() - 1), ibm.size());
+    ByteBuffer buffer = ByteBuffer.wrap(miscounted);
+    int secondRank = calendar + 4 * Integer.BYTES + buffer.getInt(calendar + 12) * Long.BYTES
+            + Integer.BYTES;
+    buffer.putInt(secondRank, buffer.getInt(secondRank) + 1);
+
+    List<byte[]> damaged = Arrays.asList(new byte[0], "timestamp,close\n".getBytes(),
+            Arrays.copyOf(bytes, bytes.length - 1), Arrays.copyOf(bytes, bytes.length / 2),
+            flipped(bytes, 0), flipped(bytes, 20), flipped(bytes, 40), unsorted, miscounted);
+    for (byte[] content : damaged) {
+      Files.write(file, content);
+      try {
+        new ModelSnapshot(file).restore(source);
+        fail("restored a damaged snapshot");
+      } catch (IOException e) {
+        //expected
+      }
+    }
+  }
+
+  /**
+   * Returns the position of a run of big-endian ints in bytes.
+   *
+   * @param bytes  given bytes.
+   * @param values given ints, in order.
+   * @return the position of the first int.
+   */
+  private static int indexOf(byte[] bytes, int... values) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    for (int i = 0; i + values.length * Integer.BYTES <= bytes.length; i++) {
+      int matched = 0;
+      while (matched < values.length
+              && buffer.getInt(i + matched * Integer.BYTES) == values[matched]) {
+        matched++;
+      }
+      if (matched == values.length) {
+        return i;
+      }
+    }
+    throw new AssertionError("ints not found");
+  }
+
+  /**
+   * Returns a copy of bytes with all the bits of one byte flipped.
+   *
+   * @param bytes    given bytes.
+   * @param position given position of the byte to flip.
+   * @return the damaged copy.
+   */
+  private static byte[] flipped(byte[] bytes, int position) {
+    byte[] copy = bytes.clone();
+    copy[position] = (byte) ~copy[position];
+    return copy;
+  }
+
+  /**
+   * Test that a missing snapshot fails to restore.
+   */
+  @Test(expected = IOException.class)
+  public void testMissingFile() throws IOException {
+    new ModelSnapshot(folder.getRoot().toPath().resolve("none.snap")).restore(source);
+  }
+}
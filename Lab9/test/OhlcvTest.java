@@ -0,0 +1,295 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Map;
+
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.HistorySource;
+import history.PriceColumn;
+import history.PriceRange;
+import history.PriceSeries;
+import history.TickerSymbol;
+import model.IStockModelImpl;
+import stockapp.CachedHistorySource;
+import stockapp.CsvHistoryParser;
+import stockapp.HistoryCache;
+import stockapp.SyntheticHistorySource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for the open, high, low and volume columns of a history:
+ * loading only the columns asked for, keeping them through appends and the history cache, and
+ * the range queries that read them.
+ */
+public class OhlcvTest {
+
+  private static final String CSV = "timestamp,open,high,low,close,volume\n"
+          + "2018-07-09,142.6600,144.6400,142.5000,144.3900,4058235\n"
+          + "2018-07-06,141.6000,142.9400,141.1700,142.4800,2053926\n"
+          + "2018-07-05,141.2200,141.6000,139.5400,141.4300,3427366\n";
+
+  private final SyntheticHistorySource synthetic =
+          new SyntheticHistorySource(TestHistories.LAST_DAY, 2);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Asserts that two series have the same days and the same values in every column of the
+   * expected one.
+   *
+   * @param expected given expected series.
+   * @param actual   given actual series.
+   */
+  private static void assertSameColumns(PriceSeries expected, PriceSeries actual) {
+    assertEquals(expected.columns(), actual.columns());
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.dayAt(i), actual.dayAt(i));
+      assertEquals(expected.closeAt(i), actual.closeAt(i), 0);
+      if (expected.hasColumn(PriceColumn.OPEN)) {
+        assertEquals(expected.openAt(i), actual.openAt(i), 0);
+      }
+      if (expected.hasColumn(PriceColumn.HIGH)) {
+        assertEquals(expected.highAt(i), actual.highAt(i), 0);
+      }
+      if (expected.hasColumn(PriceColumn.LOW)) {
+        assertEquals(expected.lowAt(i), actual.lowAt(i), 0);
+      }
+      if (expected.hasColumn(PriceColumn.VOLUME)) {
+        assertEquals(expected.volumeAt(i), actual.volumeAt(i));
+      }
+    }
+  }
+
+  /**
+   * Test that the parser keeps the columns asked for, and only those.
+   */
+  @Test
+  public void testParseSelectedColumns() throws IOException {
+    PriceSeries all = CsvHistoryParser.parse(new ByteArrayInputStream(
+            CSV.getBytes(StandardCharsets.US_ASCII)), PriceColumn.ALL);
+    assertEquals(PriceColumn.ALL, all.columns());
+    assertEquals(141.22, all.openAt(0), 0);
+    assertEquals(144.64, all.highAt(2), 0);
+    assertEquals(141.17, all.lowAt(1), 0);
+    assertEquals(141.43, all.closeAt(0), 0);
+    assertEquals(4058235, all.volumeAt(2));
+
+    PriceSeries volumes = CsvHistoryParser.parse(new ByteArrayInputStream(
+            CSV.getBytes(StandardCharsets.US_ASCII)), EnumSet.of(PriceColumn.VOLUME));
+    assertEquals(EnumSet.of(PriceColumn.CLOSE, PriceColumn.VOLUME), volumes.columns());
+    assertEquals(2053926, volumes.volumeAt(1));
+    PriceSeries closes = CsvHistoryParser.parse(new ByteArrayInputStream(
+            CSV.getBytes(StandardCharsets.US_ASCII)));
+    assertEquals(PriceColumn.CLOSE_ONLY, closes.columns());
+    assertSameColumns(closes, all.select(PriceColumn.CLOSE_ONLY));
+  }
+
+  /**
+   * Test that the history cache writes every column, reads back only the columns asked for, and
+   * still reads the files of the first version as closing prices.
+   */
+  @Test
+  public void testCacheColumns() throws IOException {
+    Path directory = folder.newFolder("stockcache").toPath();
+    HistoryCache cache = new HistoryCache(directory);
+    PriceSeries all = synthetic.load(TickerSymbol.IBM, PriceColumn.ALL);
+    cache.write(TickerSymbol.IBM, all);
+    assertSameColumns(all, cache.read(TickerSymbol.IBM));
+    assertSameColumns(all.select(PriceColumn.CLOSE_ONLY),
+            cache.read(TickerSymbol.IBM, PriceColumn.CLOSE_ONLY));
+    EnumSet<PriceColumn> range = EnumSet.of(PriceColumn.HIGH, PriceColumn.LOW);
+    assertSameColumns(all.select(range), cache.read(TickerSymbol.IBM, range));
+
+    ByteBuffer firstVersion = ByteBuffer.allocate(3 * Integer.BYTES + 2 * 12);
+    firstVersion.putInt(0x53544b48).putInt(1).putInt(2).putInt(17000).putInt(17001)
+            .putDouble(10.5).putDouble(11.25);
+    Files.write(cache.fileOf(TickerSymbol.MSFT), firstVersion.array());
+    PriceSeries closes = cache.read(TickerSymbol.MSFT, PriceColumn.ALL);
+    assertSameColumns(new PriceSeries(new int[]{17000, 17001}, new double[]{10.5, 11.25}),
+            closes);
+  }
+
+  /**
+   * Test that a cached source asks for the columns asked for and keeps the columns its file
+   * already has, so a load of closing prices after a load of every column is answered from the
+   * cache, as is a later load of every column.
+   */
+  @Test
+  public void testCachedSourceColumns() throws IOException {
+    HistoryCache cache = new HistoryCache(folder.newFolder("stockcache").toPath());
+    PriceSeries closes = new CachedHistorySource(cache, synthetic).load(TickerSymbol.AAPL);
+    assertEquals(PriceColumn.CLOSE_ONLY, closes.columns());
+    assertEquals(PriceColumn.CLOSE_ONLY, cache.read(TickerSymbol.AAPL).columns());
+    new CachedHistorySource(cache, synthetic).load(TickerSymbol.AAPL, PriceColumn.ALL);
+    assertEquals(PriceColumn.ALL, cache.read(TickerSymbol.AAPL).columns());
+
+    HistorySource offline = tickerSymbol -> {
+      throw new IOException("offline");
+    };
+    PriceSeries all = new CachedHistorySource(cache, offline)
+            .load(TickerSymbol.AAPL, PriceColumn.ALL);
+    assertSameColumns(synthetic.load(TickerSymbol.AAPL, PriceColumn.ALL), all);
+    assertSameColumns(closes, new CachedHistorySource(cache, offline).load(TickerSymbol.AAPL));
+  }
+
+  /**
+   * Test that a cached source over a source of closing prices only loads closing prices, and
+   * extends an older cache file of every column with them.
+   */
+  @Test
+  public void testCachedSourceOverClosingPrices() throws IOException {
+    HistorySource closesOnly = tickerSymbol -> synthetic.load(tickerSymbol);
+    HistoryCache cache = new HistoryCache(folder.newFolder("stockcache").toPath());
+    PriceSeries closes = new CachedHistorySource(cache, closesOnly).load(TickerSymbol.MSFT);
+    assertSameColumns(synthetic.load(TickerSymbol.MSFT), closes);
+    assertSameColumns(closes, cache.read(TickerSymbol.MSFT));
+
+    int today = EpochDays.fromDate(new Date());
+    int[] days = new int[20];
+    double[] prices = new double[days.length];
+    for (int i = 0; i < days.length; i++) {
+      days[i] = today - 30 + i;
+      prices[i] = 50 + i;
+    }
+    double[] cached = Arrays.copyOf(prices, 10);
+    cache.write(TickerSymbol.IBM, new PriceSeries(Arrays.copyOf(days, 10), cached, cached,
+            cached, cached, new long[10]));
+    Files.setLastModifiedTime(cache.fileOf(TickerSymbol.IBM),
+            FileTime.fromMillis(System.currentTimeMillis() - 24L * 60 * 60 * 1000));
+    for (int i = 5; i < days.length; i++) {
+      prices[i] += 1;
+    }
+    PriceSeries recent = new PriceSeries(Arrays.copyOfRange(days, 5, 20),
+            Arrays.copyOfRange(prices, 5, 20));
+    PriceSeries extended = new CachedHistorySource(cache, tickerSymbol -> recent)
+            .load(TickerSymbol.IBM);
+    assertEquals(20, extended.size());
+    for (int i = 0; i < days.length; i++) {
+      assertEquals(days[i], extended.dayAt(i));
+      assertEquals(prices[i], extended.closeAt(i), 0);
+    }
+    assertEquals(PriceColumn.ALL, cache.read(TickerSymbol.IBM).columns());
+  }
+
+  /**
+   * Test that appending and extending keep the columns of a series, and that a selection shares
+   * the days of its series.
+   */
+  @Test
+  public void testAppendKeepsColumns() {
+    PriceSeries all = synthetic.load(TickerSymbol.W, PriceColumn.ALL);
+    int size = all.size();
+    PriceSeries longer = all.append(TestHistories.LAST_DAY + 1, 10, 12, 9, 11, 500);
+    assertEquals(PriceColumn.ALL, longer.columns());
+    assertEquals(10, longer.openAt(size), 0);
+    assertEquals(12, longer.highAt(size), 0);
+    assertEquals(9, longer.lowAt(size), 0);
+    assertEquals(500, longer.volumeAt(size));
+
+    //the selection shares the columns, so it writes its next day in place and the longer series
+    //copies them for its own next day
+    PriceSeries selected = longer.select(EnumSet.of(PriceColumn.VOLUME));
+    assertFalse(selected.hasColumn(PriceColumn.OPEN));
+    assertSame(longer, longer.select(PriceColumn.ALL));
+    PriceSeries fromSelected = selected.append(TestHistories.LAST_DAY + 2, 1, 1, 1, 7, 70);
+    PriceSeries fromLonger = longer.append(TestHistories.LAST_DAY + 2, 2, 3, 1, 2.5, 80);
+    assertEquals(EnumSet.of(PriceColumn.CLOSE, PriceColumn.VOLUME), fromSelected.columns());
+    assertEquals(70, fromSelected.volumeAt(size + 1));
+    assertEquals(7, fromSelected.closeAt(size + 1), 0);
+    assertEquals(80, fromLonger.volumeAt(size + 1));
+    assertEquals(3, fromLonger.highAt(size + 1), 0);
+    assertEquals(2.5, fromLonger.closeAt(size + 1), 0);
+
+    PriceSeries closeOnly = fromLonger.append(TestHistories.LAST_DAY + 3, 13);
+    assertTrue(Double.isNaN(closeOnly.openAt(size + 2)));
+    assertEquals(0, closeOnly.volumeAt(size + 2));
+
+    PriceSeries extended = all.select(EnumSet.of(PriceColumn.VOLUME)).extend(fromLonger);
+    assertEquals(EnumSet.of(PriceColumn.CLOSE, PriceColumn.VOLUME), extended.columns());
+    assertEquals(size + 2, extended.size());
+    assertEquals(500, extended.volumeAt(size));
+    assertEquals(80, extended.volumeAt(size + 1));
+    assertSameColumns(all, synthetic.load(TickerSymbol.W, PriceColumn.ALL));
+  }
+
+  /**
+   * Test the volume weighted average price and the average true range against direct
+   * computations.
+   */
+  @Test
+  public void testVwapAndAverageTrueRange() {
+    PriceSeries all = synthetic.load(TickerSymbol.MSFT, PriceColumn.ALL);
+    for (int[] bounds : new int[][]{{0, all.size()}, {0, 1}, {100, 120}, {300, 301}}) {
+      PriceRange range = all.range(bounds[0], bounds[1]);
+      double value = 0;
+      double volume = 0;
+      double trueRange = 0;
+      for (int i = bounds[0]; i < bounds[1]; i++) {
+        double typical = (all.highAt(i) + all.lowAt(i) + all.closeAt(i)) / 3;
+        value += typical * all.volumeAt(i);
+        volume += all.volumeAt(i);
+        double[] candidates = i == 0 ? new double[]{all.highAt(i) - all.lowAt(i)}
+                : new double[]{all.highAt(i) - all.lowAt(i),
+                    Math.abs(all.highAt(i) - all.closeAt(i - 1)),
+                    Math.abs(all.lowAt(i) - all.closeAt(i - 1))};
+        trueRange += Arrays.stream(candidates).max().getAsDouble();
+      }
+      assertEquals(value / volume, range.vwap(), 1e-9);
+      assertEquals(trueRange / (bounds[1] - bounds[0]), range.averageTrueRange(), 1e-9);
+    }
+    assertTrue(Double.isNaN(all.range(5, 5).averageTrueRange()));
+    assertTrue(Double.isNaN(all.range(5, 5).vwap()));
+  }
+
+  /**
+   * Test that a model loads the columns asked for, and that a refresh keeps them.
+   */
+  @Test
+  public void testModelColumns() {
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(), synthetic);
+    Map<TickerSymbol, Exception> failures = model.addHistories(
+            Arrays.asList(TickerSymbol.IBM, TickerSymbol.W), 2, PriceColumn.ALL);
+    assertTrue(failures.isEmpty());
+    model.addHistories(Collections.singletonList(TickerSymbol.AAPL));
+    assertTrue(model.refreshHistories().isEmpty());
+    assertEquals(PriceColumn.ALL, model.snapshot().get(TickerSymbol.IBM).priceSeries().columns());
+    assertEquals(PriceColumn.CLOSE_ONLY,
+            model.snapshot().get(TickerSymbol.AAPL).priceSeries().columns());
+  }
+
+  /**
+   * Test that reading a column that was not loaded fails.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testColumnNotLoaded() {
+    synthetic.load(TickerSymbol.IBM).range(0, 10).vwap();
+  }
+
+  /**
+   * Test that a source of closing prices cannot load other columns.
+   */
+  @Test(expected = IOException.class)
+  public void testSourceWithoutColumns() throws IOException {
+    PriceSeries closes = synthetic.load(TickerSymbol.IBM);
+    ((HistorySource) tickerSymbol -> closes).load(TickerSymbol.IBM, PriceColumn.ALL);
+  }
+}
@@ -0,0 +1,110 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import basket.IPortfolioEngine;
+import basket.IPortfolioEngineImpl;
+import history.EpochDays;
+import history.HistoryTable;
+import history.IHistoryImpl;
+import history.PriceSeries;
+import history.TickerSymbol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for IPortfolioEngine, on small hand-made histories.
+ */
+public class PortfolioEngineTest {
+  private IPortfolioEngine engine;
+
+  /**
+   * Set up Before scenario. MSFT trades on days 1 to 3 and IBM on days 1 and 3. Alice holds 2
+   * MSFT and 1 IBM, Bob holds 5 MSFT.
+   */
+  @Before
+  public void setUp() {
+    HistoryTable histories = HistoryTable.EMPTY
+            .with(TickerSymbol.MSFT, new IHistoryImpl(new PriceSeries(
+                    new int[]{1, 2, 3}, new double[]{10, 11, 12})))
+            .with(TickerSymbol.IBM, new IHistoryImpl(new PriceSeries(
+                    new int[]{1, 3}, new double[]{100, 103})));
+    engine = new IPortfolioEngineImpl(() -> histories);
+    engine.add("alice", TickerSymbol.MSFT, 1);
+    engine.add("alice", TickerSymbol.IBM, 1);
+    engine.add("alice", TickerSymbol.MSFT, 1);
+    engine.add("bob", TickerSymbol.MSFT, 5);
+  }
+
+  /**
+   * Test that valueAll agrees with the value of each account.
+   */
+  @Test
+  public void testValueAll() {
+    Map<String, Double> values = engine.valueAll(EpochDays.toDate(3));
+    assertEquals(2, values.size());
+    assertEquals(2 * 12 + 103, values.get("alice"), 1e-9);
+    assertEquals(5 * 12, values.get("bob"), 1e-9);
+    assertEquals(values.get("alice"), engine.value("alice", EpochDays.toDate(3)), 1e-9);
+    assertEquals(values.get("alice"),
+            engine.basket("alice").basketValue(EpochDays.toDate(3),
+                    HistoryTable.EMPTY.with(TickerSymbol.IBM, new IHistoryImpl(new PriceSeries(
+                            new int[]{3}, new double[]{103})))
+                            .with(TickerSymbol.MSFT, new IHistoryImpl(new PriceSeries(
+                                    new int[]{3}, new double[]{12})))), 1e-9);
+  }
+
+  /**
+   * Test that an account holding a stock without a price on the day is valued NaN, and does not
+   * stop the others from being valued.
+   */
+  @Test
+  public void testValueAllMissingPrice() {
+    Map<String, Double> values = engine.valueAll(EpochDays.toDate(2));
+    assertTrue(Double.isNaN(values.get("alice")));
+    assertEquals(5 * 11, values.get("bob"), 1e-9);
+  }
+
+  /**
+   * Test that removing an account drops it from the valuation.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRemove() {
+    assertTrue(engine.remove("bob"));
+    assertFalse(engine.remove("bob"));
+    assertEquals(1, engine.accounts());
+    assertEquals(1, engine.valueAll(EpochDays.toDate(3)).size());
+    engine.value("bob", EpochDays.toDate(3));
+  }
+
+  /**
+   * Test that concurrent adds to the same and to different accounts are all counted.
+   */
+  @Test
+  public void testConcurrentAdds() throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          engine.add("shared", TickerSymbol.MSFT, 1);
+          engine.add("account" + i, TickerSymbol.IBM, 1);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Map<String, Double> values = engine.valueAll(EpochDays.toDate(3));
+    assertEquals(1003, engine.accounts());
+    assertEquals(4000 * 12, values.get("shared"), 1e-9);
+    assertEquals(4 * 103, values.get("account999"), 1e-9);
+  }
+}
@@ -0,0 +1,119 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import history.EpochDays;
+import history.IHistory;
+import history.IHistoryImpl;
+import history.PriceCursor;
+import history.PriceRange;
+import history.PriceSeries;
+import javafx.util.Pair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for the range views and cursors of a history.
+ */
+public class PriceRangeTest {
+  private IHistory history;
+
+  /**
+   * Set up Before scenario. The stock trades on the even days 0 to 18, closing at ten times the
+   * day.
+   */
+  @Before
+  public void setUp() {
+    int[] days = new int[10];
+    double[] closes = new double[10];
+    for (int i = 0; i < 10; i++) {
+      days[i] = 2 * i;
+      closes[i] = 20 * i;
+    }
+    history = new IHistoryImpl(new PriceSeries(days, closes));
+  }
+
+  /**
+   * Test that a range holds the trading days within its dates and reads them from the series.
+   */
+  @Test
+  public void testRange() {
+    PriceRange range = history.priceRange(EpochDays.toDate(3), EpochDays.toDate(10));
+    assertEquals(4, range.size());
+    assertEquals(4, range.dayAt(0));
+    assertEquals(10, range.dayAt(3));
+    assertEquals(100, range.closeAt(3), 0);
+    assertEquals(EpochDays.toDate(6), range.dateAt(1));
+    assertEquals(2, range.seriesIndex());
+    assertSame(history.priceSeries(), range.series());
+    assertTrue(history.priceRange(EpochDays.toDate(19), EpochDays.toDate(30)).isEmpty());
+  }
+
+  /**
+   * Test that a cursor walks every trading day of a range once, and can be reset.
+   */
+  @Test
+  public void testCursor() {
+    PriceRange range = history.priceRange(EpochDays.toDate(0), EpochDays.toDate(18));
+    PriceCursor cursor = range.cursor();
+    for (int pass = 0; pass < 2; pass++) {
+      int count = 0;
+      while (cursor.next()) {
+        assertEquals(count, cursor.position());
+        assertEquals(2 * count, cursor.day());
+        assertEquals(20 * count, cursor.close(), 0);
+        count++;
+      }
+      assertEquals(10, count);
+      assertFalse(cursor.next());
+      cursor.reset();
+    }
+  }
+
+  /**
+   * Test that reading a cursor past its range fails.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testCursorPastEnd() {
+    PriceCursor cursor = history.priceRange(EpochDays.toDate(1), EpochDays.toDate(1)).cursor();
+    assertFalse(cursor.next());
+    cursor.close();
+  }
+
+  /**
+   * Test that reading a range outside its trading days fails, even where the series has days.
+   */
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testRangeOutOfBounds() {
+    history.priceRange(EpochDays.toDate(0), EpochDays.toDate(4)).closeAt(3);
+  }
+
+  /**
+   * Test that historicalPrices lists the same trading days as the range.
+   */
+  @Test
+  public void testHistoricalPricesAdapter() {
+    Date start = EpochDays.toDate(5);
+    Date end = EpochDays.toDate(13);
+    List<Pair<Date, Double>> prices = history.historicalPrices(start, end);
+    PriceRange range = history.priceRange(start, end);
+    assertEquals(range.size(), prices.size());
+    for (int i = 0; i < prices.size(); i++) {
+      assertEquals(range.dateAt(i), prices.get(i).getKey());
+      assertEquals(range.closeAt(i), prices.get(i).getValue(), 0);
+    }
+  }
+
+  /**
+   * Test that a range ending before it starts fails.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRangeBackwards() {
+    history.priceRange(EpochDays.toDate(5), EpochDays.toDate(4));
+  }
+}
@@ -0,0 +1,189 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import basket.IBasketImpl;
+import history.EpochDays;
+import history.IHistory;
+import history.IHistoryImpl;
+import history.PriceSeries;
+import history.TickerSymbol;
+import javafx.util.Pair;
+import metrics.MetricsRegistry;
+import model.IStockModelImpl;
+import model.QueryCache;
+import stockapp.SyntheticHistorySource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for the query cache of IStockModelImpl.
+ */
+public class QueryCacheTest {
+
+  private static final Date START = EpochDays.toDate(TestHistories.LAST_DAY - 365);
+  private static final Date END = EpochDays.toDate(TestHistories.LAST_DAY);
+
+  /**
+   * Test that a repeated query is answered from the cache with the same result.
+   */
+  @Test
+  public void testRepeatedQueryHits() {
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(),
+            new SyntheticHistorySource(TestHistories.LAST_DAY, 2));
+    TickerSymbol symbol = TickerSymbol.of("CACHE1");
+    model.addIHistory(symbol);
+    QueryCache cache = model.queryCache();
+
+    List<Pair<Date, Double>> prices = model.stockHistory(symbol, START, END);
+    double max = model.maxPrice(symbol, START, END);
+    double min = model.minPrice(symbol, START, END);
+    assertEquals(prices, model.stockHistory(symbol, START, END));
+    assertEquals(max, model.maxPrice(symbol, START, END), 0);
+    assertEquals(min, model.minPrice(symbol, START, END), 0);
+    assertEquals(3, cache.hits());
+    assertEquals(3, cache.misses());
+    assertEquals(0.5, cache.hitRate(), 0);
+
+    IHistory history = model.snapshot().get(symbol);
+    assertEquals(history.historicalPrices(START, END), prices);
+    assertEquals(history.maxPrice(START, END), max, 0);
+    assertEquals(history.minPrice(START, END), min, 0);
+  }
+
+  /**
+   * Test that appending a day to a history drops the cached results of its stock only, so the
+   * next query sees the new day.
+   */
+  @Test
+  public void testAppendInvalidates() {
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(),
+            new SyntheticHistorySource(TestHistories.LAST_DAY, 2));
+    TickerSymbol appended = TickerSymbol.of("CACHE2");
+    TickerSymbol other = TickerSymbol.of("CACHE3");
+    model.addHistories(Arrays.asList(appended, other));
+    Date next = EpochDays.toDate(TestHistories.LAST_DAY + 3);
+
+    double max = model.maxPrice(appended, START, next);
+    List<Pair<Date, Double>> prices = model.stockHistory(appended, START, next);
+    List<Pair<Date, Double>> otherPrices = model.stockHistory(other, START, END);
+    model.appendCloses(next, Collections.singletonMap(appended, max + 1));
+    long hits = model.queryCache().hits();
+
+    assertEquals(max + 1, model.maxPrice(appended, START, next), 0);
+    List<Pair<Date, Double>> updated = model.stockHistory(appended, START, next);
+    assertEquals(prices.size() + 1, updated.size());
+    assertEquals(max + 1, updated.get(updated.size() - 1).getValue(), 0);
+    assertEquals(otherPrices, model.stockHistory(other, START, END));
+    assertEquals(hits + 1, model.queryCache().hits());
+  }
+
+  /**
+   * Test that the dates of a list of prices belong to its caller, so changing them does not
+   * change the list of the next caller.
+   */
+  @Test
+  public void testStockHistoryNotShared() {
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(),
+            new SyntheticHistorySource(TestHistories.LAST_DAY, 2));
+    TickerSymbol symbol = TickerSymbol.of("CACHE7");
+    model.addIHistory(symbol);
+    List<Pair<Date, Double>> prices = model.stockHistory(symbol, START, END);
+    Date first = prices.get(0).getKey();
+    long time = first.getTime();
+    first.setTime(0);
+    assertEquals(time, model.stockHistory(symbol, START, END).get(0).getKey().getTime());
+    assertEquals(1, model.queryCache().hits());
+  }
+
+  /**
+   * Test that two models count the hits and misses of their own caches only, though the global
+   * registry they share counts all of them.
+   */
+  @Test
+  public void testCountsPerCache() {
+    MetricsRegistry registry = MetricsRegistry.global();
+    long exported = registry.counter("query_cache_hits_total").get();
+    IStockModelImpl first = new IStockModelImpl(new IBasketImpl(),
+            new SyntheticHistorySource(TestHistories.LAST_DAY, 2));
+    IStockModelImpl second = new IStockModelImpl(new IBasketImpl(),
+            new SyntheticHistorySource(TestHistories.LAST_DAY, 2));
+    TickerSymbol symbol = TickerSymbol.of("CACHE8");
+    first.addIHistory(symbol);
+    second.addIHistory(symbol);
+    first.maxPrice(symbol, START, END);
+    first.maxPrice(symbol, START, END);
+    second.maxPrice(symbol, START, END);
+    assertEquals(1, first.queryCache().hits());
+    assertEquals(1, first.queryCache().misses());
+    assertEquals(0, second.queryCache().hits());
+    assertEquals(1, second.queryCache().misses());
+    assertTrue(registry.counter("query_cache_hits_total").get() - exported >= 1);
+  }
+
+  /**
+   * Test that a result computed from a history that was replaced since is not returned, even
+   * before it is invalidated.
+   */
+  @Test
+  public void testStaleHistoryMisses() {
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(),
+            new SyntheticHistorySource(TestHistories.LAST_DAY, 2));
+    TickerSymbol symbol = TickerSymbol.of("CACHE4");
+    model.addIHistory(symbol);
+    List<Pair<Date, Double>> prices = model.stockHistory(symbol, START, END);
+    model.addIHistory(symbol);
+    List<Pair<Date, Double>> reloaded = model.stockHistory(symbol, START, END);
+    assertEquals(prices, reloaded);
+    assertEquals(0, model.queryCache().hits());
+    assertEquals(2, model.queryCache().misses());
+  }
+
+  /**
+   * Test that the least recently used results are evicted to stay within the maximum weight.
+   */
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    int[] days = new int[1000];
+    double[] closes = new double[days.length];
+    for (int i = 0; i < days.length; i++) {
+      days[i] = i;
+      closes[i] = i;
+    }
+    IHistory history = new IHistoryImpl(new PriceSeries(days, closes));
+    TickerSymbol symbol = TickerSymbol.of("CACHE5");
+    IStockModelImpl model = new IStockModelImpl(new IBasketImpl(), tickerSymbol ->
+            history.priceSeries(), 16 * 8);
+    model.addIHistory(symbol);
+    for (int i = 0; i < 500; i++) {
+      model.stockHistory(symbol, EpochDays.toDate(i), EpochDays.toDate(i + 9));
+    }
+    QueryCache cache = model.queryCache();
+    assertTrue(cache.weight() <= 16 * 8);
+    assertTrue(cache.evictions() > 0);
+  }
+
+  /**
+   * Test that a new cache is empty and has no hit rate yet.
+   */
+  @Test
+  public void testEmptyCache() {
+    QueryCache cache = new QueryCache(100, new MetricsRegistry());
+    assertEquals(0, cache.hitRate(), 0);
+    assertEquals(0, cache.size());
+    cache.invalidate(Collections.singleton(TickerSymbol.of("CACHE6")));
+    assertEquals(0, cache.weight());
+  }
+
+  /**
+   * Test that the cache weight cannot be negative.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeWeight() {
+    new QueryCache(-1, new MetricsRegistry());
+  }
+}
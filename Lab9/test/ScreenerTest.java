@@ -0,0 +1,150 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import history.EpochDays;
+import history.HistoryTable;
+import history.IHistoryImpl;
+import history.PriceSeries;
+import history.TickerSymbol;
+import model.CrossoverEvent;
+import model.ScreenFilter;
+import model.Screener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class represents a JUnit test for Screener, on random walks whose crossovers are also
+ * found by brute force.
+ */
+public class ScreenerTest {
+
+  private static final int DAYS = 1500;
+
+  private HistoryTable histories;
+  private List<TickerSymbol> symbols;
+
+  /**
+   * Set up Before scenario. Forty stocks, each a random walk over days 0 to 1499.
+   */
+  @Before
+  public void setUp() {
+    histories = HistoryTable.EMPTY;
+    symbols = new ArrayList<>();
+    Random random = new Random(3);
+    for (int s = 0; s < 40; s++) {
+      TickerSymbol tickerSymbol = TickerSymbol.of("SCR" + s);
+      symbols.add(tickerSymbol);
+      histories = histories.with(tickerSymbol,
+              new IHistoryImpl(TestHistories.randomWalk(random, DAYS, 50)));
+    }
+  }
+
+  /**
+   * Returns true if the 50-day average is above the 200-day average on a day, by brute force.
+   *
+   * @param series given series.
+   * @param index  given position of the day.
+   * @return true if the short average is above the long one.
+   */
+  private static boolean above(PriceSeries series, int index) {
+    if (index < 199) {
+      return false;
+    }
+    double shortSum = 0;
+    double longSum = 0;
+    for (int i = index - 199; i <= index; i++) {
+      longSum += series.closeAt(i);
+      if (i > index - 50) {
+        shortSum += series.closeAt(i);
+      }
+    }
+    return shortSum / 50 > longSum / 200;
+  }
+
+  /**
+   * Returns the crossovers of every stock between two days that the filter accepts, by brute
+   * force, in the order the screener sorts them.
+   *
+   * @param from   given first day.
+   * @param to     given last day.
+   * @param filter given filter.
+   * @return the crossovers as strings.
+   */
+  private List<String> bruteForce(int from, int to, ScreenFilter filter) {
+    List<String> events = new ArrayList<>();
+    for (int day = from; day <= to; day++) {
+      for (TickerSymbol tickerSymbol : histories.symbols()) {
+        PriceSeries series = histories.get(tickerSymbol).priceSeries();
+        if (above(series, day) && !above(series, day - 1) && filter.accept(series, day)) {
+          events.add(new CrossoverEvent(tickerSymbol, day, series.closeAt(day)).toString());
+        }
+      }
+    }
+    return events;
+  }
+
+  /**
+   * Returns the crossovers as strings.
+   *
+   * @param events given crossovers.
+   * @return the crossovers as strings.
+   */
+  private static List<String> strings(List<CrossoverEvent> events) {
+    List<String> result = new ArrayList<>();
+    for (CrossoverEvent event : events) {
+      result.add(event.toString());
+    }
+    return result;
+  }
+
+  /**
+   * Test that the screener finds the same crossovers as brute force, including one on the first
+   * day of the range.
+   */
+  @Test
+  public void testScreenMatchesBruteForce() {
+    Screener screener = new Screener(histories);
+    for (int[] range : new int[][]{{0, DAYS - 1}, {700, 900}, {1200, 1200}}) {
+      List<String> expected = bruteForce(range[0], range[1], ScreenFilter.ANY);
+      assertEquals(expected, strings(screener.screen(EpochDays.toDate(range[0]),
+              EpochDays.toDate(range[1]), ScreenFilter.ANY)));
+    }
+    assertTrue(bruteForce(0, DAYS - 1, ScreenFilter.ANY).size() > 100);
+  }
+
+  /**
+   * Test that the filters drop the crossovers they do not accept.
+   */
+  @Test
+  public void testScreenFilters() {
+    ScreenFilter filter = ScreenFilter.minPrice(40).and(ScreenFilter.trendUp(20));
+    List<String> expected = bruteForce(0, DAYS - 1, filter);
+    assertTrue(expected.size() < bruteForce(0, DAYS - 1, ScreenFilter.ANY).size());
+    assertEquals(expected, strings(new Screener(histories).screen(EpochDays.toDate(0),
+            EpochDays.toDate(DAYS - 1), filter)));
+  }
+
+  /**
+   * Test that screening the last trading days finds the crossovers of those days only.
+   */
+  @Test
+  public void testScreenRecent() {
+    Date last = EpochDays.toDate(DAYS - 1);
+    assertEquals(bruteForce(DAYS - 30, DAYS - 1, ScreenFilter.ANY),
+            strings(new Screener(histories).screenRecent(last, 30, ScreenFilter.ANY)));
+  }
+
+  /**
+   * Test that screening a range ending before it starts fails.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testScreenBackwards() {
+    new Screener(histories).screen(EpochDays.toDate(10), EpochDays.toDate(9), ScreenFilter.ANY);
+  }
+}
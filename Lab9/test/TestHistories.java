@@ -0,0 +1,54 @@
+import java.time.LocalDate;
+import java.util.Random;
+
+import history.PriceSeries;
+
+/**
+ * This class represents the histories the tests share: the last trading day of the synthetic
+ * histories, and random walks of closing prices. It needs no network, unlike IStockModelTest.
+ */
+final class TestHistories {
+
+  /**
+   * The last trading day of the synthetic histories the tests load, 2018-07-09.
+   */
+  static final int LAST_DAY = epochDay("2018-07-09");
+
+  /**
+   * Empty constructor, this class only has static members.
+   */
+  private TestHistories() {
+    //empty because this class is never instantiated.
+  }
+
+  /**
+   * Returns the epoch day of a date.
+   *
+   * @param date given date, in yyyy-MM-dd format.
+   * @return the epoch day.
+   */
+  static int epochDay(String date) {
+    return (int) LocalDate.parse(date).toEpochDay();
+  }
+
+  /**
+   * Returns a random walk of closing prices over consecutive days starting at day 0, each close
+   * a standard normal step away from the previous one and never below 1.
+   *
+   * @param random given source of the steps.
+   * @param size   given number of days.
+   * @param start  given price the walk starts from, before its first day.
+   * @return the series.
+   */
+  static PriceSeries randomWalk(Random random, int size, double start) {
+    int[] days = new int[size];
+    double[] closes = new double[size];
+    double close = start;
+    for (int i = 0; i < size; i++) {
+      close = Math.max(1, close + random.nextGaussian());
+      days[i] = i;
+      closes[i] = close;
+    }
+    return new PriceSeries(days, closes);
+  }
+}
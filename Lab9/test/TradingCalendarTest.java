@@ -0,0 +1,103 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import history.PriceSeries;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class represents a JUnit test for the lookups of PriceSeries by day, which read the
+ * trading calendar of the series, against a binary search over its days.
+ */
+public class TradingCalendarTest {
+
+  /**
+   * Returns random strictly increasing days.
+   *
+   * @param random given random numbers.
+   * @param size   given number of days.
+   * @param first  given first day.
+   * @param maxGap given largest gap between two days.
+   * @return the days.
+   */
+  private static int[] days(Random random, int size, int first, int maxGap) {
+    int[] days = new int[size];
+    int day = first;
+    for (int i = 0; i < size; i++) {
+      days[i] = day;
+      day += 1 + random.nextInt(maxGap);
+    }
+    return days;
+  }
+
+  /**
+   * Asserts that every lookup of a series around its days matches a binary search of the days.
+   *
+   * @param series given series.
+   * @param days   given days of the series.
+   */
+  private static void assertLookups(PriceSeries series, int[] days) {
+    assertEquals(days.length, series.size());
+    int from = days.length == 0 ? -5 : days[0] - 5;
+    int to = days.length == 0 ? 5 : days[days.length - 1] + 5;
+    for (int day = from; day <= to; day++) {
+      int index = Arrays.binarySearch(days, day);
+      int insertion = index >= 0 ? index : -index - 1;
+      assertEquals(index, series.indexOf(day));
+      assertEquals(insertion, series.lowerBound(day));
+      assertEquals(index >= 0 ? index + 1 : insertion, series.upperBound(day));
+    }
+    assertEquals(0, series.lowerBound(Integer.MIN_VALUE));
+    assertEquals(days.length, series.upperBound(Integer.MAX_VALUE));
+  }
+
+  /**
+   * Test lookups over dense trading days, over sparse days that are searched instead, and over
+   * days before 1970.
+   */
+  @Test
+  public void testLookups() {
+    Random random = new Random(3);
+    for (int maxGap : new int[]{1, 4, 40, 500}) {
+      for (int size : new int[]{0, 1, 2, 63, 64, 65, 1000}) {
+        int[] days = days(random, size, -300 + random.nextInt(600), maxGap);
+        assertLookups(new PriceSeries(days, new double[size]), days);
+      }
+    }
+  }
+
+  /**
+   * Test that appending days one at a time, to the longest series and to older ones that then
+   * copy their days, keeps the lookups of every series right.
+   */
+  @Test
+  public void testAppends() {
+    Random random = new Random(9);
+    int[] days = days(random, 2000, 17000, 4);
+    PriceSeries[] series = new PriceSeries[days.length + 1];
+    series[0] = PriceSeries.EMPTY;
+    for (int i = 0; i < days.length; i++) {
+      series[i + 1] = series[i].append(days[i], i);
+    }
+    for (int size : new int[]{0, 1, 100, 1000, 2000}) {
+      assertLookups(series[size], Arrays.copyOf(days, size));
+    }
+
+    //append other days to older series, which must not see the days of the longer ones
+    int[] forked = Arrays.copyOf(days, 1000);
+    PriceSeries fork = series[900];
+    for (int i = 900; i < 1000; i++) {
+      forked[i] = forked[i - 1] + 1 + (i & 1) * 3;
+      fork = fork.append(forked[i], i);
+    }
+    assertLookups(fork, forked);
+    assertLookups(series[1000], Arrays.copyOf(days, 1000));
+    assertLookups(series[2000], days);
+
+    //a gap far longer than the days so far makes the series search its days
+    int[] sparse = {0, 1, 100_000};
+    assertLookups(PriceSeries.EMPTY.append(0, 1).append(1, 1).append(100_000, 1), sparse);
+  }
+}